@@ -16,6 +16,8 @@
  */
 package org.jclouds.cloudstack;
 import static org.jclouds.cloudstack.config.CloudStackProperties.AUTO_GENERATE_KEYPAIRS;
+import static org.jclouds.cloudstack.config.CloudStackProperties.JOB_POLL_PERIOD;
+import static org.jclouds.cloudstack.config.CloudStackProperties.JOB_TIMEOUT;
 import static org.jclouds.reflect.Reflection2.typeToken;
 
 import java.net.URI;
@@ -54,6 +56,8 @@ public class CloudStackApiMetadata extends BaseHttpApiMetadata<CloudStackApi> {
       properties.setProperty("jclouds.ssh.max-retries", "7");
       properties.setProperty("jclouds.ssh.retry-auth", "true");
       properties.setProperty(AUTO_GENERATE_KEYPAIRS, "false");
+      properties.setProperty(JOB_POLL_PERIOD, "2000");
+      properties.setProperty(JOB_TIMEOUT, "1200000");
       return properties;
    }
 
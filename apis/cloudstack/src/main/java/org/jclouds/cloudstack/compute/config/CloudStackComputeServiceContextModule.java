@@ -16,10 +16,10 @@
  */
 package org.jclouds.cloudstack.compute.config;
 
-import static java.util.concurrent.TimeUnit.SECONDS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.jclouds.Constants.PROPERTY_SESSION_INTERVAL;
 import static org.jclouds.cloudstack.config.CloudStackProperties.AUTO_GENERATE_KEYPAIRS;
-import static org.jclouds.util.Predicates2.retry;
+import static org.jclouds.cloudstack.config.CloudStackProperties.JOB_TIMEOUT;
 
 import java.util.Map;
 import java.util.Set;
@@ -69,7 +69,7 @@ import org.jclouds.cloudstack.functions.GetFirewallRulesByVirtualMachine;
 import org.jclouds.cloudstack.functions.GetIPForwardingRulesByVirtualMachine;
 import org.jclouds.cloudstack.functions.StaticNATVirtualMachineInNetwork;
 import org.jclouds.cloudstack.functions.ZoneIdToZone;
-import org.jclouds.cloudstack.predicates.JobComplete;
+import org.jclouds.cloudstack.strategy.AsyncJobTracker;
 import org.jclouds.cloudstack.suppliers.GetCurrentUser;
 import org.jclouds.cloudstack.suppliers.NetworksForCurrentUser;
 import org.jclouds.cloudstack.suppliers.ProjectsForCurrentUser;
@@ -238,8 +238,18 @@ public class CloudStackComputeServiceContextModule extends
 
    @Provides
    @Singleton
-   protected Predicate<String> jobComplete(JobComplete jobComplete) {
-      return retry(jobComplete, 1200, 1, 5, SECONDS);
+   protected Predicate<String> jobComplete(final AsyncJobTracker jobTracker, @Named(JOB_TIMEOUT) final long timeout) {
+      return new Predicate<String>() {
+         @Override
+         public boolean apply(String jobId) {
+            return jobTracker.awaitCompletion(jobId, timeout, MILLISECONDS);
+         }
+
+         @Override
+         public String toString() {
+            return "jobComplete(" + jobTracker + ")";
+         }
+      };
    }
 
    @Provides
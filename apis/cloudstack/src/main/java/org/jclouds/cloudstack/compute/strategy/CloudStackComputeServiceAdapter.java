@@ -22,6 +22,7 @@ import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.collect.Iterables.contains;
 import static com.google.common.collect.Iterables.filter;
 import static com.google.common.collect.Iterables.get;
+import static org.jclouds.cloudstack.config.CloudStackProperties.JOB_TIMEOUT;
 import static org.jclouds.cloudstack.options.DeployVirtualMachineOptions.Builder.displayName;
 import static org.jclouds.cloudstack.options.ListTemplatesOptions.Builder.id;
 import static org.jclouds.cloudstack.predicates.TemplatePredicates.isReady;
@@ -35,6 +36,7 @@ import javax.inject.Singleton;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import com.google.common.base.Predicate;
 import com.google.common.base.Supplier;
@@ -72,6 +74,7 @@ import org.jclouds.cloudstack.options.CreateTagsOptions;
 import org.jclouds.cloudstack.options.DeployVirtualMachineOptions;
 import org.jclouds.cloudstack.options.ListFirewallRulesOptions;
 import org.jclouds.cloudstack.options.ListTemplatesOptions;
+import org.jclouds.cloudstack.strategy.AsyncJobTracker;
 import org.jclouds.cloudstack.strategy.BlockUntilJobCompletesAndReturnResult;
 import org.jclouds.collect.Memoized;
 import org.jclouds.compute.ComputeServiceAdapter;
@@ -95,7 +98,8 @@ public class CloudStackComputeServiceAdapter implements
    protected Logger logger = Logger.NULL;
 
    private final CloudStackApi client;
-   private final Predicate<String> jobComplete;
+   private final AsyncJobTracker jobTracker;
+   private final long jobTimeout;
    private final Supplier<Map<String, Network>> networkSupplier;
    private final Supplier<Map<String, Project>> projectSupplier;
    private final BlockUntilJobCompletesAndReturnResult blockUntilJobCompletesAndReturnResult;
@@ -112,7 +116,8 @@ public class CloudStackComputeServiceAdapter implements
    private final GetLoginForProviderFromPropertiesAndStoreCredentialsOrReturnNull credentialsProvider;
 
    @Inject
-   public CloudStackComputeServiceAdapter(CloudStackApi client, Predicate<String> jobComplete,
+   public CloudStackComputeServiceAdapter(CloudStackApi client, AsyncJobTracker jobTracker,
+                                          @Named(JOB_TIMEOUT) long jobTimeout,
                                           @Memoized Supplier<Map<String, Network>> networkSupplier,
                                           @Memoized Supplier<Map<String, Project>> projectSupplier,
                                           BlockUntilJobCompletesAndReturnResult blockUntilJobCompletesAndReturnResult,
@@ -128,7 +133,8 @@ public class CloudStackComputeServiceAdapter implements
                                           GroupNamingConvention.Factory namingConvention,
                                           GetLoginForProviderFromPropertiesAndStoreCredentialsOrReturnNull credentialsProvider) {
       this.client = checkNotNull(client, "client");
-      this.jobComplete = checkNotNull(jobComplete, "jobComplete");
+      this.jobTracker = checkNotNull(jobTracker, "jobTracker");
+      this.jobTimeout = jobTimeout;
       this.networkSupplier = checkNotNull(networkSupplier, "networkSupplier");
       this.projectSupplier = checkNotNull(projectSupplier, "projectSupplier");
       this.blockUntilJobCompletesAndReturnResult = checkNotNull(blockUntilJobCompletesAndReturnResult,
@@ -458,13 +464,12 @@ public class CloudStackComputeServiceAdapter implements
 
    public void awaitCompletion(Iterable<String> jobs) {
       logger.debug(">> awaiting completion of jobs(%s)", jobs);
-      for (String job : jobs)
-         awaitCompletion(job);
-      logger.trace("<< completed jobs(%s)", jobs);
+      boolean completed = jobTracker.awaitCompletion(jobs, jobTimeout, TimeUnit.MILLISECONDS);
+      logger.trace("<< jobs(%s) complete(%s)", jobs, completed);
    }
 
    public void awaitCompletion(String job) {
-      boolean completed = jobComplete.apply(job);
+      boolean completed = jobTracker.awaitCompletion(job, jobTimeout, TimeUnit.MILLISECONDS);
       logger.trace("<< job(%s) complete(%s)", job, completed);
    }
 
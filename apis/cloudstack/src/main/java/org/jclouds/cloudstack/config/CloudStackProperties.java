@@ -46,6 +46,17 @@ public final class CloudStackProperties {
     */
    public static final String AUTO_GENERATE_KEYPAIRS = "jclouds.cloudstack.auto-generate-keypairs";
 
+   /**
+    * Milliseconds between refreshes of the status of outstanding async jobs. All jobs awaited in a context share a
+    * single poller.
+    */
+   public static final String JOB_POLL_PERIOD = "jclouds.cloudstack.job-poll-period";
+
+   /**
+    * Milliseconds to wait for an async job to complete.
+    */
+   public static final String JOB_TIMEOUT = "jclouds.cloudstack.job-timeout";
+
    private CloudStackProperties() {
       throw new AssertionError("intentionally unimplemented");
    }
@@ -0,0 +1,296 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.cloudstack.strategy;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.util.concurrent.Futures.allAsList;
+import static org.jclouds.cloudstack.config.CloudStackProperties.JOB_POLL_PERIOD;
+import static org.jclouds.cloudstack.config.CloudStackProperties.JOB_TIMEOUT;
+import static org.jclouds.cloudstack.options.ListAsyncJobsOptions.Builder.startDate;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.annotation.Resource;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.jclouds.cloudstack.AsyncJobException;
+import org.jclouds.cloudstack.CloudStackApi;
+import org.jclouds.cloudstack.domain.AsyncJob;
+import org.jclouds.compute.reference.ComputeServiceConstants;
+import org.jclouds.lifecycle.Closer;
+import org.jclouds.logging.Logger;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+
+/**
+ * Tracks outstanding async jobs for the whole context.
+ * <p/>
+ * Instead of each caller polling {@code queryAsyncJobResult} for its own job, a single background task lists all
+ * async jobs once per {@link org.jclouds.cloudstack.config.CloudStackProperties#JOB_POLL_PERIOD poll period} and
+ * completes the future of every tracked job that has finished. When only one job is outstanding, it is queried
+ * directly, as that is cheaper than a full listing. Jobs absent from the listing are also queried directly.
+ * <p/>
+ * A job is given up on, and its future failed, once it has been tracked for longer than
+ * {@link org.jclouds.cloudstack.config.CloudStackProperties#JOB_TIMEOUT the job timeout}, or once the server has not
+ * known it for several polls in a row. Polling stops while no job is tracked.
+ */
+@Singleton
+public class AsyncJobTracker {
+   @Resource
+   @Named(ComputeServiceConstants.COMPUTE_LOGGER)
+   protected Logger logger = Logger.NULL;
+
+   /**
+    * jobs are listed from slightly before the oldest tracked job, to allow for clock skew with the server.
+    */
+   private static final long LISTING_SKEW_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+   /**
+    * polls in a row a job may be unknown to the server, such as after it was purged, before it is given up on.
+    */
+   @VisibleForTesting
+   static final int MAX_UNKNOWN_POLLS = 5;
+
+   private final CloudStackApi client;
+   private final long pollPeriodMillis;
+   private final ScheduledExecutorService scheduler;
+   private final ConcurrentMap<String, TrackedJob> outstanding = Maps.newConcurrentMap();
+   private ScheduledFuture<?> poller;
+   private long maxTrackingMillis = TimeUnit.MINUTES.toMillis(20);
+
+   @Inject
+   AsyncJobTracker(CloudStackApi client, @Named(JOB_POLL_PERIOD) long pollPeriodMillis, Closer closer) {
+      this(client, pollPeriodMillis, Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+            .setNameFormat("cloudstack job tracker %d").setDaemon(true).build()));
+      closer.addToClose(new Closeable() {
+         @Override
+         public void close() throws IOException {
+            scheduler.shutdownNow();
+         }
+      });
+   }
+
+   @VisibleForTesting
+   AsyncJobTracker(CloudStackApi client, long pollPeriodMillis, ScheduledExecutorService scheduler) {
+      this.client = checkNotNull(client, "client");
+      this.pollPeriodMillis = pollPeriodMillis;
+      this.scheduler = checkNotNull(scheduler, "scheduler");
+   }
+
+   @Inject(optional = true)
+   void setMaxTrackingMillis(@Named(JOB_TIMEOUT) long maxTrackingMillis) {
+      this.maxTrackingMillis = maxTrackingMillis;
+   }
+
+   private static final class TrackedJob {
+      private final SettableFuture<AsyncJob<?>> future = SettableFuture.create();
+      private final long trackedSince = System.currentTimeMillis();
+      private int unknownPolls;
+   }
+
+   /**
+    * Starts tracking a job, if it isn't already.
+    *
+    * @param jobId
+    *           job to track
+    * @return a future that completes with the job once it succeeds, or fails with an {@link AsyncJobException} if the
+    *         job fails.
+    */
+   @SuppressWarnings("unchecked")
+   public <T> ListenableFuture<AsyncJob<T>> track(String jobId) {
+      checkNotNull(jobId, "jobId");
+      TrackedJob job = new TrackedJob();
+      TrackedJob existing = outstanding.putIfAbsent(jobId, job);
+      if (existing != null)
+         job = existing;
+      else
+         logger.trace(">> tracking job(%s)", jobId);
+      ensurePolling();
+      return (ListenableFuture<AsyncJob<T>>) (ListenableFuture<?>) job.future;
+   }
+
+   /**
+    * Blocks until all of the jobs complete, or the timeout elapses. A timeout only ends the wait of this caller: the
+    * jobs stay tracked, as other callers may be waiting on them, until they complete or are given up on.
+    *
+    * @return true if all jobs completed successfully in time
+    * @throws AsyncJobException
+    *            if any of the jobs failed
+    */
+   public boolean awaitCompletion(Iterable<String> jobIds, long timeout, TimeUnit unit) {
+      ImmutableList.Builder<ListenableFuture<AsyncJob<Object>>> futures = ImmutableList.builder();
+      for (String jobId : jobIds)
+         futures.add(this.<Object> track(jobId));
+      ListenableFuture<List<AsyncJob<Object>>> all = allAsList(futures.build());
+      try {
+         all.get(timeout, unit);
+         return true;
+      } catch (TimeoutException e) {
+         return false;
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw Throwables.propagate(e);
+      } catch (ExecutionException e) {
+         throw Throwables.propagate(e.getCause());
+      }
+   }
+
+   /**
+    * @see #awaitCompletion(Iterable, long, TimeUnit)
+    */
+   public boolean awaitCompletion(String jobId, long timeout, TimeUnit unit) {
+      return awaitCompletion(ImmutableSet.of(jobId), timeout, unit);
+   }
+
+   private synchronized void ensurePolling() {
+      if (poller == null && !scheduler.isShutdown()) {
+         poller = scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+               try {
+                  poll();
+               } catch (RuntimeException e) {
+                  logger.warn(e, "error polling async jobs(%s); will retry", outstanding.keySet());
+               }
+            }
+
+            @Override
+            public String toString() {
+               return "pollAsyncJobs()";
+            }
+         }, 0, pollPeriodMillis, TimeUnit.MILLISECONDS);
+      }
+   }
+
+   private synchronized void stopPollingIfIdle() {
+      if (poller != null && outstanding.isEmpty()) {
+         poller.cancel(false);
+         poller = null;
+      }
+   }
+
+   /**
+    * Refreshes the status of all outstanding jobs and completes the ones that are finished.
+    */
+   @VisibleForTesting
+   void poll() {
+      Set<String> jobIds = ImmutableSet.copyOf(outstanding.keySet());
+      if (jobIds.isEmpty()) {
+         stopPollingIfIdle();
+         return;
+      }
+      Map<String, AsyncJob<?>> jobsById = ImmutableMap.of();
+      if (jobIds.size() > 1) {
+         logger.trace(">> listing async jobs to refresh jobs(%s)", jobIds);
+         try {
+            jobsById = Maps.newHashMap();
+            for (AsyncJob<?> job : client.getAsyncJobApi().listAsyncJobs(startDate(new Date(oldestTrackedSince()
+                  - LISTING_SKEW_MILLIS)))) {
+               jobsById.put(job.getId(), job);
+            }
+         } catch (RuntimeException e) {
+            logger.warn(e, "error listing async jobs; querying jobs(%s) directly", jobIds);
+            jobsById = ImmutableMap.of();
+         }
+      }
+      for (String jobId : jobIds) {
+         AsyncJob<?> job = jobsById.get(jobId);
+         if (job == null) {
+            try {
+               refresh(jobId, client.getAsyncJobApi().getAsyncJob(jobId));
+            } catch (RuntimeException e) {
+               logger.warn(e, "error refreshing job(%s); will retry", jobId);
+               giveUpIfTooOld(jobId);
+            }
+         } else {
+            refresh(jobId, job);
+         }
+      }
+      stopPollingIfIdle();
+   }
+
+   private long oldestTrackedSince() {
+      long oldest = System.currentTimeMillis();
+      for (TrackedJob job : outstanding.values())
+         oldest = Math.min(oldest, job.trackedSince);
+      return oldest;
+   }
+
+   private void refresh(String jobId, AsyncJob<?> job) {
+      TrackedJob tracked = outstanding.get(jobId);
+      if (tracked == null)
+         return;
+      if (job == null) {
+         if (++tracked.unknownPolls >= MAX_UNKNOWN_POLLS) {
+            giveUp(jobId, tracked, String.format("job %s is unknown to the server", jobId));
+            return;
+         }
+      } else if (job.hasFailed() || job.hasSucceed()) {
+         complete(jobId, tracked, job);
+         return;
+      } else {
+         tracked.unknownPolls = 0;
+      }
+      giveUpIfTooOld(jobId);
+   }
+
+   private void giveUpIfTooOld(String jobId) {
+      TrackedJob tracked = outstanding.get(jobId);
+      if (tracked != null && System.currentTimeMillis() - tracked.trackedSince > maxTrackingMillis)
+         giveUp(jobId, tracked, String.format("job %s did not complete within %dms", jobId, maxTrackingMillis));
+   }
+
+   private void giveUp(String jobId, TrackedJob tracked, String message) {
+      if (!outstanding.remove(jobId, tracked))
+         return;
+      logger.warn("<< giving up on job(%s): %s", jobId, message);
+      tracked.future.setException(new AsyncJobException(message));
+   }
+
+   private void complete(String jobId, TrackedJob tracked, AsyncJob<?> job) {
+      if (!outstanding.remove(jobId, tracked))
+         return;
+      logger.trace("<< job(%s) complete(%s)", jobId, job.getStatus());
+      if (job.hasFailed())
+         tracked.future.setException(new AsyncJobException(String.format("job %s failed with exception %s", job,
+               job.getError())));
+      else
+         tracked.future.set(job);
+   }
+}
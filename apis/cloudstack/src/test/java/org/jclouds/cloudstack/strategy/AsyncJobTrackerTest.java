@@ -0,0 +1,302 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.cloudstack.strategy;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.jclouds.cloudstack.AsyncJobException;
+import org.jclouds.cloudstack.CloudStackApi;
+import org.jclouds.cloudstack.domain.AsyncJob;
+import org.jclouds.cloudstack.domain.VirtualMachine;
+import org.jclouds.cloudstack.features.AsyncJobApi;
+import org.jclouds.cloudstack.functions.ParseAsyncJobsFromHttpResponse;
+import org.jclouds.cloudstack.options.ListAsyncJobsOptions;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.json.config.GsonModule;
+import org.testng.annotations.Test;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+
+/**
+ * Tests behavior of {@code AsyncJobTracker} against a canned {@code listAsyncJobs} response
+ */
+@Test(groups = "unit", testName = "AsyncJobTrackerTest")
+public class AsyncJobTrackerTest {
+
+   Injector injector = Guice.createInjector(new GsonModule() {
+
+      @Override
+      protected void configure() {
+         bind(DateAdapter.class).to(Iso8601DateAdapter.class);
+         super.configure();
+      }
+
+   });
+
+   private Set<AsyncJob<?>> cannedJobs() {
+      return injector.getInstance(ParseAsyncJobsFromHttpResponse.class).apply(
+            HttpResponse.builder().statusCode(200).message("ok")
+                  .payload(getClass().getResourceAsStream("/listasyncjobsresponse.json")).build());
+   }
+
+   private AsyncJob<?> cannedJob(String id) {
+      for (AsyncJob<?> job : cannedJobs()) {
+         if (job.getId().equals(id))
+            return job;
+      }
+      throw new AssertionError("no canned job " + id);
+   }
+
+   private AsyncJobTracker newTracker(CloudStackApi client) {
+      // the poller is driven by the test
+      ScheduledExecutorService scheduler = createNiceMock(ScheduledExecutorService.class);
+      replay(scheduler);
+      return new AsyncJobTracker(client, 1000, scheduler);
+   }
+
+   public void testSingleOutstandingJobIsQueriedDirectly() throws Exception {
+      CloudStackApi client = createMock(CloudStackApi.class);
+      AsyncJobApi jobClient = createMock(AsyncJobApi.class);
+
+      expect(client.getAsyncJobApi()).andReturn(jobClient).atLeastOnce();
+      expect(jobClient.getAsyncJob("1084")).andReturn((AsyncJob) cannedJob("1084"));
+
+      replay(client, jobClient);
+
+      AsyncJobTracker tracker = newTracker(client);
+      ListenableFuture<AsyncJob<VirtualMachine>> job = tracker.track("1084");
+      tracker.poll();
+
+      assertTrue(job.isDone());
+      assertEquals(job.get().getResult().getId(), "218");
+
+      verify(client, jobClient);
+   }
+
+   public void testOutstandingJobsAreRefreshedByOneListing() throws Exception {
+      CloudStackApi client = createMock(CloudStackApi.class);
+      AsyncJobApi jobClient = createMock(AsyncJobApi.class);
+
+      expect(client.getAsyncJobApi()).andReturn(jobClient).atLeastOnce();
+      expect(jobClient.listAsyncJobs(anyObject(ListAsyncJobsOptions.class))).andReturn(cannedJobs());
+
+      replay(client, jobClient);
+
+      AsyncJobTracker tracker = newTracker(client);
+      ListenableFuture<AsyncJob<VirtualMachine>> first = tracker.track("1084");
+      ListenableFuture<AsyncJob<VirtualMachine>> second = tracker.track("1085");
+      ListenableFuture<AsyncJob<Object>> failed = tracker.track("1094");
+      tracker.poll();
+
+      assertEquals(first.get().getResult().getId(), "218");
+      assertEquals(second.get().getResult().getId(), "219");
+      try {
+         failed.get();
+         fail("job 1094 should have failed");
+      } catch (ExecutionException e) {
+         assertTrue(e.getCause() instanceof AsyncJobException, e.getCause().toString());
+      }
+
+      // nothing outstanding, so no more calls
+      tracker.poll();
+
+      verify(client, jobClient);
+   }
+
+   public void testJobsMissingFromListingAreQueriedDirectlyUntilComplete() throws Exception {
+      CloudStackApi client = createMock(CloudStackApi.class);
+      AsyncJobApi jobClient = createMock(AsyncJobApi.class);
+
+      expect(client.getAsyncJobApi()).andReturn(jobClient).atLeastOnce();
+      expect(jobClient.listAsyncJobs(anyObject(ListAsyncJobsOptions.class))).andReturn(cannedJobs());
+      expect(jobClient.getAsyncJob("2000")).andReturn(
+            AsyncJob.builder().id("2000").status(AsyncJob.Status.IN_PROGRESS).build());
+      expect(jobClient.getAsyncJob("2000")).andReturn(
+            AsyncJob.builder().id("2000").status(AsyncJob.Status.SUCCEEDED)
+                  .resultCode(AsyncJob.ResultCode.SUCCESS).result("foo").build());
+
+      replay(client, jobClient);
+
+      AsyncJobTracker tracker = newTracker(client);
+      ListenableFuture<AsyncJob<VirtualMachine>> listed = tracker.track("1084");
+      ListenableFuture<AsyncJob<String>> unlisted = tracker.track("2000");
+      tracker.poll();
+
+      assertTrue(listed.isDone());
+      assertFalse(unlisted.isDone());
+
+      tracker.poll();
+
+      assertEquals(unlisted.get().getResult(), "foo");
+
+      verify(client, jobClient);
+   }
+
+   public void testTimeoutOfOneCallerDoesNotAffectOthers() throws Exception {
+      CloudStackApi client = createMock(CloudStackApi.class);
+      AsyncJobApi jobClient = createMock(AsyncJobApi.class);
+
+      expect(client.getAsyncJobApi()).andReturn(jobClient).atLeastOnce();
+      expect(jobClient.getAsyncJob("1084")).andReturn((AsyncJob) cannedJob("1084"));
+
+      replay(client, jobClient);
+
+      AsyncJobTracker tracker = newTracker(client);
+      ListenableFuture<AsyncJob<VirtualMachine>> waiting = tracker.track("1084");
+
+      assertFalse(tracker.awaitCompletion("1084", 1, TimeUnit.MILLISECONDS));
+      assertFalse(waiting.isCancelled());
+
+      tracker.poll();
+
+      assertEquals(waiting.get().getResult().getId(), "218");
+
+      verify(client, jobClient);
+   }
+
+   public void testFailedLookupOfOneJobDoesNotStopOthers() throws Exception {
+      CloudStackApi client = createMock(CloudStackApi.class);
+      AsyncJobApi jobClient = createMock(AsyncJobApi.class);
+
+      expect(client.getAsyncJobApi()).andReturn(jobClient).atLeastOnce();
+      expect(jobClient.listAsyncJobs(anyObject(ListAsyncJobsOptions.class))).andReturn(cannedJobs());
+      expect(jobClient.getAsyncJob("2000")).andThrow(new IllegalStateException("server error"));
+      expect(jobClient.getAsyncJob("2001")).andReturn(
+            AsyncJob.builder().id("2001").status(AsyncJob.Status.SUCCEEDED)
+                  .resultCode(AsyncJob.ResultCode.SUCCESS).result("foo").build());
+
+      replay(client, jobClient);
+
+      AsyncJobTracker tracker = newTracker(client);
+      ListenableFuture<AsyncJob<VirtualMachine>> listed = tracker.track("1084");
+      ListenableFuture<AsyncJob<String>> failedLookup = tracker.track("2000");
+      ListenableFuture<AsyncJob<String>> queried = tracker.track("2001");
+      tracker.poll();
+
+      assertTrue(listed.isDone());
+      assertFalse(failedLookup.isDone());
+      assertEquals(queried.get().getResult(), "foo");
+
+      verify(client, jobClient);
+   }
+
+   public void testJobUnknownToServerIsGivenUpOn() throws Exception {
+      CloudStackApi client = createMock(CloudStackApi.class);
+      AsyncJobApi jobClient = createMock(AsyncJobApi.class);
+
+      expect(client.getAsyncJobApi()).andReturn(jobClient).atLeastOnce();
+      expect(jobClient.getAsyncJob("3000")).andReturn(null).times(AsyncJobTracker.MAX_UNKNOWN_POLLS);
+
+      replay(client, jobClient);
+
+      AsyncJobTracker tracker = newTracker(client);
+      ListenableFuture<AsyncJob<Object>> purged = tracker.track("3000");
+      for (int i = 1; i < AsyncJobTracker.MAX_UNKNOWN_POLLS; i++)
+         tracker.poll();
+      assertFalse(purged.isDone());
+
+      tracker.poll();
+      assertFailedWithAsyncJobException(purged);
+
+      // nothing outstanding, so no more calls
+      tracker.poll();
+
+      verify(client, jobClient);
+   }
+
+   public void testJobIsGivenUpOnAfterJobTimeout() throws Exception {
+      CloudStackApi client = createMock(CloudStackApi.class);
+      AsyncJobApi jobClient = createMock(AsyncJobApi.class);
+
+      expect(client.getAsyncJobApi()).andReturn(jobClient).atLeastOnce();
+      expect(jobClient.getAsyncJob("2000")).andReturn(
+            AsyncJob.builder().id("2000").status(AsyncJob.Status.IN_PROGRESS).build());
+
+      replay(client, jobClient);
+
+      AsyncJobTracker tracker = newTracker(client);
+      tracker.setMaxTrackingMillis(1);
+      ListenableFuture<AsyncJob<Object>> stuck = tracker.track("2000");
+      Thread.sleep(10);
+      tracker.poll();
+
+      assertFailedWithAsyncJobException(stuck);
+
+      verify(client, jobClient);
+   }
+
+   @SuppressWarnings({ "unchecked", "rawtypes" })
+   public void testPollingStopsOnceNoJobIsTracked() throws Exception {
+      CloudStackApi client = createMock(CloudStackApi.class);
+      AsyncJobApi jobClient = createMock(AsyncJobApi.class);
+      ScheduledExecutorService scheduler = createMock(ScheduledExecutorService.class);
+      ScheduledFuture poller = createMock(ScheduledFuture.class);
+
+      expect(client.getAsyncJobApi()).andReturn(jobClient).atLeastOnce();
+      expect(jobClient.getAsyncJob("1084")).andReturn((AsyncJob) cannedJob("1084"));
+      expect(scheduler.isShutdown()).andReturn(false);
+      expect(scheduler.scheduleWithFixedDelay(anyObject(Runnable.class), eq(0L), eq(1000L),
+            eq(TimeUnit.MILLISECONDS))).andReturn(poller);
+      expect(poller.cancel(false)).andReturn(true);
+
+      replay(client, jobClient, scheduler, poller);
+
+      AsyncJobTracker tracker = new AsyncJobTracker(client, 1000, scheduler);
+      tracker.track("1084");
+      tracker.poll();
+
+      verify(client, jobClient, scheduler, poller);
+   }
+
+   private static void assertFailedWithAsyncJobException(ListenableFuture<?> future) throws InterruptedException {
+      try {
+         future.get();
+         fail("expected the job to be given up on");
+      } catch (ExecutionException e) {
+         assertTrue(e.getCause() instanceof AsyncJobException, e.getCause().toString());
+      }
+   }
+
+   public void testTrackingTheSameJobTwiceSharesTheFuture() {
+      CloudStackApi client = createMock(CloudStackApi.class);
+      replay(client);
+
+      AsyncJobTracker tracker = newTracker(client);
+
+      assertTrue(tracker.track("1084") == tracker.track("1084"));
+
+      verify(client);
+   }
+}
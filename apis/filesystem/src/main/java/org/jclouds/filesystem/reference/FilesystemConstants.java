@@ -24,6 +24,15 @@ public final class FilesystemConstants {
     /** Specify the base directory where provider starts its file operations - must exists */
     public static final String PROPERTY_BASEDIR = "jclouds.filesystem.basedir";
 
+    /**
+     * Store blobs with the same content, by MD5, once, under a directory of the base directory. Blob files then only
+     * hold metadata, so this requires a file system with extended attributes. Defaults to false.
+     * <p/>
+     * This only decides whether new writes are deduplicated: blobs stored while it was enabled stay readable, copyable
+     * and removable after it is disabled, and the directory name stays reserved.
+     */
+    public static final String PROPERTY_DEDUPLICATE = "jclouds.filesystem.deduplicate";
+
     private FilesystemConstants() {
         throw new AssertionError("intentionally unimplemented");
     }
@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.filesystem.strategy.internal;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.StandardCopyOption;
+import java.util.UUID;
+import java.util.concurrent.locks.Lock;
+
+import org.jclouds.javax.annotation.Nullable;
+
+import com.google.common.hash.HashCode;
+import com.google.common.util.concurrent.Striped;
+
+/**
+ * Stores each distinct blob content once, under a directory named by its MD5 which also holds one marker file per
+ * blob referencing the content. Content is deleted along with its last marker.
+ * <p/>
+ * A reference has the form {@code <md5>/<marker>}. Adding and dropping references to the same content is serialized,
+ * so content is never deleted while a blob is being pointed at it.
+ */
+final class DeduplicatedContents {
+   static final String DIRECTORY = ".deduplicated";
+   private static final String CONTENT = "content";
+
+   private final File root;
+   private final Striped<Lock> locks = Striped.lock(64);
+
+   DeduplicatedContents(File root) {
+      this.root = checkNotNull(root, "root");
+   }
+
+   File contentFile(String reference) {
+      return new File(new File(root, reference.substring(0, reference.indexOf('/'))), CONTENT);
+   }
+
+   /**
+    * @return a new file on the same file system as the stored contents, so it can be moved into the store by a rename
+    */
+   File newTemporaryFile() throws IOException {
+      if (!root.isDirectory() && !root.mkdirs() && !root.isDirectory()) {
+         throw new IOException("Unable to mkdir: " + root);
+      }
+      return File.createTempFile("upload-", ".tmp", root);
+   }
+
+   /**
+    * Adds a reference to stored content.
+    *
+    * @return the reference, or null if no content with this MD5 is stored
+    */
+   @Nullable
+   String reference(HashCode md5) throws IOException {
+      Lock lock = locks.get(md5);
+      lock.lock();
+      try {
+         if (!new File(directory(md5), CONTENT).isFile()) {
+            return null;
+         }
+         return addMarker(md5);
+      } finally {
+         lock.unlock();
+      }
+   }
+
+   /**
+    * Moves a file with this MD5 into the store, or deletes it if the content is already stored, and adds a reference
+    * to the stored content.
+    */
+   String store(HashCode md5, File file) throws IOException {
+      Lock lock = locks.get(md5);
+      lock.lock();
+      try {
+         File directory = directory(md5);
+         File content = new File(directory, CONTENT);
+         if (content.isFile()) {
+            file.delete();
+         } else {
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+               throw new IOException("Unable to mkdir: " + directory);
+            }
+            java.nio.file.Files.move(file.toPath(), content.toPath(), StandardCopyOption.ATOMIC_MOVE);
+         }
+         return addMarker(md5);
+      } finally {
+         lock.unlock();
+      }
+   }
+
+   /**
+    * Drops a reference, deleting the content if it was the last one.
+    */
+   void release(String reference) {
+      HashCode md5 = HashCode.fromString(reference.substring(0, reference.indexOf('/')));
+      Lock lock = locks.get(md5);
+      lock.lock();
+      try {
+         File directory = directory(md5);
+         new File(directory, reference.substring(reference.indexOf('/') + 1)).delete();
+         String[] remaining = directory.list();
+         if (remaining != null && remaining.length <= 1) {
+            new File(directory, CONTENT).delete();
+            directory.delete();
+         }
+      } finally {
+         lock.unlock();
+      }
+   }
+
+   private File directory(HashCode md5) {
+      return new File(root, md5.toString());
+   }
+
+   private String addMarker(HashCode md5) throws IOException {
+      String marker = UUID.randomUUID().toString();
+      File file = new File(directory(md5), marker);
+      if (!file.createNewFile()) {
+         throw new IOException("Unable to create: " + file);
+      }
+      return md5 + "/" + marker;
+   }
+}
@@ -32,21 +32,27 @@ import static org.jclouds.util.Closeables2.closeQuietly;
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.nio.file.attribute.PosixFilePermission;
 import java.nio.file.attribute.UserDefinedFileAttributeView;
 import java.util.Date;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.locks.Lock;
 
 import javax.annotation.Resource;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Provider;
 
-import org.jclouds.blobstore.LocalStorageStrategy;
+import org.jclouds.blobstore.ComposingLocalStorageStrategy;
+import org.jclouds.blobstore.KeyNotFoundException;
 import org.jclouds.blobstore.domain.Blob;
 import org.jclouds.blobstore.domain.BlobAccess;
 import org.jclouds.blobstore.domain.BlobBuilder;
@@ -58,6 +64,7 @@ import org.jclouds.blobstore.domain.internal.MutableStorageMetadataImpl;
 import org.jclouds.blobstore.options.CreateContainerOptions;
 import org.jclouds.blobstore.options.ListContainerOptions;
 import org.jclouds.blobstore.reference.BlobStoreConstants;
+import org.jclouds.blobstore.util.BlobStoreUtils;
 import org.jclouds.domain.Location;
 import org.jclouds.filesystem.predicates.validators.FilesystemBlobKeyValidator;
 import org.jclouds.filesystem.predicates.validators.FilesystemContainerNameValidator;
@@ -65,6 +72,7 @@ import org.jclouds.filesystem.reference.FilesystemConstants;
 import org.jclouds.filesystem.util.Utils;
 import org.jclouds.io.ContentMetadata;
 import org.jclouds.io.Payload;
+import org.jclouds.javax.annotation.Nullable;
 import org.jclouds.logging.Logger;
 import org.jclouds.rest.annotations.ParamValidators;
 
@@ -79,8 +87,10 @@ import com.google.common.hash.HashCode;
 import com.google.common.hash.Hashing;
 import com.google.common.hash.HashingInputStream;
 import com.google.common.io.ByteSource;
+import com.google.common.io.ByteStreams;
 import com.google.common.io.Files;
 import com.google.common.primitives.Longs;
+import com.google.common.util.concurrent.Striped;
 
 /**
  * FilesystemStorageStrategyImpl implements a blob store that stores objects
@@ -89,13 +99,15 @@ import com.google.common.primitives.Longs;
  * (blobs that end with a /) cannot have content, but otherwise appear in
  * LIST like normal blobs.
  */
-public class FilesystemStorageStrategyImpl implements LocalStorageStrategy {
+public class FilesystemStorageStrategyImpl implements ComposingLocalStorageStrategy {
 
    private static final String XATTR_CONTENT_DISPOSITION = "user.content-disposition";
    private static final String XATTR_CONTENT_ENCODING = "user.content-encoding";
    private static final String XATTR_CONTENT_LANGUAGE = "user.content-language";
    private static final String XATTR_CONTENT_MD5 = "user.content-md5";
    private static final String XATTR_CONTENT_TYPE = "user.content-type";
+   private static final String XATTR_ETAG = "user.etag";
+   private static final String XATTR_CONTENT_REF = "user.content-ref";
    private static final String XATTR_EXPIRES = "user.expires";
    private static final String XATTR_USER_METADATA_PREFIX = "user.user-metadata.";
    private static final byte[] DIRECTORY_MD5 =
@@ -110,6 +122,9 @@ public class FilesystemStorageStrategyImpl implements LocalStorageStrategy {
    protected final String baseDirectory;
    protected final FilesystemContainerNameValidator filesystemContainerNameValidator;
    protected final FilesystemBlobKeyValidator filesystemBlobKeyValidator;
+   private final DeduplicatedContents deduplicatedContents;
+   private final Striped<Lock> blobLocks = Striped.lock(64);
+   private boolean deduplicate;
 
    @Inject
    protected FilesystemStorageStrategyImpl(Provider<BlobBuilder> blobBuilders,
@@ -121,6 +136,13 @@ public class FilesystemStorageStrategyImpl implements LocalStorageStrategy {
       this.filesystemContainerNameValidator = checkNotNull(filesystemContainerNameValidator,
             "filesystem container name validator");
       this.filesystemBlobKeyValidator = checkNotNull(filesystemBlobKeyValidator, "filesystem blob key validator");
+      this.deduplicatedContents = new DeduplicatedContents(new File(
+            buildPathStartingFromBaseDir(DeduplicatedContents.DIRECTORY)));
+   }
+
+   @com.google.inject.Inject(optional = true)
+   void setDeduplicate(@Named(FilesystemConstants.PROPERTY_DEDUPLICATE) boolean deduplicate) {
+      this.deduplicate = deduplicate;
    }
 
    @Override
@@ -137,7 +159,7 @@ public class FilesystemStorageStrategyImpl implements LocalStorageStrategy {
       }
       ImmutableList.Builder<String> containers = ImmutableList.builder();
       for (File file : files) {
-         if (file.isDirectory()) {
+         if (file.isDirectory() && !file.getName().equals(DeduplicatedContents.DIRECTORY)) {
             containers.add(file.getName());
          }
       }
@@ -149,6 +171,9 @@ public class FilesystemStorageStrategyImpl implements LocalStorageStrategy {
       // TODO: implement location
       logger.debug("Creating container %s", container);
       filesystemContainerNameValidator.validate(container);
+      if (container.equals(DeduplicatedContents.DIRECTORY)) {
+         throw new IllegalArgumentException("Container name is reserved for deduplicated contents: " + container);
+      }
       boolean created = createDirectoryWithResult(container, null);
       if (created) {
          setContainerAccess(container, options.isPublicRead() ? ContainerAccess.PUBLIC_READ : ContainerAccess.PRIVATE);
@@ -218,6 +243,7 @@ public class FilesystemStorageStrategyImpl implements LocalStorageStrategy {
       if (!containerExists(container)) {
          return;
       }
+      releaseContentReferences(new File(buildPathStartingFromBaseDir(container)));
       deleteDirectory(container, null);
    }
 
@@ -238,6 +264,7 @@ public class FilesystemStorageStrategyImpl implements LocalStorageStrategy {
          if (null != children) {
             for (File child : children)
                if (options.isRecursive() || child.isFile()) {
+                  releaseContentReferences(child);
                   Utils.deleteRecursively(child);
                }
          }
@@ -310,7 +337,9 @@ public class FilesystemStorageStrategyImpl implements LocalStorageStrategy {
       BlobBuilder builder = blobBuilders.get();
       builder.name(key);
       File file = getFileForBlobKey(container, key);
+      File contentFile = file;
       ByteSource byteSource;
+      String eTag = null;
 
       if (getDirectoryBlobSuffix(key) != null) {
          logger.debug("%s - %s is a directory", container, key);
@@ -335,6 +364,12 @@ public class FilesystemStorageStrategyImpl implements LocalStorageStrategy {
             contentEncoding = readStringAttributeIfPresent(view, attributes, XATTR_CONTENT_ENCODING);
             contentLanguage = readStringAttributeIfPresent(view, attributes, XATTR_CONTENT_LANGUAGE);
             contentType = readStringAttributeIfPresent(view, attributes, XATTR_CONTENT_TYPE);
+            eTag = readStringAttributeIfPresent(view, attributes, XATTR_ETAG);
+            String contentReference = readStringAttributeIfPresent(view, attributes, XATTR_CONTENT_REF);
+            if (contentReference != null) {
+               contentFile = deduplicatedContents.contentFile(contentReference);
+               byteSource = Files.asByteSource(contentFile);
+            }
             if (attributes.contains(XATTR_CONTENT_MD5)) {
                ByteBuffer buf = ByteBuffer.allocate(view.size(XATTR_CONTENT_MD5));
                view.read(XATTR_CONTENT_MD5, buf);
@@ -374,8 +409,10 @@ public class FilesystemStorageStrategyImpl implements LocalStorageStrategy {
       Blob blob = builder.build();
       blob.getMetadata().setContainer(container);
       blob.getMetadata().setLastModified(new Date(file.lastModified()));
-      blob.getMetadata().setSize(file.length());
-      if (blob.getPayload().getContentMetadata().getContentMD5() != null)
+      blob.getMetadata().setSize(contentFile.length());
+      if (eTag != null)
+         blob.getMetadata().setETag(eTag);
+      else if (blob.getPayload().getContentMetadata().getContentMD5() != null)
          blob.getMetadata().setETag(base16().lowerCase().encode(blob.getPayload().getContentMetadata().getContentMD5()));
       return blob;
    }
@@ -435,13 +472,16 @@ public class FilesystemStorageStrategyImpl implements LocalStorageStrategy {
       if (getDirectoryBlobSuffix(blobKey) != null) {
          return putDirectoryBlob(containerName, blob);
       }
+      if (deduplicate) {
+         return putDeduplicatedBlob(containerName, blob);
+      }
       File outputFile = getFileForBlobKey(containerName, blobKey);
       Path outputPath = outputFile.toPath();
       HashingInputStream his = null;
       try {
          Files.createParentDirs(outputFile);
          his = new HashingInputStream(Hashing.md5(), payload.openStream());
-         outputFile.delete();
+         deleteBlobFile(containerName, blobKey, outputFile);
          Files.asByteSink(outputFile).writeFrom(his);
          HashCode actualHashCode = his.hash();
          HashCode expectedHashCode = payload.getContentMetadata().getContentMD5AsHashCode();
@@ -477,6 +517,333 @@ public class FilesystemStorageStrategyImpl implements LocalStorageStrategy {
       }
    }
 
+   @Override
+   public String putBlobFromParts(final String containerName, final Blob blob, final List<String> partNames)
+         throws IOException {
+      String blobKey = blob.getMetadata().getName();
+      filesystemContainerNameValidator.validate(containerName);
+      filesystemBlobKeyValidator.validate(blobKey);
+      ImmutableList.Builder<File> partFiles = ImmutableList.builder();
+      ImmutableList.Builder<HashCode> partHashCodes = ImmutableList.builder();
+      boolean deduplicatedParts = false;
+      for (String partName : partNames) {
+         filesystemBlobKeyValidator.validate(partName);
+         File partFile = getFileForBlobKey(containerName, partName);
+         if (!partFile.isFile()) {
+            throw new KeyNotFoundException(containerName, partName, "in putBlobFromParts");
+         }
+         String contentReference = contentReference(partFile);
+         if (contentReference != null) {
+            deduplicatedParts = true;
+            partFiles.add(deduplicatedContents.contentFile(contentReference));
+         } else {
+            partFiles.add(partFile);
+         }
+         partHashCodes.add(readContentMD5(partFile));
+      }
+      List<File> parts = partFiles.build();
+      String eTag = BlobStoreUtils.multipartETag(partHashCodes.build());
+
+      File outputFile = getFileForBlobKey(containerName, blobKey);
+      Path outputPath = outputFile.toPath();
+      Files.createParentDirs(outputFile);
+      String previousReference = contentReference(outputFile);
+      outputFile.delete();
+      if (previousReference != null) {
+         deduplicatedContents.release(previousReference);
+      }
+      // shared contents must stay in place
+      if (parts.size() == 1 && !deduplicatedParts) {
+         java.nio.file.Files.move(parts.get(0).toPath(), outputPath, StandardCopyOption.REPLACE_EXISTING);
+      } else {
+         try {
+            concatenate(parts, outputPath);
+         } catch (IOException ex) {
+            if (!outputFile.delete()) {
+               logger.debug("Could not delete %s", outputFile);
+            }
+            throw ex;
+         }
+      }
+
+      UserDefinedFileAttributeView view = getUserDefinedFileAttributeView(outputPath);
+      if (view != null) {
+         try {
+            // a moved part keeps its own attributes
+            for (String attribute : view.list()) {
+               view.delete(attribute);
+            }
+            writeStringAttributeIfPresent(view, XATTR_ETAG, eTag);
+            writeCommonMetadataAttr(view, blob);
+         } catch (IOException e) {
+            logger.debug("xattrs not supported on %s", outputPath);
+         }
+      }
+      setBlobAccess(containerName, blobKey, BlobAccess.PRIVATE);
+      if (parts.size() == 1 && !deduplicatedParts) {
+         removeDirectoriesTreeOfBlobKey(containerName, partNames.get(0));
+      } else {
+         for (String partName : partNames) {
+            removeBlob(containerName, partName);
+         }
+      }
+      return eTag;
+   }
+
+   @Override
+   public String copyBlob(final String fromContainer, final String fromName, final String toContainer,
+         final Blob blob) throws IOException {
+      String blobKey = blob.getMetadata().getName();
+      filesystemContainerNameValidator.validate(toContainer);
+      filesystemBlobKeyValidator.validate(blobKey);
+      if (getDirectoryBlobSuffix(fromName) != null) {
+         return putBlob(toContainer, blob);
+      }
+      File sourceFile = getFileForBlobKey(fromContainer, fromName);
+      if (!sourceFile.isFile()) {
+         throw new KeyNotFoundException(fromContainer, fromName, "while copying");
+      }
+      Blob source = getBlob(fromContainer, fromName);
+      HashCode contentMd5 = source.getPayload().getContentMetadata().getContentMD5AsHashCode();
+      String eTag = source.getMetadata().getETag();
+      // only multipart ETags, which are not the MD5 of the content, need to be kept
+      String multipartETag = contentMd5 != null && base16().lowerCase().encode(contentMd5.asBytes()).equals(eTag)
+            ? null : eTag;
+
+      String sourceReference = contentReference(sourceFile);
+      if (sourceReference != null) {
+         String reference = deduplicatedContents.reference(HashCode.fromString(
+               sourceReference.substring(0, sourceReference.indexOf('/'))));
+         if (reference == null) {
+            throw new KeyNotFoundException(fromContainer, fromName, "while copying");
+         }
+         writeDeduplicatedBlob(toContainer, blob, reference, contentMd5, multipartETag);
+         return eTag;
+      }
+
+      File outputFile = getFileForBlobKey(toContainer, blobKey);
+      Path outputPath = outputFile.toPath();
+      Lock lock = blobLock(toContainer, blobKey);
+      lock.lock();
+      try {
+         String previousReference = contentReference(outputFile);
+         if (!sourceFile.getCanonicalFile().equals(outputFile.getCanonicalFile())) {
+            Files.createParentDirs(outputFile);
+            outputFile.delete();
+            java.nio.file.Files.copy(sourceFile.toPath(), outputPath);
+         }
+         if (previousReference != null) {
+            deduplicatedContents.release(previousReference);
+         }
+         UserDefinedFileAttributeView view = getUserDefinedFileAttributeView(outputPath);
+         if (view != null) {
+            try {
+               // replaces the metadata when copying a blob onto itself
+               for (String attribute : view.list()) {
+                  view.delete(attribute);
+               }
+               if (contentMd5 != null) {
+                  view.write(XATTR_CONTENT_MD5, ByteBuffer.wrap(contentMd5.asBytes()));
+               }
+               writeStringAttributeIfPresent(view, XATTR_ETAG, multipartETag);
+               writeCommonMetadataAttr(view, blob);
+            } catch (IOException e) {
+               logger.debug("xattrs not supported on %s", outputPath);
+            }
+         }
+         setBlobAccess(toContainer, blobKey, BlobAccess.PRIVATE);
+      } finally {
+         lock.unlock();
+      }
+      return eTag;
+   }
+
+   /**
+    * Stores the content once per MD5, skipping the write entirely when a repeatable payload has content which is
+    * already stored.
+    */
+   private String putDeduplicatedBlob(final String containerName, final Blob blob) throws IOException {
+      Payload payload = blob.getPayload();
+      HashCode expectedHashCode = payload.getContentMetadata().getContentMD5AsHashCode();
+      try {
+         HashCode actualHashCode = null;
+         String reference = null;
+         if (payload.isRepeatable()) {
+            HashingInputStream his = new HashingInputStream(Hashing.md5(), payload.openStream());
+            try {
+               ByteStreams.copy(his, ByteStreams.nullOutputStream());
+            } finally {
+               closeQuietly(his);
+            }
+            actualHashCode = his.hash();
+            checkContentMD5(actualHashCode, expectedHashCode);
+            reference = deduplicatedContents.reference(actualHashCode);
+         }
+         if (reference == null) {
+            File temporaryFile = deduplicatedContents.newTemporaryFile();
+            HashingInputStream his = new HashingInputStream(Hashing.md5(), payload.openStream());
+            try {
+               Files.asByteSink(temporaryFile).writeFrom(his);
+               HashCode writtenHashCode = his.hash();
+               checkContentMD5(writtenHashCode, actualHashCode != null ? actualHashCode : expectedHashCode);
+               actualHashCode = writtenHashCode;
+            } catch (IOException ex) {
+               temporaryFile.delete();
+               throw ex;
+            } finally {
+               closeQuietly(his);
+            }
+            reference = deduplicatedContents.store(actualHashCode, temporaryFile);
+         }
+         payload.getContentMetadata().setContentMD5(actualHashCode);
+         writeDeduplicatedBlob(containerName, blob, reference, actualHashCode, null);
+         return base16().lowerCase().encode(actualHashCode.asBytes());
+      } finally {
+         payload.release();
+      }
+   }
+
+   /**
+    * Replaces the blob file with an empty one holding the metadata and a reference to the shared content, then drops
+    * the reference of the file it replaced.
+    */
+   private void writeDeduplicatedBlob(String containerName, Blob blob, String reference,
+         @Nullable HashCode contentMd5, @Nullable String eTag) throws IOException {
+      String blobKey = blob.getMetadata().getName();
+      File outputFile = getFileForBlobKey(containerName, blobKey);
+      Path outputPath = outputFile.toPath();
+      Lock lock = blobLock(containerName, blobKey);
+      lock.lock();
+      try {
+         String previousReference = contentReference(outputFile);
+         try {
+            Files.createParentDirs(outputFile);
+            outputFile.delete();
+            Files.touch(outputFile);
+            UserDefinedFileAttributeView view = getUserDefinedFileAttributeView(outputPath);
+            if (view == null) {
+               throw new IOException("deduplication requires extended attributes, which are not supported on "
+                     + outputPath);
+            }
+            writeStringAttributeIfPresent(view, XATTR_CONTENT_REF, reference);
+            if (contentMd5 != null) {
+               view.write(XATTR_CONTENT_MD5, ByteBuffer.wrap(contentMd5.asBytes()));
+            }
+            writeStringAttributeIfPresent(view, XATTR_ETAG, eTag);
+            writeCommonMetadataAttr(view, blob);
+         } catch (IOException ex) {
+            deduplicatedContents.release(reference);
+            if (!outputFile.delete()) {
+               logger.debug("Could not delete %s", outputFile);
+            }
+            throw ex;
+         } finally {
+            // the replaced file is gone either way
+            if (previousReference != null) {
+               deduplicatedContents.release(previousReference);
+            }
+         }
+         setBlobAccess(containerName, blobKey, BlobAccess.PRIVATE);
+      } finally {
+         lock.unlock();
+      }
+   }
+
+   private static void checkContentMD5(HashCode actualHashCode, @Nullable HashCode expectedHashCode)
+         throws IOException {
+      if (expectedHashCode != null && !actualHashCode.equals(expectedHashCode)) {
+         throw new IOException("MD5 hash code mismatch, actual: " + actualHashCode +
+               " expected: " + expectedHashCode);
+      }
+   }
+
+   /**
+    * @return the reference to shared content of a deduplicated blob file, or null
+    */
+   @Nullable
+   private String contentReference(File file) throws IOException {
+      if (!file.isFile()) {
+         return null;
+      }
+      UserDefinedFileAttributeView view = getUserDefinedFileAttributeView(file.toPath());
+      if (view == null) {
+         return null;
+      }
+      return readStringAttributeIfPresent(view, ImmutableSet.copyOf(view.list()), XATTR_CONTENT_REF);
+   }
+
+   /**
+    * Drops the shared content references of the deduplicated blob files under a file or directory about to be
+    * deleted.
+    */
+   private void releaseContentReferences(File file) {
+      File[] children = file.listFiles();
+      if (children != null) {
+         for (File child : children) {
+            releaseContentReferences(child);
+         }
+         return;
+      }
+      try {
+         String contentReference = contentReference(file);
+         if (contentReference != null) {
+            deduplicatedContents.release(contentReference);
+         }
+      } catch (IOException e) {
+         logger.debug("Could not read content reference of %s", file);
+      }
+   }
+
+   /**
+    * Deletes a blob file, dropping its reference to shared content if it is a deduplicated one.
+    */
+   private void deleteBlobFile(String container, String blobKey, File file) throws IOException {
+      Lock lock = blobLock(container, blobKey);
+      lock.lock();
+      try {
+         String contentReference = contentReference(file);
+         if (file.delete() && contentReference != null) {
+            deduplicatedContents.release(contentReference);
+         }
+      } finally {
+         lock.unlock();
+      }
+   }
+
+   private Lock blobLock(String container, String blobKey) {
+      return blobLocks.get(container + "/" + blobKey);
+   }
+
+   /** Appends the part files to a new file, letting the kernel copy the bytes where it can. */
+   private static void concatenate(List<File> parts, Path outputPath) throws IOException {
+      FileChannel output = FileChannel.open(outputPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+      try {
+         for (File part : parts) {
+            FileChannel input = FileChannel.open(part.toPath(), StandardOpenOption.READ);
+            try {
+               long size = input.size();
+               for (long position = 0; position < size;) {
+                  position += input.transferTo(position, size - position, output);
+               }
+            } finally {
+               closeQuietly(input);
+            }
+         }
+      } finally {
+         output.close();
+      }
+   }
+
+   private HashCode readContentMD5(File file) throws IOException {
+      UserDefinedFileAttributeView view = getUserDefinedFileAttributeView(file.toPath());
+      if (view != null && view.list().contains(XATTR_CONTENT_MD5)) {
+         ByteBuffer buf = ByteBuffer.allocate(view.size(XATTR_CONTENT_MD5));
+         view.read(XATTR_CONTENT_MD5, buf);
+         return HashCode.fromBytes(buf.array());
+      }
+      return Files.asByteSource(file).hash(Hashing.md5());
+   }
+
    @Override
    public void removeBlob(final String container, final String blobKey) {
       filesystemContainerNameValidator.validate(container);
@@ -484,7 +851,12 @@ public class FilesystemStorageStrategyImpl implements LocalStorageStrategy {
       String fileName = buildPathStartingFromBaseDir(container, blobKey);
       logger.debug("Deleting blob %s", fileName);
       File fileToBeDeleted = new File(fileName);
-      if (!fileToBeDeleted.delete()) {
+      try {
+         deleteBlobFile(container, blobKey, fileToBeDeleted);
+      } catch (IOException e) {
+         logger.debug("Could not read content reference of %s", fileToBeDeleted);
+      }
+      if (fileToBeDeleted.exists() && !fileToBeDeleted.delete()) {
          if (fileToBeDeleted.isDirectory()) {
             try {
                UserDefinedFileAttributeView view = getUserDefinedFileAttributeView(fileToBeDeleted.toPath());
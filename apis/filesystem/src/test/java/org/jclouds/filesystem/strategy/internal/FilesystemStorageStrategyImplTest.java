@@ -27,18 +27,25 @@ import static org.testng.Assert.fail;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Paths;
 import java.nio.file.attribute.UserDefinedFileAttributeView;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.inject.Provider;
 
+import org.jclouds.blobstore.KeyNotFoundException;
 import org.jclouds.blobstore.domain.Blob;
 import org.jclouds.blobstore.domain.BlobBuilder;
 import org.jclouds.blobstore.domain.internal.BlobBuilderImpl;
 import org.jclouds.blobstore.options.ListContainerOptions;
+import org.jclouds.blobstore.util.BlobStoreUtils;
 import org.jclouds.filesystem.predicates.validators.internal.FilesystemBlobKeyValidatorImpl;
 import org.jclouds.filesystem.predicates.validators.internal.FilesystemContainerNameValidatorImpl;
 import org.jclouds.filesystem.utils.TestUtils;
@@ -51,10 +58,15 @@ import org.testng.SkipException;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
 import com.google.common.io.ByteSource;
+import com.google.common.io.ByteStreams;
 import com.google.common.io.Files;
 
 /**
@@ -619,8 +631,206 @@ public class FilesystemStorageStrategyImplTest {
       assertFalse(blob.getMetadata().getUserMetadata().containsKey("key1"));
    }
 
+   public void testPutBlobFromPartsConcatenatesAndRemovesParts() throws Exception {
+      ByteSource content = randomByteSource().slice(0, 3000);
+      List<String> partNames = ImmutableList.of("blob-1", "blob-2", "blob-3");
+      List<HashCode> partHashCodes = Lists.newArrayList();
+      for (int i = 0; i < partNames.size(); i++) {
+         ByteSource part = content.slice(i * 1000, 1000);
+         storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name(partNames.get(i)).payload(part).build());
+         partHashCodes.add(part.hash(Hashing.md5()));
+      }
+      Blob blob = new BlobBuilderImpl()
+            .name("blob")
+            .payload(new byte[0])
+            .contentType("text/csv")
+            .userMetadata(ImmutableMap.of("key1", "value1"))
+            .build();
+
+      String eTag = storageStrategy.putBlobFromParts(CONTAINER_NAME, blob, partNames);
+
+      assertEquals(eTag, BlobStoreUtils.multipartETag(partHashCodes));
+      assertTrue(eTag.endsWith("-3"), eTag);
+      for (String partName : partNames) {
+         assertFalse(storageStrategy.blobExists(CONTAINER_NAME, partName), partName);
+      }
+      blob = storageStrategy.getBlob(CONTAINER_NAME, "blob");
+      assertTrue(content.contentEquals(Files.asByteSource(new File(TARGET_CONTAINER_NAME, "blob"))));
+      assertEquals(blob.getMetadata().getSize(), Long.valueOf(3000));
+      if (isXattrSupported()) {
+         assertEquals(blob.getMetadata().getETag(), eTag);
+         assertEquals(blob.getMetadata().getContentMetadata().getContentType(), "text/csv");
+         assertEquals(blob.getMetadata().getUserMetadata().get("key1"), "value1");
+      }
+   }
+
+   public void testPutBlobFromSinglePartMovesPart() throws Exception {
+      ByteSource content = randomByteSource().slice(0, 1000);
+      storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name("blob-1").payload(content).build());
+      Blob blob = new BlobBuilderImpl().name("blob").payload(new byte[0]).build();
+
+      String eTag = storageStrategy.putBlobFromParts(CONTAINER_NAME, blob, ImmutableList.of("blob-1"));
+
+      assertEquals(eTag, BlobStoreUtils.multipartETag(ImmutableList.of(content.hash(Hashing.md5()))));
+      assertFalse(storageStrategy.blobExists(CONTAINER_NAME, "blob-1"));
+      assertTrue(content.contentEquals(Files.asByteSource(new File(TARGET_CONTAINER_NAME, "blob"))));
+      if (isXattrSupported()) {
+         blob = storageStrategy.getBlob(CONTAINER_NAME, "blob");
+         assertEquals(blob.getMetadata().getETag(), eTag);
+         // the part's MD5 no longer describes the blob
+         assertEquals(blob.getMetadata().getContentMetadata().getContentMD5AsHashCode(), null);
+      }
+   }
+
+   public void testPutBlobFromMissingPartFails() throws Exception {
+      storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name("blob-1")
+            .payload(randomByteSource().slice(0, 10)).build());
+      Blob blob = new BlobBuilderImpl().name("blob").payload(new byte[0]).build();
+
+      try {
+         storageStrategy.putBlobFromParts(CONTAINER_NAME, blob, ImmutableList.of("blob-1", "blob-2"));
+         fail("expected KeyNotFoundException");
+      } catch (KeyNotFoundException expected) {
+      }
+      assertTrue(storageStrategy.blobExists(CONTAINER_NAME, "blob-1"));
+      assertFalse(storageStrategy.blobExists(CONTAINER_NAME, "blob"));
+   }
+
+   public void testDeduplicatedBlobsShareContent() throws Exception {
+      if (!isXattrSupported()) {
+         throw new SkipException("deduplication requires xattrs");
+      }
+      storageStrategy.setDeduplicate(true);
+      ByteSource content = randomByteSource().slice(0, 1000);
+      HashCode md5 = content.hash(Hashing.md5());
+      File contentDirectory = new File(TestUtils.TARGET_BASE_DIR + DeduplicatedContents.DIRECTORY, md5.toString());
+      storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name("blob-1").payload(content).build());
+      storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name("blob-2").payload(content).build());
+
+      assertEquals(new File(TARGET_CONTAINER_NAME, "blob-1").length(), 0);
+      assertEquals(new File(TARGET_CONTAINER_NAME, "blob-2").length(), 0);
+      // the content and one marker per blob
+      assertEquals(contentDirectory.list().length, 3);
+      Blob blob = storageStrategy.getBlob(CONTAINER_NAME, "blob-2");
+      assertEquals(blob.getMetadata().getSize(), Long.valueOf(1000));
+      assertEquals(blob.getMetadata().getETag(), md5.toString());
+      assertTrue(content.contentEquals(ByteSource.wrap(toByteArray(blob))));
+      assertFalse(Iterables.contains(storageStrategy.getAllContainerNames(), DeduplicatedContents.DIRECTORY));
+
+      storageStrategy.removeBlob(CONTAINER_NAME, "blob-1");
+      assertEquals(contentDirectory.list().length, 2);
+      storageStrategy.removeBlob(CONTAINER_NAME, "blob-2");
+      assertFalse(contentDirectory.exists());
+   }
+
+   public void testCopyDeduplicatedBlobAddsReference() throws Exception {
+      if (!isXattrSupported()) {
+         throw new SkipException("deduplication requires xattrs");
+      }
+      storageStrategy.setDeduplicate(true);
+      ByteSource content = randomByteSource().slice(0, 1000);
+      File contentDirectory = new File(TestUtils.TARGET_BASE_DIR + DeduplicatedContents.DIRECTORY,
+            content.hash(Hashing.md5()).toString());
+      storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name("blob").payload(content).build());
+      Blob blob = new BlobBuilderImpl().name("copy").payload(new byte[0]).contentType("text/csv").build();
+
+      storageStrategy.copyBlob(CONTAINER_NAME, "blob", CONTAINER_NAME, blob);
+
+      assertEquals(contentDirectory.list().length, 3);
+      blob = storageStrategy.getBlob(CONTAINER_NAME, "copy");
+      assertEquals(blob.getMetadata().getContentMetadata().getContentType(), "text/csv");
+      assertTrue(content.contentEquals(ByteSource.wrap(toByteArray(blob))));
+
+      storageStrategy.clearContainer(CONTAINER_NAME);
+      assertFalse(contentDirectory.exists());
+   }
+
+   public void testDeduplicatedBlobsStayUsableWhenDisabled() throws Exception {
+      if (!isXattrSupported()) {
+         throw new SkipException("deduplication requires xattrs");
+      }
+      storageStrategy.setDeduplicate(true);
+      ByteSource content = randomByteSource().slice(0, 1000);
+      File contentDirectory = new File(TestUtils.TARGET_BASE_DIR + DeduplicatedContents.DIRECTORY,
+            content.hash(Hashing.md5()).toString());
+      storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name("blob").payload(content).build());
+      storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name("part").payload(content).build());
+      storageStrategy.setDeduplicate(false);
+
+      assertFalse(Iterables.contains(storageStrategy.getAllContainerNames(), DeduplicatedContents.DIRECTORY));
+
+      storageStrategy.copyBlob(CONTAINER_NAME, "blob", CONTAINER_NAME,
+            new BlobBuilderImpl().name("copy").payload(new byte[0]).build());
+      assertTrue(content.contentEquals(ByteSource.wrap(toByteArray(storageStrategy.getBlob(CONTAINER_NAME,
+            "copy")))));
+
+      storageStrategy.putBlobFromParts(CONTAINER_NAME, new BlobBuilderImpl().name("joined").payload(new byte[0])
+            .build(), ImmutableList.of("part"));
+      assertEquals(new File(TARGET_CONTAINER_NAME, "joined").length(), 1000);
+      assertTrue(content.contentEquals(ByteSource.wrap(toByteArray(storageStrategy.getBlob(CONTAINER_NAME,
+            "joined")))));
+
+      storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name("copy").payload(new byte[1]).build());
+      storageStrategy.removeBlob(CONTAINER_NAME, "blob");
+      assertFalse(contentDirectory.exists());
+   }
+
+   public void testConcurrentPutsAndRemovesOfSameContent() throws Exception {
+      if (!isXattrSupported()) {
+         throw new SkipException("deduplication requires xattrs");
+      }
+      storageStrategy.setDeduplicate(true);
+      final ByteSource content = randomByteSource().slice(0, 1000);
+      File contentDirectory = new File(TestUtils.TARGET_BASE_DIR + DeduplicatedContents.DIRECTORY,
+            content.hash(Hashing.md5()).toString());
+      int threads = 8;
+      final int rounds = 50;
+      ExecutorService executor = Executors.newFixedThreadPool(threads);
+      try {
+         List<Future<Void>> futures = Lists.newArrayList();
+         for (int i = 0; i < threads; i++) {
+            final String blobKey = "blob-" + i;
+            futures.add(executor.submit(new Callable<Void>() {
+               @Override
+               public Void call() throws Exception {
+                  for (int round = 0; round < rounds; round++) {
+                     storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name(blobKey).payload(content)
+                           .build());
+                     Blob blob = storageStrategy.getBlob(CONTAINER_NAME, blobKey);
+                     assertTrue(content.contentEquals(ByteSource.wrap(toByteArray(blob))));
+                     storageStrategy.removeBlob(CONTAINER_NAME, blobKey);
+                  }
+                  return null;
+               }
+            }));
+         }
+         for (Future<Void> future : futures) {
+            future.get();
+         }
+      } finally {
+         executor.shutdownNow();
+      }
+
+      assertTrue(Iterables.isEmpty(storageStrategy.getBlobKeysInsideContainer(CONTAINER_NAME)));
+      assertFalse(contentDirectory.exists());
+   }
+
    // ---------------------------------------------------------- Private methods
 
+   private static byte[] toByteArray(Blob blob) throws IOException {
+      InputStream is = blob.getPayload().openStream();
+      try {
+         return ByteStreams.toByteArray(is);
+      } finally {
+         is.close();
+      }
+   }
+
+   private static boolean isXattrSupported() throws IOException {
+      return getFileStore(Paths.get(TestUtils.TARGET_BASE_DIR)).supportsFileAttributeView(
+            UserDefinedFileAttributeView.class);
+   }
+
    /**
     * Calculates an absolute directory path that depends on operative system
     *
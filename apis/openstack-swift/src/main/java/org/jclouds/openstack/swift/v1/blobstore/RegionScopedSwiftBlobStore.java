@@ -53,7 +53,11 @@ import org.jclouds.blobstore.options.CreateContainerOptions;
 import org.jclouds.blobstore.options.GetOptions;
 import org.jclouds.blobstore.options.ListContainerOptions;
 import org.jclouds.blobstore.options.PutOptions;
+import org.jclouds.blobstore.strategy.BulkDeleteStrategy;
 import org.jclouds.blobstore.strategy.ClearListStrategy;
+import org.jclouds.blobstore.strategy.internal.ClearContainerUsingBulkDeletes;
+import org.jclouds.blobstore.strategy.internal.DeleteKeysUsingBulkDeletes;
+import org.jclouds.blobstore.strategy.internal.PutBlobInParallelParts;
 import org.jclouds.collect.Memoized;
 import org.jclouds.domain.Location;
 import org.jclouds.io.ContentMetadata;
@@ -67,7 +71,6 @@ import org.jclouds.openstack.swift.v1.domain.Container;
 import org.jclouds.openstack.swift.v1.domain.ObjectList;
 import org.jclouds.openstack.swift.v1.domain.Segment;
 import org.jclouds.openstack.swift.v1.domain.SwiftObject;
-import org.jclouds.openstack.swift.v1.features.BulkApi;
 import org.jclouds.openstack.swift.v1.features.ObjectApi;
 import org.jclouds.openstack.swift.v1.options.UpdateContainerOptions;
 import org.jclouds.openstack.swift.v1.reference.SwiftHeaders;
@@ -83,7 +86,6 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Iterables;
 import com.google.common.collect.Maps;
 import com.google.common.io.ByteSource;
 import com.google.common.net.HttpHeaders;
@@ -105,16 +107,22 @@ public class RegionScopedSwiftBlobStore implements BlobStore {
       this.context = context;
       this.api = api;
       // until we parameterize ClearListStrategy with a factory
-      this.clearList = baseGraph.createChildInjector(new AbstractModule() {
+      Injector regionGraph = baseGraph.createChildInjector(new AbstractModule() {
          @Override
          protected void configure() {
             bind(BlobStore.class).toInstance(RegionScopedSwiftBlobStore.this);
+            bind(BulkDeleteStrategy.class).toInstance(new RegionScopedBulkDelete());
          }
-      }).getInstance(ClearListStrategy.class);
+      });
+      this.clearList = regionGraph.getInstance(ClearContainerUsingBulkDeletes.class);
+      this.deleteKeys = regionGraph.getInstance(DeleteKeysUsingBulkDeletes.class);
+      this.putBlobInParts = regionGraph.getInstance(PutBlobInParallelParts.class);
    }
 
    private final BlobStoreContext context;
    private final ClearListStrategy clearList;
+   private final DeleteKeysUsingBulkDeletes deleteKeys;
+   private final PutBlobInParallelParts putBlobInParts;
    private final SwiftApi api;
    private final Location region;
    private final String regionId;
@@ -232,7 +240,7 @@ public class RegionScopedSwiftBlobStore implements BlobStore {
    @Override
    public String putBlob(String container, Blob blob, PutOptions options) {
       if (options.isMultipart()) {
-         throw new UnsupportedOperationException();
+         return putBlobInParts.execute(this, container, blob);
       }
       ObjectApi objectApi = api.getObjectApi(regionId, container);
       return objectApi.put(blob.getMetadata().getName(), blob.getPayload(), metadata(blob.getMetadata().getUserMetadata()));
@@ -338,18 +346,46 @@ public class RegionScopedSwiftBlobStore implements BlobStore {
       api.getObjectApi(regionId, container).delete(name);
    }
 
-   @Override
-   public void removeBlobs(String container, Iterable<String> names) {
-      BulkApi bulkApi = api.getBulkApi(regionId);
-      for (List<String> partition : Iterables.partition(names, 1000)) {
-         ImmutableList.Builder<String> builder = ImmutableList.builder();
-         for (String name : partition) {
-            builder.add(container + "/" + name);
+   /**
+    * Deletes objects in this region using the bulk middleware, which reports failed paths as
+    * {@code /container/object}.
+    */
+   private final class RegionScopedBulkDelete implements BulkDeleteStrategy {
+      @Override
+      public int maxKeysPerRequest() {
+         return 1000;
+      }
+
+      @Override
+      public Map<String, String> deleteKeys(String container, List<String> keys) {
+         ImmutableList.Builder<String> paths = ImmutableList.builder();
+         for (String key : keys) {
+            paths.add(container + "/" + key);
+         }
+         Map<String, String> errors = api.getBulkApi(regionId).bulkDelete(paths.build()).getErrors();
+         if (errors.isEmpty())
+            return ImmutableMap.of();
+         String prefix = container + "/";
+         ImmutableMap.Builder<String, String> failed = ImmutableMap.builder();
+         for (Map.Entry<String, String> error : errors.entrySet()) {
+            String path = error.getKey().startsWith("/") ? error.getKey().substring(1) : error.getKey();
+            failed.put(path.startsWith(prefix) ? path.substring(prefix.length()) : path, error.getValue());
          }
-         bulkApi.bulkDelete(builder.build());
+         return failed.build();
       }
    }
 
+   /**
+    * Deletes the objects with concurrent bulk delete requests, retrying objects which fail.
+    *
+    * @throws org.jclouds.blobstore.BulkDeleteException
+    *            if any object could not be deleted
+    */
+   @Override
+   public void removeBlobs(String container, Iterable<String> names) {
+      deleteKeys.execute(container, names);
+   }
+
    @Override
    public BlobAccess getBlobAccess(String container, String name) {
       throw new UnsupportedOperationException("unsupported in swift");
@@ -473,7 +509,6 @@ public class RegionScopedSwiftBlobStore implements BlobStore {
 
    @Override
    public void clearContainer(String containerName, ListContainerOptions options) {
-      // this could be implemented to use bulk delete
       clearList.execute(containerName, options);
    }
 
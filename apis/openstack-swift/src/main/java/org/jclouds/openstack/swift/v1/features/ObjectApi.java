@@ -55,6 +55,7 @@ import org.jclouds.openstack.swift.v1.options.PutOptions;
 import org.jclouds.rest.annotations.BinderParam;
 import org.jclouds.rest.annotations.Fallback;
 import org.jclouds.rest.annotations.Headers;
+import org.jclouds.rest.annotations.Hedged;
 import org.jclouds.rest.annotations.RequestFilters;
 import org.jclouds.rest.annotations.ResponseParser;
 
@@ -149,6 +150,7 @@ public interface ObjectApi {
    @Named("object:getWithoutBody")
    @HEAD
    @Path("/{objectName}")
+   @Hedged
    @ResponseParser(ParseObjectFromResponse.class)
    @Fallback(NullOnNotFoundOr404.class)
    @Nullable
@@ -165,6 +167,7 @@ public interface ObjectApi {
    @Named("object:get")
    @GET
    @Path("/{objectName}")
+   @Hedged
    @ResponseParser(ParseObjectFromResponse.class)
    @Fallback(NullOnNotFoundOr404.class)
    @Nullable
@@ -183,6 +186,7 @@ public interface ObjectApi {
    @Named("object:get")
    @GET
    @Path("/{objectName}")
+   @Hedged
    @ResponseParser(ParseObjectFromResponse.class)
    @Fallback(NullOnNotFoundOr404.class)
    @Nullable
@@ -17,16 +17,17 @@
 package org.jclouds.openstack.swift.v1.functions;
 
 import static com.google.common.io.BaseEncoding.base16;
-import static org.jclouds.http.Uris.uriBuilder;
+import static org.jclouds.http.HttpUtils.releasePayload;
 
 import java.util.Date;
 import java.util.List;
 
 import javax.inject.Inject;
 
+import org.jclouds.date.DateService;
 import org.jclouds.http.HttpRequest;
 import org.jclouds.http.HttpResponse;
-import org.jclouds.http.functions.ParseJson;
+import org.jclouds.http.HttpResponseException;
 import org.jclouds.io.Payload;
 import org.jclouds.io.Payloads;
 import org.jclouds.openstack.swift.v1.domain.Container;
@@ -36,71 +37,53 @@ import org.jclouds.rest.InvocationContext;
 import org.jclouds.rest.internal.GeneratedHttpRequest;
 
 import com.google.common.base.Function;
-import com.google.common.collect.Lists;
+import com.google.common.collect.ImmutableList;
 import com.google.common.hash.HashCode;
 import com.google.common.io.ByteSource;
 
+/**
+ * Parses an object listing with {@link StreamingObjectListReader}, which decodes each object as it is read instead of
+ * binding the whole array to intermediate objects first.
+ */
 public class ParseObjectListFromResponse implements Function<HttpResponse, ObjectList>,
       InvocationContext<ParseObjectListFromResponse> {
 
-   private static final class InternalObject {
-      String name;
-      String hash;
-      long bytes;
-      String content_type;
-      Date last_modified;
-      Date expires;
-   }
-
-   private final ParseJson<List<InternalObject>> json;
+   private final DateService dateService;
    private final ParseContainerFromHeaders parseContainer;
+   private String containerUri;
 
    @Inject
-   ParseObjectListFromResponse(ParseJson<List<InternalObject>> json, ParseContainerFromHeaders parseContainer) {
-      this.json = json;
+   ParseObjectListFromResponse(DateService dateService, ParseContainerFromHeaders parseContainer) {
+      this.dateService = dateService;
       this.parseContainer = parseContainer;
    }
 
-   private ToSwiftObject toSwiftObject;
-
    @Override
    public ObjectList apply(HttpResponse from) {
-      List<SwiftObject> objects = Lists.transform(json.apply(from), toSwiftObject);
+      List<SwiftObject> objects;
+      StreamingObjectListReader reader = null;
+      try {
+         reader = new StreamingObjectListReader(dateService, containerUri, from.getPayload().openStream());
+         objects = ImmutableList.copyOf(reader);
+      } catch (Exception e) {
+         throw new HttpResponseException("Error parsing input: " + e.getMessage() + "\n" + from, null, from, e);
+      } finally {
+         if (reader != null)
+            reader.close();
+         releasePayload(from);
+      }
       Container container = parseContainer.apply(from);
       return ObjectList.create(objects, container);
    }
 
-   static class ToSwiftObject implements Function<InternalObject, SwiftObject> {
-      private final String containerUri;
-
-      ToSwiftObject(String containerUri) {
-         this.containerUri = containerUri;
-      }
-
-      @Override
-      public SwiftObject apply(InternalObject input) {
-         return SwiftObject.builder()
-               .uri(uriBuilder(containerUri).clearQuery().appendPath(input.name).build())
-               .name(input.name)
-               .etag(input.hash)
-               .payload(payload(input.bytes, input.hash, input.content_type, input.expires))
-               .lastModified(input.last_modified).build();
-      }
-   }
-
    @Override
    public ParseObjectListFromResponse setContext(HttpRequest request) {
       parseContainer.name = GeneratedHttpRequest.class.cast(request).getCaller().get().getArgs().get(1).toString();
-      String containerUri = request.getEndpoint().toString();
-      int queryIndex = containerUri.indexOf('?');
-      if (queryIndex != -1) {
-         containerUri = containerUri.substring(0, queryIndex);
-      }
-      toSwiftObject = new ToSwiftObject(containerUri);
+      containerUri = request.getEndpoint().toString();
       return this;
    }
 
-   private static Payload payload(long bytes, String hash, String contentType, Date expires) {
+   static Payload payload(long bytes, String hash, String contentType, Date expires) {
       Payload payload = Payloads.newByteSourcePayload(ByteSource.empty());
       payload.getContentMetadata().setContentLength(bytes);
       payload.getContentMetadata().setContentType(contentType);
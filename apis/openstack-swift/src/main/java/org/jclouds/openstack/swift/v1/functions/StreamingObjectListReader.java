@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.openstack.swift.v1.functions;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.jclouds.http.Uris.uriBuilder;
+import static org.jclouds.openstack.swift.v1.functions.ParseObjectListFromResponse.payload;
+import static org.jclouds.util.Closeables2.closeQuietly;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.util.Date;
+
+import org.jclouds.date.DateService;
+import org.jclouds.openstack.swift.v1.domain.SwiftObject;
+
+import com.google.common.base.CharMatcher;
+import com.google.common.base.Charsets;
+import com.google.common.collect.AbstractIterator;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+/**
+ * Decodes a json object listing with a pull parser, returning each object as it is read from the stream.
+ * <p/>
+ * Unlike {@link ParseObjectListFromResponse}, which binds the whole array before returning, this holds no more than
+ * the entry being decoded, so callers can process a page while it is still being received. Pseudo-directory
+ * ({@code subdir}) entries of delimited listings are skipped.
+ */
+public class StreamingObjectListReader extends AbstractIterator<SwiftObject> implements Closeable {
+
+   /** Characters the uri builder neither decodes nor encodes in a path. */
+   private static final CharMatcher VERBATIM_PATH = CharMatcher.inRange('a', 'z').or(CharMatcher.inRange('A', 'Z'))
+         .or(CharMatcher.inRange('0', '9')).or(CharMatcher.anyOf("-._/:;=")).precomputed();
+
+   private final DateService dateService;
+   private final String containerUri;
+   private final String objectUriPrefix;
+   private final InputStream input;
+   private final JsonReader reader;
+   private boolean started;
+
+   /**
+    * @param containerUri
+    *           the container endpoint the listing was requested from, used to build each object's uri
+    */
+   public StreamingObjectListReader(DateService dateService, String containerUri, InputStream input) {
+      this.dateService = checkNotNull(dateService, "dateService");
+      int queryIndex = checkNotNull(containerUri, "containerUri").indexOf('?');
+      this.containerUri = queryIndex != -1 ? containerUri.substring(0, queryIndex) : containerUri;
+      this.objectUriPrefix = this.containerUri.endsWith("/") ? this.containerUri : this.containerUri + "/";
+      this.input = checkNotNull(input, "input");
+      this.reader = new JsonReader(new InputStreamReader(input, Charsets.UTF_8));
+   }
+
+   @Override
+   protected SwiftObject computeNext() {
+      try {
+         if (!started) {
+            started = true;
+            reader.beginArray();
+         }
+         while (reader.hasNext()) {
+            SwiftObject object = readObject();
+            if (object != null)
+               return object;
+         }
+         reader.endArray();
+      } catch (IOException e) {
+         close();
+         throw new IllegalStateException("could not read object listing of " + containerUri, e);
+      }
+      close();
+      return endOfData();
+   }
+
+   /**
+    * @return the object, or null if the entry is a pseudo-directory
+    */
+   private SwiftObject readObject() throws IOException {
+      String name = null;
+      String hash = null;
+      long bytes = 0;
+      String contentType = null;
+      Date lastModified = null;
+      Date expires = null;
+      reader.beginObject();
+      while (reader.hasNext()) {
+         String field = reader.nextName();
+         if (reader.peek() == JsonToken.NULL) {
+            reader.skipValue();
+         } else if (field.equals("name")) {
+            name = reader.nextString();
+         } else if (field.equals("hash")) {
+            hash = reader.nextString();
+         } else if (field.equals("bytes")) {
+            bytes = reader.nextLong();
+         } else if (field.equals("content_type")) {
+            contentType = reader.nextString();
+         } else if (field.equals("last_modified")) {
+            lastModified = parseDate(reader.nextString());
+         } else if (field.equals("expires")) {
+            expires = parseDate(reader.nextString());
+         } else {
+            reader.skipValue();
+         }
+      }
+      reader.endObject();
+      if (name == null)
+         return null;
+      return SwiftObject.builder()
+            .uri(objectUri(name))
+            .name(name)
+            .etag(hash)
+            .payload(payload(bytes, hash, contentType, expires))
+            .lastModified(lastModified).build();
+   }
+
+   /**
+    * Most names need no escaping, and can skip the uri builder, which dominates the allocation of each entry.
+    */
+   private URI objectUri(String name) {
+      if (!name.startsWith("/") && VERBATIM_PATH.matchesAllOf(name))
+         return URI.create(objectUriPrefix + name);
+      return uriBuilder(containerUri).clearQuery().appendPath(name).build();
+   }
+
+   private Date parseDate(String toParse) {
+      try {
+         return dateService.iso8601DateParse(toParse);
+      } catch (RuntimeException e) {
+         return dateService.iso8601SecondsDateParse(toParse);
+      }
+   }
+
+   /**
+    * Closes the underlying stream, abandoning any entries not yet read.
+    */
+   @Override
+   public void close() {
+      closeQuietly(reader);
+      closeQuietly(input);
+   }
+}
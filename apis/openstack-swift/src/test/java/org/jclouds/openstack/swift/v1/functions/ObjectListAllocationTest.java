@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.openstack.swift.v1.functions;
+
+import static org.jclouds.http.Uris.uriBuilder;
+import static org.jclouds.openstack.swift.v1.reference.SwiftHeaders.CONTAINER_BYTES_USED;
+import static org.jclouds.openstack.swift.v1.reference.SwiftHeaders.CONTAINER_OBJECT_COUNT;
+import static org.jclouds.reflect.Reflection2.method;
+import static org.testng.Assert.assertEquals;
+
+import java.util.Date;
+import java.util.List;
+
+import org.jclouds.PerformanceTest;
+import org.jclouds.date.internal.SimpleDateFormatDateService;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.http.functions.ParseJson;
+import org.jclouds.json.Json;
+import org.jclouds.json.config.GsonModule;
+import org.jclouds.openstack.swift.v1.SwiftApi;
+import org.jclouds.openstack.swift.v1.config.SwiftTypeAdapters;
+import org.jclouds.openstack.swift.v1.domain.ObjectList;
+import org.jclouds.openstack.swift.v1.domain.SwiftObject;
+import org.jclouds.openstack.swift.v1.features.ObjectApi;
+import org.jclouds.reflect.Invocation;
+import org.jclouds.rest.internal.GeneratedHttpRequest;
+import org.jclouds.util.Strings2;
+import org.testng.annotations.AfterTest;
+import org.testng.annotations.BeforeTest;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.inject.Guice;
+import com.google.inject.TypeLiteral;
+
+/**
+ * Compares the bytes allocated parsing a 1000-object listing by binding the whole array with Gson and converting
+ * each entry, as {@link ParseObjectListFromResponse} did before, and with {@link ParseObjectListFromResponse}.
+ */
+// NOTE:without testName, this will not call @Before* and fail w/NPE during surefire
+@Test(groups = "performance", sequential = true, timeOut = 2 * 60 * 1000, testName = "ObjectListAllocationTest")
+public class ObjectListAllocationTest extends PerformanceTest {
+   private static final int ENTRIES = 1000;
+   private static final int PAGE_COUNT = 100;
+
+   /** The shape the listing used to be bound to. */
+   private static final class BoundObject {
+      String name;
+      String hash;
+      long bytes;
+      String content_type;
+      Date last_modified;
+      Date expires;
+   }
+
+   ParseJson<List<BoundObject>> parseJson;
+   GeneratedHttpRequest request;
+   String page;
+
+   @BeforeTest
+   protected void setUpParsers() {
+      Json json = Guice.createInjector(new GsonModule(), new SwiftTypeAdapters()).getInstance(Json.class);
+      parseJson = new ParseJson<List<BoundObject>>(json, new TypeLiteral<List<BoundObject>>() {
+      });
+      request = GeneratedHttpRequest.builder().method("GET")
+            .endpoint("https://swift.example.com/v1/MossoCloudFS_5bcf396e/myContainer/?format=json")
+            .invocation(Invocation.create(method(ObjectApi.class, "list")))
+            .caller(Invocation.create(method(SwiftApi.class, "getObjectApi", String.class, String.class),
+                  ImmutableList.<Object> of("RegionOne", "myContainer"))).build();
+      page = page(ENTRIES);
+   }
+
+   @AfterTest
+   protected void tearDownParsers() {
+      parseJson = null;
+      request = null;
+      page = null;
+   }
+
+   public void testParsersReadAllObjects() {
+      List<SwiftObject> bound = runParseJson();
+      ObjectList objects = runParseObjectListFromResponse();
+      assertEquals(objects.size(), ENTRIES);
+      assertEquals(objects, bound);
+      assertEquals(objects.get(0).getLastModified(), bound.get(0).getLastModified());
+      assertEquals(objects.getContainer().getName(), "myContainer");
+      assertEquals(objects.get(0).getName(), "photos/2014/05/20/image-0.jpg");
+   }
+
+   public void testParseJsonAllocation() {
+      executeAllocationTest("ParseJson", PAGE_COUNT, new Runnable() {
+         public void run() {
+            runParseJson();
+         }
+      });
+   }
+
+   public void testParseObjectListFromResponseAllocation() {
+      executeAllocationTest("ParseObjectListFromResponse", PAGE_COUNT, new Runnable() {
+         public void run() {
+            runParseObjectListFromResponse();
+         }
+      });
+   }
+
+   private List<SwiftObject> runParseJson() {
+      ImmutableList.Builder<SwiftObject> objects = ImmutableList.builder();
+      for (BoundObject bound : parseJson.apply(response())) {
+         objects.add(SwiftObject.builder()
+               .uri(uriBuilder(request.getEndpoint().toString()).clearQuery().appendPath(bound.name).build())
+               .name(bound.name)
+               .etag(bound.hash)
+               .payload(ParseObjectListFromResponse.payload(bound.bytes, bound.hash, bound.content_type,
+                     bound.expires))
+               .lastModified(bound.last_modified).build());
+      }
+      return objects.build();
+   }
+
+   private ObjectList runParseObjectListFromResponse() {
+      return new ParseObjectListFromResponse(new SimpleDateFormatDateService(), new ParseContainerFromHeaders())
+            .setContext(request).apply(response());
+   }
+
+   private HttpResponse response() {
+      return HttpResponse.builder().statusCode(200).addHeader(CONTAINER_BYTES_USED, "1024000")
+            .addHeader(CONTAINER_OBJECT_COUNT, String.valueOf(ENTRIES)).payload(Strings2.toInputStream(page))
+            .build();
+   }
+
+   static String page(int entries) {
+      StringBuilder json = new StringBuilder("[");
+      for (int i = 0; i < entries; i++) {
+         if (i > 0)
+            json.append(',');
+         json.append("{\"name\":\"photos/2014/05/20/image-").append(i).append(".jpg\",")
+               .append("\"hash\":\"c82e6a0025c31c5de5947fda62ac51ab\",\"bytes\":").append(1024 + i)
+               .append(",\"content_type\":\"image/jpeg\",\"last_modified\":\"2014-05-20T05:26:32.612278\"}");
+      }
+      return json.append(']').toString();
+   }
+}
@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.openstack.swift.v1.functions;
+
+import static org.jclouds.http.Uris.uriBuilder;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+
+import java.net.URI;
+
+import org.jclouds.date.DateService;
+import org.jclouds.date.internal.SimpleDateFormatDateService;
+import org.jclouds.openstack.swift.v1.domain.SwiftObject;
+import org.jclouds.util.Strings2;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+
+@Test(groups = "unit", testName = "StreamingObjectListReaderTest")
+public class StreamingObjectListReaderTest {
+   private static final String CONTAINER_URI = "http://localhost/v1/MossoCloudFS_5bcf396e/myContainer";
+
+   private final DateService dates = new SimpleDateFormatDateService();
+
+   public void testReadsObjects() {
+      StreamingObjectListReader reader = new StreamingObjectListReader(dates, CONTAINER_URI + "?format=json",
+            getClass().getResourceAsStream("/object_list.json"));
+
+      ImmutableList<SwiftObject> objects = ImmutableList.copyOf(reader);
+
+      assertEquals(objects.size(), 3);
+      SwiftObject first = objects.get(0);
+      assertEquals(first.getName(), "test_obj_1");
+      assertEquals(first.getUri(), URI.create(CONTAINER_URI + "/test_obj_1"));
+      assertEquals(first.getETag(), "4281c348eaf83e70ddce0e07221c3d28");
+      assertEquals(first.getPayload().getContentMetadata().getContentLength(), Long.valueOf(14));
+      assertEquals(first.getPayload().getContentMetadata().getContentType(), "application/octet-stream");
+      assertEquals(first.getLastModified(), dates.iso8601DateParse("2009-02-03T05:26:32.612278"));
+      assertEquals(objects.get(2).getUri(), URI.create(CONTAINER_URI + "/test%20obj%203"));
+   }
+
+   public void testObjectUrisMatchUriBuilder() {
+      for (String containerUri : ImmutableList.of(CONTAINER_URI, CONTAINER_URI + "/")) {
+         for (String name : ImmutableList.of("photos/cat.jpg", "a:b;c=d~e", "sp ace", "/leading", "tr\u00e8s", "q?x")) {
+            String json = "[{\"name\":\"" + name + "\",\"hash\":\"d41d8cd98f00b204e9800998ecf8427e\","
+                  + "\"bytes\":0,\"last_modified\":\"2014-05-20T05:26:32\"}]";
+            StreamingObjectListReader reader = new StreamingObjectListReader(dates, containerUri,
+                  Strings2.toInputStream(json));
+            assertEquals(reader.next().getUri(), uriBuilder(containerUri).appendPath(name).build(), name);
+         }
+      }
+   }
+
+   public void testSkipsPseudoDirectoriesAndUnknownFields() {
+      String json = "[{\"subdir\":\"photos/\"},{\"name\":\"photos/cat.jpg\","
+            + "\"hash\":\"0b2e80bd0744d9ebb20484149a57c82e\",\"bytes\":3,"
+            + "\"content_type\":\"image/jpeg\",\"last_modified\":\"2014-05-20T05:26:32\",\"symlink_path\":null,"
+            + "\"extra\":{\"nested\":[1,2]}}]";
+      StreamingObjectListReader reader = new StreamingObjectListReader(dates, CONTAINER_URI,
+            Strings2.toInputStream(json));
+
+      SwiftObject object = reader.next();
+      assertEquals(object.getName(), "photos/cat.jpg");
+      assertEquals(object.getETag(), "0b2e80bd0744d9ebb20484149a57c82e");
+      assertEquals(object.getLastModified(), dates.iso8601SecondsDateParse("2014-05-20T05:26:32"));
+      assertFalse(reader.hasNext());
+   }
+}
@@ -52,6 +52,7 @@ import org.jclouds.rest.annotations.Endpoint;
 import org.jclouds.rest.annotations.EndpointParam;
 import org.jclouds.rest.annotations.Fallback;
 import org.jclouds.rest.annotations.Headers;
+import org.jclouds.rest.annotations.Hedged;
 import org.jclouds.rest.annotations.ParamParser;
 import org.jclouds.rest.annotations.ParamValidators;
 import org.jclouds.rest.annotations.QueryParams;
@@ -84,6 +85,7 @@ import org.jclouds.s3.functions.DefaultEndpointThenInvalidateRegion;
 import org.jclouds.s3.functions.ETagFromHttpResponseViaRegex;
 import org.jclouds.s3.functions.ObjectKey;
 import org.jclouds.s3.functions.ObjectMetadataKey;
+import org.jclouds.s3.functions.ParseListBucketResponse;
 import org.jclouds.s3.functions.ParseObjectFromHeadersAndHttpContent;
 import org.jclouds.s3.functions.ParseObjectMetadataFromHeaders;
 import org.jclouds.s3.functions.UploadIdFromHttpResponseViaRegex;
@@ -97,7 +99,6 @@ import org.jclouds.s3.xml.BucketLoggingHandler;
 import org.jclouds.s3.xml.CopyObjectHandler;
 import org.jclouds.s3.xml.DeleteResultHandler;
 import org.jclouds.s3.xml.ListAllMyBucketsHandler;
-import org.jclouds.s3.xml.ListBucketHandler;
 import org.jclouds.s3.xml.LocationConstraintHandler;
 import org.jclouds.s3.xml.PartIdsFromHttpResponse;
 import org.jclouds.s3.xml.PayerHandler;
@@ -148,6 +149,7 @@ public interface S3Client extends Closeable {
    @Named("GetObject")
    @GET
    @Path("/{key}")
+   @Hedged
    @Fallback(NullOnKeyNotFound.class)
    @ResponseParser(ParseObjectFromHeadersAndHttpContent.class)
    S3Object getObject(@Bucket @EndpointParam(parser = AssignCorrectHostnameForBucket.class) @BinderParam(
@@ -171,6 +173,7 @@ public interface S3Client extends Closeable {
    @Named("GetObject")
    @HEAD
    @Path("/{key}")
+   @Hedged
    @Fallback(NullOnKeyNotFound.class)
    @ResponseParser(ParseObjectMetadataFromHeaders.class)
    ObjectMetadata headObject(@Bucket @EndpointParam(parser = AssignCorrectHostnameForBucket.class) @BinderParam(
@@ -336,7 +339,7 @@ public interface S3Client extends Closeable {
    @Named("ListBucket")
    @GET
    @Path("/")
-   @XMLResponseParser(ListBucketHandler.class)
+   @ResponseParser(ParseListBucketResponse.class)
    ListBucketResponse listBucket(@Bucket @EndpointParam(parser = AssignCorrectHostnameForBucket.class) @BinderParam(
          BindAsHostPrefixIfConfigured.class) @ParamValidators(BucketNameValidator.class) String bucketName,
          ListBucketOptions... options);
@@ -678,6 +681,41 @@ public interface S3Client extends Closeable {
          @PathParam("key") String key, @QueryParam("partNumber") int partNumber,
          @QueryParam("uploadId") String uploadId, Payload part);
 
+   /**
+    * Uploads a part by copying a range of an existing object, so that objects larger than the limit of
+    * {@link #copyObject} can be copied without transferring their content.
+    *
+    * @param bucketName
+    *           namespace of the object you are storing
+    * @param key
+    *           unique key in the s3Bucket identifying the object
+    * @param partNumber
+    *           which part is this.
+    * @param uploadId
+    *           id of the multipart upload in progress.
+    * @param sourceBucket
+    *           bucket of the object to copy from
+    * @param sourceObject
+    *           key of the object to copy from
+    * @param startOffset
+    *           first byte of the range to copy
+    * @param endOffset
+    *           last byte of the range to copy, inclusive
+    * @return metadata populated with lastModified and eTag of the part
+    */
+   @Named("PutObject")
+   @PUT
+   @Path("/{key}")
+   @Headers(keys = { "x-amz-copy-source", "x-amz-copy-source-range" },
+         values = { "/{sourceBucket}/{sourceObject}", "bytes={startOffset}-{endOffset}" })
+   @XMLResponseParser(CopyObjectHandler.class)
+   ObjectMetadata uploadPartCopy(@Bucket @EndpointParam(parser = AssignCorrectHostnameForBucket.class) @BinderParam(
+         BindAsHostPrefixIfConfigured.class) @ParamValidators(BucketNameValidator.class) String bucketName,
+         @PathParam("key") String key, @QueryParam("partNumber") int partNumber,
+         @QueryParam("uploadId") String uploadId, @PathParam("sourceBucket") String sourceBucket,
+         @PathParam("sourceObject") String sourceObject, @PathParam("startOffset") long startOffset,
+         @PathParam("endOffset") long endOffset);
+
    /**
     *
     This operation completes a multipart upload by assembling previously uploaded parts.
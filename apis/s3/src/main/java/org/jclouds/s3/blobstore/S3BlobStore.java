@@ -19,15 +19,18 @@ package org.jclouds.s3.blobstore;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 import static org.jclouds.util.Predicates2.retry;
+import static org.jclouds.util.Throwables2.getFirstThrowableOfType;
 
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import javax.inject.Inject;
+import javax.inject.Named;
 import javax.inject.Provider;
 import javax.inject.Singleton;
 
+import org.jclouds.aws.AWSResponseException;
 import org.jclouds.blobstore.BlobStoreContext;
 import org.jclouds.blobstore.ContainerNotFoundException;
 import org.jclouds.blobstore.domain.Blob;
@@ -44,6 +47,7 @@ import org.jclouds.blobstore.options.CopyOptions;
 import org.jclouds.blobstore.options.CreateContainerOptions;
 import org.jclouds.blobstore.options.ListContainerOptions;
 import org.jclouds.blobstore.options.PutOptions;
+import org.jclouds.blobstore.strategy.internal.DeleteKeysUsingBulkDeletes;
 import org.jclouds.blobstore.strategy.internal.FetchBlobMetadata;
 import org.jclouds.blobstore.util.BlobUtils;
 import org.jclouds.collect.Memoized;
@@ -58,16 +62,20 @@ import org.jclouds.s3.blobstore.functions.BucketToResourceList;
 import org.jclouds.s3.blobstore.functions.ContainerToBucketListOptions;
 import org.jclouds.s3.blobstore.functions.ObjectToBlob;
 import org.jclouds.s3.blobstore.functions.ObjectToBlobMetadata;
+import org.jclouds.s3.blobstore.strategy.MultipartCopyStrategy;
 import org.jclouds.s3.blobstore.strategy.MultipartUploadStrategy;
 import org.jclouds.s3.domain.AccessControlList;
 import org.jclouds.s3.domain.AccessControlList.GroupGranteeURI;
 import org.jclouds.s3.domain.AccessControlList.Permission;
 import org.jclouds.s3.domain.BucketMetadata;
 import org.jclouds.s3.domain.CannedAccessPolicy;
+import org.jclouds.s3.domain.ObjectMetadata;
+import org.jclouds.s3.domain.ObjectMetadataBuilder;
 import org.jclouds.s3.options.CopyObjectOptions;
 import org.jclouds.s3.options.ListBucketOptions;
 import org.jclouds.s3.options.PutBucketOptions;
 import org.jclouds.s3.options.PutObjectOptions;
+import org.jclouds.s3.reference.S3Constants;
 import org.jclouds.s3.util.S3Utils;
 
 import com.google.common.base.Function;
@@ -78,7 +86,6 @@ import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.Iterables;
 
 @Singleton
 public class S3BlobStore extends BaseBlobStore {
@@ -94,6 +101,14 @@ public class S3BlobStore extends BaseBlobStore {
    private final Provider<FetchBlobMetadata> fetchBlobMetadataProvider;
    private final LoadingCache<String, AccessControlList> bucketAcls;
    protected final Provider<MultipartUploadStrategy> multipartUploadStrategy;
+   protected final DeleteKeysUsingBulkDeletes deleteKeys;
+   protected final Provider<MultipartCopyStrategy> multipartCopyStrategy;
+
+   /** Largest object a single copy request accepts. */
+   private static final long MAX_SINGLE_COPY_SIZE = 5L * 1024L * 1024L * 1024L;
+
+   /** Objects larger than this are copied in parts, as a single copy request is limited to 5 GB. */
+   protected long multipartCopyThreshold = MAX_SINGLE_COPY_SIZE;
 
    @Inject
    protected S3BlobStore(BlobStoreContext context, BlobUtils blobUtils, Supplier<Location> defaultLocation,
@@ -104,7 +119,8 @@ public class S3BlobStore extends BaseBlobStore {
             BlobToObjectMetadata blob2ObjectMetadata,
             ObjectToBlobMetadata object2BlobMd, Provider<FetchBlobMetadata> fetchBlobMetadataProvider,
             LoadingCache<String, AccessControlList> bucketAcls,
-            Provider<MultipartUploadStrategy> multipartUploadStrategy) {
+            Provider<MultipartUploadStrategy> multipartUploadStrategy, DeleteKeysUsingBulkDeletes deleteKeys,
+            Provider<MultipartCopyStrategy> multipartCopyStrategy) {
       super(context, blobUtils, defaultLocation, locations);
       this.blob2ObjectGetOptions = checkNotNull(blob2ObjectGetOptions, "blob2ObjectGetOptions");
       this.sync = checkNotNull(sync, "sync");
@@ -118,6 +134,13 @@ public class S3BlobStore extends BaseBlobStore {
       this.fetchBlobMetadataProvider = checkNotNull(fetchBlobMetadataProvider, "fetchBlobMetadataProvider");
       this.bucketAcls = checkNotNull(bucketAcls, "bucketAcls");
       this.multipartUploadStrategy = checkNotNull(multipartUploadStrategy, "multipartUploadStrategy");
+      this.deleteKeys = checkNotNull(deleteKeys, "deleteKeys");
+      this.multipartCopyStrategy = checkNotNull(multipartCopyStrategy, "multipartCopyStrategy");
+   }
+
+   @com.google.inject.Inject(optional = true)
+   void setMultipartCopyThreshold(@Named(S3Constants.PROPERTY_S3_MULTIPART_COPY_THRESHOLD) long threshold) {
+      this.multipartCopyThreshold = threshold;
    }
 
    /**
@@ -287,9 +310,64 @@ public class S3BlobStore extends BaseBlobStore {
       return sync.putObject(container, blob2Object.apply(blob), options);
    }
 
+   /**
+    * This implementation sends a single {@link S3Client#copyObject} request, and only looks up the size of the source
+    * when S3 rejects it as an invalid request, copying it in parts if it is larger than a single copy accepts. When
+    * the multipart copy threshold is lowered below the largest single copy, the size is looked up first.
+    */
    @Override
    public String copyBlob(String fromContainer, String fromName, String toContainer, String toName,
          CopyOptions options) {
+      if (multipartCopyThreshold < MAX_SINGLE_COPY_SIZE) {
+         String eTag = copyInPartsIfLarger(fromContainer, fromName, toContainer, toName, options,
+               multipartCopyThreshold);
+         if (eTag != null) {
+            return eTag;
+         }
+      }
+      try {
+         return copyObject(fromContainer, fromName, toContainer, toName, options);
+      } catch (RuntimeException e) {
+         if (!isInvalidRequest(e)) {
+            throw e;
+         }
+         String eTag = copyInPartsIfLarger(fromContainer, fromName, toContainer, toName, options,
+               Math.min(multipartCopyThreshold, MAX_SINGLE_COPY_SIZE));
+         if (eTag == null) {
+            throw e;
+         }
+         return eTag;
+      }
+   }
+
+   /**
+    * @return the ETag of the copy, or null if the source is not larger than the threshold or does not exist
+    */
+   private String copyInPartsIfLarger(String fromContainer, String fromName, String toContainer, String toName,
+         CopyOptions options, long threshold) {
+      ObjectMetadata source = sync.headObject(fromContainer, fromName);
+      if (source == null) {
+         return null;
+      }
+      Long size = source.getContentMetadata().getContentLength();
+      if (size == null || size <= threshold) {
+         return null;
+      }
+      return multipartCopyStrategy.get().execute(fromContainer, fromName, size, toContainer,
+            copyMetadata(source, toName, options));
+   }
+
+   /**
+    * S3 rejects a copy source larger than a single copy accepts as an {@code InvalidRequest}, which it also uses for
+    * other problems, so the caller still has to check the size of the source.
+    */
+   private static boolean isInvalidRequest(RuntimeException e) {
+      AWSResponseException exception = getFirstThrowableOfType(e, AWSResponseException.class);
+      return exception != null && "InvalidRequest".equals(exception.getError().getCode());
+   }
+
+   private String copyObject(String fromContainer, String fromName, String toContainer, String toName,
+         CopyOptions options) {
       CopyObjectOptions s3Options = new CopyObjectOptions();
 
       Optional<ContentMetadata> contentMetadata = options.getContentMetadata();
@@ -323,6 +401,25 @@ public class S3BlobStore extends BaseBlobStore {
       return sync.copyObject(fromContainer, fromName, toContainer, toName, s3Options).getETag();
    }
 
+   /**
+    * The metadata of a multipart copy, which unlike a single copy request does not carry over the metadata of the
+    * source.
+    */
+   private static ObjectMetadata copyMetadata(ObjectMetadata source, String toName, CopyOptions options) {
+      ContentMetadata contentMetadata = options.getContentMetadata().or(source.getContentMetadata());
+      ObjectMetadataBuilder builder = ObjectMetadataBuilder.create()
+            .key(toName)
+            .cacheControl(source.getCacheControl())
+            .contentDisposition(contentMetadata.getContentDisposition())
+            .contentEncoding(contentMetadata.getContentEncoding())
+            .contentLanguage(contentMetadata.getContentLanguage())
+            .userMetadata(options.getUserMetadata().or(source.getUserMetadata()));
+      if (contentMetadata.getContentType() != null) {
+         builder.contentType(contentMetadata.getContentType());
+      }
+      return builder.build();
+   }
+
    /**
     * This implementation invokes {@link S3Client#deleteObject}
     * 
@@ -336,11 +433,15 @@ public class S3BlobStore extends BaseBlobStore {
       sync.deleteObject(container, key);
    }
 
+   /**
+    * This implementation sends {@link S3Client#deleteObjects} requests concurrently, retrying keys which fail.
+    *
+    * @throws org.jclouds.blobstore.BulkDeleteException
+    *            if any key could not be deleted
+    */
    @Override
    public void removeBlobs(String container, Iterable<String> keys) {
-      for (List<String> partition : Iterables.partition(keys, 1000)) {
-         sync.deleteObjects(container, partition);
-      }
+      deleteKeys.execute(container, keys);
    }
 
    @Override
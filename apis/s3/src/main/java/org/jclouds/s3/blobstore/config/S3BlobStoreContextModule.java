@@ -25,6 +25,9 @@ import javax.inject.Singleton;
 import org.jclouds.blobstore.BlobRequestSigner;
 import org.jclouds.blobstore.BlobStore;
 import org.jclouds.blobstore.attr.ConsistencyModel;
+import org.jclouds.blobstore.strategy.BulkDeleteStrategy;
+import org.jclouds.blobstore.strategy.ClearListStrategy;
+import org.jclouds.blobstore.strategy.internal.ClearContainerUsingBulkDeletes;
 import org.jclouds.domain.Location;
 import org.jclouds.s3.S3Client;
 import org.jclouds.s3.blobstore.S3BlobRequestSigner;
@@ -34,6 +37,7 @@ import org.jclouds.s3.blobstore.internal.BackoffOnNotFoundWhenGetBucketACL;
 import org.jclouds.s3.blobstore.strategy.AsyncMultipartUploadStrategy;
 import org.jclouds.s3.blobstore.strategy.MultipartUploadStrategy;
 import org.jclouds.s3.blobstore.strategy.internal.ParallelMultipartUploadStrategy;
+import org.jclouds.s3.blobstore.strategy.internal.S3BulkDeleteStrategy;
 import org.jclouds.s3.blobstore.strategy.internal.SequentialMultipartUploadStrategy;
 import org.jclouds.s3.domain.AccessControlList;
 
@@ -55,6 +59,8 @@ public class S3BlobStoreContextModule extends AbstractModule {
       bindRequestSigner();
       bind(MultipartUploadStrategy.class).to(SequentialMultipartUploadStrategy.class);
       bind(AsyncMultipartUploadStrategy.class).to(ParallelMultipartUploadStrategy.class);
+      bind(BulkDeleteStrategy.class).to(S3BulkDeleteStrategy.class);
+      bind(ClearListStrategy.class).to(ClearContainerUsingBulkDeletes.class);
    }
 
    protected void bindRequestSigner() {
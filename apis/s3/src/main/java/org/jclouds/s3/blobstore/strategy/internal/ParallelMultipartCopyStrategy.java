@@ -0,0 +1,214 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.s3.blobstore.strategy.internal;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.net.URI;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.Resource;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.jclouds.Constants;
+import org.jclouds.blobstore.reference.BlobStoreConstants;
+import org.jclouds.concurrent.ExecutorStrategy;
+import org.jclouds.http.handlers.BackoffLimitedRetryHandler;
+import org.jclouds.location.Provider;
+import org.jclouds.logging.Logger;
+import org.jclouds.s3.S3Client;
+import org.jclouds.s3.blobstore.strategy.MultipartCopyStrategy;
+import org.jclouds.s3.blobstore.strategy.MultipartUpload;
+import org.jclouds.s3.domain.ObjectMetadata;
+import org.jclouds.s3.reference.S3Constants;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Supplier;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.inject.Inject;
+
+/**
+ * Copies an object with Upload Part - Copy requests, each copying a range of the source object server side, so that
+ * objects larger than a single copy request allows are copied without transferring their content.
+ * <p/>
+ * Up to {@link BlobStoreConstants#PROPERTY_MULTIPART_PARALLELISM} parts are copied concurrently through the bulkhead
+ * of the endpoint, and a part which fails is copied again, with exponential backoff, up to
+ * {@link Constants#PROPERTY_MAX_RETRIES} times. If a part still fails, the upload is aborted.
+ */
+@Singleton
+public class ParallelMultipartCopyStrategy implements MultipartCopyStrategy {
+   @Resource
+   @Named(BlobStoreConstants.BLOBSTORE_LOGGER)
+   protected Logger logger = Logger.NULL;
+
+   private final S3Client client;
+   private final ListeningExecutorService partExecutor;
+   private final BackoffLimitedRetryHandler retryHandler;
+
+   /** Preferred part size in bytes. */
+   protected long partSize = 512L * 1024L * 1024L;
+
+   /** Maximum parts in flight. */
+   protected int parallelism = 4;
+
+   /** Maximum times to attempt copying a part. */
+   protected int maxErrors = 5;
+
+   @Inject
+   ParallelMultipartCopyStrategy(S3Client client, ExecutorStrategy executors, @Provider Supplier<URI> endpoint,
+         BackoffLimitedRetryHandler retryHandler) {
+      this.client = checkNotNull(client, "client");
+      this.partExecutor = checkNotNull(executors, "executors").executorFor(
+            String.valueOf(checkNotNull(endpoint, "endpoint").get().getHost()));
+      this.retryHandler = checkNotNull(retryHandler, "retryHandler");
+   }
+
+   @Inject(optional = true)
+   void setPartSize(@Named(S3Constants.PROPERTY_S3_MULTIPART_COPY_PART_SIZE) long partSize) {
+      this.partSize = partSize;
+   }
+
+   @Inject(optional = true)
+   void setParallelism(@Named(BlobStoreConstants.PROPERTY_MULTIPART_PARALLELISM) int parallelism) {
+      this.parallelism = Math.max(1, parallelism);
+   }
+
+   @Inject(optional = true)
+   void setMaxErrors(@Named(Constants.PROPERTY_MAX_RETRIES) int maxErrors) {
+      this.maxErrors = Math.max(1, maxErrors);
+   }
+
+   @Override
+   public String execute(String sourceBucket, String sourceKey, long size, String bucket, ObjectMetadata metadata) {
+      String key = checkNotNull(metadata, "metadata").getKey();
+      String uploadId = client.initiateMultipartUpload(bucket, metadata);
+      SortedMap<Integer, String> eTags;
+      try {
+         eTags = copyInParallel(sourceBucket, sourceKey, size, bucket, key, uploadId);
+      } catch (RuntimeException e) {
+         try {
+            client.abortMultipartUpload(bucket, key, uploadId);
+         } catch (RuntimeException abortFailure) {
+            logger.warn(abortFailure, "<< could not abort multipart copy to %s/%s", bucket, key);
+         }
+         throw e;
+      }
+      logger.debug(">> completing multipart copy of %s/%s to %s/%s in %d parts", sourceBucket, sourceKey, bucket, key,
+            eTags.size());
+      return client.completeMultipartUpload(bucket, key, uploadId, eTags);
+   }
+
+   /**
+    * The preferred part size, raised so the object fits in the maximum number of parts and clamped to the part size
+    * limits.
+    */
+   @VisibleForTesting
+   long partSize(long size) {
+      long result = Math.max(partSize, (size + MultipartUpload.MAX_NUMBER_OF_PARTS - 1)
+            / MultipartUpload.MAX_NUMBER_OF_PARTS);
+      return Math.max(Math.min(result, MultipartUpload.MAX_PART_SIZE), MultipartUpload.MIN_PART_SIZE);
+   }
+
+   private SortedMap<Integer, String> copyInParallel(final String sourceBucket, final String sourceKey, long size,
+         final String bucket, final String key, final String uploadId) {
+      long partLength = partSize(size);
+      final Semaphore inFlight = new Semaphore(parallelism);
+      final AtomicReference<RuntimeException> failure = new AtomicReference<RuntimeException>();
+      final SortedMap<Integer, String> eTags = new ConcurrentSkipListMap<Integer, String>();
+      List<ListenableFuture<?>> futures = Lists.newArrayList();
+      try {
+         int partNumber = 1;
+         for (long offset = 0; offset < size; offset += partLength, partNumber++) {
+            acquire(inFlight, 1);
+            if (failure.get() != null) {
+               inFlight.release();
+               break;
+            }
+            final int number = partNumber;
+            final long startOffset = offset;
+            final long endOffset = Math.min(offset + partLength, size) - 1;
+            try {
+               futures.add(partExecutor.submit(new Runnable() {
+                  @Override
+                  public void run() {
+                     try {
+                        eTags.put(number, copyWithRetries(sourceBucket, sourceKey, bucket, key, uploadId, number,
+                              startOffset, endOffset));
+                     } catch (RuntimeException e) {
+                        failure.compareAndSet(null, e);
+                     } finally {
+                        inFlight.release();
+                     }
+                  }
+
+                  @Override
+                  public String toString() {
+                     return "uploadPartCopy(" + bucket + "/" + key + ", " + number + ")";
+                  }
+               }));
+            } catch (RejectedExecutionException e) {
+               inFlight.release();
+               throw e;
+            }
+         }
+         // wait for the parts in flight
+         acquire(inFlight, parallelism);
+         inFlight.release(parallelism);
+      } catch (RuntimeException e) {
+         for (ListenableFuture<?> future : futures)
+            future.cancel(true);
+         throw e;
+      }
+      if (failure.get() != null)
+         throw failure.get();
+      return eTags;
+   }
+
+   private String copyWithRetries(String sourceBucket, String sourceKey, String bucket, String key, String uploadId,
+         int partNumber, long startOffset, long endOffset) {
+      for (int attempt = 1;; attempt++) {
+         try {
+            return client.uploadPartCopy(bucket, key, partNumber, uploadId, sourceBucket, sourceKey, startOffset,
+                  endOffset).getETag();
+         } catch (RuntimeException e) {
+            if (attempt >= maxErrors)
+               throw e;
+            logger.debug("<< error copying part %d of %s/%s: %s", partNumber, bucket, key, e.getMessage());
+            retryHandler.imposeBackoffExponentialDelay(attempt, String.format("retrying part %d of %s/%s",
+                  partNumber, bucket, key));
+         }
+      }
+   }
+
+   private static void acquire(Semaphore inFlight, int count) {
+      try {
+         inFlight.acquire(count);
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw Throwables.propagate(e);
+      }
+   }
+}
@@ -18,6 +18,7 @@ package org.jclouds.s3.blobstore.strategy.internal;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.net.URI;
 import java.util.Map;
 import java.util.Queue;
 import java.util.SortedMap;
@@ -41,8 +42,10 @@ import org.jclouds.blobstore.domain.Blob;
 import org.jclouds.blobstore.internal.BlobRuntimeException;
 import org.jclouds.blobstore.options.PutOptions;
 import org.jclouds.blobstore.reference.BlobStoreConstants;
+import org.jclouds.concurrent.ExecutorStrategy;
 import org.jclouds.io.Payload;
 import org.jclouds.io.PayloadSlicer;
+import org.jclouds.location.Provider;
 import org.jclouds.logging.Logger;
 import org.jclouds.s3.S3Client;
 import org.jclouds.s3.blobstore.S3BlobStore;
@@ -50,6 +53,7 @@ import org.jclouds.s3.domain.ObjectMetadataBuilder;
 import org.jclouds.util.Throwables2;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Supplier;
 import com.google.common.collect.Maps;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
@@ -68,6 +72,7 @@ public class ParallelMultipartUploadStrategy implements AsyncMultipartUploadStra
    static final int DEFAULT_MAX_PERCENT_RETRIES = 10;
 
    private final ListeningExecutorService executor;
+   private final ListeningExecutorService partExecutor;
 
    @Inject(optional = true)
    @Named("jclouds.mpu.parallel.degree")
@@ -96,10 +101,14 @@ public class ParallelMultipartUploadStrategy implements AsyncMultipartUploadStra
 
    @Inject
    public ParallelMultipartUploadStrategy(S3BlobStore blobstore, PayloadSlicer slicer,
-         @Named(Constants.PROPERTY_USER_THREADS) ListeningExecutorService executor) {
+         @Named(Constants.PROPERTY_USER_THREADS) ListeningExecutorService executor, ExecutorStrategy executors,
+         @Provider Supplier<URI> endpoint) {
       this.blobstore = checkNotNull(blobstore, "blobstore");
       this.slicer = checkNotNull(slicer, "slicer");
       this.executor = checkNotNull(executor, "executor");
+      // only the part uploads go through the endpoint's bulkhead, as the upload itself waits for them
+      this.partExecutor = checkNotNull(executors, "executors").executorFor(
+            String.valueOf(checkNotNull(endpoint, "endpoint").get().getHost()));
    }
 
    protected void prepareUploadPart(final String container, final String key,
@@ -118,7 +127,7 @@ public class ParallelMultipartUploadStrategy implements AsyncMultipartUploadStra
       final Payload chunkedPart = slicer.slice(payload, offset, size);
       logger.debug(String.format("async uploading part %s of %s to container %s with uploadId %s", part, key, container, uploadId));
       final long start = System.currentTimeMillis();
-      final ListenableFuture<String> futureETag = executor.submit(new Callable<String>() {
+      final ListenableFuture<String> futureETag = partExecutor.submit(new Callable<String>() {
          @Override public String call() throws Exception {
             return client.uploadPart(container, key, part, uploadId, chunkedPart);
          }
@@ -242,7 +251,7 @@ public class ParallelMultipartUploadStrategy implements AsyncMultipartUploadStra
                      // recursively call this execute method again; instead mark as not multipart
                      // because it can all fit in one go.
                      final PutOptions nonMultipartOptions = PutOptions.Builder.multipart(false);
-                     ListenableFuture<String> futureETag = executor.submit(new Callable<String>() {
+                     ListenableFuture<String> futureETag = partExecutor.submit(new Callable<String>() {
                         @Override public String call() throws Exception {
                            return blobstore.putBlob(container, blob, nonMultipartOptions);
                         }
@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.s3.blobstore.strategy.internal;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Singleton;
+
+import org.jclouds.blobstore.strategy.BulkDeleteStrategy;
+import org.jclouds.s3.S3Client;
+import org.jclouds.s3.domain.DeleteResult;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.inject.Inject;
+
+/**
+ * Deletes keys using the S3 Multi-Object Delete operation, which accepts up to 1000 keys per request.
+ */
+@Singleton
+public class S3BulkDeleteStrategy implements BulkDeleteStrategy {
+
+   private final S3Client client;
+
+   @Inject
+   public S3BulkDeleteStrategy(S3Client client) {
+      this.client = checkNotNull(client, "client");
+   }
+
+   @Override
+   public int maxKeysPerRequest() {
+      return 1000;
+   }
+
+   @Override
+   public Map<String, String> deleteKeys(String container, List<String> keys) {
+      DeleteResult result = client.deleteObjects(container, keys);
+      if (result.getErrors().isEmpty())
+         return ImmutableMap.of();
+      ImmutableMap.Builder<String, String> failed = ImmutableMap.builder();
+      for (Map.Entry<String, DeleteResult.Error> error : result.getErrors().entrySet())
+         failed.put(error.getKey(), error.getValue().getCode() + ": " + error.getValue().getMessage());
+      return failed.build();
+   }
+}
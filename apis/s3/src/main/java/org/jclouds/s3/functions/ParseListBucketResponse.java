@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.s3.functions;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.jclouds.http.HttpUtils.releasePayload;
+
+import java.net.URI;
+
+import javax.inject.Inject;
+
+import org.jclouds.date.DateService;
+import org.jclouds.http.HttpRequest;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.http.HttpResponseException;
+import org.jclouds.rest.InvocationContext;
+import org.jclouds.s3.domain.ListBucketResponse;
+import org.jclouds.s3.xml.StreamingListBucketReader;
+
+import com.google.common.base.Function;
+
+/**
+ * Parses a {@code ListBucketResult} with {@link StreamingListBucketReader}, which decodes the entries as they are
+ * read instead of building a SAX handler's state for the whole page.
+ */
+public class ParseListBucketResponse implements Function<HttpResponse, ListBucketResponse>,
+      InvocationContext<ParseListBucketResponse> {
+   private final DateService dateParser;
+   private URI endpoint;
+
+   @Inject
+   public ParseListBucketResponse(DateService dateParser) {
+      this.dateParser = checkNotNull(dateParser, "dateParser");
+   }
+
+   @Override
+   public ListBucketResponse apply(HttpResponse from) {
+      checkNotNull(from, "http response");
+      checkNotNull(from.getPayload(), "payload in %s", from);
+      StreamingListBucketReader reader = null;
+      try {
+         reader = new StreamingListBucketReader(dateParser, endpoint, from.getPayload().openStream());
+         return reader.toListBucketResponse();
+      } catch (Exception e) {
+         throw new HttpResponseException("Error parsing input: " + e.getMessage() + "\n" + from, null, from, e);
+      } finally {
+         if (reader != null)
+            reader.close();
+         releasePayload(from);
+      }
+   }
+
+   @Override
+   public ParseListBucketResponse setContext(HttpRequest request) {
+      this.endpoint = request.getEndpoint();
+      return this;
+   }
+}
@@ -31,6 +31,10 @@ public final class S3Constants {
    public static final String DELIMITER = "delimiter";
    public static final String PROPERTY_S3_SERVICE_PATH = "jclouds.s3.service-path";
    public static final String PROPERTY_S3_VIRTUAL_HOST_BUCKETS = "jclouds.s3.virtual-host-buckets";
+   /** Objects larger than this many bytes are copied in parallel parts; 5 GB, the largest single copy, by default. */
+   public static final String PROPERTY_S3_MULTIPART_COPY_THRESHOLD = "jclouds.s3.multipart-copy.threshold";
+   /** Preferred size in bytes of the parts of a multipart copy. */
+   public static final String PROPERTY_S3_MULTIPART_COPY_PART_SIZE = "jclouds.s3.multipart-copy.part-size";
 
    private S3Constants() {
       throw new AssertionError("intentionally unimplemented");
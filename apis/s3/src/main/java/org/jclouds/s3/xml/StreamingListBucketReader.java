@@ -0,0 +1,312 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.s3.xml;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.io.BaseEncoding.base16;
+import static org.jclouds.http.Uris.uriBuilder;
+import static org.jclouds.util.Closeables2.closeQuietly;
+import static org.jclouds.util.SaxUtils.currentOrNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.jclouds.date.DateService;
+import org.jclouds.s3.domain.CanonicalUser;
+import org.jclouds.s3.domain.ListBucketResponse;
+import org.jclouds.s3.domain.ObjectMetadata;
+import org.jclouds.s3.domain.ObjectMetadataBuilder;
+import org.jclouds.s3.domain.internal.ListBucketResponseImpl;
+
+import com.google.common.base.CharMatcher;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Decodes a {@code ListBucketResult} document with a pull parser, returning each {@code Contents} entry as it is read
+ * from the stream.
+ * <p/>
+ * Unlike {@link ListBucketHandler}, which builds the whole page before returning, this holds no more than the entry
+ * being decoded, so callers can process a page while it is still being received. The bucket attributes preceding the
+ * entries are available once this reader is constructed; the common prefixes and next marker, which follow the
+ * entries, are available once the entries are exhausted.
+ */
+public class StreamingListBucketReader extends AbstractIterator<ObjectMetadata> implements Closeable {
+
+   private static final XMLInputFactory FACTORY = newInputFactory();
+
+   /** Characters the uri builder neither decodes nor encodes in a path. */
+   private static final CharMatcher VERBATIM_PATH = CharMatcher.inRange('a', 'z').or(CharMatcher.inRange('A', 'Z'))
+         .or(CharMatcher.inRange('0', '9')).or(CharMatcher.anyOf("-._/:;=")).precomputed();
+
+   /** Some blobs have a non-hex suffix when created by multi-part uploads such Amazon S3. */
+   private static final Pattern ETAG_CONTENT_MD5_PATTERN = Pattern.compile("\"([0-9a-f]+)\"");
+
+   private static XMLInputFactory newInputFactory() {
+      XMLInputFactory factory = XMLInputFactory.newInstance();
+      // listings never contain entities; refuse them rather than resolve them
+      factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+      factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+      factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+      return factory;
+   }
+
+   private final DateService dateParser;
+   private final URI endpoint;
+   private final InputStream input;
+   private final XMLStreamReader reader;
+   private final String objectUriPrefix;
+
+   private String bucketName;
+   private String prefix;
+   private String marker;
+   private String nextMarker;
+   private int maxKeys;
+   private String delimiter;
+   private boolean isTruncated;
+   private String lastKey;
+   private final ImmutableSet.Builder<String> commonPrefixes = ImmutableSet.builder();
+   private boolean exhausted;
+   private final StringBuilder currentText = new StringBuilder();
+
+   /**
+    * Reads the bucket attributes, up to the first entry.
+    * 
+    * @param endpoint
+    *           the bucket endpoint the listing was requested from, used to build each object's uri
+    */
+   public StreamingListBucketReader(DateService dateParser, URI endpoint, InputStream input) {
+      this.dateParser = checkNotNull(dateParser, "dateParser");
+      this.endpoint = checkNotNull(endpoint, "endpoint");
+      this.input = checkNotNull(input, "input");
+      String bucketUri = uriBuilder(endpoint).clearQuery().build().toString();
+      this.objectUriPrefix = bucketUri.endsWith("/") ? bucketUri : bucketUri + "/";
+      try {
+         this.reader = FACTORY.createXMLStreamReader(input);
+      } catch (XMLStreamException e) {
+         throw new IllegalArgumentException("could not read listing", e);
+      }
+      hasNext();
+   }
+
+   @Override
+   protected ObjectMetadata computeNext() {
+      try {
+         while (reader.hasNext()) {
+            if (reader.next() != XMLStreamConstants.START_ELEMENT)
+               continue;
+            String name = reader.getLocalName();
+            if (name.equals("Contents")) {
+               return readContents();
+            } else if (name.equals("CommonPrefixes")) {
+               readCommonPrefixes();
+            } else if (name.equals("Name")) {
+               bucketName = text();
+            } else if (name.equals("Prefix")) {
+               prefix = text();
+            } else if (name.equals("Marker")) {
+               marker = text();
+            } else if (name.equals("NextMarker")) {
+               nextMarker = text();
+            } else if (name.equals("MaxKeys")) {
+               maxKeys = Integer.parseInt(text());
+            } else if (name.equals("Delimiter")) {
+               delimiter = text();
+            } else if (name.equals("IsTruncated")) {
+               isTruncated = Boolean.parseBoolean(text());
+            }
+         }
+      } catch (XMLStreamException e) {
+         throw new IllegalStateException("could not read listing of bucket " + bucketName, e);
+      }
+      exhausted = true;
+      close();
+      return endOfData();
+   }
+
+   private ObjectMetadata readContents() throws XMLStreamException {
+      ObjectMetadataBuilder builder = new ObjectMetadataBuilder().bucket(bucketName);
+      while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+         String name = reader.getLocalName();
+         if (name.equals("Key")) {
+            lastKey = text();
+            builder.key(lastKey);
+            builder.uri(objectUri(lastKey));
+         } else if (name.equals("LastModified")) {
+            builder.lastModified(dateParser.iso8601DateOrSecondsDateParse(text()));
+         } else if (name.equals("ETag")) {
+            String eTag = text();
+            builder.eTag(eTag);
+            Matcher matcher = ETAG_CONTENT_MD5_PATTERN.matcher(eTag);
+            if (matcher.matches())
+               builder.contentMD5(base16().lowerCase().decode(matcher.group(1)));
+         } else if (name.equals("Size")) {
+            builder.contentLength(Long.valueOf(text()));
+         } else if (name.equals("Owner")) {
+            builder.owner(readOwner());
+         } else if (name.equals("StorageClass")) {
+            builder.storageClass(ObjectMetadata.StorageClass.valueOf(text()));
+         } else {
+            skipElement();
+         }
+      }
+      return builder.build();
+   }
+
+   /**
+    * Most keys need no escaping, and can skip the uri builder, which dominates the allocation of each entry.
+    */
+   private URI objectUri(String key) {
+      if (!key.startsWith("/") && VERBATIM_PATH.matchesAllOf(key))
+         return URI.create(objectUriPrefix + key);
+      return uriBuilder(endpoint).clearQuery().appendPath(key).build();
+   }
+
+   private CanonicalUser readOwner() throws XMLStreamException {
+      String id = null;
+      String displayName = null;
+      while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+         String name = reader.getLocalName();
+         if (name.equals("ID"))
+            id = text();
+         else if (name.equals("DisplayName"))
+            displayName = text();
+         else
+            skipElement();
+      }
+      CanonicalUser owner = new CanonicalUser(id);
+      owner.setDisplayName(displayName);
+      return owner;
+   }
+
+   private void readCommonPrefixes() throws XMLStreamException {
+      while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+         if (reader.getLocalName().equals("Prefix")) {
+            String commonPrefix = text();
+            if (commonPrefix != null)
+               commonPrefixes.add(commonPrefix);
+         } else {
+            skipElement();
+         }
+      }
+   }
+
+   /**
+    * @return the trimmed text of the current element, or null if empty
+    */
+   private String text() throws XMLStreamException {
+      // accumulate into a reused buffer, as getElementText allocates a new one per element
+      currentText.setLength(0);
+      for (int event = reader.next(); event != XMLStreamConstants.END_ELEMENT; event = reader.next()) {
+         if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+               || event == XMLStreamConstants.SPACE) {
+            currentText.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+         } else if (event == XMLStreamConstants.START_ELEMENT) {
+            throw new XMLStreamException("unexpected element " + reader.getLocalName(), reader.getLocation());
+         }
+      }
+      return currentOrNull(currentText);
+   }
+
+   private void skipElement() throws XMLStreamException {
+      for (int depth = 1; depth > 0;) {
+         int event = reader.next();
+         if (event == XMLStreamConstants.START_ELEMENT)
+            depth++;
+         else if (event == XMLStreamConstants.END_ELEMENT)
+            depth--;
+      }
+   }
+
+   public String getBucketName() {
+      return bucketName;
+   }
+
+   public String getPrefix() {
+      return prefix;
+   }
+
+   public String getMarker() {
+      return marker;
+   }
+
+   public int getMaxKeys() {
+      return maxKeys;
+   }
+
+   public String getDelimiter() {
+      return delimiter;
+   }
+
+   public boolean isTruncated() {
+      return isTruncated;
+   }
+
+   /**
+    * @return the marker to list the next page from, or null if this is the last page
+    * @throws IllegalStateException
+    *            if entries remain to be read
+    */
+   public String getNextMarker() {
+      checkState(exhausted, "next marker is only known after all entries are read");
+      return (isTruncated && nextMarker == null) ? lastKey : nextMarker;
+   }
+
+   /**
+    * @throws IllegalStateException
+    *            if entries remain to be read
+    */
+   public Set<String> getCommonPrefixes() {
+      checkState(exhausted, "common prefixes are only known after all entries are read");
+      return commonPrefixes.build();
+   }
+
+   /**
+    * Reads the remaining entries into a response equivalent to the one {@link ListBucketHandler} produces.
+    */
+   public ListBucketResponse toListBucketResponse() {
+      ImmutableList<ObjectMetadata> contents = ImmutableList.copyOf(this);
+      return new ListBucketResponseImpl(bucketName, contents, prefix, marker, getNextMarker(), maxKeys, delimiter,
+            isTruncated, getCommonPrefixes());
+   }
+
+   /**
+    * Closes the underlying stream, abandoning any entries not yet read.
+    */
+   @Override
+   public void close() {
+      try {
+         reader.close();
+      } catch (XMLStreamException e) {
+         // the stream is closed below regardless
+      } finally {
+         closeQuietly(input);
+      }
+   }
+}
@@ -55,6 +55,7 @@ import org.jclouds.s3.domain.Payer;
 import org.jclouds.s3.domain.S3Object;
 import org.jclouds.s3.fallbacks.FalseIfBucketAlreadyOwnedByYouOrOperationAbortedWhenBucketExists;
 import org.jclouds.s3.functions.ETagFromHttpResponseViaRegex;
+import org.jclouds.s3.functions.ParseListBucketResponse;
 import org.jclouds.s3.functions.ParseObjectFromHeadersAndHttpContent;
 import org.jclouds.s3.functions.ParseObjectMetadataFromHeaders;
 import org.jclouds.s3.functions.UploadIdFromHttpResponseViaRegex;
@@ -67,7 +68,6 @@ import org.jclouds.s3.xml.AccessControlListHandler;
 import org.jclouds.s3.xml.BucketLoggingHandler;
 import org.jclouds.s3.xml.CopyObjectHandler;
 import org.jclouds.s3.xml.ListAllMyBucketsHandler;
-import org.jclouds.s3.xml.ListBucketHandler;
 import org.jclouds.s3.xml.LocationConstraintHandler;
 import org.jclouds.s3.xml.PayerHandler;
 import org.jclouds.util.Strings2;
@@ -176,8 +176,8 @@ public abstract class S3ClientTest<T extends S3Client> extends BaseS3ClientTest<
       assertNonPayloadHeadersEqual(request, "Host: bucket." + url + "\n");
       assertPayloadEquals(request, null, null, false);
 
-      assertResponseParserClassEquals(method, request, ParseSax.class);
-      assertSaxResponseParserClassEquals(method, ListBucketHandler.class);
+      assertResponseParserClassEquals(method, request, ParseListBucketResponse.class);
+      assertSaxResponseParserClassEquals(method, null);
       assertFallbackClassEquals(method, null);
 
       checkFilters(request);
@@ -550,6 +550,24 @@ public abstract class S3ClientTest<T extends S3Client> extends BaseS3ClientTest<
       checkFilters(request);
    }
 
+   public void testUploadPartCopy() throws SecurityException, NoSuchMethodException {
+      Invokable<?, ?> method = method(S3Client.class, "uploadPartCopy", String.class, String.class, int.class,
+            String.class, String.class, String.class, long.class, long.class);
+      GeneratedHttpRequest request = processor.createRequest(method, ImmutableList.<Object> of("bucket", "foo", 2,
+            "asdsadasdas", "sourceBucket", "sourceObject", 5242880L, 10485759L));
+
+      assertRequestLineEquals(request, "PUT https://bucket." + url + "/foo?partNumber=2&uploadId=asdsadasdas HTTP/1.1");
+      assertNonPayloadHeadersEqual(request, "Host: bucket." + url
+            + "\nx-amz-copy-source: /sourceBucket/sourceObject\nx-amz-copy-source-range: bytes=5242880-10485759\n");
+      assertPayloadEquals(request, null, null, false);
+
+      assertResponseParserClassEquals(method, request, ParseSax.class);
+      assertSaxResponseParserClassEquals(method, CopyObjectHandler.class);
+      assertFallbackClassEquals(method, MapHttp4xxCodesToExceptions.class);
+
+      checkFilters(request);
+   }
+
    public void testCompleteMultipartUpload() throws SecurityException, NegativeArraySizeException,
          NoSuchMethodException {
       Invokable<?, ?> method = method(S3Client.class, "completeMultipartUpload", String.class, String.class,
@@ -0,0 +1,238 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.s3.blobstore.strategy.internal;
+
+import static com.google.common.util.concurrent.MoreExecutors.sameThreadExecutor;
+import static org.jclouds.Constants.PROPERTY_MAX_RETRIES;
+import static org.jclouds.Constants.PROPERTY_SO_TIMEOUT;
+import static org.jclouds.s3.reference.S3Constants.PROPERTY_S3_VIRTUAL_HOST_BUCKETS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.fail;
+
+import java.io.IOException;
+import java.util.Properties;
+import java.util.Set;
+
+import org.jclouds.ContextBuilder;
+import org.jclouds.aws.AWSResponseException;
+import org.jclouds.blobstore.BlobStore;
+import org.jclouds.blobstore.BlobStoreContext;
+import org.jclouds.blobstore.options.CopyOptions;
+import org.jclouds.blobstore.reference.BlobStoreConstants;
+import org.jclouds.concurrent.config.ExecutorServiceModule;
+import org.jclouds.http.HttpResponseException;
+import org.jclouds.s3.domain.ObjectMetadataBuilder;
+import org.jclouds.s3.reference.S3Constants;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.net.HttpHeaders;
+import com.google.common.net.MediaType;
+import com.google.inject.Module;
+import com.squareup.okhttp.mockwebserver.MockResponse;
+import com.squareup.okhttp.mockwebserver.MockWebServer;
+import com.squareup.okhttp.mockwebserver.RecordedRequest;
+
+@Test(singleThreaded = true)
+public class ParallelMultipartCopyStrategyMockTest {
+   private static final long MB = 1024 * 1024;
+   private static final long GB = 1024 * MB;
+   private static final String INVALID_REQUEST = "<Error><Code>InvalidRequest</Code>"
+         + "<Message>The specified copy source is larger than the maximum allowable size for a copy source: "
+         + "5368709120</Message></Error>";
+
+   public void testCopiesRangesOfSource() throws IOException, InterruptedException {
+      MockWebServer server = new MockWebServer();
+      server.enqueue(new MockResponse().setResponseCode(200).setBody("<UploadId>upload-id</UploadId>"));
+      server.enqueue(new MockResponse().setResponseCode(200).setBody(copyPartResult("a00")));
+      server.enqueue(new MockResponse().setResponseCode(200).setBody(copyPartResult("b00")));
+      server.enqueue(new MockResponse().setResponseCode(200).setBody(copyPartResult("c00")));
+      server.enqueue(new MockResponse().setResponseCode(200).setBody("<ETag>fff</ETag>"));
+      server.play();
+
+      ParallelMultipartCopyStrategy strategy = mockParallelMultipartCopyStrategy(server.getUrl("/").toString());
+
+      try {
+         assertEquals(strategy.execute("source", "bar", 12 * MB, "container", ObjectMetadataBuilder.create()
+               .key("foo").contentType(MediaType.MP4_VIDEO.toString()).build()), "fff");
+      } finally {
+         RecordedRequest initiate = server.takeRequest();
+         assertEquals(initiate.getRequestLine(), "POST /container/foo?uploads HTTP/1.1");
+         assertEquals(initiate.getHeader(HttpHeaders.CONTENT_TYPE), MediaType.MP4_VIDEO.toString());
+
+         assertPartCopy(server.takeRequest(), 1, "bytes=0-5242879");
+         assertPartCopy(server.takeRequest(), 2, "bytes=5242880-10485759");
+         assertPartCopy(server.takeRequest(), 3, "bytes=10485760-12582911");
+
+         RecordedRequest complete = server.takeRequest();
+         assertEquals(complete.getRequestLine(), "POST /container/foo?uploadId=upload-id HTTP/1.1");
+         assertEquals(new String(complete.getBody()), "<CompleteMultipartUpload>"
+               + "<Part><PartNumber>1</PartNumber><ETag>\"a00\"</ETag></Part>"
+               + "<Part><PartNumber>2</PartNumber><ETag>\"b00\"</ETag></Part>"
+               + "<Part><PartNumber>3</PartNumber><ETag>\"c00\"</ETag></Part></CompleteMultipartUpload>");
+
+         server.shutdown();
+      }
+   }
+
+   @Test(expectedExceptions = HttpResponseException.class)
+   public void testAbortsOnProblem() throws IOException, InterruptedException {
+      MockWebServer server = new MockWebServer();
+      server.enqueue(new MockResponse().setResponseCode(200).setBody("<UploadId>upload-id</UploadId>"));
+      server.enqueue(new MockResponse().setResponseCode(400));
+      server.enqueue(new MockResponse().setResponseCode(204));
+      server.play();
+
+      ParallelMultipartCopyStrategy strategy = mockParallelMultipartCopyStrategy(server.getUrl("/").toString());
+
+      try {
+         strategy.execute("source", "bar", 12 * MB, "container", ObjectMetadataBuilder.create().key("foo").build());
+      } finally {
+         assertEquals(server.takeRequest().getRequestLine(), "POST /container/foo?uploads HTTP/1.1");
+         assertPartCopy(server.takeRequest(), 1, "bytes=0-5242879");
+         assertEquals(server.takeRequest().getRequestLine(), "DELETE /container/foo?uploadId=upload-id HTTP/1.1");
+
+         server.shutdown();
+      }
+   }
+
+   public void testCopyBlobSendsOneCopyRequest() throws IOException, InterruptedException {
+      MockWebServer server = new MockWebServer();
+      server.enqueue(new MockResponse().setResponseCode(200).setBody(
+            "<CopyObjectResult><LastModified>2009-10-28T22:32:00.000Z</LastModified><ETag>\"abc\"</ETag>"
+                  + "</CopyObjectResult>"));
+      server.play();
+
+      BlobStore blobStore = mockBlobStore(server.getUrl("/").toString());
+
+      try {
+         assertEquals(blobStore.copyBlob("source", "bar", "container", "foo", CopyOptions.NONE), "\"abc\"");
+      } finally {
+         RecordedRequest copy = server.takeRequest();
+         assertEquals(copy.getRequestLine(), "PUT /container/foo HTTP/1.1");
+         assertEquals(copy.getHeader("x-amz-copy-source"), "/source/bar");
+         assertEquals(server.getRequestCount(), 1);
+
+         server.shutdown();
+      }
+   }
+
+   public void testCopyBlobCopiesPartsWhenSourceIsTooLarge() throws IOException, InterruptedException {
+      MockWebServer server = new MockWebServer();
+      server.enqueue(new MockResponse().setResponseCode(400).setBody(INVALID_REQUEST));
+      server.enqueue(new MockResponse().setResponseCode(200).setHeader(HttpHeaders.CONTENT_LENGTH, 6 * GB)
+            .setHeader(HttpHeaders.ETAG, "\"d41d8cd98f00b204e9800998ecf8427e\"")
+            .setHeader(HttpHeaders.LAST_MODIFIED, "Wed, 28 Oct 2009 22:32:00 GMT"));
+      server.enqueue(new MockResponse().setResponseCode(200).setBody("<UploadId>upload-id</UploadId>"));
+      server.enqueue(new MockResponse().setResponseCode(200).setBody(copyPartResult("a00")));
+      server.enqueue(new MockResponse().setResponseCode(200).setBody(copyPartResult("b00")));
+      server.enqueue(new MockResponse().setResponseCode(200).setBody("<ETag>fff</ETag>"));
+      server.play();
+
+      BlobStore blobStore = mockBlobStore(server.getUrl("/").toString(), 5 * GB);
+
+      try {
+         assertEquals(blobStore.copyBlob("source", "bar", "container", "foo", CopyOptions.NONE), "fff");
+      } finally {
+         assertEquals(server.takeRequest().getRequestLine(), "PUT /container/foo HTTP/1.1");
+         assertEquals(server.takeRequest().getRequestLine(), "HEAD /source/bar HTTP/1.1");
+         assertEquals(server.takeRequest().getRequestLine(), "POST /container/foo?uploads HTTP/1.1");
+         assertPartCopy(server.takeRequest(), 1, "bytes=0-5368709119");
+         assertPartCopy(server.takeRequest(), 2, "bytes=5368709120-6442450943");
+         assertEquals(server.takeRequest().getRequestLine(), "POST /container/foo?uploadId=upload-id HTTP/1.1");
+
+         server.shutdown();
+      }
+   }
+
+   public void testCopyBlobRethrowsInvalidRequestForSmallSource() throws IOException, InterruptedException {
+      MockWebServer server = new MockWebServer();
+      server.enqueue(new MockResponse().setResponseCode(400).setBody(INVALID_REQUEST));
+      server.enqueue(new MockResponse().setResponseCode(200).setHeader(HttpHeaders.CONTENT_LENGTH, 12 * MB)
+            .setHeader(HttpHeaders.ETAG, "\"d41d8cd98f00b204e9800998ecf8427e\"")
+            .setHeader(HttpHeaders.LAST_MODIFIED, "Wed, 28 Oct 2009 22:32:00 GMT"));
+      server.play();
+
+      BlobStore blobStore = mockBlobStore(server.getUrl("/").toString());
+
+      try {
+         blobStore.copyBlob("source", "bar", "container", "foo", CopyOptions.NONE);
+         fail("expected the copy to fail");
+      } catch (AWSResponseException e) {
+         assertEquals(e.getError().getCode(), "InvalidRequest");
+      } finally {
+         assertEquals(server.takeRequest().getRequestLine(), "PUT /container/foo HTTP/1.1");
+         assertEquals(server.takeRequest().getRequestLine(), "HEAD /source/bar HTTP/1.1");
+         assertEquals(server.getRequestCount(), 2);
+
+         server.shutdown();
+      }
+   }
+
+   public void testPartSizeFitsMaximumNumberOfParts() {
+      ParallelMultipartCopyStrategy strategy = mockParallelMultipartCopyStrategy("http://localhost/");
+      assertEquals(strategy.partSize(1), 5 * MB);
+      assertEquals(strategy.partSize(1000 * 1000 * MB), 100 * MB);
+      assertEquals(strategy.partSize(Long.MAX_VALUE / 2), 5 * 1024 * MB);
+   }
+
+   private static void assertPartCopy(RecordedRequest request, int partNumber, String range) {
+      assertEquals(request.getRequestLine(), "PUT /container/foo?partNumber=" + partNumber
+            + "&uploadId=upload-id HTTP/1.1");
+      assertEquals(request.getHeader("x-amz-copy-source"), "/source/bar");
+      assertEquals(request.getHeader("x-amz-copy-source-range"), range);
+   }
+
+   private static String copyPartResult(String eTag) {
+      return "<CopyPartResult><LastModified>2009-10-28T22:32:00.000Z</LastModified><ETag>\"" + eTag
+            + "\"</ETag></CopyPartResult>";
+   }
+
+   private static final Set<Module> modules = ImmutableSet.<Module>of(
+         new ExecutorServiceModule(sameThreadExecutor()));
+
+   static ParallelMultipartCopyStrategy mockParallelMultipartCopyStrategy(String uri) {
+      return mockContext(uri).buildInjector().getInstance(ParallelMultipartCopyStrategy.class);
+   }
+
+   static BlobStore mockBlobStore(String uri) {
+      return mockBlobStore(uri, MB);
+   }
+
+   static BlobStore mockBlobStore(String uri, long partSize) {
+      return mockContext(uri, partSize).buildView(BlobStoreContext.class).getBlobStore();
+   }
+
+   private static ContextBuilder mockContext(String uri) {
+      return mockContext(uri, MB);
+   }
+
+   private static ContextBuilder mockContext(String uri, long partSize) {
+      Properties overrides = new Properties();
+      overrides.setProperty(PROPERTY_S3_VIRTUAL_HOST_BUCKETS, "false");
+      // prevent expect-100 bug http://code.google.com/p/mockwebserver/issues/detail?id=6
+      overrides.setProperty(PROPERTY_SO_TIMEOUT, "0");
+      overrides.setProperty(PROPERTY_MAX_RETRIES, "1");
+      overrides.setProperty(BlobStoreConstants.PROPERTY_MULTIPART_PARALLELISM, "1");
+      overrides.setProperty(S3Constants.PROPERTY_S3_MULTIPART_COPY_PART_SIZE, String.valueOf(partSize));
+      return ContextBuilder.newBuilder("s3")
+                           .credentials("accessKey", "secretKey")
+                           .endpoint(uri)
+                           .overrides(overrides)
+                           .modules(modules);
+   }
+}
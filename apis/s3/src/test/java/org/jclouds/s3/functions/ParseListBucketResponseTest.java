@@ -0,0 +1,54 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.s3.functions;
+
+import static org.testng.Assert.assertEquals;
+
+import org.jclouds.date.internal.SimpleDateFormatDateService;
+import org.jclouds.http.HttpRequest;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.http.HttpResponseException;
+import org.jclouds.io.Payloads;
+import org.jclouds.s3.domain.ListBucketResponse;
+import org.jclouds.s3.xml.ListBucketHandlerTest;
+import org.testng.annotations.Test;
+
+/**
+ * Tests behavior of {@code ParseListBucketResponse}
+ */
+// NOTE:without testName, this will not call @Before* and fail w/NPE during surefire
+@Test(groups = "unit", testName = "ParseListBucketResponseTest")
+public class ParseListBucketResponseTest {
+
+   public void testParsesLikeListBucketHandler() {
+      ListBucketResponse result = parser().apply(HttpResponse.builder().statusCode(200)
+            .payload(Payloads.newInputStreamPayload(getClass().getResourceAsStream("/list_bucket.xml"))).build());
+
+      assertEquals(result.toString(), new ListBucketHandlerTest().expected().toString());
+   }
+
+   @Test(expectedExceptions = HttpResponseException.class)
+   public void testMalformedListingIsHttpResponseException() {
+      parser().apply(HttpResponse.builder().statusCode(200).payload("<ListBucketResult><Contents><Key>")
+            .build());
+   }
+
+   private static ParseListBucketResponse parser() {
+      return new ParseListBucketResponse(new SimpleDateFormatDateService()).setContext(HttpRequest.builder()
+            .method("GET").endpoint("http://bucket.com").build());
+   }
+}
@@ -76,4 +76,17 @@ public class CopyObjectHandlerTest extends BaseHandlerTest {
 
       assertEquals(result, expected);
    }
+
+   public void testApplyInputStreamWithCopyPartResult() {
+      InputStream is = Strings2.toInputStream("<CopyPartResult><LastModified>2009-10-28T22:32:00.000Z</LastModified>"
+            + "<ETag>\"9b2cf535f27731c974343645a3985328\"</ETag></CopyPartResult>");
+      ObjectMetadata expected = new CopyObjectResult(new SimpleDateFormatDateService()
+               .iso8601DateParse("2009-10-28T22:32:00.000Z"),
+               "\"9b2cf535f27731c974343645a3985328\"");
+
+      ObjectMetadata result = factory.create(
+               injector.getInstance(CopyObjectHandler.class)).parse(is);
+
+      assertEquals(result, expected);
+   }
 }
@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.s3.xml;
+
+import static org.testng.Assert.assertEquals;
+
+import org.jclouds.PerformanceTest;
+import org.jclouds.date.internal.SimpleDateFormatDateService;
+import org.jclouds.http.HttpRequest;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.http.functions.ParseSax;
+import org.jclouds.http.functions.config.SaxParserModule;
+import org.jclouds.s3.domain.ListBucketResponse;
+import org.jclouds.s3.functions.ParseListBucketResponse;
+import org.jclouds.util.Strings2;
+import org.testng.annotations.AfterTest;
+import org.testng.annotations.BeforeTest;
+import org.testng.annotations.Test;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+
+/**
+ * Compares the bytes allocated parsing a 1000-entry listing with {@link ListBucketHandler} and with
+ * {@link ParseListBucketResponse}.
+ */
+// NOTE:without testName, this will not call @Before* and fail w/NPE during surefire
+@Test(groups = "performance", sequential = true, timeOut = 2 * 60 * 1000, testName = "ListBucketAllocationTest")
+public class ListBucketAllocationTest extends PerformanceTest {
+   private static final int ENTRIES = 1000;
+   private static final int PAGE_COUNT = 100;
+   private static final HttpRequest REQUEST = HttpRequest.builder().method("GET")
+         .endpoint("https://bucket.s3.amazonaws.com/?max-keys=1000").build();
+
+   Injector injector = null;
+   ParseSax.Factory factory;
+   String page;
+
+   @BeforeTest
+   protected void setUpInjector() {
+      injector = Guice.createInjector(new SaxParserModule());
+      factory = injector.getInstance(ParseSax.Factory.class);
+      page = page(ENTRIES);
+   }
+
+   @AfterTest
+   protected void tearDownInjector() {
+      factory = null;
+      injector = null;
+      page = null;
+   }
+
+   public void testParsersProduceSameResponse() {
+      ListBucketResponse handled = runListBucketHandler();
+      assertEquals(handled.size(), ENTRIES);
+      assertEquals(runParseListBucketResponse().toString(), handled.toString());
+   }
+
+   public void testListBucketHandlerAllocation() {
+      executeAllocationTest("ListBucketHandler", PAGE_COUNT, new Runnable() {
+         public void run() {
+            runListBucketHandler();
+         }
+      });
+   }
+
+   public void testParseListBucketResponseAllocation() {
+      executeAllocationTest("ParseListBucketResponse", PAGE_COUNT, new Runnable() {
+         public void run() {
+            runParseListBucketResponse();
+         }
+      });
+   }
+
+   private ListBucketResponse runListBucketHandler() {
+      return factory.create(injector.getInstance(ListBucketHandler.class)).setContext(REQUEST)
+            .apply(response());
+   }
+
+   private ListBucketResponse runParseListBucketResponse() {
+      return new ParseListBucketResponse(new SimpleDateFormatDateService()).setContext(REQUEST).apply(response());
+   }
+
+   private HttpResponse response() {
+      return HttpResponse.builder().statusCode(200).payload(Strings2.toInputStream(page)).build();
+   }
+
+   static String page(int entries) {
+      StringBuilder xml = new StringBuilder("<ListBucketResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\">")
+            .append("<Name>bucket</Name><Prefix></Prefix><Marker></Marker><MaxKeys>1000</MaxKeys>")
+            .append("<IsTruncated>true</IsTruncated>");
+      for (int i = 0; i < entries; i++) {
+         xml.append("<Contents><Key>photos/2014/05/20/image-").append(i).append(".jpg</Key>")
+               .append("<LastModified>2014-05-20T05:26:32.000Z</LastModified>")
+               .append("<ETag>&quot;c82e6a0025c31c5de5947fda62ac51ab&quot;</ETag><Size>").append(1024 + i)
+               .append("</Size><Owner><ID>e1a5f66a480ca99a4fdfe8e318c3020446c9989d7004e7778029fbcc5d990fa0</ID>")
+               .append("<DisplayName>ferncam</DisplayName></Owner><StorageClass>STANDARD</StorageClass></Contents>");
+      }
+      return xml.append("</ListBucketResult>").toString();
+   }
+}
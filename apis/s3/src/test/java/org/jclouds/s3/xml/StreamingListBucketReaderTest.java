@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.s3.xml;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.io.InputStream;
+import java.net.URI;
+
+import org.jclouds.date.internal.SimpleDateFormatDateService;
+import org.jclouds.http.HttpRequest;
+import org.jclouds.http.functions.BaseHandlerTest;
+import org.jclouds.s3.domain.ListBucketResponse;
+import org.jclouds.s3.domain.ObjectMetadata;
+import org.jclouds.util.Strings2;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableSet;
+
+@Test(groups = "unit", testName = "StreamingListBucketReaderTest")
+public class StreamingListBucketReaderTest extends BaseHandlerTest {
+   private static final URI ENDPOINT = URI.create("http://bucket.com");
+
+   public void testMatchesHandlerForResource() {
+      assertEquals(stream(getClass().getResourceAsStream("/list_bucket.xml")).toListBucketResponse().toString(),
+            new ListBucketHandlerTest().expected().toString());
+   }
+
+   public void testMatchesHandler() {
+      for (String xml : ImmutableSet.of(ListBucketHandlerTest.listBucketWithPrefixAppsSlash,
+            ListBucketHandlerTest.listBucketWithSecondsDate,
+            ListBucketHandlerTest.listBucketWithSlashDelimiterAndCommonPrefixApps)) {
+         assertEquals(stream(Strings2.toInputStream(xml)).toListBucketResponse().toString(), handle(xml).toString());
+      }
+   }
+
+   public void testBucketAttributesAreReadBeforeEntries() {
+      StreamingListBucketReader reader = stream(Strings2
+            .toInputStream(ListBucketHandlerTest.listBucketWithPrefixAppsSlash));
+
+      assertEquals(reader.getBucketName(), "adriancole.org.jclouds.s3.amazons3testdelimiter");
+      assertEquals(reader.getPrefix(), "apps/");
+      assertEquals(reader.getMaxKeys(), 1000);
+      assertFalse(reader.isTruncated());
+      try {
+         reader.getNextMarker();
+         fail("next marker isn't known until entries are read");
+      } catch (IllegalStateException expected) {
+      }
+
+      ObjectMetadata first = reader.next();
+      assertEquals(first.getKey(), "apps/0");
+      assertEquals(first.getBucket(), "adriancole.org.jclouds.s3.amazons3testdelimiter");
+      assertEquals(first.getUri(), URI.create("http://bucket.com/apps/0"));
+      reader.close();
+   }
+
+   public void testNextMarkerDefaultsToLastKeyWhenTruncated() {
+      String xml = "<ListBucketResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\"><Name>bucket</Name>"
+            + "<Prefix/><Marker/><MaxKeys>2</MaxKeys><IsTruncated>true</IsTruncated>"
+            + "<Contents><Key>a</Key><Size>1</Size><UnknownElement><Nested>x</Nested></UnknownElement></Contents>"
+            + "<Contents><Key>b</Key><Size>2</Size></Contents></ListBucketResult>";
+      StreamingListBucketReader reader = stream(Strings2.toInputStream(xml));
+
+      assertEquals(reader.next().getKey(), "a");
+      assertEquals(reader.next().getKey(), "b");
+      assertFalse(reader.hasNext());
+      assertTrue(reader.isTruncated());
+      assertEquals(reader.getNextMarker(), "b");
+   }
+
+   public void testObjectUrisMatchHandlerForKeysNeedingEscaping() {
+      StringBuilder xml = new StringBuilder("<ListBucketResult><Name>bucket</Name>");
+      for (String key : ImmutableSet.of("plain/key-1.txt", "a b", "a+b", "x%2Fy", "/leading", "caf\u00e9", "{t}",
+            "semi;colon=1:2", "star*", "tilde~1"))
+         xml.append("<Contents><Key>").append(key).append("</Key></Contents>");
+      xml.append("</ListBucketResult>");
+
+      assertEquals(stream(Strings2.toInputStream(xml.toString())).toListBucketResponse().toString(),
+            handle(xml.toString()).toString());
+   }
+
+   private StreamingListBucketReader stream(InputStream input) {
+      return new StreamingListBucketReader(new SimpleDateFormatDateService(), ENDPOINT, input);
+   }
+
+   private ListBucketResponse handle(String xml) {
+      return factory.create(injector.getInstance(ListBucketHandler.class))
+            .setContext(HttpRequest.builder().method("GET").endpoint(ENDPOINT).build())
+            .parse(Strings2.toInputStream(xml));
+   }
+}
@@ -18,6 +18,7 @@ package org.jclouds.openstack.swift.blobstore.strategy.internal;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.net.URI;
 import java.util.Map;
 import java.util.Queue;
 import java.util.SortedMap;
@@ -40,8 +41,10 @@ import org.jclouds.blobstore.domain.Blob;
 import org.jclouds.blobstore.internal.BlobRuntimeException;
 import org.jclouds.blobstore.options.PutOptions;
 import org.jclouds.blobstore.reference.BlobStoreConstants;
+import org.jclouds.concurrent.ExecutorStrategy;
 import org.jclouds.io.Payload;
 import org.jclouds.io.PayloadSlicer;
+import org.jclouds.location.Provider;
 import org.jclouds.logging.Logger;
 import org.jclouds.openstack.swift.CommonSwiftClient;
 import org.jclouds.openstack.swift.blobstore.SwiftBlobStore;
@@ -49,6 +52,7 @@ import org.jclouds.openstack.swift.blobstore.functions.BlobToObject;
 import org.jclouds.util.Throwables2;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Supplier;
 import com.google.common.collect.Maps;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
@@ -90,16 +94,21 @@ public class ParallelMultipartUploadStrategy implements AsyncMultipartUploadStra
     protected Long maxTime;
 
     private final ListeningExecutorService executor;
+    private final ListeningExecutorService partExecutor;
 
     protected final SwiftBlobStore blobstore;
     protected final PayloadSlicer slicer;
 
     @Inject
     public ParallelMultipartUploadStrategy(SwiftBlobStore blobstore, PayloadSlicer slicer,
-                                           @Named(Constants.PROPERTY_USER_THREADS) ListeningExecutorService executor) {
+                                           @Named(Constants.PROPERTY_USER_THREADS) ListeningExecutorService executor,
+                                           ExecutorStrategy executors, @Provider Supplier<URI> endpoint) {
         this.blobstore = checkNotNull(blobstore, "blobstore");
         this.slicer = checkNotNull(slicer, "slicer");
         this.executor = checkNotNull(executor, "executor");
+        // only the part uploads go through the endpoint's bulkhead, as the upload itself waits for them
+        this.partExecutor = checkNotNull(executors, "executors").executorFor(
+              String.valueOf(checkNotNull(endpoint, "endpoint").get().getHost()));
     }
 
 
@@ -125,7 +134,7 @@ public class ParallelMultipartUploadStrategy implements AsyncMultipartUploadStra
 
         final Blob blobPart = blobstore.blobBuilder(blobPartName).payload(chunkedPart).
                 contentDisposition(blobPartName).build();
-        final ListenableFuture<String> futureETag = executor.submit(new Callable<String>() {
+        final ListenableFuture<String> futureETag = partExecutor.submit(new Callable<String>() {
            @Override public String call() throws Exception {
               return client.putObject(container, blob2Object.apply(blobPart));
            }
@@ -248,7 +257,7 @@ public class ParallelMultipartUploadStrategy implements AsyncMultipartUploadStra
                                 throw rtex;
                             }
                         } else {
-                            ListenableFuture<String> futureETag = executor.submit(new Callable<String>() {
+                            ListenableFuture<String> futureETag = partExecutor.submit(new Callable<String>() {
                                @Override public String call() throws Exception {
                                   return blobstore.putBlob(container, blob, options);
                                }
@@ -305,6 +305,11 @@ public interface BlobStore {
 
    /**
     * Deletes multiple {@code Blob}s representing the data at location {@code container/name}
+    * <p/>
+    * Implementations which delete in bulk, such as S3 and Swift, try to delete every blob and then throw a
+    * {@link BulkDeleteException} naming the blobs the provider could not delete, instead of ignoring a partial
+    * failure. Blobs not named in the exception were deleted. Other implementations delete one blob at a time and
+    * propagate the first failure.
     *
     * @param container
     *           container where this exists.
@@ -312,6 +317,8 @@ public interface BlobStore {
     *           fully qualified names relative to the container.
     * @throws ContainerNotFoundException
     *            if the container doesn't exist
+    * @throws BulkDeleteException
+    *            if the provider reported that some of the blobs could not be deleted
     */
    void removeBlobs(String container, Iterable<String> names);
 
@@ -0,0 +1,53 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.blobstore;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Map;
+
+import org.jclouds.blobstore.internal.BlobRuntimeException;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+
+/**
+ * Thrown when some of the keys in a bulk delete could not be deleted, after retrying.
+ */
+public class BulkDeleteException extends BlobRuntimeException {
+
+   private final String container;
+   private final Map<String, String> failures;
+
+   public BulkDeleteException(String container, Map<String, String> failures) {
+      super(String.format("could not delete %d keys from %s: %s", failures.size(), container,
+            Iterables.limit(failures.entrySet(), 10)));
+      this.container = checkNotNull(container, "container");
+      this.failures = ImmutableMap.copyOf(failures);
+   }
+
+   public String getContainer() {
+      return container;
+   }
+
+   /**
+    * @return each key which could not be deleted, mapped to the last reason reported by the provider
+    */
+   public Map<String, String> getFailures() {
+      return failures;
+   }
+}
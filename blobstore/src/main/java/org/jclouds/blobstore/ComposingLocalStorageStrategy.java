@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.blobstore;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.jclouds.blobstore.domain.Blob;
+
+/**
+ * A {@link LocalStorageStrategy} that can create blobs from stored content without streaming it. Implementing it is
+ * optional: {@link org.jclouds.blobstore.config.LocalBlobStore} copies blobs and completes multipart uploads by reading
+ * the content and writing it again through {@link #putBlob} for strategies that do not.
+ */
+public interface ComposingLocalStorageStrategy extends LocalStorageStrategy {
+
+    /**
+     * Creates a blob with the content of an existing blob. Implementations share or copy the stored content rather
+     * than copying it through a stream.
+     * @param fromContainer
+     * @param fromName
+     * @param toContainer
+     * @param blob name and metadata of the new blob; its payload is ignored
+     * @return etag of blob
+     * @throws KeyNotFoundException if the source blob does not exist
+     * @throws IOException
+     */
+    String copyBlob(String fromContainer, String fromName, String toContainer, Blob blob) throws IOException;
+
+    /**
+     * Creates a blob from the concatenation of existing part blobs, which are removed. Implementations move or share
+     * the stored part contents rather than copying them through a stream.
+     * @param containerName
+     * @param blob name and metadata of the new blob; its payload is ignored
+     * @param partNames keys of the parts, in order
+     * @return multipart etag of blob, as computed by {@link org.jclouds.blobstore.util.BlobStoreUtils#multipartETag}
+     * @throws KeyNotFoundException if a part does not exist
+     * @throws IOException
+     */
+    String putBlobFromParts(String containerName, Blob blob, List<String> partNames) throws IOException;
+}
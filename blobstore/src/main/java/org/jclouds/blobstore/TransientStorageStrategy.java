@@ -21,12 +21,19 @@ import static com.google.common.io.BaseEncoding.base16;
 import static org.jclouds.http.Uris.uriBuilder;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
 import javax.inject.Inject;
+import javax.inject.Named;
 
 import org.jclouds.blobstore.domain.Blob;
 import org.jclouds.blobstore.domain.BlobAccess;
@@ -38,6 +45,7 @@ import org.jclouds.blobstore.domain.StorageType;
 import org.jclouds.blobstore.domain.internal.MutableStorageMetadataImpl;
 import org.jclouds.blobstore.options.CreateContainerOptions;
 import org.jclouds.blobstore.options.ListContainerOptions;
+import org.jclouds.blobstore.reference.TransientConstants;
 import org.jclouds.blobstore.util.BlobStoreUtils;
 import org.jclouds.date.DateService;
 import org.jclouds.domain.Location;
@@ -46,10 +54,13 @@ import org.jclouds.io.ContentMetadataCodec;
 import org.jclouds.io.MutableContentMetadata;
 import org.jclouds.io.Payload;
 import org.jclouds.io.Payloads;
+import org.jclouds.javax.annotation.Nullable;
 import org.jclouds.util.Closeables2;
 
 import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Multimaps;
 import com.google.common.hash.HashCode;
 import com.google.common.hash.Hashing;
@@ -58,7 +69,7 @@ import com.google.common.io.ByteSource;
 import com.google.common.io.ByteStreams;
 import com.google.common.net.HttpHeaders;
 
-public class TransientStorageStrategy implements LocalStorageStrategy {
+public class TransientStorageStrategy implements ComposingLocalStorageStrategy {
    private final ConcurrentMap<String, ConcurrentMap<String, Blob>> containerToBlobs = new ConcurrentHashMap<String, ConcurrentMap<String, Blob>>();
    private final ConcurrentMap<String, ConcurrentMap<String, BlobAccess>> containerToBlobAccess = new ConcurrentHashMap<String, ConcurrentMap<String, BlobAccess>>();
    private final ConcurrentMap<String, StorageMetadata> containerMetadata = new ConcurrentHashMap<String, StorageMetadata>();
@@ -68,6 +79,25 @@ public class TransientStorageStrategy implements LocalStorageStrategy {
    private final Factory blobFactory;
    private final ContentMetadataCodec contentMetadataCodec;
 
+   /** Whether blob contents are copied into direct buffers. */
+   private boolean offHeap;
+
+   /** Maximum bytes of blob contents, or 0 if unlimited. */
+   private long capacity;
+
+   /** Sizes of the blobs in least recently used order, only tracked when capacity is limited. */
+   private final LinkedHashMap<Map.Entry<String, String>, Long> blobSizes =
+         new LinkedHashMap<Map.Entry<String, String>, Long>(16, 0.75f, true);
+
+   /** Guarded by blobSizes. */
+   private long usedBytes;
+
+   /** Whether blobs with the same content share one copy of it. */
+   private boolean deduplicate;
+
+   /** Shared contents by MD5, only used when deduplicating. */
+   private final Map<HashCode, SharedContent> sharedContents = new HashMap<HashCode, SharedContent>();
+
    @Inject
    TransientStorageStrategy(Supplier<Location> defaultLocation, DateService dateService, Factory blobFactory,
          ContentMetadataCodec contentMetadataCodec) {
@@ -77,6 +107,21 @@ public class TransientStorageStrategy implements LocalStorageStrategy {
       this.contentMetadataCodec = contentMetadataCodec;
    }
 
+   @com.google.inject.Inject(optional = true)
+   void setOffHeap(@Named(TransientConstants.PROPERTY_OFF_HEAP) boolean offHeap) {
+      this.offHeap = offHeap;
+   }
+
+   @com.google.inject.Inject(optional = true)
+   void setCapacity(@Named(TransientConstants.PROPERTY_CAPACITY) long capacity) {
+      this.capacity = capacity;
+   }
+
+   @com.google.inject.Inject(optional = true)
+   void setDeduplicate(@Named(TransientConstants.PROPERTY_DEDUPLICATE) boolean deduplicate) {
+      this.deduplicate = deduplicate;
+   }
+
    @Override
    public boolean containerExists(final String containerName) {
       return containerToBlobs.containsKey(containerName);
@@ -121,8 +166,11 @@ public class TransientStorageStrategy implements LocalStorageStrategy {
 
    @Override
    public void deleteContainer(final String containerName) {
+      if (containerExists(containerName)) {
+         clearContainer(containerName);
+      }
       containerToBlobs.remove(containerName);
-      containerToBlobAccess.remove(containerToBlobAccess);
+      containerToBlobAccess.remove(containerName);
    }
 
    @Override
@@ -133,7 +181,13 @@ public class TransientStorageStrategy implements LocalStorageStrategy {
    @Override
    public void clearContainer(String containerName, ListContainerOptions options) {
       // TODO implement options
-      containerToBlobs.get(containerName).clear();
+      if (capacity <= 0 && !deduplicate) {
+         containerToBlobs.get(containerName).clear();
+         return;
+      }
+      for (String blobName : containerToBlobs.get(containerName).keySet()) {
+         removeBlob(containerName, blobName);
+      }
    }
 
    @Override
@@ -155,7 +209,16 @@ public class TransientStorageStrategy implements LocalStorageStrategy {
    @Override
    public Blob getBlob(final String containerName, final String blobName) {
       Map<String, Blob> map = containerToBlobs.get(containerName);
-      return map == null ? null : map.get(blobName);
+      if (map == null) {
+         return null;
+      }
+      if (capacity > 0) {
+         synchronized (blobSizes) {
+            // marks the blob as recently used
+            blobSizes.get(Maps.immutableEntry(containerName, blobName));
+         }
+      }
+      return map.get(blobName);
    }
 
    @Override
@@ -175,19 +238,81 @@ public class TransientStorageStrategy implements LocalStorageStrategy {
          Closeables2.closeQuietly(input);
       }
 
-      Blob newBlob = createUpdatedCopyOfBlobInContainer(containerName, blob, payload, actualHashCode);
+      checkCapacity(blob.getMetadata().getName(), payload.length);
+      String eTag = base16().lowerCase().encode(actualHashCode.asBytes());
+      ByteSource content = deduplicate ? share(actualHashCode, payload) : retain(payload);
+      Blob newBlob = createUpdatedCopyOfBlobInContainer(containerName, blob, content, payload.length,
+            actualHashCode, eTag);
+      store(containerName, newBlob);
+      return eTag;
+   }
+
+   @Override
+   public String copyBlob(final String fromContainer, final String fromName, final String toContainer,
+         final Blob blob) {
+      Blob source = getBlob(fromContainer, fromName);
+      if (source == null) {
+         throw new KeyNotFoundException(fromContainer, fromName, "while copying");
+      }
+      long size = source.getMetadata().getSize();
+      checkCapacity(blob.getMetadata().getName(), size);
+      ByteSource content = (ByteSource) source.getPayload().getRawContent();
+      HashCode contentMd5 = source.getPayload().getContentMetadata().getContentMD5AsHashCode();
+      if (deduplicate) {
+         content = reference(contentMd5, content);
+      }
+      // stored contents are immutable, so the copy shares them
+      Blob newBlob = createUpdatedCopyOfBlobInContainer(toContainer, blob, content, size, contentMd5,
+            source.getMetadata().getETag());
+      store(toContainer, newBlob);
+      return newBlob.getMetadata().getETag();
+   }
+
+   @Override
+   public String putBlobFromParts(final String containerName, final Blob blob, final List<String> partNames) {
       Map<String, Blob> map = containerToBlobs.get(containerName);
-      String blobName = newBlob.getMetadata().getName();
-      map.put(blobName, newBlob);
-      containerToBlobAccess.get(containerName).put(blobName, BlobAccess.PRIVATE);
-      return base16().lowerCase().encode(actualHashCode.asBytes());
+      List<ByteSource> contents = Lists.newArrayListWithCapacity(partNames.size());
+      List<HashCode> partHashCodes = Lists.newArrayListWithCapacity(partNames.size());
+      long size = 0;
+      for (String partName : partNames) {
+         Blob part = map.get(partName);
+         if (part == null) {
+            throw new KeyNotFoundException(containerName, partName, "in putBlobFromParts");
+         }
+         // stored payloads wrap immutable arrays, so the new blob can share them instead of copying
+         contents.add((ByteSource) part.getPayload().getRawContent());
+         partHashCodes.add(part.getPayload().getContentMetadata().getContentMD5AsHashCode());
+         size += part.getMetadata().getSize();
+      }
+
+      checkCapacity(blob.getMetadata().getName(), size);
+      String eTag = BlobStoreUtils.multipartETag(partHashCodes);
+      Blob newBlob = createUpdatedCopyOfBlobInContainer(containerName, blob, ByteSource.concat(contents), size, null,
+            eTag);
+      for (String partName : partNames) {
+         removeBlob(containerName, partName);
+      }
+      store(containerName, newBlob);
+      return eTag;
    }
 
    @Override
    public void removeBlob(final String containerName, final String blobName) {
       Map<String, Blob> map = containerToBlobs.get(containerName);
-      if (map != null)
-         map.remove(blobName);
+      if (map == null) {
+         return;
+      }
+      if (capacity <= 0) {
+         release(map.remove(blobName));
+         return;
+      }
+      synchronized (blobSizes) {
+         release(map.remove(blobName));
+         Long size = blobSizes.remove(Maps.immutableEntry(containerName, blobName));
+         if (size != null) {
+            usedBytes -= size;
+         }
+      }
    }
 
    @Override
@@ -222,14 +347,126 @@ public class TransientStorageStrategy implements LocalStorageStrategy {
       return "/";
    }
 
-   private Blob createUpdatedCopyOfBlobInContainer(String containerName, Blob in, byte[] input, HashCode contentMd5) {
+   private void checkCapacity(String blobName, long size) {
+      if (capacity > 0 && size > capacity) {
+         throw new IllegalArgumentException(String.format("blob %s of %d bytes exceeds the capacity of %d bytes",
+               blobName, size, capacity));
+      }
+   }
+
+   /** @return the content to keep, in a direct buffer when off-heap storage is enabled */
+   private ByteSource retain(byte[] content) {
+      if (!offHeap) {
+         return ByteSource.wrap(content);
+      }
+      ByteBuffer buffer = ByteBuffer.allocateDirect(content.length);
+      buffer.put(content);
+      buffer.flip();
+      return new ByteBufferByteSource(buffer.asReadOnlyBuffer());
+   }
+
+   /**
+    * @return the shared copy of content with this MD5, storing this one if there is none
+    */
+   private ByteSource share(HashCode md5, byte[] content) {
+      synchronized (sharedContents) {
+         SharedContent shared = sharedContents.get(md5);
+         if (shared == null) {
+            shared = new SharedContent(retain(content));
+            sharedContents.put(md5, shared);
+         }
+         shared.references++;
+         return shared.content;
+      }
+   }
+
+   /**
+    * @return the shared copy of this content, or the content itself if it is not shared, as for blobs composed from
+    *         parts
+    */
+   private ByteSource reference(@Nullable HashCode md5, ByteSource content) {
+      if (md5 == null) {
+         return content;
+      }
+      synchronized (sharedContents) {
+         SharedContent shared = sharedContents.get(md5);
+         if (shared == null || shared.content != content) {
+            return content;
+         }
+         shared.references++;
+         return shared.content;
+      }
+   }
+
+   /** Drops the reference of a blob which was removed or replaced to its shared content. */
+   private void release(@Nullable Blob blob) {
+      if (!deduplicate || blob == null) {
+         return;
+      }
+      HashCode md5 = blob.getPayload().getContentMetadata().getContentMD5AsHashCode();
+      if (md5 == null) {
+         return;
+      }
+      synchronized (sharedContents) {
+         SharedContent shared = sharedContents.get(md5);
+         // blobs composed from parts or copied from them do not hold references
+         if (shared != null && shared.content == blob.getPayload().getRawContent() && --shared.references == 0) {
+            sharedContents.remove(md5);
+         }
+      }
+   }
+
+   /**
+    * Adds or replaces a blob, evicting the least recently used blobs if this exceeds the capacity.
+    */
+   private void store(String containerName, Blob blob) {
+      Map<String, Blob> map = containerToBlobs.get(containerName);
+      String blobName = blob.getMetadata().getName();
+      if (capacity <= 0) {
+         release(map.put(blobName, blob));
+         containerToBlobAccess.get(containerName).put(blobName, BlobAccess.PRIVATE);
+         return;
+      }
+      long size = blob.getMetadata().getSize();
+      synchronized (blobSizes) {
+         release(map.put(blobName, blob));
+         containerToBlobAccess.get(containerName).put(blobName, BlobAccess.PRIVATE);
+         Long previous = blobSizes.put(Maps.immutableEntry(containerName, blobName), size);
+         usedBytes += size - (previous == null ? 0 : previous);
+         Iterator<Map.Entry<Map.Entry<String, String>, Long>> leastRecentlyUsed = blobSizes.entrySet().iterator();
+         // the stored blob is the most recently used, and no larger than the capacity, so it is never evicted
+         while (usedBytes > capacity) {
+            Map.Entry<Map.Entry<String, String>, Long> evicted = leastRecentlyUsed.next();
+            String evictedContainer = evicted.getKey().getKey();
+            String evictedName = evicted.getKey().getValue();
+            Map<String, Blob> evictedFrom = containerToBlobs.get(evictedContainer);
+            if (evictedFrom != null) {
+               release(evictedFrom.remove(evictedName));
+            }
+            Map<String, BlobAccess> evictedAccess = containerToBlobAccess.get(evictedContainer);
+            if (evictedAccess != null) {
+               evictedAccess.remove(evictedName);
+            }
+            usedBytes -= evicted.getValue();
+            leastRecentlyUsed.remove();
+         }
+      }
+   }
+
+   /**
+    * @param contentMd5
+    *           MD5 of the content, or null if unknown, as for blobs composed from parts
+    */
+   private Blob createUpdatedCopyOfBlobInContainer(String containerName, Blob in, ByteSource input, long size,
+         @Nullable HashCode contentMd5, String eTag) {
       checkNotNull(containerName, "containerName");
       checkNotNull(in, "blob");
       checkNotNull(input, "input");
-      checkNotNull(contentMd5, "contentMd5");
-      Payload payload = Payloads.newByteSourcePayload(ByteSource.wrap(input));
+      checkNotNull(eTag, "eTag");
+      Payload payload = Payloads.newByteSourcePayload(input);
       MutableContentMetadata oldMd = in.getPayload().getContentMetadata();
       HttpUtils.copy(oldMd, payload.getContentMetadata());
+      payload.getContentMetadata().setContentLength(size);
       payload.getContentMetadata().setContentMD5(contentMd5);
       Blob blob = blobFactory.create(BlobStoreUtils.copy(in.getMetadata()));
       blob.setPayload(payload);
@@ -237,8 +474,7 @@ public class TransientStorageStrategy implements LocalStorageStrategy {
       blob.getMetadata().setUri(
             uriBuilder(new StringBuilder("mem://").append(containerName)).path(in.getMetadata().getName()).build());
       blob.getMetadata().setLastModified(new Date());
-      blob.getMetadata().setSize((long) input.length);
-      String eTag = base16().lowerCase().encode(contentMd5.asBytes());
+      blob.getMetadata().setSize(size);
       blob.getMetadata().setETag(eTag);
       // Set HTTP headers to match metadata
       blob.getAllHeaders().replaceValues(HttpHeaders.LAST_MODIFIED,
@@ -252,4 +488,87 @@ public class TransientStorageStrategy implements LocalStorageStrategy {
    private void copyPayloadHeadersToBlob(Payload payload, Blob blob) {
       blob.getAllHeaders().putAll(contentMetadataCodec.toHeaders(payload.getContentMetadata()));
    }
+
+   private static final class SharedContent {
+      private final ByteSource content;
+      /** Guarded by sharedContents. */
+      private int references;
+
+      private SharedContent(ByteSource content) {
+         this.content = content;
+      }
+   }
+
+   /** Content of a read-only buffer, which is never modified once stored. */
+   private static final class ByteBufferByteSource extends ByteSource {
+      private final ByteBuffer buffer;
+
+      private ByteBufferByteSource(ByteBuffer buffer) {
+         this.buffer = buffer;
+      }
+
+      @Override
+      public InputStream openStream() {
+         return new ByteBufferInputStream(buffer.duplicate());
+      }
+
+      @Override
+      public long size() {
+         return buffer.remaining();
+      }
+   }
+
+   private static final class ByteBufferInputStream extends InputStream {
+      private final ByteBuffer buffer;
+      private int mark;
+
+      private ByteBufferInputStream(ByteBuffer buffer) {
+         this.buffer = buffer;
+      }
+
+      @Override
+      public int read() {
+         return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+      }
+
+      @Override
+      public int read(byte[] b, int off, int len) {
+         if (len == 0) {
+            return 0;
+         }
+         if (!buffer.hasRemaining()) {
+            return -1;
+         }
+         int count = Math.min(len, buffer.remaining());
+         buffer.get(b, off, count);
+         return count;
+      }
+
+      @Override
+      public long skip(long n) {
+         int count = (int) Math.max(0, Math.min(n, buffer.remaining()));
+         buffer.position(buffer.position() + count);
+         return count;
+      }
+
+      @Override
+      public int available() {
+         return buffer.remaining();
+      }
+
+      @Override
+      public boolean markSupported() {
+         return true;
+      }
+
+      @Override
+      public void mark(int readlimit) {
+         mark = buffer.position();
+      }
+
+      @Override
+      public void reset() {
+         buffer.position(mark);
+      }
+   }
 }
@@ -46,6 +46,7 @@ import javax.inject.Singleton;
 
 import org.jclouds.blobstore.BlobStore;
 import org.jclouds.blobstore.BlobStoreContext;
+import org.jclouds.blobstore.ComposingLocalStorageStrategy;
 import org.jclouds.blobstore.ContainerNotFoundException;
 import org.jclouds.blobstore.KeyNotFoundException;
 import org.jclouds.blobstore.LocalStorageStrategy;
@@ -70,6 +71,7 @@ import org.jclouds.blobstore.options.CreateContainerOptions;
 import org.jclouds.blobstore.options.GetOptions;
 import org.jclouds.blobstore.options.ListContainerOptions;
 import org.jclouds.blobstore.options.PutOptions;
+import org.jclouds.blobstore.strategy.internal.PutBlobInParallelParts;
 import org.jclouds.blobstore.util.BlobStoreUtils;
 import org.jclouds.blobstore.util.BlobUtils;
 import org.jclouds.collect.Memoized;
@@ -95,6 +97,7 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Iterators;
+import com.google.common.collect.Ordering;
 
 @Singleton
 public final class LocalBlobStore implements BlobStore {
@@ -102,25 +105,35 @@ public final class LocalBlobStore implements BlobStore {
    @Resource
    private Logger logger = Logger.NULL;
 
+   private static final Ordering<String> NAME_ORDER = new Ordering<String>() {
+      @Override
+      public int compare(String left, String right) {
+         return BlobStoreUtils.compareNames(left, right);
+      }
+   };
+
    private final BlobStoreContext context;
    private final BlobUtils blobUtils;
    private final Supplier<Set<? extends Location>> locations;
    private final ContentMetadataCodec contentMetadataCodec;
    private final Blob.Factory blobFactory;
    private final LocalStorageStrategy storageStrategy;
+   private final PutBlobInParallelParts putBlobInParts;
 
    @Inject
    LocalBlobStore(BlobStoreContext context,
          BlobUtils blobUtils,
          @Memoized Supplier<Set<? extends Location>> locations,
          ContentMetadataCodec contentMetadataCodec,
-         Blob.Factory blobFactory, LocalStorageStrategy storageStrategy) {
+         Blob.Factory blobFactory, LocalStorageStrategy storageStrategy,
+         PutBlobInParallelParts putBlobInParts) {
       this.context = checkNotNull(context, "context");
       this.blobUtils = checkNotNull(blobUtils, "blobUtils");
       this.locations = checkNotNull(locations, "locations");
       this.blobFactory = blobFactory;
       this.contentMetadataCodec = contentMetadataCodec;
       this.storageStrategy = storageStrategy;
+      this.putBlobInParts = checkNotNull(putBlobInParts, "putBlobInParts");
    }
 
    @Override
@@ -227,7 +240,7 @@ public final class LocalBlobStore implements BlobStore {
          propagate(e);
       }
 
-      SortedSet<StorageMetadata> contents = newTreeSet(transform(blobBelongingToContainer,
+      SortedSet<StorageMetadata> contents = sortedByName(transform(blobBelongingToContainer,
             new Function<String, StorageMetadata>() {
                public StorageMetadata apply(String key) {
                   if (!storageStrategy.blobExists(containerName, key)) {
@@ -254,7 +267,7 @@ public final class LocalBlobStore implements BlobStore {
             final String dirPrefix = prefix.endsWith("/") ?
                     prefix :
                     prefix + "/";
-            contents = newTreeSet(filter(contents, new Predicate<StorageMetadata>() {
+            contents = sortedByName(filter(contents, new Predicate<StorageMetadata>() {
                public boolean apply(StorageMetadata o) {
                   return o != null
                         && o.getName().replace(File.separatorChar, '/').startsWith(dirPrefix)
@@ -265,11 +278,11 @@ public final class LocalBlobStore implements BlobStore {
 
          if (!options.isRecursive()) {
             String delimiter = storageStrategy.getSeparator();
-            SortedSet<String> commonPrefixes = newTreeSet(
-                  transform(contents, new CommonPrefixes(prefix, delimiter)));
+            SortedSet<String> commonPrefixes = newTreeSet(NAME_ORDER);
+            Iterables.addAll(commonPrefixes, transform(contents, new CommonPrefixes(prefix, delimiter)));
             commonPrefixes.remove(CommonPrefixes.NO_PREFIX);
 
-            contents = newTreeSet(filter(contents, new DelimiterFilter(prefix, delimiter)));
+            contents = sortedByName(filter(contents, new DelimiterFilter(prefix, delimiter)));
 
             for (String o : commonPrefixes) {
                MutableStorageMetadata md = new MutableStorageMetadataImpl();
@@ -294,13 +307,14 @@ public final class LocalBlobStore implements BlobStore {
                lastMarkerMetadata = tryFind(contents, new Predicate<StorageMetadata>() {
                   public boolean apply(StorageMetadata metadata) {
                      int length = finalMarker.length() - 1;
-                     return metadata.getName().substring(0, length).compareTo(finalMarker.substring(0, length)) > 0;
+                     return BlobStoreUtils.compareNames(metadata.getName().substring(0, length),
+                           finalMarker.substring(0, length)) > 0;
                   }
                });
             } else {
                lastMarkerMetadata = tryFind(contents, new Predicate<StorageMetadata>() {
                   public boolean apply(StorageMetadata metadata) {
-                     return metadata.getName().compareTo(finalMarker) > 0;
+                     return BlobStoreUtils.compareNames(metadata.getName(), finalMarker) > 0;
                   }
                });
             }
@@ -315,7 +329,7 @@ public final class LocalBlobStore implements BlobStore {
          int maxResults = options.getMaxResults() != null ? options.getMaxResults() : 1000;
          if (!contents.isEmpty()) {
             StorageMetadata lastElement = contents.last();
-            contents = newTreeSet(Iterables.limit(contents, maxResults));
+            contents = sortedByName(Iterables.limit(contents, maxResults));
             if (maxResults != 0 && !contents.contains(lastElement)) {
                // Partial listing
                lastElement = contents.last();
@@ -337,6 +351,20 @@ public final class LocalBlobStore implements BlobStore {
       return new PageSetImpl<StorageMetadata>(contents, marker);
    }
 
+   /**
+    * Listings are sorted by the code points of the names, the order of their UTF-8 bytes in which providers list
+    * blobs, rather than by {@link String#compareTo}.
+    */
+   private static SortedSet<StorageMetadata> sortedByName(Iterable<? extends StorageMetadata> contents) {
+      SortedSet<StorageMetadata> sorted = newTreeSet(NAME_ORDER.onResultOf(new Function<StorageMetadata, String>() {
+         public String apply(StorageMetadata metadata) {
+            return metadata.getName();
+         }
+      }));
+      Iterables.addAll(sorted, contents);
+      return sorted;
+   }
+
    private ContainerNotFoundException cnfe(final String name) {
       return new ContainerNotFoundException(name, String.format(
             "container %s not in %s", name,
@@ -513,16 +541,24 @@ public final class LocalBlobStore implements BlobStore {
       if (blob == null) {
          throw new KeyNotFoundException(fromContainer, fromName, "while copying");
       }
+      if (!storageStrategy.containerExists(toContainer)) {
+         throw cnfe(toContainer);
+      }
 
       InputStream is = null;
       try {
-         is = blob.getPayload().openStream();
          ContentMetadata metadata = blob.getMetadata().getContentMetadata();
-         BlobBuilder.PayloadBlobBuilder builder = blobBuilder(toName)
-               .payload(is);
-         Long contentLength = metadata.getContentLength();
-         if (contentLength != null) {
-            builder.contentLength(contentLength);
+         BlobBuilder.PayloadBlobBuilder builder;
+         if (storageStrategy instanceof ComposingLocalStorageStrategy) {
+            // the content is taken from the source blob
+            builder = blobBuilder(toName).payload(new byte[0]);
+         } else {
+            is = blob.getPayload().openStream();
+            builder = blobBuilder(toName).payload(is);
+            Long contentLength = metadata.getContentLength();
+            if (contentLength != null) {
+               builder.contentLength(contentLength);
+            }
          }
 
          if (options.getContentMetadata().isPresent()) {
@@ -555,6 +591,10 @@ public final class LocalBlobStore implements BlobStore {
          } else {
             builder.userMetadata(blob.getMetadata().getUserMetadata());
          }
+         if (storageStrategy instanceof ComposingLocalStorageStrategy) {
+            return ((ComposingLocalStorageStrategy) storageStrategy).copyBlob(fromContainer, fromName, toContainer,
+                  builder.build());
+         }
          return putBlob(toContainer, builder.build());
       } catch (IOException ioe) {
          throw Throwables.propagate(ioe);
@@ -688,7 +728,15 @@ public final class LocalBlobStore implements BlobStore {
 
    @Override
    public String putBlob(String containerName, Blob blob, PutOptions options) {
-      // TODO implement options
+      // TODO implement remaining options
+      if (options.isMultipart()) {
+         checkNotNull(containerName, "containerName must be set");
+         checkNotNull(blob, "blob must be set");
+         if (!storageStrategy.containerExists(containerName)) {
+            throw cnfe(containerName);
+         }
+         return putBlobInParts.execute(this, containerName, blob);
+      }
       return putBlob(containerName, blob);
    }
 
@@ -712,23 +760,37 @@ public final class LocalBlobStore implements BlobStore {
 
    @Override
    public String completeMultipartUpload(MultipartUpload mpu, List<MultipartPart> parts) {
-      ImmutableList.Builder<InputStream> streams = ImmutableList.builder();
-      long contentLength = 0;
+      if (!storageStrategy.containerExists(mpu.containerName())) {
+         throw cnfe(mpu.containerName());
+      }
+      ImmutableList.Builder<String> partNames = ImmutableList.builder();
       for (MultipartPart part : parts) {
-         Blob blobPart = getBlob(mpu.containerName(), mpu.blobName() + "-" + part.partNumber());
-         contentLength += blobPart.getMetadata().getContentMetadata().getContentLength();
-         InputStream is;
-         try {
-            is = blobPart.getPayload().openStream();
-         } catch (IOException ioe) {
-            throw propagate(ioe);
+         partNames.add(mpu.blobName() + "-" + part.partNumber());
+      }
+      PayloadBlobBuilder blobBuilder;
+      if (storageStrategy instanceof ComposingLocalStorageStrategy) {
+         // the content is taken from the parts
+         blobBuilder = blobBuilder(mpu.blobName()).payload(new byte[0]);
+      } else {
+         ImmutableList.Builder<InputStream> streams = ImmutableList.builder();
+         long contentLength = 0;
+         for (String partName : partNames.build()) {
+            Blob blobPart = getBlob(mpu.containerName(), partName);
+            if (blobPart == null) {
+               throw new KeyNotFoundException(mpu.containerName(), partName, "while completing multipart upload");
+            }
+            contentLength += blobPart.getMetadata().getContentMetadata().getContentLength();
+            try {
+               streams.add(blobPart.getPayload().openStream());
+            } catch (IOException ioe) {
+               throw propagate(ioe);
+            }
          }
-         streams.add(is);
+         blobBuilder = blobBuilder(mpu.blobName())
+               .payload(new SequenceInputStream(Iterators.asEnumeration(streams.build().iterator())))
+               .contentLength(contentLength);
       }
-      PayloadBlobBuilder blobBuilder = blobBuilder(mpu.blobName())
-            .userMetadata(mpu.blobMetadata().getUserMetadata())
-            .payload(new SequenceInputStream(Iterators.asEnumeration(streams.build().iterator())))
-            .contentLength(contentLength);
+      blobBuilder.userMetadata(mpu.blobMetadata().getUserMetadata());
       String contentDisposition = mpu.blobMetadata().getContentMetadata().getContentDisposition();
       if (contentDisposition != null) {
          blobBuilder.contentDisposition(contentDisposition);
@@ -751,13 +813,19 @@ public final class LocalBlobStore implements BlobStore {
          blobBuilder.expires(expires);
       }
 
-      String eTag = putBlob(mpu.containerName(), blobBuilder.build());
-
-      for (MultipartPart part : parts) {
-         storageStrategy.removeBlob(mpu.containerName(), mpu.blobName() + "-" + part.partNumber());
+      if (!(storageStrategy instanceof ComposingLocalStorageStrategy)) {
+         String eTag = putBlob(mpu.containerName(), blobBuilder.build());
+         for (String partName : partNames.build()) {
+            storageStrategy.removeBlob(mpu.containerName(), partName);
+         }
+         return eTag;
+      }
+      try {
+         return ((ComposingLocalStorageStrategy) storageStrategy).putBlobFromParts(mpu.containerName(),
+               blobBuilder.build(), partNames.build());
+      } catch (IOException ioe) {
+         throw propagate(ioe);
       }
-
-      return eTag;
    }
 
    @Override
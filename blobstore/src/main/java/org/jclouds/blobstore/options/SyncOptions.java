@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.blobstore.options;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Contains options supported when synchronizing the blobs of two containers. <h2>
+ * Usage</h2> The recommended way to instantiate a SyncOptions object is to statically import
+ * SyncOptions.Builder.* and invoke a static creation method followed by an instance mutator (if needed):
+ * <p/>
+ * <code>
+ * import static org.jclouds.blobstore.options.SyncOptions.Builder.*
+ * result = sync.sync(from, "container", to, "mirror", deleteExtraneous().dryRun());
+ * <code>
+ */
+public class SyncOptions implements Cloneable {
+
+   private String prefix = "";
+   private boolean dryRun = false;
+   private boolean deleteExtraneous = false;
+
+   public String getPrefix() {
+      return prefix;
+   }
+
+   public boolean isDryRun() {
+      return dryRun;
+   }
+
+   public boolean isDeleteExtraneous() {
+      return deleteExtraneous;
+   }
+
+   /**
+    * only synchronize the blobs whose name starts with the prefix
+    */
+   public SyncOptions prefix(String prefix) {
+      this.prefix = checkNotNull(prefix, "prefix");
+      return this;
+   }
+
+   /**
+    * compare the containers and report the differences without copying or deleting any blob
+    */
+   public SyncOptions dryRun() {
+      this.dryRun = true;
+      return this;
+   }
+
+   /**
+    * delete the blobs of the target which do not exist in the source
+    */
+   public SyncOptions deleteExtraneous() {
+      this.deleteExtraneous = true;
+      return this;
+   }
+
+   public static class Builder {
+
+      /**
+       * @see SyncOptions#prefix(String)
+       */
+      public static SyncOptions prefix(String prefix) {
+         return new SyncOptions().prefix(prefix);
+      }
+
+      /**
+       * @see SyncOptions#dryRun()
+       */
+      public static SyncOptions dryRun() {
+         return new SyncOptions().dryRun();
+      }
+
+      /**
+       * @see SyncOptions#deleteExtraneous()
+       */
+      public static SyncOptions deleteExtraneous() {
+         return new SyncOptions().deleteExtraneous();
+      }
+   }
+
+   @Override
+   public SyncOptions clone() {
+      SyncOptions options = new SyncOptions().prefix(prefix);
+      options.dryRun = dryRun;
+      options.deleteExtraneous = deleteExtraneous;
+      return options;
+   }
+
+   @Override
+   public String toString() {
+      return "[prefix=" + prefix + ", dryRun=" + dryRun + ", deleteExtraneous=" + deleteExtraneous + "]";
+   }
+}
@@ -53,6 +53,33 @@ public final class BlobStoreConstants {
     */
    public static final String PROPERTY_USER_METADATA_PREFIX = "jclouds.blobstore.metaprefix";
 
+   /**
+    * Maximum number of multi-object delete requests in flight while clearing a container, for providers which
+    * support them. Defaults to 4.
+    */
+   public static final String PROPERTY_MAX_PARALLEL_BULK_DELETES = "jclouds.blobstore.max-parallel-bulk-deletes";
+
+   /**
+    * Preferred size in bytes of the parts of a multipart upload, within the limits of the provider. Defaults to 32MB.
+    */
+   public static final String PROPERTY_MULTIPART_PART_SIZE = "jclouds.mpu.parts.size";
+
+   /**
+    * Maximum number of parts of one multipart upload in flight. Defaults to 4.
+    */
+   public static final String PROPERTY_MULTIPART_PARALLELISM = "jclouds.mpu.parallel.degree";
+
+   /**
+    * Directory holding the journals of resumable multipart uploads. Defaults to {@code jclouds-mpu-journal} in the
+    * temporary directory of the JVM.
+    */
+   public static final String PROPERTY_MULTIPART_JOURNAL_DIRECTORY = "jclouds.mpu.journal.directory";
+
+   /**
+    * Maximum number of blobs in flight while copying the blobs under a prefix. Defaults to 8.
+    */
+   public static final String PROPERTY_MAX_PARALLEL_COPIES = "jclouds.blobstore.max-parallel-copies";
+
    public static final String BLOBSTORE_LOGGER = "jclouds.blobstore";
    public static final String DIRECTORY_BLOB_SUFFIX = "/";
 
@@ -0,0 +1,44 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.blobstore.reference;
+
+/**
+ * Configuration properties of the in-memory (transient) blobstore.
+ */
+public final class TransientConstants {
+
+   /**
+    * Whether blob contents are kept in direct buffers outside the Java heap, so that large stores do not add to
+    * garbage collection work. Metadata stays on the heap. Defaults to false.
+    */
+   public static final String PROPERTY_OFF_HEAP = "jclouds.transient.off-heap";
+
+   /**
+    * Maximum total size in bytes of blob contents. Once exceeded, the least recently used blobs are evicted. Defaults
+    * to 0, meaning unlimited.
+    */
+   public static final String PROPERTY_CAPACITY = "jclouds.transient.capacity";
+
+   /**
+    * Whether blobs with the same content, by MD5, share a single copy of it. Defaults to false.
+    */
+   public static final String PROPERTY_DEDUPLICATE = "jclouds.transient.deduplicate";
+
+   private TransientConstants() {
+      throw new AssertionError("intentionally unimplemented");
+   }
+}
@@ -0,0 +1,40 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.blobstore.strategy;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Deletes many blobs from a container in a single request, as supported by providers with a multi-object delete
+ * operation.
+ */
+public interface BulkDeleteStrategy {
+
+   /**
+    * @return the maximum number of keys the provider accepts in one request
+    */
+   int maxKeysPerRequest();
+
+   /**
+    * Deletes the given keys, which must number at most {@link #maxKeysPerRequest()}. Keys that do not exist are
+    * treated as deleted.
+    *
+    * @return the keys which could not be deleted, mapped to the reason reported by the provider; empty on success
+    */
+   Map<String, String> deleteKeys(String container, List<String> keys);
+}
@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.blobstore.strategy;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.List;
+
+import org.jclouds.blobstore.domain.MultipartPart;
+import org.jclouds.blobstore.strategy.internal.FileMultipartUploadJournal;
+import org.jclouds.javax.annotation.Nullable;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableList;
+import com.google.inject.ImplementedBy;
+
+/**
+ * Records the progress of multipart uploads, so that an upload interrupted by a failure or a process restart can be
+ * resumed without uploading its completed parts again.
+ * <p/>
+ * Uploads are identified by a key chosen by the caller, which should be unique per provider, container and blob.
+ */
+@ImplementedBy(FileMultipartUploadJournal.class)
+public interface MultipartUploadJournal {
+
+   /**
+    * Starts recording an upload, replacing any previous record under the same key.
+    *
+    * @param fingerprint
+    *           identifies the content being uploaded, so that an upload is not resumed with different content
+    */
+   void begin(String key, String uploadId, long contentLength, long partSize, String fingerprint);
+
+   /**
+    * Records a part which has been uploaded. Safe to call concurrently for different parts of the same upload.
+    */
+   void partUploaded(String key, MultipartPart part);
+
+   /**
+    * @return the recorded upload, or null if there is none
+    */
+   @Nullable
+   Entry get(String key);
+
+   /**
+    * Forgets the upload, once it has been completed or abandoned.
+    */
+   void remove(String key);
+
+   /**
+    * The recorded state of one upload.
+    */
+   final class Entry {
+      private final String uploadId;
+      private final long contentLength;
+      private final long partSize;
+      private final String fingerprint;
+      private final List<MultipartPart> parts;
+
+      public Entry(String uploadId, long contentLength, long partSize, @Nullable String fingerprint,
+            Iterable<MultipartPart> parts) {
+         this.uploadId = checkNotNull(uploadId, "uploadId");
+         this.contentLength = contentLength;
+         this.partSize = partSize;
+         this.fingerprint = fingerprint;
+         this.parts = ImmutableList.copyOf(checkNotNull(parts, "parts"));
+      }
+
+      public String uploadId() {
+         return uploadId;
+      }
+
+      public long contentLength() {
+         return contentLength;
+      }
+
+      public long partSize() {
+         return partSize;
+      }
+
+      /**
+       * @return the fingerprint of the content, or null if the upload was recorded without one
+       */
+      @Nullable
+      public String fingerprint() {
+         return fingerprint;
+      }
+
+      /**
+       * @return the parts recorded as uploaded, in the order they completed
+       */
+      public List<MultipartPart> parts() {
+         return parts;
+      }
+
+      @Override
+      public boolean equals(Object object) {
+         if (this == object)
+            return true;
+         if (!(object instanceof Entry))
+            return false;
+         Entry that = (Entry) object;
+         return uploadId.equals(that.uploadId) && contentLength == that.contentLength && partSize == that.partSize
+               && Objects.equal(fingerprint, that.fingerprint) && parts.equals(that.parts);
+      }
+
+      @Override
+      public int hashCode() {
+         return Objects.hashCode(uploadId, contentLength, partSize, fingerprint, parts);
+      }
+
+      @Override
+      public String toString() {
+         return Objects.toStringHelper(this).add("uploadId", uploadId).add("contentLength", contentLength)
+               .add("partSize", partSize).add("fingerprint", fingerprint).add("parts", parts).toString();
+      }
+   }
+}
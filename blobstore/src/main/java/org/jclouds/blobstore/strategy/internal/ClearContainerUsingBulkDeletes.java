@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.blobstore.strategy.internal;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.jclouds.blobstore.options.ListContainerOptions.Builder.recursive;
+
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Resource;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.jclouds.blobstore.BlobStore;
+import org.jclouds.blobstore.BulkDeleteException;
+import org.jclouds.blobstore.ContainerNotFoundException;
+import org.jclouds.blobstore.domain.PageSet;
+import org.jclouds.blobstore.domain.StorageMetadata;
+import org.jclouds.blobstore.options.ListContainerOptions;
+import org.jclouds.blobstore.reference.BlobStoreConstants;
+import org.jclouds.blobstore.strategy.BulkDeleteStrategy;
+import org.jclouds.blobstore.strategy.ClearContainerStrategy;
+import org.jclouds.blobstore.strategy.ClearListStrategy;
+import org.jclouds.logging.Logger;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.inject.Inject;
+
+/**
+ * Clears a container using the provider's multi-object delete operation.
+ * <p/>
+ * Each page of the listing is handed to {@link DeleteKeysUsingBulkDeletes}, which sends it in concurrent requests of
+ * up to {@link BulkDeleteStrategy#maxKeysPerRequest()} keys while the next page is listed, so listing and deleting
+ * overlap. Directory markers are removed once all blobs have been deleted.
+ * <p/>
+ * Recursive listings of the providers using this strategy are flat, so subdirectories are not listed separately.
+ */
+@Singleton
+public class ClearContainerUsingBulkDeletes implements ClearListStrategy, ClearContainerStrategy {
+   @Resource
+   @Named(BlobStoreConstants.BLOBSTORE_LOGGER)
+   protected Logger logger = Logger.NULL;
+
+   private final BlobStore blobStore;
+   private final DeleteKeysUsingBulkDeletes deleteKeys;
+
+   @Inject
+   ClearContainerUsingBulkDeletes(BlobStore blobStore, DeleteKeysUsingBulkDeletes deleteKeys) {
+      this.blobStore = checkNotNull(blobStore, "blobStore");
+      this.deleteKeys = checkNotNull(deleteKeys, "deleteKeys");
+   }
+
+   @Override
+   public void execute(String containerName) {
+      execute(containerName, recursive());
+   }
+
+   /**
+    * @throws BulkDeleteException
+    *            if any key could not be deleted
+    */
+   @Override
+   public void execute(String containerName, ListContainerOptions listOptions) {
+      ListContainerOptions options = listOptions.clone();
+      logger.debug(">> clearing %s%s using bulk deletes", options.getDir() != null ? containerName + "/"
+            + options.getDir() : containerName, options.isRecursive() ? " recursively" : "");
+
+      DeleteKeysUsingBulkDeletes.Deletion deletion = deleteKeys.start(containerName);
+      List<String> directories = Lists.newArrayList();
+      try {
+         PageSet<? extends StorageMetadata> listing = list(containerName, options);
+         while (listing != null && !listing.isEmpty()) {
+            ImmutableList.Builder<String> keys = ImmutableList.builder();
+            for (StorageMetadata md : listing) {
+               String fullPath = parentIsFolder(options, md) ? options.getDir() + "/" + md.getName() : md.getName();
+               switch (md.getType()) {
+               case BLOB:
+                  keys.add(fullPath);
+                  break;
+               case FOLDER:
+                  if (options.isRecursive())
+                     directories.add(fullPath);
+                  break;
+               case RELATIVE_PATH:
+                  if (options.isRecursive())
+                     directories.add(md.getName());
+                  break;
+               case CONTAINER:
+                  throw new IllegalArgumentException("Container type not supported");
+               }
+            }
+            deletion.submit(keys.build());
+
+            // list the next page while this one is being deleted
+            String marker = listing.getNextMarker();
+            if (marker == null)
+               break;
+            options = options.afterMarker(marker);
+            listing = list(containerName, options);
+         }
+      } catch (RuntimeException e) {
+         deletion.cancel();
+         throw e;
+      }
+      Map<String, String> failures = deletion.await();
+
+      for (String directory : directories) {
+         if (!directory.equals(options.getDir()))
+            blobStore.deleteDirectory(containerName, directory);
+      }
+
+      if (!failures.isEmpty())
+         throw new BulkDeleteException(containerName, failures);
+   }
+
+   private PageSet<? extends StorageMetadata> list(String containerName, ListContainerOptions options) {
+      try {
+         return blobStore.list(containerName, options);
+      } catch (ContainerNotFoundException e) {
+         return null;
+      }
+   }
+
+   private static boolean parentIsFolder(ListContainerOptions options, StorageMetadata md) {
+      return options.getDir() != null && md.getName().indexOf('/') == -1;
+   }
+}
@@ -0,0 +1,285 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.blobstore.strategy.internal;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.Resource;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.jclouds.Constants;
+import org.jclouds.blobstore.BlobStore;
+import org.jclouds.blobstore.KeyNotFoundException;
+import org.jclouds.blobstore.domain.Blob;
+import org.jclouds.blobstore.domain.BlobMetadata;
+import org.jclouds.blobstore.domain.PageSet;
+import org.jclouds.blobstore.domain.StorageMetadata;
+import org.jclouds.blobstore.domain.StorageType;
+import org.jclouds.blobstore.options.CopyOptions;
+import org.jclouds.blobstore.options.GetOptions;
+import org.jclouds.blobstore.options.ListContainerOptions;
+import org.jclouds.blobstore.reference.BlobStoreConstants;
+import org.jclouds.io.ContentMetadata;
+import org.jclouds.logging.Logger;
+
+import com.google.common.base.Throwables;
+import com.google.common.io.ByteSource;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.inject.Inject;
+
+/**
+ * Copies blobs within a {@link BlobStore} or from one to another.
+ * <p/>
+ * Within a blob store, blobs are copied server side with {@link BlobStore#copyBlob}, which providers implement with
+ * their native copy, such as ranged part copies for large S3 objects. Across blob stores, the content is streamed: a
+ * blob larger than {@link BlobStoreConstants#PROPERTY_MULTIPART_PART_SIZE} is uploaded by
+ * {@link PutBlobInParallelParts}, each part reading its range of the source with a ranged get, so parts are read,
+ * written and retried independently.
+ * <p/>
+ * {@link #copyBlobs} lists the blobs under a prefix page by page while up to
+ * {@link BlobStoreConstants#PROPERTY_MAX_PARALLEL_COPIES} blobs are copied. Across blob stores, blobs large enough
+ * to be copied in parts are copied one at a time by the listing thread, as their parts already run in parallel.
+ * Within one blob store every blob is a server-side copy, so all of them are copied in parallel.
+ */
+@Singleton
+public class CopyBlobsInParallel {
+   @Resource
+   @Named(BlobStoreConstants.BLOBSTORE_LOGGER)
+   protected Logger logger = Logger.NULL;
+
+   private final PutBlobInParallelParts putBlobInParallelParts;
+   private final ListeningExecutorService userExecutor;
+
+   /** Blobs larger than this are copied in parts across blob stores. */
+   protected long partSize = 32 * 1024 * 1024;
+
+   /** Maximum blobs in flight. */
+   protected int parallelism = 8;
+
+   @Inject
+   CopyBlobsInParallel(PutBlobInParallelParts putBlobInParallelParts,
+         @Named(Constants.PROPERTY_USER_THREADS) ListeningExecutorService userExecutor) {
+      this.putBlobInParallelParts = checkNotNull(putBlobInParallelParts, "putBlobInParallelParts");
+      this.userExecutor = checkNotNull(userExecutor, "userExecutor");
+   }
+
+   @Inject(optional = true)
+   void setPartSize(@Named(BlobStoreConstants.PROPERTY_MULTIPART_PART_SIZE) long partSize) {
+      this.partSize = partSize;
+   }
+
+   @Inject(optional = true)
+   void setParallelism(@Named(BlobStoreConstants.PROPERTY_MAX_PARALLEL_COPIES) int parallelism) {
+      this.parallelism = Math.max(1, parallelism);
+   }
+
+   /**
+    * Copies a blob with its content and user metadata.
+    *
+    * @return the ETag of the copy
+    * @throws KeyNotFoundException
+    *            if the source blob does not exist
+    */
+   public String copyBlob(BlobStore from, String fromContainer, String fromName, BlobStore to, String toContainer,
+         String toName) {
+      checkNotNull(from, "from");
+      checkNotNull(to, "to");
+      if (from == to) {
+         return from.copyBlob(fromContainer, fromName, toContainer, toName, CopyOptions.NONE);
+      }
+      BlobMetadata metadata = from.blobMetadata(fromContainer, fromName);
+      if (metadata == null) {
+         throw new KeyNotFoundException(fromContainer, fromName, "while copying");
+      }
+      ContentMetadata contentMetadata = metadata.getContentMetadata();
+      Long size = contentMetadata.getContentLength();
+      if (size == null) {
+         size = metadata.getSize();
+      }
+      ByteSource content = new BlobByteSource(from, fromContainer, fromName, size);
+      Blob blob = to.blobBuilder(toName)
+            .payload(content)
+            .contentDisposition(contentMetadata.getContentDisposition())
+            .contentEncoding(contentMetadata.getContentEncoding())
+            .contentLanguage(contentMetadata.getContentLanguage())
+            .contentType(contentMetadata.getContentType())
+            .userMetadata(metadata.getUserMetadata())
+            .build();
+      if (size != null) {
+         blob.getPayload().getContentMetadata().setContentLength(size);
+         if (size > partSize) {
+            logger.debug(">> copying %s/%s to %s/%s in parts", fromContainer, fromName, toContainer, toName);
+            return putBlobInParallelParts.execute(to, toContainer, blob);
+         }
+      }
+      return to.putBlob(toContainer, blob);
+   }
+
+   /**
+    * Copies every blob whose name starts with a prefix, replacing the prefix in the name of the copies.
+    *
+    * @param fromPrefix
+    *           prefix of the blobs to copy, or the empty string for all blobs
+    * @param toPrefix
+    *           prefix of the copies, or the empty string
+    * @return the number of blobs copied
+    */
+   public long copyBlobs(final BlobStore from, final String fromContainer, final String fromPrefix,
+         final BlobStore to, final String toContainer, final String toPrefix) {
+      checkNotNull(fromPrefix, "fromPrefix");
+      checkNotNull(toPrefix, "toPrefix");
+      final Semaphore inFlight = new Semaphore(parallelism);
+      final AtomicReference<RuntimeException> failure = new AtomicReference<RuntimeException>();
+      final AtomicLong copied = new AtomicLong();
+      ListContainerOptions options = ListContainerOptions.Builder.recursive();
+      // listings are narrowed by directory, the rest of the prefix is matched here
+      int directoryEnd = fromPrefix.lastIndexOf('/');
+      if (directoryEnd > 0) {
+         options.inDirectory(fromPrefix.substring(0, directoryEnd));
+      }
+      String marker = null;
+      do {
+         if (marker != null) {
+            options.afterMarker(marker);
+         }
+         PageSet<? extends StorageMetadata> page = from.list(fromContainer, options);
+         for (StorageMetadata metadata : page) {
+            if (metadata.getType() != StorageType.BLOB || !metadata.getName().startsWith(fromPrefix)) {
+               continue;
+            }
+            final String fromName = metadata.getName();
+            final String toName = toPrefix + fromName.substring(fromPrefix.length());
+            Long size = metadata.getSize();
+            if (from != to && size != null && size > partSize) {
+               try {
+                  copyBlob(from, fromContainer, fromName, to, toContainer, toName);
+                  copied.incrementAndGet();
+               } catch (RuntimeException e) {
+                  failure.compareAndSet(null, e);
+               }
+            } else {
+               acquire(inFlight, 1);
+               try {
+                  userExecutor.execute(new Runnable() {
+                     @Override
+                     public void run() {
+                        try {
+                           copyBlob(from, fromContainer, fromName, to, toContainer, toName);
+                           copied.incrementAndGet();
+                        } catch (RuntimeException e) {
+                           failure.compareAndSet(null, e);
+                        } finally {
+                           inFlight.release();
+                        }
+                     }
+
+                     @Override
+                     public String toString() {
+                        return "copyBlob(" + fromContainer + "/" + fromName + ", " + toContainer + "/" + toName + ")";
+                     }
+                  });
+               } catch (RejectedExecutionException e) {
+                  inFlight.release();
+                  failure.compareAndSet(null, e);
+               }
+            }
+            if (failure.get() != null) {
+               break;
+            }
+         }
+         marker = page.getNextMarker();
+      } while (marker != null && failure.get() == null);
+      // wait for the blobs in flight
+      acquire(inFlight, parallelism);
+      inFlight.release(parallelism);
+      if (failure.get() != null) {
+         throw failure.get();
+      }
+      logger.debug("<< copied %d blobs from %s/%s to %s/%s", copied.get(), fromContainer, fromPrefix, toContainer,
+            toPrefix);
+      return copied.get();
+   }
+
+   private static void acquire(Semaphore inFlight, int count) {
+      try {
+         inFlight.acquire(count);
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw Throwables.propagate(e);
+      }
+   }
+
+   /** Content of a blob, read with a get per stream, and with a ranged get per slice. */
+   private static final class BlobByteSource extends ByteSource {
+      private final BlobStore blobStore;
+      private final String container;
+      private final String name;
+      private final Long size;
+      private final long offset;
+      private final long length;
+
+      BlobByteSource(BlobStore blobStore, String container, String name, Long size) {
+         this(blobStore, container, name, size, 0, -1);
+      }
+
+      private BlobByteSource(BlobStore blobStore, String container, String name, Long size, long offset,
+            long length) {
+         this.blobStore = blobStore;
+         this.container = container;
+         this.name = name;
+         this.size = size;
+         this.offset = offset;
+         this.length = length;
+      }
+
+      @Override
+      public InputStream openStream() throws IOException {
+         GetOptions options = length < 0 ? GetOptions.NONE : new GetOptions().range(offset, offset + length - 1);
+         Blob blob = blobStore.getBlob(container, name, options);
+         if (blob == null) {
+            throw new KeyNotFoundException(container, name, "while copying");
+         }
+         return blob.getPayload().openStream();
+      }
+
+      @Override
+      public long size() throws IOException {
+         if (length >= 0) {
+            return length;
+         }
+         return size != null ? size : super.size();
+      }
+
+      @Override
+      public ByteSource slice(long sliceOffset, long sliceLength) {
+         long available = (length >= 0 ? length : size != null ? size : Long.MAX_VALUE) - sliceOffset;
+         long sliced = Math.max(0, Math.min(sliceLength, available));
+         if (sliced == 0) {
+            return ByteSource.empty();
+         }
+         return new BlobByteSource(blobStore, container, name, size, offset + sliceOffset, sliced);
+      }
+   }
+}
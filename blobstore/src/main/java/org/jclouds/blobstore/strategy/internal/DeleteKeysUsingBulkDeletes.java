@@ -0,0 +1,270 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.blobstore.strategy.internal;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.jclouds.util.Throwables2.getFirstThrowableOfType;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.Resource;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.jclouds.Constants;
+import org.jclouds.blobstore.BulkDeleteException;
+import org.jclouds.blobstore.reference.BlobStoreConstants;
+import org.jclouds.blobstore.strategy.BulkDeleteStrategy;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.http.HttpResponseException;
+import org.jclouds.http.handlers.BackoffLimitedRetryHandler;
+import org.jclouds.logging.Logger;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Functions;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.inject.Inject;
+
+/**
+ * Deletes keys with the provider's multi-object delete operation, sending up to
+ * {@link BlobStoreConstants#PROPERTY_MAX_PARALLEL_BULK_DELETES} requests concurrently.
+ * <p/>
+ * Keys reported as failed, and keys of requests which failed with a transient error, are retried on their own, with
+ * exponential backoff, until they are deleted or the maximum number of attempts is reached. Keys which still fail are
+ * collected, rather than dropped, and reported in a {@link BulkDeleteException}. Any other error, such as a missing
+ * container or denied access, is rethrown as is.
+ */
+@Singleton
+public class DeleteKeysUsingBulkDeletes {
+   @Resource
+   @Named(BlobStoreConstants.BLOBSTORE_LOGGER)
+   protected Logger logger = Logger.NULL;
+
+   private final ListeningExecutorService userExecutor;
+   private final BulkDeleteStrategy bulkDelete;
+   private final BackoffLimitedRetryHandler retryHandler;
+
+   /** Maximum times to attempt deleting a key. */
+   protected int maxErrors = 3;
+
+   /** Maximum delete requests in flight. */
+   protected int maxParallelRequests = 4;
+
+   @Inject
+   DeleteKeysUsingBulkDeletes(@Named(Constants.PROPERTY_USER_THREADS) ListeningExecutorService userExecutor,
+         BulkDeleteStrategy bulkDelete, BackoffLimitedRetryHandler retryHandler) {
+      this.userExecutor = checkNotNull(userExecutor, "userExecutor");
+      this.bulkDelete = checkNotNull(bulkDelete, "bulkDelete");
+      this.retryHandler = checkNotNull(retryHandler, "retryHandler");
+   }
+
+   @Inject(optional = true)
+   void setMaxErrors(@Named(Constants.PROPERTY_MAX_RETRIES) int maxErrors) {
+      this.maxErrors = Math.max(1, maxErrors);
+   }
+
+   @Inject(optional = true)
+   void setMaxParallelRequests(@Named(BlobStoreConstants.PROPERTY_MAX_PARALLEL_BULK_DELETES) int maxParallelRequests) {
+      this.maxParallelRequests = Math.max(1, maxParallelRequests);
+   }
+
+   /**
+    * Deletes the keys, blocking until all requests have completed.
+    * 
+    * @throws BulkDeleteException
+    *            if any key could not be deleted
+    */
+   public void execute(String container, Iterable<String> keys) {
+      Deletion deletion = start(container);
+      try {
+         for (List<String> batch : Iterables.partition(keys, bulkDelete.maxKeysPerRequest()))
+            deletion.submit(batch);
+      } catch (RuntimeException e) {
+         deletion.cancel();
+         throw e;
+      }
+      Map<String, String> failures = deletion.await();
+      if (!failures.isEmpty())
+         throw new BulkDeleteException(container, failures);
+   }
+
+   /**
+    * Starts a deletion to which keys can be submitted as they are discovered, for example while listing a container.
+    */
+   public Deletion start(String container) {
+      return new Deletion(checkNotNull(container, "container"));
+   }
+
+   /**
+    * Keys submitted to one container, and the failures reported so far.
+    */
+   public final class Deletion {
+      private final String container;
+      private final Semaphore inFlight = new Semaphore(maxParallelRequests);
+      private final int permits = maxParallelRequests;
+      private final Set<ListenableFuture<?>> outstanding = Sets.newConcurrentHashSet();
+      private final ConcurrentMap<String, String> failures = Maps.newConcurrentMap();
+      private final AtomicReference<RuntimeException> error = new AtomicReference<RuntimeException>();
+
+      private Deletion(String container) {
+         this.container = container;
+      }
+
+      /**
+       * Sends the keys in as many requests as needed, blocking while the maximum number of requests is in flight.
+       */
+      public void submit(List<String> keys) {
+         for (List<String> batch : Lists.partition(keys, bulkDelete.maxKeysPerRequest()))
+            submitBatch(ImmutableList.copyOf(batch));
+      }
+
+      private void submitBatch(final List<String> batch) {
+         acquire(1);
+         if (error.get() != null) {
+            inFlight.release();
+            throw error.get();
+         }
+         final ListenableFuture<?> future;
+         try {
+            future = userExecutor.submit(new Runnable() {
+               @Override
+               public void run() {
+                  try {
+                     failures.putAll(deleteWithRetries(container, batch));
+                  } catch (RuntimeException e) {
+                     error.compareAndSet(null, e);
+                  } finally {
+                     inFlight.release();
+                  }
+               }
+
+               @Override
+               public String toString() {
+                  return "bulkDelete(" + container + ", " + batch.size() + " keys)";
+               }
+            });
+         } catch (RejectedExecutionException e) {
+            inFlight.release();
+            throw e;
+         }
+         outstanding.add(future);
+         future.addListener(new Runnable() {
+            @Override
+            public void run() {
+               outstanding.remove(future);
+            }
+         }, MoreExecutors.sameThreadExecutor());
+      }
+
+      /**
+       * Blocks until all submitted requests have completed.
+       * 
+       * @return the keys which could not be deleted, mapped to the last reason reported
+       * @throws RuntimeException
+       *            the first error which was not a transient one, such as a missing container
+       */
+      public Map<String, String> await() {
+         acquire(permits);
+         inFlight.release(permits);
+         if (error.get() != null)
+            throw error.get();
+         return ImmutableMap.copyOf(failures);
+      }
+
+      /**
+       * Cancels requests in flight.
+       */
+      public void cancel() {
+         for (ListenableFuture<?> future : outstanding)
+            future.cancel(true);
+      }
+
+      private void acquire(int count) {
+         try {
+            inFlight.acquire(count);
+         } catch (InterruptedException e) {
+            cancel();
+            Thread.currentThread().interrupt();
+            throw Throwables.propagate(e);
+         }
+      }
+   }
+
+   /**
+    * Deletes the keys in one request, then retries the keys which failed until they are deleted or the maximum number
+    * of attempts is reached.
+    * 
+    * @return the keys which could not be deleted, mapped to the last reason reported
+    * @throws RuntimeException
+    *            if a request failed with an error which is not transient
+    */
+   @VisibleForTesting
+   Map<String, String> deleteWithRetries(String container, List<String> keys) {
+      checkArgument(keys.size() <= bulkDelete.maxKeysPerRequest(), "too many keys for one request: %s", keys.size());
+      List<String> remaining = keys;
+      for (int attempt = 1;; attempt++) {
+         Map<String, String> failed;
+         try {
+            failed = bulkDelete.deleteKeys(container, remaining);
+         } catch (RuntimeException e) {
+            if (!isTransient(e))
+               throw e;
+            logger.debug("<< error deleting %d keys from %s: %s", remaining.size(), container, e.getMessage());
+            failed = Maps.toMap(remaining, Functions.constant(String.valueOf(e.getMessage())));
+         }
+         if (failed.isEmpty() || attempt >= maxErrors)
+            return failed;
+         remaining = ImmutableList.copyOf(failed.keySet());
+         retryHandler.imposeBackoffExponentialDelay(attempt, String.format("retrying delete of %d keys from %s",
+               remaining.size(), container));
+      }
+   }
+
+   /**
+    * Whether the request could succeed if sent again: it did not reach the provider, timed out, or was rejected with a
+    * server error or throttled.
+    */
+   @VisibleForTesting
+   static boolean isTransient(RuntimeException e) {
+      if (getFirstThrowableOfType(e, IOException.class) != null
+            || getFirstThrowableOfType(e, TimeoutException.class) != null)
+         return true;
+      HttpResponseException responseException = getFirstThrowableOfType(e, HttpResponseException.class);
+      if (responseException == null)
+         return false;
+      HttpResponse response = responseException.getResponse();
+      return response == null || response.getStatusCode() >= 500 || response.getStatusCode() == 429;
+   }
+}
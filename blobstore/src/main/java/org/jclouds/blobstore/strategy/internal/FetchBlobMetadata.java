@@ -19,6 +19,7 @@ package org.jclouds.blobstore.strategy.internal;
 import static com.google.common.base.Preconditions.checkState;
 import static org.jclouds.concurrent.FutureIterables.transformParallel;
 
+import java.net.URI;
 import java.util.concurrent.Callable;
 
 import javax.annotation.Resource;
@@ -32,12 +33,15 @@ import org.jclouds.blobstore.domain.StorageMetadata;
 import org.jclouds.blobstore.domain.StorageType;
 import org.jclouds.blobstore.domain.internal.PageSetImpl;
 import org.jclouds.blobstore.reference.BlobStoreConstants;
+import org.jclouds.concurrent.ExecutorStrategy;
 import org.jclouds.http.handlers.BackoffLimitedRetryHandler;
 import org.jclouds.javax.annotation.concurrent.NotThreadSafe;
+import org.jclouds.location.Provider;
 import org.jclouds.logging.Logger;
 
 import com.google.common.base.Function;
 import com.google.common.base.Predicate;
+import com.google.common.base.Supplier;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.util.concurrent.ListenableFuture;
@@ -53,6 +57,8 @@ public class FetchBlobMetadata implements Function<PageSet<? extends StorageMeta
    protected final BackoffLimitedRetryHandler retryHandler;
    protected final BlobStore blobstore;
    protected final ListeningExecutorService userExecutor;
+   protected final ExecutorStrategy executors;
+   protected final Supplier<URI> endpoint;
    @Resource
    @Named(BlobStoreConstants.BLOBSTORE_LOGGER)
    protected Logger logger = Logger.NULL;
@@ -67,8 +73,10 @@ public class FetchBlobMetadata implements Function<PageSet<? extends StorageMeta
 
    @Inject
    FetchBlobMetadata(@Named(Constants.PROPERTY_USER_THREADS) ListeningExecutorService userExecutor, BlobStore blobstore,
-            BackoffLimitedRetryHandler retryHandler) {
+            BackoffLimitedRetryHandler retryHandler, ExecutorStrategy executors, @Provider Supplier<URI> endpoint) {
       this.userExecutor = userExecutor;
+      this.executors = executors;
+      this.endpoint = endpoint;
       this.blobstore = blobstore;
       this.retryHandler = retryHandler;
    }
@@ -80,6 +88,7 @@ public class FetchBlobMetadata implements Function<PageSet<? extends StorageMeta
 
    public PageSet<? extends StorageMetadata> apply(PageSet<? extends StorageMetadata> in) {
       checkState(container != null, "container name should be initialized");
+      final ListeningExecutorService executor = executors.executorFor(String.valueOf(endpoint.get().getHost()));
 
       Iterable<BlobMetadata> returnv = Lists.newArrayList(transformParallel(Iterables.filter(in, new Predicate<StorageMetadata>() {
 
@@ -92,7 +101,7 @@ public class FetchBlobMetadata implements Function<PageSet<? extends StorageMeta
 
          @Override
          public ListenableFuture<BlobMetadata> apply(final StorageMetadata from) {
-            return userExecutor.submit(new Callable<BlobMetadata>() {
+            return executor.submit(new Callable<BlobMetadata>() {
                @Override public BlobMetadata call() throws Exception {
                   return blobstore.blobMetadata(container, from.getName());
                }
@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.blobstore.strategy.internal;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Resource;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.jclouds.blobstore.domain.MultipartPart;
+import org.jclouds.blobstore.reference.BlobStoreConstants;
+import org.jclouds.blobstore.strategy.MultipartUploadJournal;
+import org.jclouds.logging.Logger;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Charsets;
+import com.google.common.base.Splitter;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Maps;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Closeables;
+import com.google.common.io.Files;
+import com.google.inject.Inject;
+
+/**
+ * Keeps one journal file per upload in {@link BlobStoreConstants#PROPERTY_MULTIPART_JOURNAL_DIRECTORY}. A journal is
+ * a header naming the upload, followed by a line appended and synced to disk for each uploaded part, so a crash loses
+ * at most the parts in flight. A last line without its newline was truncated by a crash and is ignored when the journal
+ * is read.
+ */
+@Singleton
+public class FileMultipartUploadJournal implements MultipartUploadJournal {
+   @Resource
+   @Named(BlobStoreConstants.BLOBSTORE_LOGGER)
+   protected Logger logger = Logger.NULL;
+
+   private File directory = new File(System.getProperty("java.io.tmpdir"), "jclouds-mpu-journal");
+
+   @Inject(optional = true)
+   void setDirectory(@Named(BlobStoreConstants.PROPERTY_MULTIPART_JOURNAL_DIRECTORY) String directory) {
+      this.directory = new File(directory);
+   }
+
+   @Override
+   public synchronized void begin(String key, String uploadId, long contentLength, long partSize,
+         String fingerprint) {
+      checkNotNull(uploadId, "uploadId");
+      checkNotNull(fingerprint, "fingerprint");
+      File journal = journalFile(key);
+      File temporary = new File(directory, journal.getName() + ".tmp");
+      try {
+         Files.createParentDirs(journal);
+         write(temporary, "upload " + uploadId + "\nsize " + contentLength + "\npartSize " + partSize
+               + "\nfingerprint " + fingerprint + "\n", false);
+         Files.move(temporary, journal);
+      } catch (IOException e) {
+         temporary.delete();
+         throw Throwables.propagate(e);
+      }
+   }
+
+   @Override
+   public synchronized void partUploaded(String key, MultipartPart part) {
+      File journal = journalFile(key);
+      if (!journal.isFile())
+         throw new IllegalStateException("no upload recorded for " + key);
+      try {
+         truncateToLastLine(journal);
+         write(journal, "part " + part.partNumber() + " " + part.partSize() + " " + part.partETag() + "\n", true);
+      } catch (IOException e) {
+         throw Throwables.propagate(e);
+      }
+   }
+
+   @Override
+   public synchronized Entry get(String key) {
+      File journal = journalFile(key);
+      if (!journal.isFile())
+         return null;
+      String content;
+      try {
+         content = Files.toString(journal, Charsets.UTF_8);
+      } catch (IOException e) {
+         throw Throwables.propagate(e);
+      }
+      // only a line ending with a newline was written completely
+      int complete = content.lastIndexOf('\n') + 1;
+      if (complete < content.length())
+         logger.debug("ignoring truncated line in journal %s: %s", journal, content.substring(complete));
+      List<String> lines = Splitter.on('\n').omitEmptyStrings().splitToList(content.substring(0, complete));
+      String uploadId = null;
+      long contentLength = -1;
+      long partSize = -1;
+      String fingerprint = null;
+      // keyed by part number, so a part recorded twice keeps its latest ETag
+      Map<Integer, MultipartPart> parts = Maps.newLinkedHashMap();
+      for (String line : lines) {
+         String[] fields = line.split(" ", 4);
+         try {
+            if (fields[0].equals("upload") && fields.length == 2) {
+               uploadId = fields[1];
+            } else if (fields[0].equals("size") && fields.length == 2) {
+               contentLength = Long.parseLong(fields[1]);
+            } else if (fields[0].equals("partSize") && fields.length == 2) {
+               partSize = Long.parseLong(fields[1]);
+            } else if (fields[0].equals("fingerprint") && fields.length == 2) {
+               fingerprint = fields[1];
+            } else if (fields[0].equals("part") && fields.length == 4) {
+               int partNumber = Integer.parseInt(fields[1]);
+               parts.put(partNumber, MultipartPart.create(partNumber, Long.parseLong(fields[2]), fields[3]));
+            } else {
+               logger.debug("ignoring malformed line in journal %s: %s", journal, line);
+            }
+         } catch (NumberFormatException e) {
+            logger.debug("ignoring malformed line in journal %s: %s", journal, line);
+         }
+      }
+      if (uploadId == null || contentLength < 0 || partSize <= 0) {
+         logger.warn("ignoring incomplete journal %s", journal);
+         return null;
+      }
+      return new Entry(uploadId, contentLength, partSize, fingerprint, parts.values());
+   }
+
+   @Override
+   public synchronized void remove(String key) {
+      File journal = journalFile(key);
+      if (journal.exists() && !journal.delete())
+         logger.warn("could not delete journal %s", journal);
+   }
+
+   @VisibleForTesting
+   File journalFile(String key) {
+      return new File(directory, Hashing.sha256().hashString(checkNotNull(key, "key"), Charsets.UTF_8) + ".journal");
+   }
+
+   /**
+    * Drops a line truncated by a crash, so the next line appended is not joined to it.
+    */
+   private static void truncateToLastLine(File file) throws IOException {
+      RandomAccessFile raf = new RandomAccessFile(file, "rw");
+      try {
+         long length = raf.length();
+         long end = length;
+         for (; end > 0; end--) {
+            raf.seek(end - 1);
+            if (raf.read() == '\n')
+               break;
+         }
+         if (end < length)
+            raf.setLength(end);
+      } finally {
+         Closeables.close(raf, true);
+      }
+   }
+
+   private static void write(File file, String content, boolean append) throws IOException {
+      FileOutputStream out = new FileOutputStream(file, append);
+      try {
+         out.write(content.getBytes(Charsets.UTF_8));
+         out.getFD().sync();
+      } finally {
+         Closeables.close(out, true);
+      }
+   }
+}
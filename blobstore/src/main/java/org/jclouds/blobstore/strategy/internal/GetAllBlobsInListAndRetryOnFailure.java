@@ -18,6 +18,7 @@ package org.jclouds.blobstore.strategy.internal;
 
 import static org.jclouds.concurrent.FutureIterables.transformParallel;
 
+import java.net.URI;
 import java.util.concurrent.Callable;
 
 import javax.annotation.Resource;
@@ -32,10 +33,13 @@ import org.jclouds.blobstore.options.ListContainerOptions;
 import org.jclouds.blobstore.reference.BlobStoreConstants;
 import org.jclouds.blobstore.strategy.GetBlobsInListStrategy;
 import org.jclouds.blobstore.strategy.ListBlobsInContainer;
+import org.jclouds.concurrent.ExecutorStrategy;
 import org.jclouds.http.handlers.BackoffLimitedRetryHandler;
+import org.jclouds.location.Provider;
 import org.jclouds.logging.Logger;
 
 import com.google.common.base.Function;
+import com.google.common.base.Supplier;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.inject.Inject;
@@ -51,6 +55,8 @@ public class GetAllBlobsInListAndRetryOnFailure implements GetBlobsInListStrateg
    protected final BackoffLimitedRetryHandler retryHandler;
    protected final BlobStore blobstore;
    protected final ListeningExecutorService userExecutor;
+   protected final ExecutorStrategy executors;
+   protected final Supplier<URI> endpoint;
    @Resource
    @Named(BlobStoreConstants.BLOBSTORE_LOGGER)
    protected Logger logger = Logger.NULL;
@@ -63,8 +69,11 @@ public class GetAllBlobsInListAndRetryOnFailure implements GetBlobsInListStrateg
 
    @Inject
    GetAllBlobsInListAndRetryOnFailure(@Named(Constants.PROPERTY_USER_THREADS) ListeningExecutorService userExecutor,
-            ListBlobsInContainer getAllBlobMetadata, BlobStore blobstore, BackoffLimitedRetryHandler retryHandler) {
+            ListBlobsInContainer getAllBlobMetadata, BlobStore blobstore, BackoffLimitedRetryHandler retryHandler,
+            ExecutorStrategy executors, @Provider Supplier<URI> endpoint) {
       this.userExecutor = userExecutor;
+      this.executors = executors;
+      this.endpoint = endpoint;
       this.blobstore = blobstore;
       this.getAllBlobMetadata = getAllBlobMetadata;
       this.retryHandler = retryHandler;
@@ -72,11 +81,12 @@ public class GetAllBlobsInListAndRetryOnFailure implements GetBlobsInListStrateg
 
    public Iterable<Blob> execute(final String container, ListContainerOptions options) {
       Iterable<? extends BlobMetadata> list = getAllBlobMetadata.execute(container, options);
+      final ListeningExecutorService executor = executors.executorFor(String.valueOf(endpoint.get().getHost()));
       return transformParallel(list, new Function<BlobMetadata, ListenableFuture<? extends Blob>>() {
 
          @Override
          public ListenableFuture<Blob> apply(final BlobMetadata from) {
-            return userExecutor.submit(new Callable<Blob>() {
+            return executor.submit(new Callable<Blob>() {
                @Override public Blob call() throws Exception {
                   return blobstore.getBlob(container, from.getName());
                }
@@ -0,0 +1,500 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.blobstore.strategy.internal;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.Resource;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.jclouds.Constants;
+import org.jclouds.Context;
+import org.jclouds.blobstore.BlobStore;
+import org.jclouds.blobstore.domain.Blob;
+import org.jclouds.blobstore.domain.MultipartPart;
+import org.jclouds.blobstore.domain.MultipartUpload;
+import org.jclouds.blobstore.reference.BlobStoreConstants;
+import org.jclouds.blobstore.strategy.MultipartUploadJournal;
+import org.jclouds.concurrent.ExecutorStrategy;
+import org.jclouds.http.handlers.BackoffLimitedRetryHandler;
+import org.jclouds.io.Payload;
+import org.jclouds.io.PayloadSlicer;
+import org.jclouds.javax.annotation.Nullable;
+import org.jclouds.location.Provider;
+import org.jclouds.logging.Logger;
+import org.jclouds.rest.ResourceNotFoundException;
+import org.jclouds.util.Closeables2;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Supplier;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.hash.Hashing;
+import com.google.common.hash.HashingInputStream;
+import com.google.common.io.BaseEncoding;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.inject.Inject;
+
+/**
+ * Uploads a blob as a multipart upload through the {@link BlobStore} multipart methods, so that any provider which
+ * implements them can upload large blobs in parallel.
+ * <p/>
+ * The payload is sliced into parts of {@link BlobStoreConstants#PROPERTY_MULTIPART_PART_SIZE}, adjusted to the part
+ * size limits and maximum number of parts of the provider. Up to {@link BlobStoreConstants#PROPERTY_MULTIPART_PARALLELISM}
+ * parts are uploaded concurrently, and a part which fails is sliced and uploaded again, with exponential backoff, up
+ * to {@link Constants#PROPERTY_MAX_RETRIES} times. If a part still fails, the upload is aborted.
+ * <p/>
+ * Parts are submitted to the {@link ExecutorStrategy executor} for the endpoint host of the store. A part the executor
+ * has not started, or rejects, by the time the caller would wait for it is uploaded by the caller itself, so that an
+ * upload started from a user thread cannot wait forever on parts queued behind it on a saturated executor.
+ * <p/>
+ * Payloads which are not repeatable can only be read once, so their parts are uploaded one at a time and not
+ * retried.
+ * <p/>
+ * {@link #resume} records the upload in a {@link MultipartUploadJournal} instead of aborting it on failure, so that
+ * calling it again with the same payload, even from another process, uploads only the parts which are missing.
+ */
+@Singleton
+public class PutBlobInParallelParts {
+   @Resource
+   @Named(BlobStoreConstants.BLOBSTORE_LOGGER)
+   protected Logger logger = Logger.NULL;
+
+   private final PayloadSlicer slicer;
+   private final ExecutorStrategy executors;
+   private final Supplier<URI> endpoint;
+   private final BackoffLimitedRetryHandler retryHandler;
+   private final MultipartUploadJournal journal;
+
+   /** Preferred part size in bytes. */
+   protected long partSize = 32 * 1024 * 1024;
+
+   /** Maximum parts in flight. */
+   protected int parallelism = 4;
+
+   /** Maximum times to attempt uploading a part. */
+   protected int maxErrors = 5;
+
+   @Inject
+   PutBlobInParallelParts(PayloadSlicer slicer, ExecutorStrategy executors, @Provider Supplier<URI> endpoint,
+         BackoffLimitedRetryHandler retryHandler, MultipartUploadJournal journal) {
+      this.slicer = checkNotNull(slicer, "slicer");
+      this.executors = checkNotNull(executors, "executors");
+      this.endpoint = checkNotNull(endpoint, "endpoint");
+      this.retryHandler = checkNotNull(retryHandler, "retryHandler");
+      this.journal = checkNotNull(journal, "journal");
+   }
+
+   @Inject(optional = true)
+   void setPartSize(@Named(BlobStoreConstants.PROPERTY_MULTIPART_PART_SIZE) long partSize) {
+      this.partSize = partSize;
+   }
+
+   @Inject(optional = true)
+   void setParallelism(@Named(BlobStoreConstants.PROPERTY_MULTIPART_PARALLELISM) int parallelism) {
+      this.parallelism = Math.max(1, parallelism);
+   }
+
+   @Inject(optional = true)
+   void setMaxErrors(@Named(Constants.PROPERTY_MAX_RETRIES) int maxErrors) {
+      this.maxErrors = Math.max(1, maxErrors);
+   }
+
+   /**
+    * Uploads the blob in parts, blocking until the upload has completed or been aborted.
+    * 
+    * @return the ETag of the completed blob
+    */
+   public String execute(BlobStore blobStore, String container, Blob blob) {
+      checkNotNull(blobStore, "blobStore");
+      checkNotNull(container, "container");
+      Payload payload = checkNotNull(blob, "blob").getPayload();
+      Long contentLength = checkNotNull(payload, "payload").getContentMetadata().getContentLength();
+      checkArgument(contentLength != null, "multipart uploads require the content length of blob %s",
+            blob.getMetadata().getName());
+      long size = partSize(blobStore, contentLength);
+
+      MultipartUpload mpu = blobStore.initiateMultipartUpload(container, blob.getMetadata());
+      List<MultipartPart> parts;
+      try {
+         if (payload.isRepeatable()) {
+            parts = uploadInParallel(blobStore, mpu, payload, contentLength, size,
+                  Maps.<Integer, MultipartPart> newHashMap(), null);
+         } else {
+            parts = uploadInSequence(blobStore, mpu, payload, size);
+         }
+      } catch (RuntimeException e) {
+         abort(blobStore, mpu);
+         throw e;
+      }
+      logger.debug(">> completing multipart upload of %s/%s in %d parts", container, mpu.blobName(), parts.size());
+      return blobStore.completeMultipartUpload(mpu, parts);
+   }
+
+   /**
+    * Uploads the blob in parts, resuming the upload recorded in the journal for the same blob if there is one. Parts
+    * which the provider lists as uploaded are kept and only the missing parts are read from the payload, which must
+    * be repeatable.
+    * <p/>
+    * An upload is only resumed if the payload has the same length and {@link #fingerprint fingerprint} as when it
+    * started; otherwise it is aborted and a new one started.
+    * <p/>
+    * If a part fails, the upload is left in place and the exception is thrown, so the call can be repeated later.
+    * 
+    * @return the ETag of the completed blob
+    */
+   public String resume(BlobStore blobStore, String container, Blob blob) {
+      checkNotNull(blobStore, "blobStore");
+      checkNotNull(container, "container");
+      Payload payload = checkNotNull(blob, "blob").getPayload();
+      String name = blob.getMetadata().getName();
+      Long contentLength = checkNotNull(payload, "payload").getContentMetadata().getContentLength();
+      checkArgument(contentLength != null, "multipart uploads require the content length of blob %s", name);
+      checkArgument(payload.isRepeatable(), "resumable uploads require a repeatable payload for blob %s", name);
+      String key = journalKey(blobStore, container, name);
+
+      MultipartUpload mpu = null;
+      long size = 0;
+      Map<Integer, MultipartPart> uploaded = null;
+      String fingerprint = fingerprint(payload);
+      MultipartUploadJournal.Entry entry = journal.get(key);
+      if (entry != null) {
+         MultipartUpload previous = MultipartUpload.create(container, name, entry.uploadId(), blob.getMetadata());
+         if (entry.contentLength() == contentLength && fingerprint.equals(entry.fingerprint())) {
+            uploaded = reconcile(blobStore, previous, entry);
+         } else {
+            logger.debug(">> abandoning multipart upload %s of %s/%s with different content", entry.uploadId(),
+                  container, name);
+            abort(blobStore, previous);
+         }
+         if (uploaded != null) {
+            mpu = previous;
+            size = entry.partSize();
+            logger.debug(">> resuming multipart upload %s of %s/%s with %d parts uploaded", mpu.id(), container,
+                  name, uploaded.size());
+         }
+      }
+      if (mpu == null) {
+         size = partSize(blobStore, contentLength);
+         mpu = blobStore.initiateMultipartUpload(container, blob.getMetadata());
+         uploaded = Maps.newHashMap();
+         try {
+            journal.begin(key, mpu.id(), contentLength, size, fingerprint);
+         } catch (RuntimeException e) {
+            abort(blobStore, mpu);
+            throw e;
+         }
+      }
+
+      List<MultipartPart> parts = uploadInParallel(blobStore, mpu, payload, contentLength, size, uploaded, key);
+      logger.debug(">> completing multipart upload of %s/%s in %d parts", container, name, parts.size());
+      String eTag = blobStore.completeMultipartUpload(mpu, parts);
+      journal.remove(key);
+      return eTag;
+   }
+
+   /**
+    * Identifies the upload of a blob in the journal, across the providers and accounts sharing it.
+    */
+   @VisibleForTesting
+   static String journalKey(BlobStore blobStore, String container, String name) {
+      Context context = blobStore.getContext().unwrap();
+      return context.getProviderMetadata().getId() + " " + context.getProviderMetadata().getEndpoint() + " "
+            + context.getIdentity() + " " + container + "/" + name;
+   }
+
+   /**
+    * Identifies the content of a payload: its Content-MD5 if set, the modification time of a file, or else the MD5 of
+    * the content, which reads the payload once more.
+    */
+   @VisibleForTesting
+   static String fingerprint(Payload payload) {
+      byte[] md5 = payload.getContentMetadata().getContentMD5();
+      if (md5 != null)
+         return "md5:" + BaseEncoding.base16().lowerCase().encode(md5);
+      if (payload.getRawContent() instanceof File)
+         return "mtime:" + ((File) payload.getRawContent()).lastModified();
+      InputStream in = null;
+      try {
+         in = payload.openStream();
+         HashingInputStream hashing = new HashingInputStream(Hashing.md5(), in);
+         ByteStreams.copy(hashing, ByteStreams.nullOutputStream());
+         return "md5:" + hashing.hash();
+      } catch (IOException e) {
+         throw Throwables.propagate(e);
+      } finally {
+         Closeables2.closeQuietly(in);
+      }
+   }
+
+   /**
+    * The parts of a recorded upload which can be kept, keyed by part number, or null if the upload no longer exists.
+    * Parts listed by the provider are trusted over the journal, which misses parts in flight when the process
+    * stopped; the journal is only used when the provider cannot list parts, and for parts numbered above the last
+    * listed one, which a listing truncated to its first page leaves out.
+    */
+   @Nullable
+   private Map<Integer, MultipartPart> reconcile(BlobStore blobStore, MultipartUpload mpu,
+         MultipartUploadJournal.Entry entry) {
+      List<MultipartPart> listed;
+      try {
+         listed = merge(blobStore.listMultipartUpload(mpu), entry.parts());
+      } catch (UnsupportedOperationException e) {
+         listed = entry.parts();
+      } catch (ResourceNotFoundException e) {
+         logger.debug("<< multipart upload %s of %s/%s no longer exists", mpu.id(), mpu.containerName(),
+               mpu.blobName());
+         return null;
+      }
+      long partCount = Math.max(1, divideRoundingUp(entry.contentLength(), entry.partSize()));
+      Map<Integer, MultipartPart> parts = Maps.newHashMap();
+      for (MultipartPart part : listed) {
+         if (part.partNumber() < 1 || part.partNumber() > partCount)
+            continue;
+         long expectedSize = Math.min(entry.partSize(), entry.contentLength() - (part.partNumber() - 1)
+               * entry.partSize());
+         // providers which do not report the size of parts report -1
+         if (part.partSize() != -1 && part.partSize() != expectedSize)
+            continue;
+         parts.put(part.partNumber(), part);
+      }
+      return parts;
+   }
+
+   private static List<MultipartPart> merge(List<MultipartPart> listed, List<MultipartPart> journaled) {
+      if (listed.isEmpty())
+         return listed;
+      int last = 0;
+      for (MultipartPart part : listed)
+         last = Math.max(last, part.partNumber());
+      List<MultipartPart> merged = Lists.newArrayList(listed);
+      for (MultipartPart part : journaled) {
+         if (part.partNumber() > last)
+            merged.add(part);
+      }
+      return merged;
+   }
+
+   /**
+    * The preferred part size, raised so the blob fits in the maximum number of parts and clamped to the limits of the
+    * provider.
+    */
+   @VisibleForTesting
+   long partSize(BlobStore blobStore, long contentLength) {
+      long size = Math.max(partSize, divideRoundingUp(contentLength, blobStore.getMaximumNumberOfParts()));
+      size = Math.min(size, blobStore.getMaximumMultipartPartSize());
+      return Math.max(size, Math.max(1, blobStore.getMinimumMultipartPartSize()));
+   }
+
+   private static long divideRoundingUp(long dividend, long divisor) {
+      return (dividend + divisor - 1) / divisor;
+   }
+
+   /**
+    * Uploads the parts missing from {@code uploaded}, recording each one in the journal under {@code journalKey} if
+    * it is not null.
+    */
+   private List<MultipartPart> uploadInParallel(final BlobStore blobStore, final MultipartUpload mpu,
+         final Payload payload, long contentLength, long size, Map<Integer, MultipartPart> uploaded,
+         @Nullable final String journalKey) {
+      ListeningExecutorService executor = executors.executorFor(String.valueOf(endpoint.get().getHost()));
+      final Semaphore inFlight = new Semaphore(parallelism);
+      final AtomicReference<RuntimeException> failure = new AtomicReference<RuntimeException>();
+      final List<MultipartPart> parts = Collections.synchronizedList(Lists.newArrayList(uploaded.values()));
+      Deque<PartUpload> pending = Lists.newLinkedList();
+      List<ListenableFuture<?>> futures = Lists.newArrayList();
+      try {
+         int partNumber = 1;
+         for (long offset = 0; offset < contentLength || partNumber == 1; offset += size, partNumber++) {
+            if (uploaded.containsKey(partNumber))
+               continue;
+            acquireRunningPending(inFlight, 1, pending);
+            if (failure.get() != null) {
+               inFlight.release();
+               break;
+            }
+            final int number = partNumber;
+            final long partOffset = offset;
+            final long partLength = Math.min(size, contentLength - offset);
+            PartUpload upload = new PartUpload(inFlight) {
+               @Override
+               void upload() {
+                  try {
+                     MultipartPart part = uploadWithRetries(blobStore, mpu, number, payload, partOffset,
+                           partLength);
+                     parts.add(part);
+                     if (journalKey != null)
+                        record(journalKey, part);
+                  } catch (RuntimeException e) {
+                     failure.compareAndSet(null, e);
+                  }
+               }
+
+               @Override
+               public String toString() {
+                  return "uploadMultipartPart(" + mpu.containerName() + "/" + mpu.blobName() + ", " + number + ")";
+               }
+            };
+            pending.addLast(upload);
+            try {
+               futures.add(executor.submit(upload));
+            } catch (RejectedExecutionException e) {
+               logger.debug(">> executor rejected %s; uploading it on the calling thread", upload);
+               upload.run();
+            }
+         }
+         // wait for the parts in flight
+         acquireRunningPending(inFlight, parallelism, pending);
+         inFlight.release(parallelism);
+      } catch (RuntimeException e) {
+         for (PartUpload part : pending)
+            part.skip();
+         for (ListenableFuture<?> future : futures)
+            future.cancel(true);
+         throw e;
+      }
+      if (failure.get() != null)
+         throw failure.get();
+      List<MultipartPart> sorted = Lists.newArrayList(parts);
+      Collections.sort(sorted, BY_PART_NUMBER);
+      return sorted;
+   }
+
+   /**
+    * Acquires permits of parts in flight, uploading parts which the executor has not started yet on the calling
+    * thread rather than waiting for the executor to get to them.
+    */
+   private static void acquireRunningPending(Semaphore inFlight, int permits, Deque<PartUpload> pending) {
+      while (!inFlight.tryAcquire(permits)) {
+         PartUpload part = pending.pollFirst();
+         if (part == null) {
+            acquire(inFlight, permits);
+            return;
+         }
+         part.run();
+      }
+   }
+
+   /**
+    * A part which is uploaded once, by whichever of the executor and the caller gets to it first, and which releases
+    * its permit of the parts in flight when done.
+    */
+   private abstract static class PartUpload implements Runnable {
+      private final Semaphore inFlight;
+      private final AtomicBoolean started = new AtomicBoolean();
+
+      private PartUpload(Semaphore inFlight) {
+         this.inFlight = inFlight;
+      }
+
+      abstract void upload();
+
+      @Override
+      public final void run() {
+         if (!started.compareAndSet(false, true))
+            return;
+         try {
+            upload();
+         } finally {
+            inFlight.release();
+         }
+      }
+
+      final void skip() {
+         if (started.compareAndSet(false, true))
+            inFlight.release();
+      }
+   }
+
+   private void record(String journalKey, MultipartPart part) {
+      try {
+         journal.partUploaded(journalKey, part);
+      } catch (RuntimeException e) {
+         // the part is uploaded regardless; resuming finds it by listing the upload
+         logger.warn(e, "<< could not record part %d in the multipart upload journal", part.partNumber());
+      }
+   }
+
+   private List<MultipartPart> uploadInSequence(BlobStore blobStore, MultipartUpload mpu, Payload payload, long size) {
+      List<MultipartPart> parts = Lists.newArrayList();
+      int partNumber = 1;
+      for (Payload part : slicer.slice(payload, size)) {
+         parts.add(blobStore.uploadMultipartPart(mpu, partNumber++, part));
+      }
+      return parts;
+   }
+
+   @VisibleForTesting
+   MultipartPart uploadWithRetries(BlobStore blobStore, MultipartUpload mpu, int partNumber, Payload payload,
+         long offset, long length) {
+      for (int attempt = 1;; attempt++) {
+         try {
+            return blobStore.uploadMultipartPart(mpu, partNumber, slicer.slice(payload, offset, length));
+         } catch (RuntimeException e) {
+            if (attempt >= maxErrors)
+               throw e;
+            logger.debug("<< error uploading part %d of %s/%s: %s", partNumber, mpu.containerName(), mpu.blobName(),
+                  e.getMessage());
+            retryHandler.imposeBackoffExponentialDelay(attempt, String.format("retrying part %d of %s/%s",
+                  partNumber, mpu.containerName(), mpu.blobName()));
+         }
+      }
+   }
+
+   private static void acquire(Semaphore inFlight, int count) {
+      try {
+         inFlight.acquire(count);
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw Throwables.propagate(e);
+      }
+   }
+
+   private void abort(BlobStore blobStore, MultipartUpload mpu) {
+      try {
+         blobStore.abortMultipartUpload(mpu);
+      } catch (RuntimeException e) {
+         logger.warn(e, "<< could not abort multipart upload of %s/%s", mpu.containerName(), mpu.blobName());
+      }
+   }
+
+   private static final Comparator<MultipartPart> BY_PART_NUMBER = new Comparator<MultipartPart>() {
+      @Override
+      public int compare(MultipartPart left, MultipartPart right) {
+         return left.partNumber() - right.partNumber();
+      }
+   };
+}
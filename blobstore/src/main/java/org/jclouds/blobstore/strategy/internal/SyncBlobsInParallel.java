@@ -0,0 +1,395 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.blobstore.strategy.internal;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
+
+import javax.annotation.Resource;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.jclouds.Constants;
+import org.jclouds.blobstore.BlobStore;
+import org.jclouds.blobstore.domain.PageSet;
+import org.jclouds.blobstore.domain.StorageMetadata;
+import org.jclouds.blobstore.domain.StorageType;
+import org.jclouds.blobstore.options.ListContainerOptions;
+import org.jclouds.blobstore.options.SyncOptions;
+import org.jclouds.blobstore.reference.BlobStoreConstants;
+import org.jclouds.blobstore.util.BlobStoreUtils;
+import org.jclouds.logging.Logger;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
+import com.google.common.collect.PeekingIterator;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.inject.Inject;
+
+/**
+ * Makes the blobs of a target container match those of a source container, in the same or another {@link BlobStore}.
+ * <p/>
+ * Both containers are listed page by page and the listings, which providers return sorted by the UTF-8 bytes of the
+ * names (see {@link BlobStoreUtils#compareNames}), are merge-joined, so memory does not grow with the number of blobs.
+ * A blob missing from the target, or which {@link #differs} from its copy, is copied with
+ * {@link CopyBlobsInParallel#copyBlob}; blobs of the target missing from the source are deleted in batches with
+ * {@link BlobStore#removeBlobs} if {@link SyncOptions#deleteExtraneous()} is set. Up to
+ * {@link BlobStoreConstants#PROPERTY_MAX_PARALLEL_COPIES} copies and deletes are in flight while the listings are
+ * read, and blobs large enough to be copied in parts are copied one at a time by the listing thread.
+ */
+@Singleton
+public class SyncBlobsInParallel {
+   @Resource
+   @Named(BlobStoreConstants.BLOBSTORE_LOGGER)
+   protected Logger logger = Logger.NULL;
+
+   private static final int DELETE_BATCH_SIZE = 1000;
+   private static final Pattern MD5_HEX = Pattern.compile("[0-9a-f]{32}");
+
+   private final CopyBlobsInParallel copyBlobsInParallel;
+   private final ListeningExecutorService userExecutor;
+
+   /** Blobs larger than this are copied in parts by the listing thread. */
+   protected long partSize = 32 * 1024 * 1024;
+
+   /** Maximum copies and deletes in flight. */
+   protected int parallelism = 8;
+
+   @Inject
+   SyncBlobsInParallel(CopyBlobsInParallel copyBlobsInParallel,
+         @Named(Constants.PROPERTY_USER_THREADS) ListeningExecutorService userExecutor) {
+      this.copyBlobsInParallel = checkNotNull(copyBlobsInParallel, "copyBlobsInParallel");
+      this.userExecutor = checkNotNull(userExecutor, "userExecutor");
+   }
+
+   @Inject(optional = true)
+   void setPartSize(@Named(BlobStoreConstants.PROPERTY_MULTIPART_PART_SIZE) long partSize) {
+      this.partSize = partSize;
+   }
+
+   @Inject(optional = true)
+   void setParallelism(@Named(BlobStoreConstants.PROPERTY_MAX_PARALLEL_COPIES) int parallelism) {
+      this.parallelism = Math.max(1, parallelism);
+   }
+
+   /**
+    * The outcome of a synchronization. In a dry run, the blobs which would have been copied or deleted.
+    */
+   public static final class Result {
+      private final long copied;
+      private final long deleted;
+      private final long unchanged;
+
+      Result(long copied, long deleted, long unchanged) {
+         this.copied = copied;
+         this.deleted = deleted;
+         this.unchanged = unchanged;
+      }
+
+      /** Blobs copied because they were missing from the target or differed. */
+      public long copied() {
+         return copied;
+      }
+
+      /** Blobs deleted from the target because they were missing from the source. */
+      public long deleted() {
+         return deleted;
+      }
+
+      /** Blobs found identical in both containers. */
+      public long unchanged() {
+         return unchanged;
+      }
+
+      @Override
+      public String toString() {
+         return "[copied=" + copied + ", deleted=" + deleted + ", unchanged=" + unchanged + "]";
+      }
+   }
+
+   /**
+    * Synchronizes the blobs of {@code toContainer} with those of {@code fromContainer}, blocking until the copies and
+    * deletes have completed. Stops at the first copy or delete which fails, and throws its exception once the ones in
+    * flight have completed.
+    */
+   public Result sync(BlobStore from, String fromContainer, BlobStore to, String toContainer, SyncOptions options) {
+      checkNotNull(from, "from");
+      checkNotNull(fromContainer, "fromContainer");
+      checkNotNull(to, "to");
+      checkNotNull(toContainer, "toContainer");
+      checkNotNull(options, "options");
+      Pipeline pipeline = new Pipeline(from, fromContainer, to, toContainer, options.isDryRun());
+      PeekingIterator<StorageMetadata> source = Iterators.peekingIterator(new BlobListing(from, fromContainer,
+            options.getPrefix()));
+      PeekingIterator<StorageMetadata> target = Iterators.peekingIterator(new BlobListing(to, toContainer,
+            options.getPrefix()));
+      try {
+         while ((source.hasNext() || target.hasNext()) && pipeline.failure.get() == null) {
+            int comparison;
+            if (!target.hasNext()) {
+               comparison = -1;
+            } else if (!source.hasNext()) {
+               comparison = 1;
+            } else {
+               comparison = BlobStoreUtils.compareNames(source.peek().getName(), target.peek().getName());
+            }
+            if (comparison < 0) {
+               pipeline.copy(source.next());
+            } else if (comparison > 0) {
+               StorageMetadata extraneous = target.next();
+               if (options.isDeleteExtraneous())
+                  pipeline.delete(extraneous.getName());
+            } else if (differs(source.peek(), target.next())) {
+               pipeline.copy(source.next());
+            } else {
+               source.next();
+               pipeline.unchanged.incrementAndGet();
+            }
+         }
+      } catch (RuntimeException e) {
+         // a listing failed, finish the copies and deletes in flight before throwing
+         pipeline.failure.compareAndSet(null, e);
+      }
+      return pipeline.finish();
+   }
+
+   /**
+    * Whether a blob of the target must be replaced by the blob of the source with the same name. Blobs differ when
+    * their sizes differ, or when their ETags are both MD5 digests and differ. ETags which are not comparable, such as
+    * those of multipart uploads or of different providers, fall back to copying blobs modified in the source since
+    * they were modified in the target.
+    */
+   @VisibleForTesting
+   static boolean differs(StorageMetadata source, StorageMetadata target) {
+      Long sourceSize = source.getSize();
+      Long targetSize = target.getSize();
+      if (sourceSize != null && targetSize != null && !sourceSize.equals(targetSize))
+         return true;
+      String sourceETag = normalizeETag(source.getETag());
+      String targetETag = normalizeETag(target.getETag());
+      if (sourceETag != null && targetETag != null) {
+         if (sourceETag.equals(targetETag))
+            return false;
+         if (MD5_HEX.matcher(sourceETag).matches() && MD5_HEX.matcher(targetETag).matches())
+            return true;
+      }
+      Date sourceLastModified = source.getLastModified();
+      Date targetLastModified = target.getLastModified();
+      if (sourceLastModified != null && targetLastModified != null)
+         return sourceLastModified.after(targetLastModified);
+      return true;
+   }
+
+   private static String normalizeETag(String eTag) {
+      if (eTag == null)
+         return null;
+      if (eTag.length() >= 2 && eTag.startsWith("\"") && eTag.endsWith("\""))
+         eTag = eTag.substring(1, eTag.length() - 1);
+      return eTag.toLowerCase();
+   }
+
+   private static void acquire(Semaphore inFlight, int count) {
+      try {
+         inFlight.acquire(count);
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw Throwables.propagate(e);
+      }
+   }
+
+   /** Runs the copies and deletes of one synchronization, bounded by {@link #parallelism}. */
+   private final class Pipeline {
+      private final BlobStore from;
+      private final String fromContainer;
+      private final BlobStore to;
+      private final String toContainer;
+      private final boolean dryRun;
+      private final Semaphore inFlight = new Semaphore(parallelism);
+      private final AtomicReference<RuntimeException> failure = new AtomicReference<RuntimeException>();
+      private final AtomicLong copied = new AtomicLong();
+      private final AtomicLong deleted = new AtomicLong();
+      private final AtomicLong unchanged = new AtomicLong();
+      private List<String> deletes = Lists.newArrayList();
+
+      Pipeline(BlobStore from, String fromContainer, BlobStore to, String toContainer, boolean dryRun) {
+         this.from = from;
+         this.fromContainer = fromContainer;
+         this.to = to;
+         this.toContainer = toContainer;
+         this.dryRun = dryRun;
+      }
+
+      void copy(StorageMetadata metadata) {
+         final String name = metadata.getName();
+         if (dryRun) {
+            logger.debug(">> would copy %s/%s to %s/%s", fromContainer, name, toContainer, name);
+            copied.incrementAndGet();
+            return;
+         }
+         Long size = metadata.getSize();
+         if (size != null && size > partSize) {
+            try {
+               copyBlobsInParallel.copyBlob(from, fromContainer, name, to, toContainer, name);
+               copied.incrementAndGet();
+            } catch (RuntimeException e) {
+               failure.compareAndSet(null, e);
+            }
+            return;
+         }
+         submit(new Runnable() {
+            @Override
+            public void run() {
+               copyBlobsInParallel.copyBlob(from, fromContainer, name, to, toContainer, name);
+               copied.incrementAndGet();
+            }
+
+            @Override
+            public String toString() {
+               return "copyBlob(" + fromContainer + "/" + name + ", " + toContainer + "/" + name + ")";
+            }
+         });
+      }
+
+      void delete(String name) {
+         if (dryRun) {
+            logger.debug(">> would delete %s/%s", toContainer, name);
+            deleted.incrementAndGet();
+            return;
+         }
+         deletes.add(name);
+         if (deletes.size() >= DELETE_BATCH_SIZE)
+            flushDeletes();
+      }
+
+      private void flushDeletes() {
+         if (deletes.isEmpty())
+            return;
+         final List<String> names = deletes;
+         deletes = Lists.newArrayList();
+         submit(new Runnable() {
+            @Override
+            public void run() {
+               to.removeBlobs(toContainer, names);
+               deleted.addAndGet(names.size());
+            }
+
+            @Override
+            public String toString() {
+               return "removeBlobs(" + toContainer + ", " + names.size() + " blobs)";
+            }
+         });
+      }
+
+      private void submit(final Runnable task) {
+         acquire(inFlight, 1);
+         try {
+            userExecutor.execute(new Runnable() {
+               @Override
+               public void run() {
+                  try {
+                     task.run();
+                  } catch (RuntimeException e) {
+                     failure.compareAndSet(null, e);
+                  } finally {
+                     inFlight.release();
+                  }
+               }
+
+               @Override
+               public String toString() {
+                  return task.toString();
+               }
+            });
+         } catch (RejectedExecutionException e) {
+            inFlight.release();
+            failure.compareAndSet(null, e);
+         }
+      }
+
+      Result finish() {
+         if (failure.get() == null)
+            flushDeletes();
+         // wait for the copies and deletes in flight
+         acquire(inFlight, parallelism);
+         inFlight.release(parallelism);
+         if (failure.get() != null)
+            throw failure.get();
+         Result result = new Result(copied.get(), deleted.get(), unchanged.get());
+         logger.debug("<< synchronized %s with %s%s: %s", toContainer, fromContainer, dryRun ? " (dry run)" : "",
+               result);
+         return result;
+      }
+   }
+
+   /**
+    * The blobs of a container whose name starts with a prefix, in name order, listed a page at a time.
+    */
+   private static final class BlobListing extends AbstractIterator<StorageMetadata> {
+      private final BlobStore blobStore;
+      private final String container;
+      private final String prefix;
+      private final ListContainerOptions options = ListContainerOptions.Builder.recursive();
+      private Iterator<? extends StorageMetadata> page;
+      private String nextMarker;
+      private String previousName;
+
+      BlobListing(BlobStore blobStore, String container, String prefix) {
+         this.blobStore = blobStore;
+         this.container = container;
+         this.prefix = prefix;
+         // listings are narrowed by directory, the rest of the prefix is matched here
+         int directoryEnd = prefix.lastIndexOf('/');
+         if (directoryEnd > 0)
+            options.inDirectory(prefix.substring(0, directoryEnd));
+      }
+
+      @Override
+      protected StorageMetadata computeNext() {
+         while (true) {
+            if (page == null || !page.hasNext()) {
+               if (page != null && nextMarker == null)
+                  return endOfData();
+               if (nextMarker != null)
+                  options.afterMarker(nextMarker);
+               PageSet<? extends StorageMetadata> pageSet = blobStore.list(container, options);
+               nextMarker = pageSet.getNextMarker();
+               page = pageSet.iterator();
+               continue;
+            }
+            StorageMetadata metadata = page.next();
+            if (metadata.getType() != StorageType.BLOB || !metadata.getName().startsWith(prefix))
+               continue;
+            if (previousName != null && BlobStoreUtils.compareNames(metadata.getName(), previousName) <= 0)
+               throw new IllegalStateException(String.format("listing of %s is not sorted by name: %s after %s",
+                     container, metadata.getName(), previousName));
+            previousName = metadata.getName();
+            return metadata;
+         }
+      }
+   }
+}
@@ -17,6 +17,7 @@
 package org.jclouds.blobstore.util;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.io.BaseEncoding.base16;
 
 import java.util.List;
 import java.util.Map;
@@ -30,6 +31,9 @@ import org.jclouds.http.HttpRequestFilter;
 import org.jclouds.rest.internal.GeneratedHttpRequest;
 
 import com.google.common.collect.Maps;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 
 public class BlobStoreUtils {
    public static <T> HttpRequest cleanRequest(HttpRequest returnVal) {
@@ -78,6 +82,18 @@ public class BlobStoreUtils {
       return newMd;
    }
 
+   /**
+    * The ETag S3 reports for a completed multipart upload: the MD5 of the concatenated MD5s of the parts, followed by
+    * a dash and the number of parts.
+    */
+   public static String multipartETag(List<HashCode> partMd5s) {
+      Hasher hasher = Hashing.md5().newHasher();
+      for (HashCode partMd5 : partMd5s) {
+         hasher.putBytes(partMd5.asBytes());
+      }
+      return base16().lowerCase().encode(hasher.hash().asBytes()) + "-" + partMd5s.size();
+   }
+
    private static void convertUserMetadataKeysToLowercase(MutableBlobMetadata metadata) {
       Map<String, String> lowerCaseUserMetadata = Maps.newHashMap();
       for (Map.Entry<String, String> entry : metadata.getUserMetadata().entrySet()) {
@@ -85,4 +101,28 @@ public class BlobStoreUtils {
       }
       metadata.setUserMetadata(lowerCaseUserMetadata);
    }
+
+   /**
+    * Compares blob names in the order of their UTF-8 bytes, which is the order of their code points and the order
+    * providers list blobs in. Unlike {@link String#compareTo}, which compares UTF-16 chars, this puts names with
+    * characters outside the Basic Multilingual Plane after those with characters from U+E000 to U+FFFF.
+    */
+   public static int compareNames(String left, String right) {
+      int length = Math.min(left.length(), right.length());
+      for (int i = 0; i < length; i++) {
+         char l = left.charAt(i);
+         char r = right.charAt(i);
+         if (l != r) {
+            // surrogates encode code points above every other char
+            if (isSurrogate(l) != isSurrogate(r))
+               return isSurrogate(l) ? 1 : -1;
+            return l - r;
+         }
+      }
+      return left.length() - right.length();
+   }
+
+   private static boolean isSurrogate(char c) {
+      return Character.isHighSurrogate(c) || Character.isLowSurrogate(c);
+   }
 }
@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds;
+
+import static org.jclouds.Constants.PROPERTY_USER_THREADS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.concurrent.Executors;
+
+import org.jclouds.blobstore.BlobStoreContext;
+import org.jclouds.domain.Credentials;
+import org.jclouds.lifecycle.Closer;
+import org.jclouds.location.Provider;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Supplier;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.inject.Key;
+import com.google.inject.TypeLiteral;
+import com.google.inject.name.Names;
+
+@Test(groups = "unit", testName = "ContextPoolTest")
+public class ContextPoolTest {
+
+   private static ListeningExecutorService userExecutor(BlobStoreContext context) {
+      return context.utils().injector().getInstance(
+            Key.get(ListeningExecutorService.class, Names.named(PROPERTY_USER_THREADS)));
+   }
+
+   public void testViewsAreCachedPerCredentials() {
+      ContextPool<BlobStoreContext> pool = new ContextPool<BlobStoreContext>(ContextBuilder.newBuilder("transient"),
+            BlobStoreContext.class, 10, 60000);
+      try {
+         BlobStoreContext first = pool.lease("alice", "secret").get();
+         assertSame(pool.lease("alice", "secret").get(), first);
+         assertNotSame(pool.lease("bob", "secret").get(), first);
+         assertNotSame(pool.lease("alice", "other").get(), first);
+         assertEquals(pool.size(), 3);
+      } finally {
+         pool.close();
+      }
+   }
+
+   public void testViewsUseCredentials() {
+      ContextPool<BlobStoreContext> pool = new ContextPool<BlobStoreContext>(ContextBuilder.newBuilder("transient")
+            .credentials("ignored", "ignored"), BlobStoreContext.class, 10, 60000);
+      try {
+         Credentials creds = pool.lease("alice", "secret").get().utils().injector()
+               .getInstance(Key.get(new TypeLiteral<Supplier<Credentials>>() {
+               }, Provider.class)).get();
+         assertEquals(creds, new Credentials("alice", "secret"));
+      } finally {
+         pool.close();
+      }
+   }
+
+   public void testViewsShareUserExecutorUntilPoolIsClosed() {
+      ListeningExecutorService executor = MoreExecutors.listeningDecorator(Executors.newCachedThreadPool());
+      ContextPool<BlobStoreContext> pool = new ContextPool<BlobStoreContext>(ContextBuilder.newBuilder("transient"),
+            BlobStoreContext.class, 10, 60000, executor);
+      try {
+         ContextPool.Lease<BlobStoreContext> alice = pool.lease("alice", "secret");
+         BlobStoreContext bob = pool.lease("bob", "secret").get();
+
+         BlobStoreContext aliceView = alice.get();
+         alice.close();
+         pool.invalidate("alice", "secret");
+         assertEquals(pool.size(), 1);
+         assertEquals(closer(aliceView).getState(), Closer.State.DONE);
+         assertFalse(userExecutor(aliceView).isShutdown());
+         assertFalse(executor.isShutdown());
+         assertTrue(bob.getBlobStore().createContainerInLocation(null, "container"));
+      } finally {
+         pool.close();
+      }
+      assertEquals(pool.size(), 0);
+      assertTrue(executor.isShutdown());
+   }
+
+   public void testLeastRecentlyUsedViewsAreReplacedWhenFull() {
+      ContextPool<BlobStoreContext> pool = new ContextPool<BlobStoreContext>(ContextBuilder.newBuilder("transient"),
+            BlobStoreContext.class, 1, 60000);
+      try {
+         ContextPool.Lease<BlobStoreContext> alice = pool.lease("alice", "secret");
+         BlobStoreContext aliceView = alice.get();
+         alice.close();
+         pool.lease("bob", "secret").close();
+         assertEquals(pool.size(), 1);
+         assertNotSame(pool.lease("alice", "secret").get(), aliceView);
+      } finally {
+         pool.close();
+      }
+   }
+
+   public void testEvictedViewsStayOpenUntilTheirLeasesAreClosed() {
+      ContextPool<BlobStoreContext> pool = new ContextPool<BlobStoreContext>(ContextBuilder.newBuilder("transient"),
+            BlobStoreContext.class, 1, 60000);
+      try {
+         ContextPool.Lease<BlobStoreContext> alice = pool.lease("alice", "secret");
+         Closer closer = closer(alice.get());
+         pool.lease("bob", "secret").close();
+         assertEquals(pool.size(), 1);
+
+         assertEquals(closer.getState(), Closer.State.AVAILABLE);
+         assertTrue(alice.get().getBlobStore().createContainerInLocation(null, "container"));
+
+         alice.close();
+         assertEquals(closer.getState(), Closer.State.DONE);
+      } finally {
+         pool.close();
+      }
+   }
+
+   public void testInvalidatedViewsStayOpenUntilTheirLeasesAreClosed() {
+      ContextPool<BlobStoreContext> pool = new ContextPool<BlobStoreContext>(ContextBuilder.newBuilder("transient"),
+            BlobStoreContext.class, 10, 60000);
+      try {
+         ContextPool.Lease<BlobStoreContext> first = pool.lease("alice", "secret");
+         ContextPool.Lease<BlobStoreContext> second = pool.lease("alice", "secret");
+         Closer closer = closer(first.get());
+         pool.invalidate("alice", "secret");
+
+         first.close();
+         first.close();
+         assertEquals(closer.getState(), Closer.State.AVAILABLE);
+         second.close();
+         assertEquals(closer.getState(), Closer.State.DONE);
+      } finally {
+         pool.close();
+      }
+   }
+
+   public void testClosingThePoolClosesLeasedViews() {
+      ContextPool<BlobStoreContext> pool = new ContextPool<BlobStoreContext>(ContextBuilder.newBuilder("transient"),
+            BlobStoreContext.class, 10, 60000);
+      ContextPool.Lease<BlobStoreContext> alice = pool.lease("alice", "secret");
+      Closer closer = closer(alice.get());
+      pool.close();
+      assertEquals(closer.getState(), Closer.State.DONE);
+      alice.close();
+   }
+
+   public void testClosedPoolHandsOutNoLeases() {
+      ContextPool<BlobStoreContext> pool = new ContextPool<BlobStoreContext>(ContextBuilder.newBuilder("transient"),
+            BlobStoreContext.class, 10, 60000);
+      pool.lease("alice", "secret").close();
+      pool.close();
+      try {
+         pool.lease("alice", "secret");
+         fail("expected the closed pool to refuse leases");
+      } catch (IllegalStateException expected) {
+      }
+      assertEquals(pool.size(), 0);
+      pool.close();
+   }
+
+   private static Closer closer(BlobStoreContext context) {
+      return context.utils().injector().getInstance(Closer.class);
+   }
+}
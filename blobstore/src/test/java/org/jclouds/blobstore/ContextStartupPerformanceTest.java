@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.blobstore;
+
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.jclouds.Constants;
+import org.jclouds.ContextBuilder;
+import org.testng.annotations.Test;
+
+/**
+ * Measures how long it takes to build a {@link BlobStoreContext}, and how many classes the first build loads.
+ */
+@Test(groups = "performance", singleThreaded = true, timeOut = 5 * 60 * 1000, testName = "ContextStartupPerformanceTest")
+public class ContextStartupPerformanceTest {
+   private static final int LOOP_COUNT = 50;
+
+   public void testFirstBuild() {
+      ClassLoadingMXBean classLoading = ManagementFactory.getClassLoadingMXBean();
+      long loadedBefore = classLoading.getTotalLoadedClassCount();
+      long start = System.nanoTime();
+      build(false);
+      System.out.printf("TIMING: first context took %dms and loaded %d classes%n",
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+            classLoading.getTotalLoadedClassCount() - loadedBefore);
+   }
+
+   @Test(dependsOnMethods = "testFirstBuild")
+   public void testEagerSingletons() {
+      report("eager singletons", false);
+   }
+
+   @Test(dependsOnMethods = "testFirstBuild")
+   public void testLazySingletons() {
+      report("lazy singletons", true);
+   }
+
+   private static void report(String strategy, boolean lazySingletons) {
+      long start = System.nanoTime();
+      for (int i = 0; i < LOOP_COUNT; i++)
+         build(lazySingletons);
+      System.out.printf("TIMING: %s took %.1fms per context%n", strategy,
+            (System.nanoTime() - start) / 1000000.0 / LOOP_COUNT);
+   }
+
+   private static void build(boolean lazySingletons) {
+      Properties overrides = new Properties();
+      overrides.setProperty(Constants.PROPERTY_LAZY_SINGLETONS, String.valueOf(lazySingletons));
+      BlobStoreContext context = ContextBuilder.newBuilder("transient").overrides(overrides)
+            .buildView(BlobStoreContext.class);
+      try {
+         context.getBlobStore().containerExists("startup");
+      } finally {
+         context.close();
+      }
+   }
+}
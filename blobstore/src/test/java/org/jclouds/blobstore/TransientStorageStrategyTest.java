@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.blobstore;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.io.InputStream;
+import java.util.Properties;
+
+import org.jclouds.ContextBuilder;
+import org.jclouds.blobstore.domain.Blob;
+import org.jclouds.blobstore.options.CreateContainerOptions;
+import org.jclouds.blobstore.options.GetOptions;
+import org.jclouds.blobstore.reference.TransientConstants;
+import org.jclouds.io.ByteStreams2;
+import org.testng.annotations.Test;
+
+@Test(groups = "unit", testName = "TransientStorageStrategyTest")
+public class TransientStorageStrategyTest {
+   private static final String containerName = "container";
+
+   public void testOffHeapContentRoundTrips() throws Exception {
+      BlobStoreContext context = newContext(true, 0);
+      try {
+         BlobStore blobStore = context.getBlobStore();
+         byte[] content = content(4096);
+         blobStore.putBlob(containerName, blobStore.blobBuilder("blob").payload(content).build());
+
+         Blob blob = blobStore.getBlob(containerName, "blob");
+         assertEquals(ByteStreams2.toByteArrayAndClose(blob.getPayload().openStream()), content);
+         // each read starts from the beginning
+         assertEquals(ByteStreams2.toByteArrayAndClose(blob.getPayload().openStream()), content);
+         assertEquals(blob.getMetadata().getSize(), Long.valueOf(content.length));
+
+         InputStream range = blobStore.getBlob(containerName, "blob", new GetOptions().range(10, 19))
+               .getPayload().openStream();
+         byte[] expected = new byte[10];
+         System.arraycopy(content, 10, expected, 0, 10);
+         assertEquals(ByteStreams2.toByteArrayAndClose(range), expected);
+      } finally {
+         context.close();
+      }
+   }
+
+   public void testLeastRecentlyUsedBlobsAreEvicted() throws Exception {
+      BlobStoreContext context = newContext(true, 300);
+      try {
+         BlobStore blobStore = context.getBlobStore();
+         blobStore.putBlob(containerName, blobStore.blobBuilder("a").payload(content(100)).build());
+         blobStore.putBlob(containerName, blobStore.blobBuilder("b").payload(content(100)).build());
+         blobStore.putBlob(containerName, blobStore.blobBuilder("c").payload(content(100)).build());
+         assertNotNull(blobStore.getBlob(containerName, "a"));
+
+         blobStore.putBlob(containerName, blobStore.blobBuilder("d").payload(content(150)).build());
+
+         assertTrue(blobStore.blobExists(containerName, "a"));
+         assertFalse(blobStore.blobExists(containerName, "b"));
+         assertFalse(blobStore.blobExists(containerName, "c"));
+         assertTrue(blobStore.blobExists(containerName, "d"));
+      } finally {
+         context.close();
+      }
+   }
+
+   public void testRemovedAndReplacedBlobsFreeCapacity() throws Exception {
+      BlobStoreContext context = newContext(false, 200);
+      try {
+         BlobStore blobStore = context.getBlobStore();
+         blobStore.putBlob(containerName, blobStore.blobBuilder("a").payload(content(100)).build());
+         blobStore.putBlob(containerName, blobStore.blobBuilder("a").payload(content(100)).build());
+         blobStore.putBlob(containerName, blobStore.blobBuilder("b").payload(content(100)).build());
+         assertTrue(blobStore.blobExists(containerName, "a"));
+
+         blobStore.removeBlob(containerName, "a");
+         blobStore.putBlob(containerName, blobStore.blobBuilder("c").payload(content(100)).build());
+         assertTrue(blobStore.blobExists(containerName, "b"));
+
+         blobStore.clearContainer(containerName);
+         blobStore.putBlob(containerName, blobStore.blobBuilder("d").payload(content(200)).build());
+         assertTrue(blobStore.blobExists(containerName, "d"));
+      } finally {
+         context.close();
+      }
+   }
+
+   public void testBlobLargerThanCapacityIsRejected() throws Exception {
+      BlobStoreContext context = newContext(false, 100);
+      try {
+         BlobStore blobStore = context.getBlobStore();
+         blobStore.putBlob(containerName, blobStore.blobBuilder("a").payload(content(100)).build());
+         try {
+            blobStore.putBlob(containerName, blobStore.blobBuilder("b").payload(content(101)).build());
+            fail("expected IllegalArgumentException");
+         } catch (IllegalArgumentException expected) {
+         }
+         assertTrue(blobStore.blobExists(containerName, "a"));
+      } finally {
+         context.close();
+      }
+   }
+
+   public void testDeduplicatedBlobsShareContent() throws Exception {
+      Properties overrides = new Properties();
+      overrides.setProperty(TransientConstants.PROPERTY_DEDUPLICATE, "true");
+      BlobStoreContext context = newContext(overrides);
+      try {
+         BlobStore blobStore = context.getBlobStore();
+         ComposingLocalStorageStrategy storageStrategy = (ComposingLocalStorageStrategy) context.utils().injector()
+               .getInstance(LocalStorageStrategy.class);
+         storageStrategy.createContainerInLocation(containerName, null, CreateContainerOptions.NONE);
+         byte[] content = content(100);
+         storageStrategy.putBlob(containerName, blobStore.blobBuilder("a").payload(content).build());
+         storageStrategy.putBlob(containerName, blobStore.blobBuilder("b").payload(content).build());
+         storageStrategy.copyBlob(containerName, "b", containerName,
+               blobStore.blobBuilder("c").payload(new byte[0]).build());
+
+         Object shared = storageStrategy.getBlob(containerName, "a").getPayload().getRawContent();
+         assertSame(storageStrategy.getBlob(containerName, "b").getPayload().getRawContent(), shared);
+         assertSame(storageStrategy.getBlob(containerName, "c").getPayload().getRawContent(), shared);
+
+         storageStrategy.removeBlob(containerName, "a");
+         storageStrategy.removeBlob(containerName, "b");
+         assertEquals(ByteStreams2.toByteArrayAndClose(storageStrategy.getBlob(containerName, "c").getPayload()
+               .openStream()), content);
+         storageStrategy.putBlob(containerName, blobStore.blobBuilder("d").payload(content).build());
+         assertSame(storageStrategy.getBlob(containerName, "d").getPayload().getRawContent(), shared);
+
+         storageStrategy.removeBlob(containerName, "c");
+         storageStrategy.removeBlob(containerName, "d");
+         storageStrategy.putBlob(containerName, blobStore.blobBuilder("e").payload(content).build());
+         assertNotSame(storageStrategy.getBlob(containerName, "e").getPayload().getRawContent(), shared);
+      } finally {
+         context.close();
+      }
+   }
+
+   private static BlobStoreContext newContext(boolean offHeap, long capacity) {
+      Properties overrides = new Properties();
+      overrides.setProperty(TransientConstants.PROPERTY_OFF_HEAP, String.valueOf(offHeap));
+      overrides.setProperty(TransientConstants.PROPERTY_CAPACITY, String.valueOf(capacity));
+      return newContext(overrides);
+   }
+
+   private static BlobStoreContext newContext(Properties overrides) {
+      BlobStoreContext context = ContextBuilder.newBuilder("transient").overrides(overrides)
+            .build(BlobStoreContext.class);
+      context.getBlobStore().createContainerInLocation(null, containerName);
+      return context;
+   }
+
+   private static byte[] content(int length) {
+      byte[] content = new byte[length];
+      for (int i = 0; i < length; i++)
+         content[i] = (byte) (i * 31);
+      return content;
+   }
+}
@@ -0,0 +1,197 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.blobstore.config;
+
+import static com.google.common.io.BaseEncoding.base16;
+import static org.jclouds.blobstore.options.ListContainerOptions.Builder.afterMarker;
+import static org.jclouds.blobstore.options.ListContainerOptions.Builder.maxResults;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Set;
+
+import org.jclouds.ContextBuilder;
+import org.jclouds.blobstore.BlobStore;
+import org.jclouds.blobstore.BlobStoreContext;
+import org.jclouds.blobstore.ComposingLocalStorageStrategy;
+import org.jclouds.blobstore.LocalStorageStrategy;
+import org.jclouds.blobstore.domain.Blob;
+import org.jclouds.blobstore.domain.MultipartPart;
+import org.jclouds.blobstore.domain.MultipartUpload;
+import org.jclouds.blobstore.domain.PageSet;
+import org.jclouds.blobstore.domain.StorageMetadata;
+import org.jclouds.blobstore.options.CopyOptions;
+import org.jclouds.blobstore.strategy.internal.PutBlobInParallelParts;
+import org.jclouds.blobstore.util.BlobStoreUtils;
+import org.jclouds.blobstore.util.BlobUtils;
+import org.jclouds.collect.Memoized;
+import org.jclouds.domain.Location;
+import org.jclouds.io.ByteStreams2;
+import org.jclouds.io.ContentMetadataCodec;
+import org.jclouds.io.Payload;
+import org.jclouds.io.Payloads;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteSource;
+import com.google.common.primitives.Bytes;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.TypeLiteral;
+
+@Test(groups = "unit", testName = "LocalBlobStoreTest")
+public class LocalBlobStoreTest {
+   private static final String containerName = "container";
+   private static final byte[] part1 = "first part".getBytes();
+   private static final byte[] part2 = "second part".getBytes();
+
+   public void testCompletedMultipartUploadHasMultipartETagAndNoContentMD5() throws Exception {
+      BlobStoreContext context = newContext();
+      try {
+         BlobStore blobStore = context.getBlobStore();
+         String eTag = uploadInParts(blobStore);
+
+         String expected = BlobStoreUtils.multipartETag(ImmutableList.of(Hashing.md5().hashBytes(part1),
+               Hashing.md5().hashBytes(part2)));
+         assertEquals(eTag, expected);
+         assertTrue(eTag.matches("[0-9a-f]{32}-2"), eTag);
+
+         Blob blob = blobStore.getBlob(containerName, "blob");
+         assertEquals(blob.getMetadata().getETag(), expected);
+         assertNull(blob.getMetadata().getContentMetadata().getContentMD5AsHashCode());
+         assertEquals(ByteStreams2.toByteArrayAndClose(blob.getPayload().openStream()), Bytes.concat(part1, part2));
+         assertPartsRemoved(blobStore);
+      } finally {
+         context.close();
+      }
+   }
+
+   public void testStrategyWithoutComposingFallsBackToRewriting() throws Exception {
+      BlobStoreContext context = newContext();
+      try {
+         BlobStore blobStore = localBlobStoreWithPlainStrategy(context);
+         blobStore.createContainerInLocation(null, containerName);
+         String eTag = uploadInParts(blobStore);
+
+         byte[] content = Bytes.concat(part1, part2);
+         HashCode md5 = Hashing.md5().hashBytes(content);
+         assertEquals(eTag, base16().lowerCase().encode(md5.asBytes()));
+         Blob blob = blobStore.getBlob(containerName, "blob");
+         assertEquals(blob.getMetadata().getContentMetadata().getContentMD5AsHashCode(), md5);
+         assertEquals(ByteStreams2.toByteArrayAndClose(blob.getPayload().openStream()), content);
+         assertPartsRemoved(blobStore);
+
+         blobStore.copyBlob(containerName, "blob", containerName, "copy", CopyOptions.NONE);
+         assertEquals(ByteStreams2.toByteArrayAndClose(blobStore.getBlob(containerName, "copy").getPayload()
+               .openStream()), content);
+      } finally {
+         context.close();
+      }
+   }
+
+   public void testListingIsSortedByCodePoint() {
+      String privateUse = "\uE000";
+      String replacement = "\uFFFD";
+      String emoji = "\uD83D\uDE00";
+      BlobStoreContext context = newContext();
+      try {
+         BlobStore blobStore = context.getBlobStore();
+         for (String name : ImmutableList.of(emoji, "z", replacement, privateUse, "a")) {
+            blobStore.putBlob(containerName, blobStore.blobBuilder(name).payload(name).build());
+         }
+
+         assertEquals(names(blobStore.list(containerName)), ImmutableList.of("a", "z", privateUse, replacement, emoji));
+
+         PageSet<? extends StorageMetadata> first = blobStore.list(containerName, maxResults(3));
+         assertEquals(names(first), ImmutableList.of("a", "z", privateUse));
+         PageSet<? extends StorageMetadata> second = blobStore.list(containerName,
+               afterMarker(first.getNextMarker()));
+         assertEquals(names(second), ImmutableList.of(replacement, emoji));
+         assertNull(second.getNextMarker());
+      } finally {
+         context.close();
+      }
+   }
+
+   private static List<String> names(Iterable<? extends StorageMetadata> listing) {
+      ImmutableList.Builder<String> names = ImmutableList.builder();
+      for (StorageMetadata metadata : listing) {
+         names.add(metadata.getName());
+      }
+      return names.build();
+   }
+
+   private static String uploadInParts(BlobStore blobStore) {
+      MultipartUpload mpu = blobStore.initiateMultipartUpload(containerName,
+            blobStore.blobBuilder("blob").payload(new byte[0]).build().getMetadata());
+      MultipartPart first = blobStore.uploadMultipartPart(mpu, 1, payload(part1));
+      MultipartPart second = blobStore.uploadMultipartPart(mpu, 2, payload(part2));
+      return blobStore.completeMultipartUpload(mpu, ImmutableList.of(first, second));
+   }
+
+   private static void assertPartsRemoved(BlobStore blobStore) {
+      assertFalse(blobStore.blobExists(containerName, "blob-1"));
+      assertFalse(blobStore.blobExists(containerName, "blob-2"));
+   }
+
+   private static Payload payload(byte[] content) {
+      Payload payload = Payloads.newByteSourcePayload(ByteSource.wrap(content));
+      payload.getContentMetadata().setContentLength((long) content.length);
+      return payload;
+   }
+
+   /**
+    * Builds a blob store over the transient storage strategy, seen only through {@link LocalStorageStrategy}.
+    */
+   private static LocalBlobStore localBlobStoreWithPlainStrategy(BlobStoreContext context) {
+      Injector injector = context.utils().injector();
+      final LocalStorageStrategy delegate = injector.getInstance(LocalStorageStrategy.class);
+      assertTrue(delegate instanceof ComposingLocalStorageStrategy);
+      LocalStorageStrategy plain = (LocalStorageStrategy) Proxy.newProxyInstance(
+            LocalStorageStrategy.class.getClassLoader(), new Class<?>[] { LocalStorageStrategy.class },
+            new InvocationHandler() {
+               @Override
+               public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                  try {
+                     return method.invoke(delegate, args);
+                  } catch (InvocationTargetException e) {
+                     throw e.getCause();
+                  }
+               }
+            });
+      return new LocalBlobStore(context, injector.getInstance(BlobUtils.class),
+            injector.getInstance(Key.get(new TypeLiteral<Supplier<Set<? extends Location>>>() {
+            }, Memoized.class)), injector.getInstance(ContentMetadataCodec.class),
+            injector.getInstance(Blob.Factory.class), plain, injector.getInstance(PutBlobInParallelParts.class));
+   }
+
+   private static BlobStoreContext newContext() {
+      BlobStoreContext context = ContextBuilder.newBuilder("transient").build(BlobStoreContext.class);
+      context.getBlobStore().createContainerInLocation(null, containerName);
+      return context;
+   }
+}
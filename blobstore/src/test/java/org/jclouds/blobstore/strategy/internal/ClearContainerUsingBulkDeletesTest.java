@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.blobstore.strategy.internal;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+
+import org.jclouds.ContextBuilder;
+import org.jclouds.blobstore.BlobStore;
+import org.jclouds.blobstore.BulkDeleteException;
+import org.jclouds.blobstore.options.ListContainerOptions;
+import org.jclouds.blobstore.strategy.BulkDeleteStrategy;
+import org.jclouds.http.handlers.BackoffLimitedRetryHandler;
+import org.jclouds.util.Closeables2;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.inject.Injector;
+
+@Test(groups = "unit", testName = "ClearContainerUsingBulkDeletesTest", singleThreaded = true)
+public class ClearContainerUsingBulkDeletesTest {
+   private static final String containerName = "container";
+   private static final String directoryName = "directory";
+
+   private BlobStore blobstore;
+   private BackoffLimitedRetryHandler retryHandler;
+   private ListeningExecutorService executor;
+   private FakeBulkDelete bulkDelete;
+   private ClearContainerUsingBulkDeletes deleter;
+
+   /**
+    * Deletes from the underlying blobstore, failing each of the configured keys a number of times first.
+    */
+   private class FakeBulkDelete implements BulkDeleteStrategy {
+      private final List<List<String>> requests = new CopyOnWriteArrayList<List<String>>();
+      private final Map<String, Integer> failuresByKey = new ConcurrentHashMap<String, Integer>();
+
+      @Override
+      public int maxKeysPerRequest() {
+         return 100;
+      }
+
+      @Override
+      public Map<String, String> deleteKeys(String container, List<String> keys) {
+         assertTrue(keys.size() <= maxKeysPerRequest(), "too many keys: " + keys.size());
+         requests.add(ImmutableList.copyOf(keys));
+         ImmutableMap.Builder<String, String> failed = ImmutableMap.builder();
+         for (String key : keys) {
+            Integer failures = failuresByKey.get(key);
+            if (failures != null && failures > 0) {
+               failuresByKey.put(key, failures - 1);
+               failed.put(key, "InternalError: try again");
+            } else {
+               blobstore.removeBlob(container, key);
+            }
+         }
+         return failed.build();
+      }
+   }
+
+   @BeforeMethod
+   void setupBlobStore() {
+      Injector injector = ContextBuilder.newBuilder("transient").buildInjector();
+      blobstore = injector.getInstance(BlobStore.class);
+      retryHandler = injector.getInstance(BackoffLimitedRetryHandler.class);
+      executor = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(4));
+      bulkDelete = new FakeBulkDelete();
+      deleter = new ClearContainerUsingBulkDeletes(blobstore, new DeleteKeysUsingBulkDeletes(executor, bulkDelete,
+            retryHandler));
+      createDataSet();
+   }
+
+   @AfterMethod
+   void close() {
+      executor.shutdownNow();
+      Closeables2.closeQuietly(blobstore.getContext());
+   }
+
+   public void testExecuteWithoutOptionsClearsRecursively() {
+      deleter.execute(containerName);
+      assertEquals(blobstore.countBlobs(containerName), 0);
+      assertEquals(bulkDelete.requests.size(), 34);
+   }
+
+   public void testExecuteNonRecursive() {
+      deleter.execute(containerName, ListContainerOptions.NONE);
+      assertEquals(blobstore.countBlobs(containerName), 2222);
+   }
+
+   public void testExecuteInDirectory() {
+      deleter.execute(containerName, ListContainerOptions.Builder.inDirectory(directoryName));
+      assertEquals(blobstore.countBlobs(containerName), 1111);
+   }
+
+   public void testOnlyFailedKeysAreRetried() {
+      bulkDelete.failuresByKey.put("blob-7", 1);
+      bulkDelete.failuresByKey.put("blob-70", 1);
+
+      deleter.execute(containerName);
+
+      assertEquals(blobstore.countBlobs(containerName), 0);
+      assertEquals(bulkDelete.requests.size(), 35);
+      assertTrue(bulkDelete.requests.contains(ImmutableList.of("blob-7", "blob-70")), bulkDelete.requests.toString());
+   }
+
+   public void testKeysWhichKeepFailingAreReported() {
+      bulkDelete.failuresByKey.put("blob-7", Integer.MAX_VALUE);
+
+      try {
+         deleter.execute(containerName);
+         fail("expected BulkDeleteException");
+      } catch (BulkDeleteException expected) {
+         assertEquals(expected.getFailures(), ImmutableMap.of("blob-7", "InternalError: try again"));
+      }
+      assertEquals(blobstore.list(containerName).size(), 1);
+      assertEquals(blobstore.list(containerName).iterator().next().getName(), "blob-7");
+   }
+
+   private void createDataSet() {
+      blobstore.createContainerInLocation(null, containerName);
+      for (int i = 0; i < 1111; i++) {
+         String blobName = String.format("blob-%d", i);
+         blobstore.putBlob(containerName, blobstore.blobBuilder(blobName).payload(blobName).build());
+      }
+      for (int i = 0; i < 2222; i++) {
+         String blobName = String.format("%s/blob-%d", directoryName, i);
+         blobstore.putBlob(containerName, blobstore.blobBuilder(blobName).payload(blobName).build());
+      }
+      assertEquals(blobstore.countBlobs(containerName), 3333);
+   }
+}
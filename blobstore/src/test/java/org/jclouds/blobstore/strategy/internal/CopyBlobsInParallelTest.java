@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.blobstore.strategy.internal;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jclouds.ContextBuilder;
+import org.jclouds.blobstore.BlobStore;
+import org.jclouds.blobstore.BlobStoreContext;
+import org.jclouds.blobstore.KeyNotFoundException;
+import org.jclouds.blobstore.domain.Blob;
+import org.jclouds.blobstore.options.CopyOptions;
+import org.jclouds.blobstore.options.GetOptions;
+import org.jclouds.blobstore.reference.BlobStoreConstants;
+import org.jclouds.blobstore.util.ForwardingBlobStore;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Sets;
+import com.google.common.io.ByteStreams;
+
+@Test(groups = "unit", testName = "CopyBlobsInParallelTest", singleThreaded = true)
+public class CopyBlobsInParallelTest {
+   private static final String containerName = "container";
+
+   private BlobStoreContext fromContext;
+   private BlobStoreContext toContext;
+   private BlobStore from;
+   private BlobStore to;
+   private CopyBlobsInParallel copier;
+
+   @BeforeMethod
+   void setupBlobStores() {
+      fromContext = newContext();
+      toContext = newContext();
+      from = fromContext.getBlobStore();
+      to = toContext.getBlobStore();
+      copier = fromContext.utils().injector().getInstance(CopyBlobsInParallel.class);
+   }
+
+   @AfterMethod
+   void closeContexts() {
+      fromContext.close();
+      toContext.close();
+   }
+
+   public void testCopyKeepsContentAndMetadata() throws Exception {
+      byte[] content = content(50);
+      from.putBlob(containerName, from.blobBuilder("blob").payload(content).contentType("text/csv")
+            .userMetadata(ImmutableMap.of("key", "value")).build());
+
+      copier.copyBlob(from, containerName, "blob", to, containerName, "copy");
+
+      Blob copy = to.getBlob(containerName, "copy");
+      assertEquals(read(copy), content);
+      assertEquals(copy.getMetadata().getContentMetadata().getContentType(), "text/csv");
+      assertEquals(copy.getMetadata().getUserMetadata(), ImmutableMap.of("key", "value"));
+   }
+
+   public void testLargeBlobIsCopiedInRanges() throws Exception {
+      byte[] content = content(1050);
+      from.putBlob(containerName, from.blobBuilder("blob").payload(content).build());
+      final AtomicInteger rangedGets = new AtomicInteger();
+      BlobStore counting = new ForwardingBlobStore(from) {
+         @Override
+         public Blob getBlob(String container, String name, GetOptions options) {
+            if (!options.getRanges().isEmpty()) {
+               rangedGets.incrementAndGet();
+            }
+            return super.getBlob(container, name, options);
+         }
+      };
+
+      String eTag = copier.copyBlob(counting, containerName, "blob", to, containerName, "copy");
+
+      assertEquals(eTag.substring(eTag.indexOf('-')), "-11");
+      assertEquals(rangedGets.get(), 11);
+      assertEquals(read(to.getBlob(containerName, "copy")), content);
+   }
+
+   public void testCopyWithinBlobStore() throws Exception {
+      byte[] content = content(50);
+      from.putBlob(containerName, from.blobBuilder("blob").payload(content).build());
+
+      copier.copyBlob(from, containerName, "blob", from, containerName, "copy");
+
+      assertEquals(read(from.getBlob(containerName, "copy")), content);
+   }
+
+   @Test(expectedExceptions = KeyNotFoundException.class)
+   public void testCopyMissingBlobFails() {
+      copier.copyBlob(from, containerName, "missing", to, containerName, "copy");
+   }
+
+   public void testCopyBlobsReplacesPrefix() throws Exception {
+      for (String name : new String[] { "logs/2015/a", "logs/2015/b", "logs/2015/c/d", "logs/2016/a", "other" }) {
+         from.putBlob(containerName, from.blobBuilder(name).payload(content(name.length())).build());
+      }
+      from.putBlob(containerName, from.blobBuilder("logs/2015/large").payload(content(1050)).build());
+
+      assertEquals(copier.copyBlobs(from, containerName, "logs/2015/", to, containerName, "archive/"), 4);
+
+      assertEquals(read(to.getBlob(containerName, "archive/a")), content("logs/2015/a".length()));
+      assertTrue(to.blobExists(containerName, "archive/b"));
+      assertTrue(to.blobExists(containerName, "archive/c/d"));
+      assertEquals(read(to.getBlob(containerName, "archive/large")), content(1050));
+      assertFalse(to.blobExists(containerName, "archive/2016/a"));
+      assertNull(to.getBlob(containerName, "other"));
+   }
+
+   public void testCopyBlobsMatchesPartialNames() throws Exception {
+      for (String name : new String[] { "a1", "a2", "b1" }) {
+         from.putBlob(containerName, from.blobBuilder(name).payload(content(10)).build());
+      }
+
+      assertEquals(copier.copyBlobs(from, containerName, "a", to, containerName, "c"), 2);
+
+      assertTrue(to.blobExists(containerName, "c1"));
+      assertTrue(to.blobExists(containerName, "c2"));
+      assertEquals(to.list(containerName).size(), 2);
+   }
+
+   public void testCopyBlobsWithinBlobStoreCopiesLargeBlobsInParallel() throws Exception {
+      for (String name : new String[] { "a", "b", "c" }) {
+         from.putBlob(containerName, from.blobBuilder(name).payload(content(1050)).build());
+      }
+      final Set<Thread> copyingThreads = Sets.newConcurrentHashSet();
+      BlobStore recording = new ForwardingBlobStore(from) {
+         @Override
+         public String copyBlob(String fromContainer, String fromName, String toContainer, String toName,
+               CopyOptions options) {
+            copyingThreads.add(Thread.currentThread());
+            return super.copyBlob(fromContainer, fromName, toContainer, toName, options);
+         }
+      };
+
+      assertEquals(copier.copyBlobs(recording, containerName, "", recording, containerName, "copy-"), 3);
+
+      assertFalse(copyingThreads.contains(Thread.currentThread()));
+      assertEquals(read(from.getBlob(containerName, "copy-b")), content(1050));
+   }
+
+   private static BlobStoreContext newContext() {
+      Properties overrides = new Properties();
+      overrides.setProperty(BlobStoreConstants.PROPERTY_MULTIPART_PART_SIZE, "100");
+      overrides.setProperty(BlobStoreConstants.PROPERTY_MAX_PARALLEL_COPIES, "2");
+      BlobStoreContext context = ContextBuilder.newBuilder("transient").overrides(overrides)
+            .build(BlobStoreContext.class);
+      context.getBlobStore().createContainerInLocation(null, containerName);
+      return context;
+   }
+
+   private static byte[] content(int length) {
+      byte[] content = new byte[length];
+      for (int i = 0; i < length; i++)
+         content[i] = (byte) i;
+      return content;
+   }
+
+   private static byte[] read(Blob blob) throws Exception {
+      return ByteStreams.toByteArray(blob.getPayload().openStream());
+   }
+}
@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.blobstore.strategy.internal;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jclouds.blobstore.BulkDeleteException;
+import org.jclouds.blobstore.ContainerNotFoundException;
+import org.jclouds.blobstore.strategy.BulkDeleteStrategy;
+import org.jclouds.http.HttpResponseException;
+import org.jclouds.http.handlers.BackoffLimitedRetryHandler;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+
+@Test(groups = "unit", testName = "DeleteKeysUsingBulkDeletesTest", singleThreaded = true)
+public class DeleteKeysUsingBulkDeletesTest {
+   private static final String containerName = "container";
+
+   private ListeningExecutorService executor;
+
+   @BeforeMethod
+   void setupExecutor() {
+      executor = MoreExecutors.listeningDecorator(Executors.newCachedThreadPool());
+   }
+
+   @AfterMethod
+   void shutdownExecutor() {
+      executor.shutdownNow();
+   }
+
+   public void testPartitionsAreDeletedConcurrently() {
+      final CountDownLatch allInFlight = new CountDownLatch(4);
+      final AtomicInteger requests = new AtomicInteger();
+      DeleteKeysUsingBulkDeletes deleter = newDeleter(new BulkDeleteStrategy() {
+         @Override
+         public int maxKeysPerRequest() {
+            return 10;
+         }
+
+         @Override
+         public Map<String, String> deleteKeys(String container, List<String> keys) {
+            requests.incrementAndGet();
+            allInFlight.countDown();
+            try {
+               // the first requests only complete once the maximum are in flight
+               assertTrue(allInFlight.await(5, TimeUnit.SECONDS), "requests were not sent concurrently");
+            } catch (InterruptedException e) {
+               throw new AssertionError(e);
+            }
+            return ImmutableMap.of();
+         }
+      });
+      deleter.setMaxParallelRequests(4);
+
+      deleter.execute(containerName, keys(100));
+
+      assertEquals(requests.get(), 10);
+   }
+
+   public void testFailuresAreRetriedAndReported() {
+      final Map<String, AtomicInteger> attempts = ImmutableMap.of("key-3", new AtomicInteger(), "key-4",
+            new AtomicInteger());
+      DeleteKeysUsingBulkDeletes deleter = newDeleter(new BulkDeleteStrategy() {
+         @Override
+         public int maxKeysPerRequest() {
+            return 10;
+         }
+
+         @Override
+         public Map<String, String> deleteKeys(String container, List<String> keys) {
+            ImmutableMap.Builder<String, String> failed = ImmutableMap.builder();
+            for (String key : keys) {
+               if (key.equals("key-3") && attempts.get(key).incrementAndGet() < 2)
+                  failed.put(key, "SlowDown: reduce your request rate");
+               else if (key.equals("key-4") && attempts.get(key).incrementAndGet() > 0)
+                  failed.put(key, "AccessDenied: access denied");
+            }
+            return failed.build();
+         }
+      });
+
+      try {
+         deleter.execute(containerName, keys(25));
+         fail("expected BulkDeleteException");
+      } catch (BulkDeleteException expected) {
+         assertEquals(expected.getContainer(), containerName);
+         assertEquals(expected.getFailures(), ImmutableMap.of("key-4", "AccessDenied: access denied"));
+      }
+      assertEquals(attempts.get("key-3").get(), 2);
+      assertEquals(attempts.get("key-4").get(), 3);
+   }
+
+   public void testTransientRequestExceptionsAreFailuresOfAllItsKeys() {
+      final AtomicInteger requests = new AtomicInteger();
+      DeleteKeysUsingBulkDeletes deleter = newDeleter(new BulkDeleteStrategy() {
+         @Override
+         public int maxKeysPerRequest() {
+            return 10;
+         }
+
+         @Override
+         public Map<String, String> deleteKeys(String container, List<String> keys) {
+            if (requests.incrementAndGet() == 1)
+               throw new HttpResponseException("connection reset", null, null, new IOException("reset"));
+            return ImmutableMap.of();
+         }
+      });
+      deleter.setMaxParallelRequests(1);
+
+      deleter.execute(containerName, keys(5));
+
+      assertEquals(requests.get(), 2);
+   }
+
+   public void testOtherRequestExceptionsAreRethrown() {
+      final AtomicInteger requests = new AtomicInteger();
+      DeleteKeysUsingBulkDeletes deleter = newDeleter(new BulkDeleteStrategy() {
+         @Override
+         public int maxKeysPerRequest() {
+            return 10;
+         }
+
+         @Override
+         public Map<String, String> deleteKeys(String container, List<String> keys) {
+            requests.incrementAndGet();
+            throw new ContainerNotFoundException(container, "not found");
+         }
+      });
+      deleter.setMaxParallelRequests(1);
+
+      try {
+         deleter.execute(containerName, keys(25));
+         fail("expected ContainerNotFoundException");
+      } catch (ContainerNotFoundException e) {
+         // expected
+      }
+      assertTrue(requests.get() < 3, "requests after the error: " + requests.get());
+   }
+
+   private DeleteKeysUsingBulkDeletes newDeleter(BulkDeleteStrategy bulkDelete) {
+      return new DeleteKeysUsingBulkDeletes(executor, bulkDelete, BackoffLimitedRetryHandler.INSTANCE);
+   }
+
+   private static List<String> keys(int count) {
+      ImmutableList.Builder<String> keys = ImmutableList.builder();
+      for (int i = 0; i < count; i++)
+         keys.add("key-" + i);
+      return keys.build();
+   }
+}
@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.blobstore.strategy.internal;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+
+import java.io.File;
+
+import org.jclouds.blobstore.domain.MultipartPart;
+import org.jclouds.blobstore.strategy.MultipartUploadJournal;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
+
+@Test(groups = "unit", testName = "FileMultipartUploadJournalTest")
+public class FileMultipartUploadJournalTest {
+   private static final String KEY = "transient http://localhost identity container/blob";
+
+   private File directory;
+   private FileMultipartUploadJournal journal;
+
+   @BeforeMethod
+   void setupJournal() {
+      directory = Files.createTempDir();
+      journal = new FileMultipartUploadJournal();
+      journal.setDirectory(new File(directory, "journal").getPath());
+   }
+
+   @AfterMethod
+   void deleteJournal() {
+      File journalDirectory = new File(directory, "journal");
+      if (journalDirectory.isDirectory()) {
+         for (File file : journalDirectory.listFiles())
+            file.delete();
+         journalDirectory.delete();
+      }
+      directory.delete();
+   }
+
+   public void testRecordedUploadRoundTrips() {
+      journal.begin(KEY, "upload-id", 250, 100, "md5:abc");
+      journal.partUploaded(KEY, MultipartPart.create(2, 100, "\"etag2\""));
+      journal.partUploaded(KEY, MultipartPart.create(1, 100, "\"etag1\""));
+
+      assertEquals(journal.get(KEY), new MultipartUploadJournal.Entry("upload-id", 250, 100, "md5:abc",
+            ImmutableList.of(MultipartPart.create(2, 100, "\"etag2\""), MultipartPart.create(1, 100, "\"etag1\""))));
+      assertNull(journal.get("another key"));
+   }
+
+   public void testBeginReplacesPreviousUpload() {
+      journal.begin(KEY, "old", 250, 100, "md5:abc");
+      journal.partUploaded(KEY, MultipartPart.create(1, 100, "etag1"));
+      journal.begin(KEY, "new", 300, 150, "md5:abc");
+
+      assertEquals(journal.get(KEY), new MultipartUploadJournal.Entry("new", 300, 150, "md5:abc",
+            ImmutableList.<MultipartPart> of()));
+   }
+
+   public void testTruncatedLineIsIgnored() throws Exception {
+      journal.begin(KEY, "upload-id", 250, 100, "md5:abc");
+      journal.partUploaded(KEY, MultipartPart.create(1, 100, "etag1"));
+      Files.append("part 2 10", journal.journalFile(KEY), Charsets.UTF_8);
+
+      assertEquals(journal.get(KEY).parts(), ImmutableList.of(MultipartPart.create(1, 100, "etag1")));
+   }
+
+   public void testCutOffETagIsIgnored() throws Exception {
+      journal.begin(KEY, "upload-id", 250, 100, "md5:abc");
+      journal.partUploaded(KEY, MultipartPart.create(1, 100, "\"etag1\""));
+      Files.append("part 2 100 \"eta", journal.journalFile(KEY), Charsets.UTF_8);
+
+      assertEquals(journal.get(KEY).parts(), ImmutableList.of(MultipartPart.create(1, 100, "\"etag1\"")));
+
+      journal.partUploaded(KEY, MultipartPart.create(3, 50, "\"etag3\""));
+      assertEquals(journal.get(KEY).parts(), ImmutableList.of(MultipartPart.create(1, 100, "\"etag1\""),
+            MultipartPart.create(3, 50, "\"etag3\"")));
+   }
+
+   public void testRemoveForgetsUpload() {
+      journal.begin(KEY, "upload-id", 250, 100, "md5:abc");
+      journal.remove(KEY);
+
+      assertNull(journal.get(KEY));
+      assertFalse(journal.journalFile(KEY).exists());
+      journal.remove(KEY);
+   }
+
+   @Test(expectedExceptions = IllegalStateException.class)
+   public void testPartOfUnknownUploadIsRejected() {
+      journal.partUploaded(KEY, MultipartPart.create(1, 100, "etag1"));
+   }
+}
@@ -0,0 +1,432 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.blobstore.strategy.internal;
+
+import static org.jclouds.blobstore.options.PutOptions.Builder.multipart;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.io.File;
+import java.net.URI;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jclouds.ContextBuilder;
+import org.jclouds.blobstore.BlobStore;
+import org.jclouds.blobstore.BlobStoreContext;
+import org.jclouds.blobstore.KeyNotFoundException;
+import org.jclouds.blobstore.domain.Blob;
+import org.jclouds.blobstore.domain.BlobMetadata;
+import org.jclouds.blobstore.domain.MultipartPart;
+import org.jclouds.blobstore.domain.MultipartUpload;
+import org.jclouds.blobstore.reference.BlobStoreConstants;
+import org.jclouds.blobstore.strategy.MultipartUploadJournal;
+import org.jclouds.blobstore.util.ForwardingBlobStore;
+import org.jclouds.concurrent.ExecutorStrategy;
+import org.jclouds.http.handlers.BackoffLimitedRetryHandler;
+import org.jclouds.io.Payload;
+import org.jclouds.io.PayloadSlicer;
+import org.jclouds.io.payloads.ByteSourcePayload;
+import org.jclouds.io.payloads.InputStreamPayload;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Suppliers;
+import com.google.common.collect.Sets;
+import com.google.common.io.ByteSource;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.inject.Injector;
+
+@Test(groups = "unit", testName = "PutBlobInParallelPartsTest", singleThreaded = true)
+public class PutBlobInParallelPartsTest {
+   private static final String containerName = "container";
+
+   private BlobStoreContext context;
+   private BlobStore blobStore;
+   private File journalDirectory;
+
+   @BeforeMethod
+   void setupBlobStore() {
+      journalDirectory = Files.createTempDir();
+      Properties overrides = new Properties();
+      overrides.setProperty(BlobStoreConstants.PROPERTY_MULTIPART_PART_SIZE, "100");
+      overrides.setProperty(BlobStoreConstants.PROPERTY_MULTIPART_JOURNAL_DIRECTORY, journalDirectory.getPath());
+      context = ContextBuilder.newBuilder("transient").overrides(overrides).build(BlobStoreContext.class);
+      blobStore = context.getBlobStore();
+      blobStore.createContainerInLocation(null, containerName);
+   }
+
+   @AfterMethod
+   void closeContext() {
+      context.close();
+      for (File file : journalDirectory.listFiles())
+         file.delete();
+      journalDirectory.delete();
+   }
+
+   public void testMultipartPutRoundTrips() throws Exception {
+      byte[] content = content(1050);
+      Blob blob = blobStore.blobBuilder("blob").payload(content).contentLength(content.length).build();
+
+      String eTag = blobStore.putBlob(containerName, blob, multipart());
+
+      assertEquals(eTag.substring(eTag.indexOf('-')), "-11");
+      Blob completed = blobStore.getBlob(containerName, "blob");
+      assertEquals(read(completed), content);
+      assertEquals(completed.getMetadata().getETag(), eTag);
+      assertEquals(completed.getMetadata().getSize(), Long.valueOf(content.length));
+      assertEquals(blobStore.list(containerName).size(), 1);
+   }
+
+   public void testNonRepeatablePayloadIsUploadedInSequence() throws Exception {
+      byte[] content = content(350);
+      Payload payload = new InputStreamPayload(ByteSource.wrap(content).openStream());
+      payload.getContentMetadata().setContentLength((long) content.length);
+      assertFalse(payload.isRepeatable());
+      Blob blob = blobStore.blobBuilder("blob").payload(payload).build();
+
+      blobStore.putBlob(containerName, blob, multipart());
+
+      assertEquals(read(blobStore.getBlob(containerName, "blob")), content);
+   }
+
+   public void testFailedPartsAreRetried() throws Exception {
+      final AtomicInteger attempts = new AtomicInteger();
+      BlobStore flaky = new ForwardingBlobStore(blobStore) {
+         @Override
+         public MultipartPart uploadMultipartPart(MultipartUpload mpu, int partNumber, Payload payload) {
+            if (partNumber == 3 && attempts.getAndIncrement() == 0)
+               throw new IllegalStateException("connection reset");
+            return super.uploadMultipartPart(mpu, partNumber, payload);
+         }
+      };
+      byte[] content = content(500);
+      Blob blob = blobStore.blobBuilder("blob").payload(new ByteSourcePayload(ByteSource.wrap(content))).build();
+      blob.getPayload().getContentMetadata().setContentLength((long) content.length);
+
+      putBlobInParts().execute(flaky, containerName, blob);
+
+      assertEquals(attempts.get(), 2);
+      assertEquals(read(blobStore.getBlob(containerName, "blob")), content);
+   }
+
+   public void testUploadIsAbortedWhenAPartKeepsFailing() {
+      final AtomicInteger aborts = new AtomicInteger();
+      BlobStore broken = new ForwardingBlobStore(blobStore) {
+         @Override
+         public MultipartPart uploadMultipartPart(MultipartUpload mpu, int partNumber, Payload payload) {
+            if (partNumber == 2)
+               throw new IllegalStateException("access denied");
+            return super.uploadMultipartPart(mpu, partNumber, payload);
+         }
+
+         @Override
+         public void abortMultipartUpload(MultipartUpload mpu) {
+            aborts.incrementAndGet();
+            super.abortMultipartUpload(mpu);
+         }
+      };
+      byte[] content = content(500);
+      Blob blob = blobStore.blobBuilder("blob").payload(content).contentLength(content.length).build();
+
+      try {
+         putBlobInParts().execute(broken, containerName, blob);
+         fail("expected IllegalStateException");
+      } catch (IllegalStateException expected) {
+         assertEquals(expected.getMessage(), "access denied");
+      }
+      assertEquals(aborts.get(), 1);
+      assertFalse(blobStore.blobExists(containerName, "blob"));
+   }
+
+   public void testPartSizeFitsProviderLimits() {
+      PutBlobInParallelParts putBlobInParts = putBlobInParts();
+      BlobStore limited = new ForwardingBlobStore(blobStore) {
+         @Override
+         public long getMinimumMultipartPartSize() {
+            return 50;
+         }
+
+         @Override
+         public long getMaximumMultipartPartSize() {
+            return 1000;
+         }
+
+         @Override
+         public int getMaximumNumberOfParts() {
+            return 10;
+         }
+      };
+
+      assertEquals(putBlobInParts.partSize(limited, 10), 100);
+      assertEquals(putBlobInParts.partSize(limited, 2000), 200);
+      assertEquals(putBlobInParts.partSize(limited, 100000), 1000);
+      putBlobInParts.setPartSize(10);
+      assertEquals(putBlobInParts.partSize(limited, 10), 50);
+   }
+
+   public void testResumeUploadsOnlyMissingParts() throws Exception {
+      final Set<Integer> uploaded = Sets.newConcurrentHashSet();
+      BlobStore interrupted = new ForwardingBlobStore(blobStore) {
+         @Override
+         public MultipartPart uploadMultipartPart(MultipartUpload mpu, int partNumber, Payload payload) {
+            if (partNumber == 4)
+               throw new IllegalStateException("connection reset");
+            MultipartPart part = super.uploadMultipartPart(mpu, partNumber, payload);
+            uploaded.add(partNumber);
+            return part;
+         }
+
+         @Override
+         public void abortMultipartUpload(MultipartUpload mpu) {
+            fail("resumable uploads must not be aborted");
+         }
+      };
+      byte[] content = content(500);
+      Blob blob = blobStore.blobBuilder("blob").payload(content).contentLength(content.length).build();
+      PutBlobInParallelParts putBlobInParts = putBlobInParts();
+      putBlobInParts.setMaxErrors(1);
+
+      try {
+         putBlobInParts.resume(interrupted, containerName, blob);
+         fail("expected IllegalStateException");
+      } catch (IllegalStateException expected) {
+      }
+      assertFalse(uploaded.isEmpty());
+      assertFalse(uploaded.contains(4));
+      String key = PutBlobInParallelParts.journalKey(blobStore, containerName, "blob");
+      assertNotNull(journal().get(key));
+
+      final Set<Integer> resumed = Sets.newConcurrentHashSet();
+      BlobStore counting = new ForwardingBlobStore(blobStore) {
+         @Override
+         public MultipartPart uploadMultipartPart(MultipartUpload mpu, int partNumber, Payload payload) {
+            resumed.add(partNumber);
+            return super.uploadMultipartPart(mpu, partNumber, payload);
+         }
+      };
+      String eTag = putBlobInParts.resume(counting, containerName, blob);
+
+      assertTrue(resumed.contains(4));
+      assertEquals(Sets.intersection(uploaded, resumed), Sets.newHashSet());
+      assertEquals(Sets.union(uploaded, resumed), Sets.newHashSet(1, 2, 3, 4, 5));
+      assertEquals(eTag.substring(eTag.indexOf('-')), "-5");
+      assertEquals(read(blobStore.getBlob(containerName, "blob")), content);
+      assertNull(journal().get(key));
+   }
+
+   public void testResumeUsesJournalWhenPartsCannotBeListed() throws Exception {
+      byte[] content = content(500);
+      Blob blob = blobStore.blobBuilder("blob").payload(content).contentLength(content.length).build();
+      MultipartUpload mpu = blobStore.initiateMultipartUpload(containerName, blob.getMetadata());
+      String key = PutBlobInParallelParts.journalKey(blobStore, containerName, "blob");
+      journal().begin(key, mpu.id(), content.length, 100, PutBlobInParallelParts.fingerprint(blob.getPayload()));
+      for (int partNumber = 1; partNumber <= 2; partNumber++) {
+         byte[] part = new byte[100];
+         System.arraycopy(content, (partNumber - 1) * 100, part, 0, part.length);
+         journal().partUploaded(key, blobStore.uploadMultipartPart(mpu, partNumber, new ByteSourcePayload(
+               ByteSource.wrap(part))));
+      }
+      final Set<Integer> resumed = Sets.newConcurrentHashSet();
+      BlobStore unlisted = new ForwardingBlobStore(blobStore) {
+         @Override
+         public List<MultipartPart> listMultipartUpload(MultipartUpload mpu) {
+            throw new UnsupportedOperationException();
+         }
+
+         @Override
+         public MultipartPart uploadMultipartPart(MultipartUpload mpu, int partNumber, Payload payload) {
+            resumed.add(partNumber);
+            return super.uploadMultipartPart(mpu, partNumber, payload);
+         }
+      };
+
+      putBlobInParts().resume(unlisted, containerName, blob);
+
+      assertEquals(resumed, Sets.newHashSet(3, 4, 5));
+      assertEquals(read(blobStore.getBlob(containerName, "blob")), content);
+   }
+
+   public void testResumeStartsAgainWhenUploadNoLongerExists() throws Exception {
+      byte[] content = content(300);
+      Blob blob = blobStore.blobBuilder("blob").payload(content).contentLength(content.length).build();
+      String key = PutBlobInParallelParts.journalKey(blobStore, containerName, "blob");
+      journal().begin(key, "expired", content.length, 100, PutBlobInParallelParts.fingerprint(blob.getPayload()));
+      journal().partUploaded(key, MultipartPart.create(1, 100, "etag"));
+      final AtomicInteger initiated = new AtomicInteger();
+      BlobStore expired = new ForwardingBlobStore(blobStore) {
+         @Override
+         public MultipartUpload initiateMultipartUpload(String container, BlobMetadata blobMetadata) {
+            initiated.incrementAndGet();
+            return super.initiateMultipartUpload(container, blobMetadata);
+         }
+
+         @Override
+         public List<MultipartPart> listMultipartUpload(MultipartUpload mpu) {
+            if (mpu.id().equals("expired"))
+               throw new KeyNotFoundException(mpu.containerName(), mpu.blobName(), "NoSuchUpload");
+            return super.listMultipartUpload(mpu);
+         }
+      };
+
+      putBlobInParts().resume(expired, containerName, blob);
+
+      assertEquals(initiated.get(), 1);
+      assertEquals(read(blobStore.getBlob(containerName, "blob")), content);
+      assertNull(journal().get(key));
+   }
+
+   public void testResumeAbandonsUploadOfDifferentContent() throws Exception {
+      byte[] content = content(500);
+      Blob blob = blobStore.blobBuilder("blob").payload(content).contentLength(content.length).build();
+      MultipartUpload mpu = blobStore.initiateMultipartUpload(containerName, blob.getMetadata());
+      String key = PutBlobInParallelParts.journalKey(blobStore, containerName, "blob");
+      journal().begin(key, mpu.id(), content.length, 100, PutBlobInParallelParts.fingerprint(blob.getPayload()));
+      journal().partUploaded(key, blobStore.uploadMultipartPart(mpu, 1, new ByteSourcePayload(
+            ByteSource.wrap(content).slice(0, 100))));
+      final AtomicInteger aborted = new AtomicInteger();
+      BlobStore counting = new ForwardingBlobStore(blobStore) {
+         @Override
+         public void abortMultipartUpload(MultipartUpload mpu) {
+            aborted.incrementAndGet();
+            super.abortMultipartUpload(mpu);
+         }
+      };
+      byte[] changed = content(500);
+      changed[10]++;
+
+      putBlobInParts().resume(counting, containerName, blobStore.blobBuilder("blob").payload(changed)
+            .contentLength(changed.length).build());
+
+      assertEquals(aborted.get(), 1);
+      assertEquals(read(blobStore.getBlob(containerName, "blob")), changed);
+      assertNull(journal().get(key));
+   }
+
+   public void testResumeKeepsJournaledPartsBeyondTruncatedListing() throws Exception {
+      byte[] content = content(500);
+      Blob blob = blobStore.blobBuilder("blob").payload(content).contentLength(content.length).build();
+      MultipartUpload mpu = blobStore.initiateMultipartUpload(containerName, blob.getMetadata());
+      String key = PutBlobInParallelParts.journalKey(blobStore, containerName, "blob");
+      journal().begin(key, mpu.id(), content.length, 100, PutBlobInParallelParts.fingerprint(blob.getPayload()));
+      for (int partNumber = 1; partNumber <= 3; partNumber++) {
+         journal().partUploaded(key, blobStore.uploadMultipartPart(mpu, partNumber, new ByteSourcePayload(
+               ByteSource.wrap(content).slice((partNumber - 1) * 100, 100))));
+      }
+      final Set<Integer> resumed = Sets.newConcurrentHashSet();
+      BlobStore truncated = new ForwardingBlobStore(blobStore) {
+         @Override
+         public List<MultipartPart> listMultipartUpload(MultipartUpload mpu) {
+            // only the first page of a longer listing
+            return super.listMultipartUpload(mpu).subList(0, 2);
+         }
+
+         @Override
+         public MultipartPart uploadMultipartPart(MultipartUpload mpu, int partNumber, Payload payload) {
+            resumed.add(partNumber);
+            return super.uploadMultipartPart(mpu, partNumber, payload);
+         }
+      };
+
+      putBlobInParts().resume(truncated, containerName, blob);
+
+      assertEquals(resumed, Sets.newHashSet(4, 5));
+      assertEquals(read(blobStore.getBlob(containerName, "blob")), content);
+   }
+
+   public void testPartsQueuedOnASaturatedExecutorAreUploadedByTheCaller() throws Exception {
+      final CountDownLatch release = new CountDownLatch(1);
+      ListeningExecutorService executor = MoreExecutors.listeningDecorator(Executors.newSingleThreadExecutor());
+      try {
+         // occupies the only thread, as the caller of another upload would
+         executor.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws InterruptedException {
+               release.await();
+               return null;
+            }
+         });
+         byte[] content = content(350);
+         Blob blob = blobStore.blobBuilder("blob").payload(content).contentLength(content.length).build();
+
+         String eTag = putBlobInParts(executor).execute(blobStore, containerName, blob);
+
+         assertEquals(eTag.substring(eTag.indexOf('-')), "-4");
+         assertEquals(read(blobStore.getBlob(containerName, "blob")), content);
+      } finally {
+         release.countDown();
+         executor.shutdownNow();
+      }
+   }
+
+   public void testPartsRejectedByTheExecutorAreUploadedByTheCaller() throws Exception {
+      ListeningExecutorService executor = MoreExecutors.listeningDecorator(Executors.newSingleThreadExecutor());
+      executor.shutdown();
+      byte[] content = content(350);
+      Blob blob = blobStore.blobBuilder("blob").payload(content).contentLength(content.length).build();
+
+      putBlobInParts(executor).execute(blobStore, containerName, blob);
+
+      assertEquals(read(blobStore.getBlob(containerName, "blob")), content);
+   }
+
+   private MultipartUploadJournal journal() {
+      return context.utils().injector().getInstance(MultipartUploadJournal.class);
+   }
+
+   private PutBlobInParallelParts putBlobInParts() {
+      return context.utils().injector().getInstance(PutBlobInParallelParts.class);
+   }
+
+   private PutBlobInParallelParts putBlobInParts(final ListeningExecutorService executor) {
+      Injector injector = context.utils().injector();
+      PutBlobInParallelParts putBlobInParts = new PutBlobInParallelParts(injector.getInstance(PayloadSlicer.class),
+            new ExecutorStrategy() {
+               @Override
+               public ListeningExecutorService executorFor(String partition) {
+                  return executor;
+               }
+            }, Suppliers.ofInstance(URI.create("http://localhost")),
+            injector.getInstance(BackoffLimitedRetryHandler.class), journal());
+      putBlobInParts.setPartSize(100);
+      return putBlobInParts;
+   }
+
+   private static byte[] content(int length) {
+      byte[] content = new byte[length];
+      for (int i = 0; i < length; i++)
+         content[i] = (byte) i;
+      return content;
+   }
+
+   private static byte[] read(Blob blob) throws Exception {
+      return ByteStreams.toByteArray(blob.getPayload().openStream());
+   }
+}
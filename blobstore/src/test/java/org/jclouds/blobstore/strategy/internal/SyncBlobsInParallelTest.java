@@ -0,0 +1,247 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.blobstore.strategy.internal;
+
+import static org.jclouds.blobstore.options.SyncOptions.Builder.deleteExtraneous;
+import static org.jclouds.blobstore.options.SyncOptions.Builder.prefix;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Date;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jclouds.ContextBuilder;
+import org.jclouds.blobstore.BlobStore;
+import org.jclouds.blobstore.BlobStoreContext;
+import org.jclouds.blobstore.domain.PageSet;
+import org.jclouds.blobstore.domain.StorageMetadata;
+import org.jclouds.blobstore.domain.StorageType;
+import org.jclouds.blobstore.domain.internal.StorageMetadataImpl;
+import org.jclouds.blobstore.options.ListContainerOptions;
+import org.jclouds.blobstore.options.SyncOptions;
+import org.jclouds.blobstore.reference.BlobStoreConstants;
+import org.jclouds.blobstore.util.BlobStoreUtils;
+import org.jclouds.blobstore.util.ForwardingBlobStore;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.ByteStreams;
+
+@Test(groups = "unit", testName = "SyncBlobsInParallelTest", singleThreaded = true)
+public class SyncBlobsInParallelTest {
+   private static final String containerName = "container";
+
+   private BlobStoreContext fromContext;
+   private BlobStoreContext toContext;
+   private BlobStore from;
+   private BlobStore to;
+   private SyncBlobsInParallel sync;
+
+   @BeforeMethod
+   void setupBlobStores() {
+      fromContext = newContext();
+      toContext = newContext();
+      from = fromContext.getBlobStore();
+      to = toContext.getBlobStore();
+      sync = fromContext.utils().injector().getInstance(SyncBlobsInParallel.class);
+   }
+
+   @AfterMethod
+   void closeContexts() {
+      fromContext.close();
+      toContext.close();
+   }
+
+   public void testSyncCopiesMissingAndChangedBlobs() throws Exception {
+      put(from, "a", "alpha");
+      put(from, "b", "bravo");
+      put(from, "c", "charlie");
+      put(to, "b", "bravo");
+      put(to, "c", "CHARLIE");
+
+      SyncBlobsInParallel.Result result = sync.sync(from, containerName, to, containerName, new SyncOptions());
+
+      assertEquals(result.copied(), 2);
+      assertEquals(result.unchanged(), 1);
+      assertEquals(result.deleted(), 0);
+      assertEquals(read(to, "a"), "alpha");
+      assertEquals(read(to, "c"), "charlie");
+      assertEquals(sync.sync(from, containerName, to, containerName, new SyncOptions()).copied(), 0);
+   }
+
+   public void testExtraneousBlobsAreOnlyDeletedWhenRequested() throws Exception {
+      put(from, "b", "bravo");
+      put(to, "a", "alpha");
+      put(to, "z", "zulu");
+
+      sync.sync(from, containerName, to, containerName, new SyncOptions());
+      assertEquals(names(to), ImmutableSet.of("a", "b", "z"));
+
+      SyncBlobsInParallel.Result result = sync.sync(from, containerName, to, containerName, deleteExtraneous());
+      assertEquals(result.deleted(), 2);
+      assertEquals(result.unchanged(), 1);
+      assertEquals(names(to), ImmutableSet.of("b"));
+   }
+
+   public void testDryRunChangesNothing() throws Exception {
+      put(from, "a", "alpha");
+      put(from, "b", "bravo");
+      put(to, "b", "BRAVO");
+      put(to, "z", "zulu");
+
+      SyncBlobsInParallel.Result result = sync.sync(from, containerName, to, containerName,
+            deleteExtraneous().dryRun());
+
+      assertEquals(result.copied(), 2);
+      assertEquals(result.deleted(), 1);
+      assertEquals(names(to), ImmutableSet.of("b", "z"));
+      assertEquals(read(to, "b"), "BRAVO");
+   }
+
+   public void testPrefixLimitsSync() throws Exception {
+      put(from, "dir/apple", "apple");
+      put(from, "dir/banana", "banana");
+      put(from, "other", "other");
+      put(to, "dir/avocado", "avocado");
+      put(to, "dir/blueberry", "blueberry");
+
+      SyncBlobsInParallel.Result result = sync.sync(from, containerName, to, containerName,
+            prefix("dir/a").deleteExtraneous());
+
+      assertEquals(result.copied(), 1);
+      assertEquals(result.deleted(), 1);
+      assertEquals(names(to), ImmutableSet.of("dir/apple", "dir/blueberry"));
+   }
+
+   public void testListingsAreMergedAcrossPages() throws Exception {
+      for (int i = 0; i < 20; i++) {
+         put(from, String.format("blob%02d", i), "content" + i);
+         if (i % 3 == 0)
+            put(to, String.format("blob%02d", i), "content" + i);
+         if (i % 4 == 0)
+            put(to, String.format("blob%02dx", i), "extraneous");
+      }
+      final AtomicInteger pages = new AtomicInteger();
+      BlobStore paged = new ForwardingBlobStore(to) {
+         @Override
+         public PageSet<? extends StorageMetadata> list(String container, ListContainerOptions options) {
+            pages.incrementAndGet();
+            return super.list(container, options.maxResults(3));
+         }
+      };
+
+      SyncBlobsInParallel.Result result = sync.sync(from, containerName, paged, containerName, deleteExtraneous());
+
+      assertEquals(pages.get(), 4);
+      assertEquals(result.copied(), 13);
+      assertEquals(result.unchanged(), 7);
+      assertEquals(result.deleted(), 5);
+      assertEquals(names(to), names(from));
+      assertEquals(read(to, "blob19"), "content19");
+   }
+
+   public void testNamesAreComparedByCodePoint() {
+      String privateUse = "\uE000";
+      String emoji = "\uD83D\uDE00";
+      assertTrue(BlobStoreUtils.compareNames(privateUse, emoji) < 0);
+      assertTrue(BlobStoreUtils.compareNames(emoji, privateUse) > 0);
+      assertTrue(BlobStoreUtils.compareNames("a", "b") < 0);
+      assertTrue(BlobStoreUtils.compareNames("a", "a" + emoji) < 0);
+      assertTrue(BlobStoreUtils.compareNames(emoji, "\uD83D\uDE01") < 0);
+      assertEquals(BlobStoreUtils.compareNames(emoji, emoji), 0);
+      for (String left : ImmutableSet.of("a", "z", privateUse, emoji, "\uFFFD", "\uD800\uDC00")) {
+         for (String right : ImmutableSet.of("a", "z", privateUse, emoji, "\uFFFD", "\uD800\uDC00")) {
+            assertEquals(Integer.signum(BlobStoreUtils.compareNames(left, right)),
+                  Integer.signum(utf8(left).compareTo(utf8(right))), left + " " + right);
+         }
+      }
+   }
+
+   public void testListingsWithNamesOutsideTheBasicMultilingualPlaneAreMerged() throws Exception {
+      String privateUse = "\uE000";
+      String emoji = "\uD83D\uDE00";
+      put(from, "a", "alpha");
+      put(from, privateUse, "private");
+      put(from, emoji, "emoji");
+      put(to, emoji, "emoji");
+      put(to, "z", "zulu");
+
+      SyncBlobsInParallel.Result result = sync.sync(from, containerName, to, containerName,
+            deleteExtraneous());
+
+      assertEquals(result.copied(), 2);
+      assertEquals(result.unchanged(), 1);
+      assertEquals(result.deleted(), 1);
+      assertEquals(names(to), names(from));
+   }
+
+   public void testDiffersComparesSizeETagAndLastModified() {
+      Date earlier = new Date(1000);
+      Date later = new Date(2000);
+      String md5 = "5d41402abc4b2a76b9719d911017c592";
+      String otherMd5 = "7d793037a0760186574b0282f2f435e7";
+
+      assertTrue(SyncBlobsInParallel.differs(metadata(md5, 5, earlier), metadata(md5, 6, earlier)));
+      assertFalse(SyncBlobsInParallel.differs(metadata("\"" + md5 + "\"", 5, later), metadata(md5, 5, earlier)));
+      assertTrue(SyncBlobsInParallel.differs(metadata(md5, 5, earlier), metadata(otherMd5, 5, later)));
+      // multipart ETags are not digests of the content, so only the modification dates are compared
+      assertFalse(SyncBlobsInParallel.differs(metadata(md5 + "-3", 5, earlier), metadata(otherMd5, 5, later)));
+      assertTrue(SyncBlobsInParallel.differs(metadata(md5 + "-3", 5, later), metadata(otherMd5, 5, earlier)));
+      assertTrue(SyncBlobsInParallel.differs(metadata(null, 5, null), metadata(null, 5, null)));
+   }
+
+   private static StorageMetadata metadata(String eTag, long size, Date lastModified) {
+      return new StorageMetadataImpl(StorageType.BLOB, null, "blob", null, null, eTag, null, lastModified,
+            ImmutableMap.<String, String> of(), size);
+   }
+
+   private static String utf8(String name) {
+      // ISO-8859-1 maps each byte to the char of the same value, so strings compare as unsigned bytes
+      return new String(name.getBytes(Charsets.UTF_8), Charsets.ISO_8859_1);
+   }
+
+   private static void put(BlobStore blobStore, String name, String content) {
+      blobStore.putBlob(containerName, blobStore.blobBuilder(name).payload(content).build());
+   }
+
+   private static String read(BlobStore blobStore, String name) throws Exception {
+      return new String(ByteStreams.toByteArray(blobStore.getBlob(containerName, name).getPayload().openStream()),
+            "UTF-8");
+   }
+
+   private static ImmutableSet<String> names(BlobStore blobStore) {
+      ImmutableSet.Builder<String> names = ImmutableSet.builder();
+      for (StorageMetadata metadata : blobStore.list(containerName, ListContainerOptions.Builder.recursive()))
+         names.add(metadata.getName());
+      return names.build();
+   }
+
+   private static BlobStoreContext newContext() {
+      Properties overrides = new Properties();
+      overrides.setProperty(BlobStoreConstants.PROPERTY_MAX_PARALLEL_COPIES, "2");
+      BlobStoreContext context = ContextBuilder.newBuilder("transient").overrides(overrides)
+            .build(BlobStoreContext.class);
+      context.getBlobStore().createContainerInLocation(null, containerName);
+      return context;
+   }
+}
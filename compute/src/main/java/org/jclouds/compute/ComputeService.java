@@ -316,6 +316,37 @@ public interface ComputeService {
    Map<? extends NodeMetadata, ExecResponse> runScriptOnNodesMatching(Predicate<NodeMetadata> filter,
             Statement runScript, RunScriptOptions options) throws RunScriptOnNodesException;
 
+   /**
+    * Run the script on all nodes with the specific predicate, reporting each node's result as soon as it finishes.
+    * <p/>
+    * Unlike {@link #runScriptOnNodesMatching(Predicate, Statement, RunScriptOptions)}, at most
+    * {@code maxParallelism} nodes are connected to at a time, regardless of the size of the user thread pool, and
+    * remaining nodes can be skipped once too many have failed. This method blocks until all nodes that were started
+    * have finished.
+    * 
+    * @param filter
+    *           Predicate-based filter to define on which nodes the script is to be executed
+    * @param runScript
+    *           statement containing the script to run
+    * @param options
+    *           options to how to run the script, whether to override credentials
+    * @param maxParallelism
+    *           maximum number of nodes to run the script on at the same time
+    * @param maxFailures
+    *           number of failed nodes after which no more nodes are started, or 0 to run on all nodes regardless
+    * @param handler
+    *           receives the result and timing of each node as it completes
+    * @return nodes the script was not run on, because {@code maxFailures} was reached
+    * @throws NoSuchElementException
+    *            if no nodes matched the predicate specified
+    * 
+    * @see org.jclouds.compute.predicates.NodePredicates#runningInGroup(String)
+    * @see org.jclouds.scriptbuilder.domain.Statements
+    */
+   @Beta
+   Set<? extends NodeMetadata> runScriptOnNodesMatching(Predicate<NodeMetadata> filter, Statement runScript,
+            RunScriptOptions options, int maxParallelism, int maxFailures, ScriptResultHandler handler);
+
    /**
     * Run the script on a specific node
     * 
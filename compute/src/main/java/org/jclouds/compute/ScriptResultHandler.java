@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.compute;
+
+import org.jclouds.compute.domain.ExecResponse;
+import org.jclouds.compute.domain.NodeMetadata;
+
+import com.google.common.annotations.Beta;
+
+/**
+ * Receives the outcome of a script on each node as soon as that node finishes, when running a script through
+ * {@link ComputeService#runScriptOnNodesMatching(com.google.common.base.Predicate,
+ * org.jclouds.scriptbuilder.domain.Statement, org.jclouds.compute.options.RunScriptOptions, int, int,
+ * ScriptResultHandler)}.
+ * <p/>
+ * Callbacks are invoked concurrently from the user executor threads, so implementations must be thread-safe.
+ * Exceptions thrown from a callback are logged and otherwise ignored.
+ */
+@Beta
+public interface ScriptResultHandler {
+
+   /**
+    * @param node
+    *           node the script ran on
+    * @param response
+    *           output and exit status of the script
+    * @param elapsedMillis
+    *           time spent on the node, including connecting to it
+    */
+   void onSuccess(NodeMetadata node, ExecResponse response, long elapsedMillis);
+
+   /**
+    * @param node
+    *           node the script was attempted on
+    * @param failure
+    *           why the script could not be run or completed
+    * @param elapsedMillis
+    *           time spent on the node before failing
+    */
+   void onFailure(NodeMetadata node, Throwable failure, long elapsedMillis);
+}
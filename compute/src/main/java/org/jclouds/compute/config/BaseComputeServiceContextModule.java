@@ -17,10 +17,12 @@
 package org.jclouds.compute.config;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static org.jclouds.Constants.PROPERTY_SESSION_INTERVAL;
+import static org.jclouds.Constants.PROPERTY_USER_THREADS;
 import static org.jclouds.compute.config.ComputeServiceProperties.IMAGE_ID;
 import static org.jclouds.compute.config.ComputeServiceProperties.TEMPLATE;
 import static org.jclouds.compute.domain.OsFamily.UBUNTU;
 
+import java.io.File;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
@@ -51,13 +53,17 @@ import org.jclouds.compute.functions.TemplateOptionsToStatement;
 import org.jclouds.compute.options.RunScriptOptions;
 import org.jclouds.compute.options.TemplateOptions;
 import org.jclouds.compute.reference.ComputeServiceConstants;
+import org.jclouds.compute.reference.ComputeServiceConstants.CacheProperties;
 import org.jclouds.compute.strategy.CustomizeNodeAndAddToGoodMapOrPutExceptionIntoBadMap;
 import org.jclouds.compute.strategy.InitializeRunScriptOnNodeOrPlaceInBadMap;
+import org.jclouds.compute.suppliers.DiskSnapshotImageSupplier;
 import org.jclouds.compute.suppliers.ImageCacheSupplier;
 import org.jclouds.config.ValueOfConfigurationKeyOrNull;
+import org.jclouds.domain.Credentials;
 import org.jclouds.domain.LoginCredentials;
 import org.jclouds.json.Json;
 import org.jclouds.location.Provider;
+import org.jclouds.providers.ProviderMetadata;
 import org.jclouds.rest.AuthorizationException;
 import org.jclouds.rest.suppliers.MemoizedRetryOnTimeOutButNotOnAuthorizationExceptionSupplier;
 import org.jclouds.scriptbuilder.domain.Statement;
@@ -70,9 +76,11 @@ import com.google.common.base.Supplier;
 import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.inject.AbstractModule;
 import com.google.inject.Inject;
 import com.google.inject.Injector;
+import com.google.inject.Key;
 import com.google.inject.Provides;
 import com.google.inject.TypeLiteral;
 import com.google.inject.assistedinject.FactoryModuleBuilder;
@@ -235,11 +243,27 @@ public abstract class BaseComputeServiceContextModule extends AbstractModule {
    @Singleton
    @Named("imageCache")
    protected Supplier<Set<? extends Image>> supplyImageCache(AtomicReference<AuthorizationException> authException, @Named(PROPERTY_SESSION_INTERVAL) long seconds,
-         final Supplier<Set<? extends Image>> imageSupplier, Injector injector) {
-      if (shouldEagerlyParseImages(injector)) {
-         return supplyImageCache(authException, seconds, imageSupplier);
+         final Supplier<Set<? extends Image>> imageSupplier, CacheProperties cacheProperties,
+         @Named(PROPERTY_USER_THREADS) ListeningExecutorService userExecutor, Injector injector) {
+      Supplier<Set<? extends Image>> images = imageSupplier;
+      if (cacheProperties.imageSnapshot != null) {
+         ProviderMetadata provider = injector.getInstance(ProviderMetadata.class);
+         Credentials creds = injector.getInstance(Key.get(new TypeLiteral<Supplier<Credentials>>() {
+         }, Provider.class)).get();
+         String accountKey = DiskSnapshotImageSupplier.accountKey(provider.getId(), provider.getEndpoint(),
+               creds.identity);
+         images = new DiskSnapshotImageSupplier(imageSupplier, new File(cacheProperties.imageSnapshot),
+               cacheProperties.imageSnapshotMaxAge, accountKey, cacheProperties.imageSnapshotCredentials);
+         injector.injectMembers(images);
+      }
+      if (!shouldEagerlyParseImages(injector)) {
+         // such providers look images up one at a time, so refresh-ahead does not apply
+         return supplyNonParsingImageCache(authException, seconds, images, injector);
+      } else if (cacheProperties.refreshAhead) {
+         return MemoizedRetryOnTimeOutButNotOnAuthorizationExceptionSupplier.createRefreshingInBackground(authException,
+               images, seconds, TimeUnit.SECONDS, userExecutor);
       } else {
-         return supplyNonParsingImageCache(authException, seconds, imageSupplier, injector);
+         return supplyImageCache(authException, seconds, images);
       }
    }
 
@@ -285,7 +309,11 @@ public abstract class BaseComputeServiceContextModule extends AbstractModule {
    @Singleton
    @Memoized
    protected Supplier<Set<? extends Hardware>> supplySizeCache(AtomicReference<AuthorizationException> authException, @Named(PROPERTY_SESSION_INTERVAL) long seconds,
-         final Supplier<Set<? extends Hardware>> hardwareSupplier) {
+         final Supplier<Set<? extends Hardware>> hardwareSupplier, CacheProperties cacheProperties,
+         @Named(PROPERTY_USER_THREADS) ListeningExecutorService userExecutor) {
+      if (cacheProperties.refreshAhead)
+         return MemoizedRetryOnTimeOutButNotOnAuthorizationExceptionSupplier.createRefreshingInBackground(authException,
+               hardwareSupplier, seconds, TimeUnit.SECONDS, userExecutor);
       return MemoizedRetryOnTimeOutButNotOnAuthorizationExceptionSupplier.create(authException, hardwareSupplier,
                seconds, TimeUnit.SECONDS);
    }
@@ -118,6 +118,52 @@ public final class ComputeServiceProperties {
     */
    public static final String SOCKET_FINDER_ALLOWED_INTERFACES = "jclouds.compute.socket-finder-allowed-interfaces";
 
+   /**
+    * When true, ssh clients created for nodes reuse authenticated connections per host, port and login, instead of
+    * opening and closing a connection each. Defaults to false.
+    */
+   public static final String SSH_POOL_CONNECTIONS = "jclouds.ssh.pool-connections";
+
+   /**
+    * maximum pooled ssh connections open at the same time to one host, port and login. Defaults to 10.
+    */
+   public static final String SSH_POOL_MAX_CONNECTIONS = "jclouds.ssh.pool.max-connections-per-host";
+
+   /**
+    * time in milliseconds after which a pooled ssh connection that is not in use is closed. Defaults to 60 seconds.
+    */
+   public static final String SSH_POOL_IDLE_TIMEOUT = "jclouds.ssh.pool.idle-timeout";
+
+   /**
+    * When true, the image and hardware caches are reloaded in the background once they are older than
+    * {@link org.jclouds.Constants#PROPERTY_SESSION_INTERVAL}, and callers are served the previous contents until the
+    * reload completes, instead of blocking on it. Defaults to false.
+    * <p/>
+    * Providers which look images up one at a time instead of listing them all, such as EC2 without image owners or
+    * queries configured, have no image listing to reload, so this only applies to their hardware cache.
+    */
+   public static final String CACHE_REFRESH_AHEAD = "jclouds.compute.cache-refresh-ahead";
+
+   /**
+    * Path of a file the image listing is saved to each time it is loaded. When set, a new context serves the images
+    * saved there, if recent enough, until its image cache is first refreshed. Unset by default.
+    * <p/>
+    * Like {@link #CACHE_REFRESH_AHEAD}, this does not apply to providers which look images up one at a time.
+    */
+   public static final String IMAGE_CACHE_SNAPSHOT = "jclouds.compute.image-cache.snapshot";
+
+   /**
+    * When true, the password and private key of image default credentials are saved in the image cache snapshot, in a
+    * file readable by its owner only. Otherwise only the login user is saved, and images loaded from the snapshot
+    * have no password or private key until the image cache is refreshed. Defaults to false.
+    */
+   public static final String IMAGE_CACHE_SNAPSHOT_CREDENTIALS = "jclouds.compute.image-cache.snapshot.credentials";
+
+   /**
+    * time in milliseconds after which an image cache snapshot is no longer used at startup. Defaults to one day.
+    */
+   public static final String IMAGE_CACHE_SNAPSHOT_MAX_AGE = "jclouds.compute.image-cache.snapshot.max-age";
+
    private ComputeServiceProperties() {
       throw new AssertionError("intentionally unimplemented");
    }
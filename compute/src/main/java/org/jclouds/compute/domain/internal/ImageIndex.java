@@ -0,0 +1,167 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.compute.domain.internal;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.jclouds.compute.domain.Image;
+import org.jclouds.compute.domain.OsFamily;
+import org.jclouds.domain.Location;
+import org.jclouds.javax.annotation.Nullable;
+
+import com.google.common.annotations.Beta;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Lookup structure over a snapshot of the image cache, used by {@link TemplateBuilderImpl} to avoid scanning and
+ * sorting every image on each {@link org.jclouds.compute.domain.TemplateBuilder#build()}.
+ * <p/>
+ * Images are sorted once by {@link TemplateBuilderImpl#DEFAULT_IMAGE_ORDERING}, ties keeping their order in the
+ * snapshot, and are bucketed by location, os family, 64-bit and os version. {@link #candidates} returns the smallest
+ * bucket that can satisfy the given criteria, in sorted order; callers must still apply their full predicate to it.
+ */
+@Beta
+public class ImageIndex {
+
+   private final Set<? extends Image> images;
+   private final Map<String, Image> byId = Maps.newHashMap();
+   private final Map<Image, Integer> rank = Maps.newIdentityHashMap();
+   private final List<Image> sorted;
+   private final List<Image> withoutLocation = Lists.newArrayList();
+   private final ListMultimap<Location, Image> byLocation = ArrayListMultimap.create();
+   private final ListMultimap<OsFamily, Image> byFamily = ArrayListMultimap.create();
+   private final ListMultimap<Boolean, Image> by64Bit = ArrayListMultimap.create();
+   private final ListMultimap<String, Image> byOsVersion = ArrayListMultimap.create();
+
+   public ImageIndex(Set<? extends Image> images) {
+      this.images = checkNotNull(images, "images");
+      List<Image> sorted = Lists.newArrayList(images);
+      // stable, so that the last of equally ordered images is the same one the default image chooser would pick
+      Collections.sort(sorted, TemplateBuilderImpl.DEFAULT_IMAGE_ORDERING);
+      this.sorted = ImmutableList.copyOf(sorted);
+      for (Image image : images) {
+         if (!byId.containsKey(image.getId()))
+            byId.put(image.getId(), image);
+      }
+      for (int i = 0; i < sorted.size(); i++) {
+         Image image = sorted.get(i);
+         rank.put(image, i);
+         if (image.getLocation() == null)
+            withoutLocation.add(image);
+         else
+            byLocation.put(image.getLocation(), image);
+         if (image.getOperatingSystem().getFamily() != null)
+            byFamily.put(image.getOperatingSystem().getFamily(), image);
+         by64Bit.put(image.getOperatingSystem().is64Bit(), image);
+         if (image.getOperatingSystem().getVersion() != null)
+            byOsVersion.put(image.getOperatingSystem().getVersion(), image);
+      }
+   }
+
+   /**
+    * @return the images this index was built from
+    */
+   public Set<? extends Image> getImages() {
+      return images;
+   }
+
+   /**
+    * @return the first image in the snapshot with the given id, or null
+    */
+   @Nullable
+   public Image getById(String id) {
+      return byId.get(checkNotNull(id, "id"));
+   }
+
+   /**
+    * Returns a superset of the images that match all of the non-null criteria, ordered by
+    * {@link TemplateBuilderImpl#DEFAULT_IMAGE_ORDERING}.
+    * 
+    * @param location
+    *           images in this location, its parent or grandparent, or without a location
+    * @param family
+    *           images of this os family
+    * @param is64Bit
+    *           images whose os is, or is not, 64-bit
+    * @param osVersion
+    *           images whose os version contains or matches this regex
+    */
+   public List<Image> candidates(@Nullable Location location, @Nullable OsFamily family, @Nullable Boolean is64Bit,
+         @Nullable String osVersion) {
+      List<Image> best = sorted;
+      if (family != null)
+         best = smaller(best, byFamily.get(family));
+      if (is64Bit != null)
+         best = smaller(best, by64Bit.get(is64Bit));
+      if (location != null && best.size() > withoutLocation.size())
+         best = smaller(best, inOrder(inOrAbove(location)));
+      if (osVersion != null && best.size() > 0)
+         best = smaller(best, inOrder(withOsVersion(osVersion)));
+      return best;
+   }
+
+   private static List<Image> smaller(List<Image> left, List<Image> right) {
+      return right.size() < left.size() ? right : left;
+   }
+
+   /**
+    * same locations as accepted by {@link NullEqualToIsParentOrIsGrandparentOfCurrentLocation}
+    */
+   private List<Collection<Image>> inOrAbove(Location location) {
+      List<Collection<Image>> buckets = Lists.newArrayList();
+      buckets.add(withoutLocation);
+      for (Location current = location; current != null && buckets.size() < 4; current = current.getParent())
+         buckets.add(byLocation.get(current));
+      return buckets;
+   }
+
+   private List<Collection<Image>> withOsVersion(String osVersion) {
+      List<Collection<Image>> buckets = Lists.newArrayList();
+      // there are far fewer distinct versions than images, so test each version once
+      for (String version : byOsVersion.keySet()) {
+         if (version.contains(osVersion) || version.matches(osVersion))
+            buckets.add(byOsVersion.get(version));
+      }
+      return buckets;
+   }
+
+   private List<Image> inOrder(List<Collection<Image>> buckets) {
+      if (buckets.size() == 1)
+         return ImmutableList.copyOf(buckets.get(0));
+      List<Image> merged = Lists.newArrayList();
+      for (Collection<Image> bucket : buckets)
+         merged.addAll(bucket);
+      Collections.sort(merged, new Comparator<Image>() {
+         @Override
+         public int compare(Image left, Image right) {
+            return rank.get(left).compareTo(rank.get(right));
+         }
+      });
+      return merged;
+   }
+}
@@ -67,9 +67,11 @@ import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
 import com.google.common.base.Supplier;
 import com.google.common.collect.ComparisonChain;
+import com.google.common.collect.ForwardingList;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Ordering;
 import com.google.common.primitives.Doubles;
 
@@ -683,9 +685,12 @@ public class TemplateBuilderImpl implements TemplateBuilder {
       Set<? extends Hardware> hardwaresToSearch = hardwares.get();
       checkState(!hardwaresToSearch.isEmpty(), "no hardware profiles present!");
 
+      // null when a subclass supplies images other than the image cache
+      ImageIndex index = this.images.indexOf(images);
+
       Image image = null;
       if (imageId != null) {
-         image = findImageWithId(images);
+         image = findImageWithId(images, index);
          if (currentLocationWiderThan(image.getLocation()))
             this.location = image.getLocation();
       }
@@ -703,7 +708,7 @@ public class TemplateBuilderImpl implements TemplateBuilder {
          location = defaultLocation.get();
 
       if (image == null) {
-         Iterable<? extends Image> supportedImages = findSupportedImages(images);
+         Iterable<? extends Image> supportedImages = findSupportedImages(images, index);
          if (hardware == null)
             hardware = resolveHardware(hardwaresToSearch, supportedImages);
          image = resolveImage(hardware, supportedImages);
@@ -717,9 +722,14 @@ public class TemplateBuilderImpl implements TemplateBuilder {
       return new TemplateImpl(image, hardware, location, options);
    }
 
-   private Iterable<? extends Image> findSupportedImages(Set<? extends Image> images) {
+   private Iterable<? extends Image> findSupportedImages(Set<? extends Image> images, ImageIndex index) {
       Predicate<Image> imagePredicate = buildImagePredicate();
-      Iterable<? extends Image> supportedImages = filter(images, imagePredicate);
+      Iterable<? extends Image> supportedImages;
+      if (index != null)
+         supportedImages = new OrderedImages(ImmutableList.copyOf(filter(
+               index.candidates(location, osFamily, os64Bit, osVersion), imagePredicate)));
+      else
+         supportedImages = filter(images, imagePredicate);
       if (size(supportedImages) == 0) {
          throw throwNoSuchElementExceptionAfterLoggingImageIds(
                format("no image matched predicate: %s", imagePredicate), images);
@@ -727,10 +737,18 @@ public class TemplateBuilderImpl implements TemplateBuilder {
       return supportedImages;
    }
 
-   private Image findImageWithId(Set<? extends Image> images) {
+   private Image findImageWithId(Set<? extends Image> images, ImageIndex index) {
       // Try to find the image in the cache and fallback to the GetImageStrategy
       // see https://issues.apache.org/jira/browse/JCLOUDS-570
-      Optional<? extends Image> image = tryFind(images, idPredicate);
+      Optional<? extends Image> image;
+      if (index != null) {
+         image = Optional.fromNullable(index.getById(imageId));
+         // match our input params so that the later predicates pass, as idPredicate does.
+         if (image.isPresent())
+            fromImage(image.get());
+      } else {
+         image = tryFind(images, idPredicate);
+      }
       if (image.isPresent()) {
          return image.get();
       }
@@ -843,6 +861,16 @@ public class TemplateBuilderImpl implements TemplateBuilder {
          }
       };
 
+      if (imageChooser == null && supportedImages instanceof OrderedImages) {
+         // already sorted by the default ordering, so the default choice is the last supported image
+         for (Image image : Lists.reverse(OrderedImages.class.cast(supportedImages).images)) {
+            if (imagePredicate.apply(image)) {
+               logger.trace("<<   best image(%s)", image.getId());
+               return image;
+            }
+         }
+      }
+
       try {
          Iterable<? extends Image> matchingImages = filter(supportedImages, imagePredicate);
          if (logger.isTraceEnabled())
@@ -856,6 +884,22 @@ public class TemplateBuilderImpl implements TemplateBuilder {
       }
    }
 
+   /**
+    * Supported images found through the {@link ImageIndex}, in {@link #DEFAULT_IMAGE_ORDERING}.
+    */
+   private static final class OrderedImages extends ForwardingList<Image> {
+      private final List<Image> images;
+
+      private OrderedImages(List<Image> images) {
+         this.images = images;
+      }
+
+      @Override
+      protected List<Image> delegate() {
+         return images;
+      }
+   }
+
    /**
     * Like Ordering, but handle the case where there are multiple valid maximums
     */
@@ -28,10 +28,13 @@ import javax.inject.Singleton;
 
 import org.jclouds.compute.domain.NodeMetadata;
 import org.jclouds.compute.reference.ComputeServiceConstants;
+import org.jclouds.compute.reference.ComputeServiceConstants.SshPoolProperties;
 import org.jclouds.compute.reference.ComputeServiceConstants.Timeouts;
 import org.jclouds.compute.util.OpenSocketFinder;
+import org.jclouds.lifecycle.Closer;
 import org.jclouds.logging.Logger;
 import org.jclouds.ssh.SshClient;
+import org.jclouds.ssh.internal.PooledSshClientFactory;
 
 import com.google.common.base.Function;
 import com.google.common.net.HostAndPort;
@@ -49,11 +52,20 @@ public class CreateSshClientOncePortIsListeningOnNode implements Function<NodeMe
    private final OpenSocketFinder openSocketFinder;
 
    private final long timeoutMs;
-   
+
+   private final SshPoolProperties poolProperties;
+
+   private final Closer closer;
+
+   private PooledSshClientFactory pooledSshFactory;
+
    @Inject
-   public CreateSshClientOncePortIsListeningOnNode(OpenSocketFinder openSocketFinder, Timeouts timeouts) {
+   public CreateSshClientOncePortIsListeningOnNode(OpenSocketFinder openSocketFinder, Timeouts timeouts,
+         SshPoolProperties poolProperties, Closer closer) {
       this.openSocketFinder = openSocketFinder;
       this.timeoutMs = timeouts.portOpen;
+      this.poolProperties = poolProperties;
+      this.closer = closer;
    }
 
    @Override
@@ -65,6 +77,17 @@ public class CreateSshClientOncePortIsListeningOnNode implements Function<NodeMe
                .getCredentials().identity, node.getId());
       HostAndPort socket = openSocketFinder.findOpenSocketOnNode(node, node.getLoginPort(), 
                timeoutMs, TimeUnit.MILLISECONDS);
-      return sshFactory.create(socket, node.getCredentials());
+      return sshFactory().create(socket, node.getCredentials());
+   }
+
+   private synchronized SshClient.Factory sshFactory() {
+      if (!poolProperties.poolConnections)
+         return sshFactory;
+      if (pooledSshFactory == null) {
+         pooledSshFactory = new PooledSshClientFactory(sshFactory, poolProperties.maxConnectionsPerHost,
+               poolProperties.idleTimeout, poolProperties.leaseTimeout);
+         closer.addToClose(pooledSshFactory);
+      }
+      return pooledSshFactory;
    }
 }
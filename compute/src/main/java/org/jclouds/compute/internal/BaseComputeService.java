@@ -53,6 +53,7 @@ import org.jclouds.compute.ComputeService;
 import org.jclouds.compute.ComputeServiceContext;
 import org.jclouds.compute.RunNodesException;
 import org.jclouds.compute.RunScriptOnNodesException;
+import org.jclouds.compute.ScriptResultHandler;
 import org.jclouds.compute.callables.RunScriptOnNode;
 import org.jclouds.compute.config.CustomizationResponse;
 import org.jclouds.compute.domain.ComputeMetadata;
@@ -79,6 +80,7 @@ import org.jclouds.compute.strategy.ListNodesStrategy;
 import org.jclouds.compute.strategy.RebootNodeStrategy;
 import org.jclouds.compute.strategy.ResumeNodeStrategy;
 import org.jclouds.compute.strategy.RunScriptOnNodeAndAddToGoodMapOrPutExceptionIntoBadMap;
+import org.jclouds.compute.strategy.RunScriptOnNodesWithBoundedParallelism;
 import org.jclouds.compute.strategy.SuspendNodeStrategy;
 import org.jclouds.domain.Credentials;
 import org.jclouds.domain.Location;
@@ -600,6 +602,42 @@ public class BaseComputeService implements ComputeService {
       return goodNodes;
    }
 
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public Set<? extends NodeMetadata> runScriptOnNodesMatching(Predicate<NodeMetadata> filter, Statement runScript,
+         final RunScriptOptions options, int maxParallelism, int maxFailures, final ScriptResultHandler handler) {
+
+      checkNotNull(filter, "filter");
+      checkNotNull(runScript, "runScript");
+      checkNotNull(options, "options");
+      checkNotNull(handler, "handler");
+
+      initAdminAccess.visit(runScript);
+
+      Iterable<NodeMetadata> nodes = Iterables.transform(nodesMatchingFilterAndNotTerminatedExceptionIfNotFound(filter),
+            new Function<NodeMetadata, NodeMetadata>() {
+               @Override
+               public NodeMetadata apply(NodeMetadata node) {
+                  return updateNodeWithCredentialsIfPresent(node, options);
+               }
+            });
+      final Function<NodeMetadata, NodeMetadata> fn = persistNodeCredentials.ifAdminAccess(runScript);
+      return new RunScriptOnNodesWithBoundedParallelism(runScriptOnNodeFactory, userExecutor, logger).execute(nodes,
+            runScript, options, maxParallelism, maxFailures, new ScriptResultHandler() {
+               @Override
+               public void onSuccess(NodeMetadata node, ExecResponse response, long elapsedMillis) {
+                  handler.onSuccess(fn.apply(node), response, elapsedMillis);
+               }
+
+               @Override
+               public void onFailure(NodeMetadata node, Throwable failure, long elapsedMillis) {
+                  handler.onFailure(fn.apply(node), failure, elapsedMillis);
+               }
+            });
+   }
+
    /**
     * {@inheritDoc}
     */
@@ -15,11 +15,19 @@
  * limitations under the License.
  */
 package org.jclouds.compute.reference;
+import static org.jclouds.Constants.PROPERTY_CONNECTION_TIMEOUT;
+import static org.jclouds.compute.config.ComputeServiceProperties.CACHE_REFRESH_AHEAD;
+import static org.jclouds.compute.config.ComputeServiceProperties.IMAGE_CACHE_SNAPSHOT;
+import static org.jclouds.compute.config.ComputeServiceProperties.IMAGE_CACHE_SNAPSHOT_CREDENTIALS;
+import static org.jclouds.compute.config.ComputeServiceProperties.IMAGE_CACHE_SNAPSHOT_MAX_AGE;
 import static org.jclouds.compute.config.ComputeServiceProperties.INIT_STATUS_INITIAL_PERIOD;
 import static org.jclouds.compute.config.ComputeServiceProperties.INIT_STATUS_MAX_PERIOD;
 import static org.jclouds.compute.config.ComputeServiceProperties.OS_VERSION_MAP_JSON;
 import static org.jclouds.compute.config.ComputeServiceProperties.POLL_INITIAL_PERIOD;
 import static org.jclouds.compute.config.ComputeServiceProperties.POLL_MAX_PERIOD;
+import static org.jclouds.compute.config.ComputeServiceProperties.SSH_POOL_CONNECTIONS;
+import static org.jclouds.compute.config.ComputeServiceProperties.SSH_POOL_IDLE_TIMEOUT;
+import static org.jclouds.compute.config.ComputeServiceProperties.SSH_POOL_MAX_CONNECTIONS;
 import static org.jclouds.compute.config.ComputeServiceProperties.TIMEOUT_CLEANUP_INCIDENTAL_RESOURCES;
 import static org.jclouds.compute.config.ComputeServiceProperties.TIMEOUT_IMAGE_AVAILABLE;
 import static org.jclouds.compute.config.ComputeServiceProperties.TIMEOUT_IMAGE_DELETED;
@@ -81,6 +89,48 @@ public final class ComputeServiceConstants {
       public long pollMaxPeriod = Predicates2.DEFAULT_MAX_PERIOD;
    }
 
+   @Singleton
+   public static class SshPoolProperties {
+      @Inject(optional = true)
+      @Named(SSH_POOL_CONNECTIONS)
+      public boolean poolConnections = false;
+
+      @Inject(optional = true)
+      @Named(SSH_POOL_MAX_CONNECTIONS)
+      public int maxConnectionsPerHost = 10;
+
+      @Inject(optional = true)
+      @Named(SSH_POOL_IDLE_TIMEOUT)
+      public long idleTimeout = TimeUnit.SECONDS.toMillis(60);
+
+      /**
+       * how long a client waits for a pooled connection to a host whose connections are all in use; the ssh connect
+       * timeout, as waiting for a connection to be returned stands in for opening one
+       */
+      @Inject(optional = true)
+      @Named(PROPERTY_CONNECTION_TIMEOUT)
+      public long leaseTimeout = TimeUnit.SECONDS.toMillis(60);
+   }
+
+   @Singleton
+   public static class CacheProperties {
+      @Inject(optional = true)
+      @Named(CACHE_REFRESH_AHEAD)
+      public boolean refreshAhead = false;
+
+      @Inject(optional = true)
+      @Named(IMAGE_CACHE_SNAPSHOT)
+      public String imageSnapshot = null;
+
+      @Inject(optional = true)
+      @Named(IMAGE_CACHE_SNAPSHOT_MAX_AGE)
+      public long imageSnapshotMaxAge = TimeUnit.DAYS.toMillis(1);
+
+      @Inject(optional = true)
+      @Named(IMAGE_CACHE_SNAPSHOT_CREDENTIALS)
+      public boolean imageSnapshotCredentials = false;
+   }
+
    @Singleton
    public static class ReferenceData {
       @Inject(optional = true)
@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.compute.strategy;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Throwables.getRootCause;
+import static com.google.common.collect.Sets.newLinkedHashSet;
+import static com.google.common.util.concurrent.Futures.successfulAsList;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jclouds.compute.ScriptResultHandler;
+import org.jclouds.compute.callables.RunScriptOnNode;
+import org.jclouds.compute.domain.ExecResponse;
+import org.jclouds.compute.domain.NodeMetadata;
+import org.jclouds.compute.options.RunScriptOptions;
+import org.jclouds.logging.Logger;
+import org.jclouds.scriptbuilder.domain.Statement;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+
+/**
+ * Runs a script on many nodes, with at most {@code maxParallelism} nodes in progress at a time, and reports each
+ * result to a {@link ScriptResultHandler} as soon as it is available.
+ * <p/>
+ * A node is in progress from the moment its connection is initialized until its script completes, so the limit also
+ * bounds the number of concurrent ssh handshakes. Once {@code maxFailures} nodes have failed, nodes that have not yet
+ * been started are skipped; nodes already in progress are allowed to finish.
+ */
+public class RunScriptOnNodesWithBoundedParallelism {
+
+   private final RunScriptOnNode.Factory runScriptOnNodeFactory;
+   private final ListeningExecutorService userExecutor;
+   private final Logger logger;
+
+   public RunScriptOnNodesWithBoundedParallelism(RunScriptOnNode.Factory runScriptOnNodeFactory,
+         ListeningExecutorService userExecutor, Logger logger) {
+      this.runScriptOnNodeFactory = checkNotNull(runScriptOnNodeFactory, "runScriptOnNodeFactory");
+      this.userExecutor = checkNotNull(userExecutor, "userExecutor");
+      this.logger = checkNotNull(logger, "logger");
+   }
+
+   /**
+    * Blocks until the script has completed or failed on every node that was started.
+    * 
+    * @param maxParallelism
+    *           maximum number of nodes in progress at a time
+    * @param maxFailures
+    *           number of failures after which remaining nodes are skipped, or 0 to never skip nodes
+    * @return nodes that were skipped because {@code maxFailures} was reached
+    */
+   public Set<NodeMetadata> execute(Iterable<? extends NodeMetadata> nodes, Statement script,
+         RunScriptOptions options, int maxParallelism, int maxFailures, ScriptResultHandler handler) {
+      checkNotNull(nodes, "nodes");
+      checkNotNull(script, "script");
+      checkNotNull(options, "options");
+      checkNotNull(handler, "handler");
+      checkArgument(maxParallelism > 0, "maxParallelism must be positive");
+      checkArgument(maxFailures >= 0, "maxFailures must not be negative");
+
+      Semaphore inProgress = new Semaphore(maxParallelism);
+      AtomicInteger failures = new AtomicInteger();
+      List<ListenableFuture<?>> started = Lists.newArrayList();
+      Set<NodeMetadata> skipped = newLinkedHashSet();
+      try {
+         for (NodeMetadata node : nodes) {
+            if (tooManyFailures(failures, maxFailures)) {
+               skipped.add(node);
+               continue;
+            }
+            inProgress.acquire();
+            // check again, as a failure may have arrived while waiting for a slot
+            if (tooManyFailures(failures, maxFailures)) {
+               inProgress.release();
+               skipped.add(node);
+               continue;
+            }
+            try {
+               started.add(userExecutor.submit(new RunScriptOnNodeAndNotifyHandler(node, script, options, handler,
+                     inProgress, failures)));
+            } catch (RejectedExecutionException e) {
+               inProgress.release();
+               throw e;
+            }
+         }
+         successfulAsList(started).get();
+      } catch (InterruptedException e) {
+         for (ListenableFuture<?> future : started)
+            future.cancel(true);
+         Thread.currentThread().interrupt();
+         throw Throwables.propagate(e);
+      } catch (ExecutionException e) {
+         // successfulAsList does not fail
+         throw Throwables.propagate(e.getCause());
+      }
+      if (!skipped.isEmpty())
+         logger.warn("<< skipped %d nodes after %d failures running script", skipped.size(), failures.get());
+      return skipped;
+   }
+
+   private static boolean tooManyFailures(AtomicInteger failures, int maxFailures) {
+      return maxFailures > 0 && failures.get() >= maxFailures;
+   }
+
+   private final class RunScriptOnNodeAndNotifyHandler implements Runnable {
+      private final NodeMetadata node;
+      private final Statement script;
+      private final RunScriptOptions options;
+      private final ScriptResultHandler handler;
+      private final Semaphore inProgress;
+      private final AtomicInteger failures;
+
+      private RunScriptOnNodeAndNotifyHandler(NodeMetadata node, Statement script, RunScriptOptions options,
+            ScriptResultHandler handler, Semaphore inProgress, AtomicInteger failures) {
+         this.node = node;
+         this.script = script;
+         this.options = options;
+         this.handler = handler;
+         this.inProgress = inProgress;
+         this.failures = failures;
+      }
+
+      @Override
+      public void run() {
+         long start = System.nanoTime();
+         ExecResponse response;
+         try {
+            try {
+               response = runScriptOnNodeFactory.create(node, script, options).init().call();
+            } catch (Exception e) {
+               failures.incrementAndGet();
+               logger.error(e, "<< problem running script on node(%s): %s", node.getId(), getRootCause(e)
+                     .getMessage());
+               notifyFailure(e, elapsedMillisSince(start));
+               return;
+            }
+            logger.trace("<< script output for node(%s): %s", node.getId(), response);
+            notifySuccess(response, elapsedMillisSince(start));
+         } finally {
+            inProgress.release();
+         }
+      }
+
+      private void notifySuccess(ExecResponse response, long elapsedMillis) {
+         try {
+            handler.onSuccess(node, response, elapsedMillis);
+         } catch (RuntimeException e) {
+            logger.warn(e, "<< error handling script result of node(%s)", node.getId());
+         }
+      }
+
+      private void notifyFailure(Throwable failure, long elapsedMillis) {
+         try {
+            handler.onFailure(node, failure, elapsedMillis);
+         } catch (RuntimeException e) {
+            logger.warn(e, "<< error handling script failure of node(%s)", node.getId());
+         }
+      }
+
+      @Override
+      public String toString() {
+         return "runScriptOnNode(" + node.getId() + ")";
+      }
+   }
+
+   private static long elapsedMillisSince(long startNanos) {
+      return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+   }
+}
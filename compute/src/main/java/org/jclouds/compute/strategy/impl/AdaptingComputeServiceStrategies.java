@@ -96,9 +96,11 @@ public class AdaptingComputeServiceStrategies<N, H, I, L> implements CreateNodeW
 
       @Override
       public NodeMetadata apply(NodeMetadata arg0) {
-         return credentialStore.containsKey("node#" + arg0.getId()) ? NodeMetadataBuilder.fromNodeMetadata(arg0)
-                  .credentials(LoginCredentials.fromCredentials(credentialStore.get("node#" + arg0.getId()))).build()
-                  : arg0;
+         Credentials credentials = credentialStore.get("node#" + arg0.getId());
+         if (credentials == null)
+            return arg0;
+         return NodeMetadataBuilder.fromNodeMetadata(arg0).credentials(LoginCredentials.fromCredentials(credentials))
+               .build();
       }
 
       @Override
@@ -18,14 +18,19 @@ package org.jclouds.compute.strategy.impl;
 
 import static com.google.common.base.Objects.toStringHelper;
 import static com.google.common.base.Preconditions.checkNotNull;
-import static com.google.common.collect.Iterables.any;
+import static com.google.common.base.Throwables.propagate;
 import static com.google.common.collect.Maps.newLinkedHashMap;
 import static com.google.common.collect.Sets.newLinkedHashSet;
+import static com.google.common.collect.Sets.newSetFromMap;
+import static com.google.common.util.concurrent.MoreExecutors.sameThreadExecutor;
 import static org.jclouds.compute.util.ComputeServiceUtils.formatStatus;
 
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
 import javax.annotation.Resource;
@@ -46,13 +51,19 @@ import org.jclouds.compute.strategy.CustomizeNodeAndAddToGoodMapOrPutExceptionIn
 import org.jclouds.compute.strategy.ListNodesStrategy;
 import org.jclouds.logging.Logger;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Predicate;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Multimap;
+import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 
 /**
  * creates futures that correlate to
@@ -87,6 +98,9 @@ public class CreateNodesWithGroupEncodedIntoNameThenAddToSet implements CreateNo
 
    }
 
+   @VisibleForTesting
+   static final long NAME_INDEX_EXPIRY_SECONDS = 60;
+
    @Resource
    @Named(ComputeServiceConstants.COMPUTE_LOGGER)
    protected Logger logger = Logger.NULL;
@@ -95,6 +109,13 @@ public class CreateNodesWithGroupEncodedIntoNameThenAddToSet implements CreateNo
    protected final GroupNamingConvention.Factory namingConvention;
    protected final ListeningExecutorService userExecutor;
    protected final CustomizeNodeAndAddToGoodMapOrPutExceptionIntoBadMap.Factory customizeNodeAndAddToGoodMapOrPutExceptionIntoBadMapFactory;
+   private final LoadingCache<String, Set<String>> nameIndex = CacheBuilder.newBuilder()
+         .expireAfterWrite(NAME_INDEX_EXPIRY_SECONDS, TimeUnit.SECONDS).build(new CacheLoader<String, Set<String>>() {
+            @Override
+            public Set<String> load(String group) {
+               return listNamesInGroup(group);
+            }
+         });
 
    @Inject
    protected CreateNodesWithGroupEncodedIntoNameThenAddToSet(
@@ -118,14 +139,39 @@ public class CreateNodesWithGroupEncodedIntoNameThenAddToSet implements CreateNo
    public Map<?, ListenableFuture<Void>> execute(String group, int count, Template template, Set<NodeMetadata> goodNodes,
             Map<NodeMetadata, Exception> badNodes, Multimap<NodeMetadata, CustomizationResponse> customizationResponses) {
       Map<String, ListenableFuture<Void>> responses = newLinkedHashMap();
+      Set<String> nodeNames = template.getOptions().getNodeNames();
       for (String name : getNextNames(group, template, count)) {
-         responses.put(name, Futures.transform(createNodeInGroupWithNameAndTemplate(group, name, template),
+         ListenableFuture<AtomicReference<NodeMetadata>> node = createNodeInGroupWithNameAndTemplate(group, name,
+                  template);
+         if (!nodeNames.contains(name))
+            releaseNameIfNotCreated(group, name, node);
+         responses.put(name, Futures.transform(node,
                   customizeNodeAndAddToGoodMapOrPutExceptionIntoBadMapFactory.create(template.getOptions(), goodNodes,
                            badNodes, customizationResponses), userExecutor));
       }
       return responses;
    }
 
+   /**
+    * Removes a generated name from the index of its group when the node could not be created, so that the name can be
+    * allocated again.
+    */
+   private void releaseNameIfNotCreated(final String group, final String name,
+            ListenableFuture<AtomicReference<NodeMetadata>> node) {
+      Futures.addCallback(node, new FutureCallback<AtomicReference<NodeMetadata>>() {
+         @Override
+         public void onSuccess(AtomicReference<NodeMetadata> result) {
+         }
+
+         @Override
+         public void onFailure(Throwable t) {
+            Set<String> names = nameIndex.getIfPresent(group);
+            if (names != null && names.remove(name))
+               logger.debug("<< released name(%s) of node not created", name);
+         }
+      }, sameThreadExecutor());
+   }
+
    /**
     * This calls logic necessary to create a node and convert it from its provider-specific object
     * to the jclouds {@link NodeMetadata} object. This call directly precedes customization, such as
@@ -189,23 +235,42 @@ public class CreateNodesWithGroupEncodedIntoNameThenAddToSet implements CreateNo
       } else {
          names.addAll(nodeNames);
       }
-      Iterable<? extends ComputeMetadata> currentNodes = listNodesStrategy.listNodes();
+      Set<String> namesInGroup = namesInGroup(group);
       int maxTries = 100;
       int currentTries = 0;
       while (names.size() < count && currentTries++ < maxTries) {
-         final String name = namingConvention.createWithoutPrefix().uniqueNameForGroup(group);
-         if (!any(currentNodes, new Predicate<ComputeMetadata>() {
-
-            @Override
-            public boolean apply(ComputeMetadata input) {
-               return name.equals(input.getName());
-            }
-
-         })) {
+         String name = namingConvention.createWithoutPrefix().uniqueNameForGroup(group);
+         // adding to the index reserves the name against concurrent calls for the same group
+         if (!names.contains(name) && namesInGroup.add(name)) {
             names.add(name);
          }
       }
       return names;
    }
 
+   /**
+    * Returns the names of existing nodes in the group, plus the names allocated since they were listed and not released
+    * by a failed creation. The nodes are listed again once the index of the group is older than
+    * {@link #NAME_INDEX_EXPIRY_SECONDS}, so that nodes created by other clients are seen.
+    */
+   private Set<String> namesInGroup(String group) {
+      try {
+         return nameIndex.get(group);
+      } catch (ExecutionException e) {
+         throw propagate(e.getCause());
+      } catch (UncheckedExecutionException e) {
+         throw propagate(e.getCause());
+      }
+   }
+
+   private Set<String> listNamesInGroup(String group) {
+      Predicate<String> containsGroup = namingConvention.createWithoutPrefix().containsGroup(group);
+      Set<String> names = newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+      for (ComputeMetadata node : listNodesStrategy.listNodes()) {
+         if (node.getName() != null && containsGroup.apply(node.getName()))
+            names.add(node.getName());
+      }
+      return names;
+   }
+
 }
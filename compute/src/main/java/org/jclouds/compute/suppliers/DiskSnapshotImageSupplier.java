@@ -0,0 +1,438 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.compute.suppliers;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.Resource;
+import javax.inject.Named;
+
+import org.jclouds.compute.domain.Image;
+import org.jclouds.compute.domain.ImageBuilder;
+import org.jclouds.compute.domain.OperatingSystem;
+import org.jclouds.compute.domain.OsFamily;
+import org.jclouds.compute.reference.ComputeServiceConstants;
+import org.jclouds.domain.Location;
+import org.jclouds.domain.LocationBuilder;
+import org.jclouds.domain.LocationScope;
+import org.jclouds.domain.LoginCredentials;
+import org.jclouds.javax.annotation.Nullable;
+import org.jclouds.logging.Logger;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Charsets;
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Closeables;
+import com.google.common.io.Files;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Saves each image listing to a file, and answers the first request of a new context from that file if it is recent
+ * enough.
+ * <p/>
+ * Images are stored in a compact json form holding the fields of {@link ImageBuilder}; locations are written once and
+ * referenced by position. Location metadata is not stored. The snapshot is only used for the first load; the image
+ * cache reconciles with the provider on its next refresh, which also replaces the snapshot.
+ * <p/>
+ * The login user of image default credentials is stored, but their password and private key are left out unless
+ * {@code includeSecrets} is set, so images served from the snapshot lack them until the first refresh. The file is
+ * created readable by its owner only, and secrets are not written if its permissions cannot be restricted.
+ * <p/>
+ * A snapshot records the {@link #accountKey account} it was taken for, and is ignored by a context of another account,
+ * so that contexts of different providers, endpoints or identities configured with the same path do not serve each
+ * other's images.
+ */
+public class DiskSnapshotImageSupplier implements Supplier<Set<? extends Image>> {
+
+   @Resource
+   @Named(ComputeServiceConstants.COMPUTE_LOGGER)
+   protected Logger logger = Logger.NULL;
+
+   private static final int FORMAT_VERSION = 1;
+
+   private final Supplier<Set<? extends Image>> delegate;
+   private final File snapshot;
+   private final long maxAgeMillis;
+   private final String accountKey;
+   private final boolean includeSecrets;
+   private final AtomicBoolean firstLoad = new AtomicBoolean(true);
+
+   /**
+    * @param accountKey
+    *           identifies the account whose images are listed, as returned by {@link #accountKey}
+    */
+   public DiskSnapshotImageSupplier(Supplier<Set<? extends Image>> delegate, File snapshot, long maxAgeMillis,
+         String accountKey) {
+      this(delegate, snapshot, maxAgeMillis, accountKey, false);
+   }
+
+   public DiskSnapshotImageSupplier(Supplier<Set<? extends Image>> delegate, File snapshot, long maxAgeMillis,
+         String accountKey, boolean includeSecrets) {
+      this.delegate = checkNotNull(delegate, "delegate");
+      this.snapshot = checkNotNull(snapshot, "snapshot");
+      this.maxAgeMillis = maxAgeMillis;
+      this.accountKey = checkNotNull(accountKey, "accountKey");
+      this.includeSecrets = includeSecrets;
+   }
+
+   /**
+    * @return a key identifying the images of an account, which does not reveal its identity
+    */
+   public static String accountKey(String provider, String endpoint, String identity) {
+      return Hashing.sha256().hashString(provider + " " + endpoint + " " + identity, Charsets.UTF_8).toString();
+   }
+
+   @Override
+   public Set<? extends Image> get() {
+      if (firstLoad.getAndSet(false)) {
+         Set<? extends Image> images = readSnapshot();
+         if (images != null)
+            return images;
+      }
+      Set<? extends Image> images = delegate.get();
+      if (images != null)
+         writeSnapshot(images);
+      return images;
+   }
+
+   private Set<? extends Image> readSnapshot() {
+      if (!snapshot.isFile())
+         return null;
+      long age = System.currentTimeMillis() - snapshot.lastModified();
+      if (age > maxAgeMillis) {
+         logger.debug("<< ignoring image snapshot(%s) aged %dms", snapshot, age);
+         return null;
+      }
+      try {
+         Set<Image> images = read(Files.newReader(snapshot, Charsets.UTF_8), accountKey);
+         if (images == null) {
+            logger.debug("<< ignoring image snapshot(%s) of another account", snapshot);
+            return null;
+         }
+         logger.debug("<< loaded %d images from snapshot(%s)", images.size(), snapshot);
+         return images;
+      } catch (IOException e) {
+         logger.warn(e, "<< could not read image snapshot(%s)", snapshot);
+      } catch (RuntimeException e) {
+         logger.warn(e, "<< could not parse image snapshot(%s)", snapshot);
+      }
+      return null;
+   }
+
+   private void writeSnapshot(Set<? extends Image> images) {
+      File temp = new File(snapshot.getAbsolutePath() + ".tmp");
+      try {
+         Files.createParentDirs(temp);
+         Files.write(new byte[0], temp);
+         boolean ownerOnly = temp.setReadable(false, false) & temp.setReadable(true, true)
+               & temp.setWritable(false, false) & temp.setWritable(true, true);
+         if (includeSecrets && !ownerOnly)
+            logger.warn(">> could not restrict permissions of image snapshot(%s), leaving out credentials", snapshot);
+         write(images, accountKey, Files.newWriter(temp, Charsets.UTF_8), includeSecrets && ownerOnly);
+         Files.move(temp, snapshot);
+         logger.debug(">> saved %d images to snapshot(%s)", images.size(), snapshot);
+      } catch (IOException e) {
+         logger.warn(e, ">> could not save image snapshot(%s)", snapshot);
+         temp.delete();
+      }
+   }
+
+   /**
+    * @param includeSecrets
+    *           whether to write the password and private key of default credentials
+    */
+   @VisibleForTesting
+   static void write(Set<? extends Image> images, String accountKey, Writer out, boolean includeSecrets)
+         throws IOException {
+      JsonWriter writer = new JsonWriter(out);
+      boolean threw = true;
+      try {
+         Map<Location, Integer> locations = Maps.newLinkedHashMap();
+         for (Image image : images)
+            index(image.getLocation(), locations);
+
+         writer.beginObject();
+         writer.name("version").value(FORMAT_VERSION);
+         writer.name("account").value(accountKey);
+         writer.name("locations").beginArray();
+         for (Location location : locations.keySet()) {
+            writer.beginObject();
+            writer.name("id").value(location.getId());
+            writer.name("scope").value(location.getScope().name());
+            writer.name("description").value(location.getDescription());
+            if (location.getParent() != null)
+               writer.name("parent").value(locations.get(location.getParent()));
+            writeStrings(writer, "iso3166Codes", location.getIso3166Codes());
+            writer.endObject();
+         }
+         writer.endArray();
+         writer.name("images").beginArray();
+         for (Image image : images) {
+            writer.beginObject();
+            writer.name("id").value(image.getId());
+            writer.name("providerId").value(image.getProviderId());
+            writer.name("name").value(image.getName());
+            if (image.getLocation() != null)
+               writer.name("location").value(locations.get(image.getLocation()));
+            if (image.getUri() != null)
+               writer.name("uri").value(image.getUri().toString());
+            writeStrings(writer, "tags", image.getTags());
+            writer.name("userMetadata").beginObject();
+            for (Map.Entry<String, String> entry : image.getUserMetadata().entrySet())
+               writer.name(entry.getKey()).value(entry.getValue());
+            writer.endObject();
+            writer.name("status").value(image.getStatus().name());
+            writer.name("backendStatus").value(image.getBackendStatus());
+            writer.name("version").value(image.getVersion());
+            writer.name("description").value(image.getDescription());
+            writeOperatingSystem(writer, image.getOperatingSystem());
+            if (image.getDefaultCredentials() != null)
+               writeCredentials(writer, image.getDefaultCredentials(), includeSecrets);
+            writer.endObject();
+         }
+         writer.endArray();
+         writer.endObject();
+         threw = false;
+      } finally {
+         Closeables.close(writer, threw);
+      }
+   }
+
+   private static void index(Location location, Map<Location, Integer> locations) {
+      if (location == null || locations.containsKey(location))
+         return;
+      // parents first, so they can be resolved while reading
+      index(location.getParent(), locations);
+      locations.put(location, locations.size());
+   }
+
+   private static void writeStrings(JsonWriter writer, String name, Iterable<String> values) throws IOException {
+      writer.name(name).beginArray();
+      for (String value : values)
+         writer.value(value);
+      writer.endArray();
+   }
+
+   private static void writeOperatingSystem(JsonWriter writer, OperatingSystem os) throws IOException {
+      writer.name("os").beginObject();
+      if (os.getFamily() != null)
+         writer.name("family").value(os.getFamily().value());
+      writer.name("name").value(os.getName());
+      writer.name("version").value(os.getVersion());
+      writer.name("arch").value(os.getArch());
+      writer.name("description").value(os.getDescription());
+      writer.name("is64Bit").value(os.is64Bit());
+      writer.endObject();
+   }
+
+   private static void writeCredentials(JsonWriter writer, LoginCredentials credentials, boolean includeSecrets)
+         throws IOException {
+      writer.name("defaultCredentials").beginObject();
+      writer.name("user").value(credentials.getUser());
+      if (includeSecrets && credentials.getOptionalPassword().isPresent())
+         writer.name("password").value(credentials.getOptionalPassword().get());
+      if (includeSecrets && credentials.getOptionalPrivateKey().isPresent())
+         writer.name("privateKey").value(credentials.getOptionalPrivateKey().get());
+      writer.name("authenticateSudo").value(credentials.shouldAuthenticateSudo());
+      writer.endObject();
+   }
+
+   /**
+    * @return the images of the snapshot, or null if it was taken for another account
+    */
+   @VisibleForTesting
+   @Nullable
+   static Set<Image> read(Reader in, String accountKey) throws IOException {
+      JsonReader reader = new JsonReader(in);
+      try {
+         String account = null;
+         List<Location> locations = Lists.newArrayList();
+         ImmutableSet.Builder<Image> images = ImmutableSet.builder();
+         reader.beginObject();
+         while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (name.equals("version")) {
+               int version = reader.nextInt();
+               if (version != FORMAT_VERSION)
+                  throw new IOException("unsupported image snapshot version " + version);
+            } else if (name.equals("account")) {
+               account = reader.nextString();
+               if (!account.equals(accountKey))
+                  return null;
+            } else if (name.equals("locations")) {
+               reader.beginArray();
+               while (reader.hasNext())
+                  locations.add(readLocation(reader, locations));
+               reader.endArray();
+            } else if (name.equals("images")) {
+               reader.beginArray();
+               while (reader.hasNext())
+                  images.add(readImage(reader, locations));
+               reader.endArray();
+            } else {
+               reader.skipValue();
+            }
+         }
+         reader.endObject();
+         return accountKey.equals(account) ? images.build() : null;
+      } finally {
+         Closeables.close(reader, true);
+      }
+   }
+
+   private static Location readLocation(JsonReader reader, List<Location> locations) throws IOException {
+      LocationBuilder builder = new LocationBuilder();
+      reader.beginObject();
+      while (reader.hasNext()) {
+         String name = reader.nextName();
+         if (name.equals("id"))
+            builder.id(reader.nextString());
+         else if (name.equals("scope"))
+            builder.scope(LocationScope.valueOf(reader.nextString()));
+         else if (name.equals("description"))
+            builder.description(reader.nextString());
+         else if (name.equals("parent"))
+            builder.parent(locations.get(reader.nextInt()));
+         else if (name.equals("iso3166Codes"))
+            builder.iso3166Codes(readStrings(reader));
+         else
+            reader.skipValue();
+      }
+      reader.endObject();
+      return builder.build();
+   }
+
+   private static Image readImage(JsonReader reader, List<Location> locations) throws IOException {
+      ImageBuilder builder = new ImageBuilder();
+      reader.beginObject();
+      while (reader.hasNext()) {
+         String name = reader.nextName();
+         if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+         } else if (name.equals("id")) {
+            builder.id(reader.nextString());
+         } else if (name.equals("providerId")) {
+            builder.providerId(reader.nextString());
+         } else if (name.equals("name")) {
+            builder.name(reader.nextString());
+         } else if (name.equals("location")) {
+            builder.location(locations.get(reader.nextInt()));
+         } else if (name.equals("uri")) {
+            builder.uri(URI.create(reader.nextString()));
+         } else if (name.equals("tags")) {
+            builder.tags(readStrings(reader));
+         } else if (name.equals("userMetadata")) {
+            ImmutableMap.Builder<String, String> userMetadata = ImmutableMap.builder();
+            reader.beginObject();
+            while (reader.hasNext())
+               userMetadata.put(reader.nextName(), reader.nextString());
+            reader.endObject();
+            builder.userMetadata(userMetadata.build());
+         } else if (name.equals("status")) {
+            builder.status(Image.Status.valueOf(reader.nextString()));
+         } else if (name.equals("backendStatus")) {
+            builder.backendStatus(reader.nextString());
+         } else if (name.equals("version")) {
+            builder.version(reader.nextString());
+         } else if (name.equals("description")) {
+            builder.description(reader.nextString());
+         } else if (name.equals("os")) {
+            builder.operatingSystem(readOperatingSystem(reader));
+         } else if (name.equals("defaultCredentials")) {
+            builder.defaultCredentials(readCredentials(reader));
+         } else {
+            reader.skipValue();
+         }
+      }
+      reader.endObject();
+      return builder.build();
+   }
+
+   private static OperatingSystem readOperatingSystem(JsonReader reader) throws IOException {
+      OperatingSystem.Builder builder = OperatingSystem.builder();
+      reader.beginObject();
+      while (reader.hasNext()) {
+         String name = reader.nextName();
+         if (reader.peek() == JsonToken.NULL)
+            reader.nextNull();
+         else if (name.equals("family"))
+            builder.family(OsFamily.fromValue(reader.nextString()));
+         else if (name.equals("name"))
+            builder.name(reader.nextString());
+         else if (name.equals("version"))
+            builder.version(reader.nextString());
+         else if (name.equals("arch"))
+            builder.arch(reader.nextString());
+         else if (name.equals("description"))
+            builder.description(reader.nextString());
+         else if (name.equals("is64Bit"))
+            builder.is64Bit(reader.nextBoolean());
+         else
+            reader.skipValue();
+      }
+      reader.endObject();
+      return builder.build();
+   }
+
+   private static LoginCredentials readCredentials(JsonReader reader) throws IOException {
+      LoginCredentials.Builder builder = LoginCredentials.builder();
+      reader.beginObject();
+      while (reader.hasNext()) {
+         String name = reader.nextName();
+         if (reader.peek() == JsonToken.NULL)
+            reader.nextNull();
+         else if (name.equals("user"))
+            builder.user(reader.nextString());
+         else if (name.equals("password"))
+            builder.password(reader.nextString());
+         else if (name.equals("privateKey"))
+            builder.privateKey(reader.nextString());
+         else if (name.equals("authenticateSudo"))
+            builder.authenticateSudo(reader.nextBoolean());
+         else
+            reader.skipValue();
+      }
+      reader.endObject();
+      return builder.build();
+   }
+
+   private static List<String> readStrings(JsonReader reader) throws IOException {
+      List<String> values = Lists.newArrayList();
+      reader.beginArray();
+      while (reader.hasNext())
+         values.add(reader.nextString());
+      reader.endArray();
+      return values;
+   }
+}
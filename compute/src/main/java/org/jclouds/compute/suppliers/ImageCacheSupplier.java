@@ -27,6 +27,8 @@ import javax.inject.Named;
 import javax.inject.Singleton;
 
 import org.jclouds.compute.domain.Image;
+import org.jclouds.compute.domain.internal.ImageIndex;
+import org.jclouds.javax.annotation.Nullable;
 
 import com.google.common.base.Supplier;
 import com.google.common.cache.Cache;
@@ -49,6 +51,8 @@ public class ImageCacheSupplier implements Supplier<Set<? extends Image>> {
 
    private final Cache<String, Image> uncachedImages;
 
+   private volatile Snapshot snapshot;
+
    @Inject
    public ImageCacheSupplier(@Named("imageCache") Supplier<Set<? extends Image>> imageCache,
          @Named(PROPERTY_SESSION_INTERVAL) long sessionIntervalSeconds) {
@@ -61,7 +65,52 @@ public class ImageCacheSupplier implements Supplier<Set<? extends Image>> {
 
    @Override
    public Set<? extends Image> get() {
-      return ImmutableSet.copyOf(concat(imageCache.get(), uncachedImages.asMap().values()));
+      return snapshot().images;
+   }
+
+   /**
+    * Returns an index over the given images, if they are the ones most recently returned by {@link #get()}. The index
+    * is built at most once per refresh of the image cache or change to the registered images.
+    * 
+    * @return the index, or null if the images are not the current contents of this cache
+    */
+   @Nullable
+   public ImageIndex indexOf(Set<? extends Image> images) {
+      Snapshot current = snapshot;
+      return current != null && current.images == images ? current.index() : null;
+   }
+
+   private Snapshot snapshot() {
+      Set<? extends Image> cached = imageCache.get();
+      Set<Image> registered = ImmutableSet.copyOf(uncachedImages.asMap().values());
+      Snapshot current = snapshot;
+      if (current == null || current.cached != cached || !current.registered.equals(registered)) {
+         current = new Snapshot(cached, registered);
+         snapshot = current;
+      }
+      return current;
+   }
+
+   /**
+    * The combined images for one version of the image cache and registered images.
+    */
+   private static final class Snapshot {
+      private final Set<? extends Image> cached;
+      private final Set<Image> registered;
+      private final Set<? extends Image> images;
+      private ImageIndex index;
+
+      private Snapshot(Set<? extends Image> cached, Set<Image> registered) {
+         this.cached = cached;
+         this.registered = registered;
+         this.images = ImmutableSet.copyOf(concat(cached, registered));
+      }
+
+      private synchronized ImageIndex index() {
+         if (index == null)
+            index = new ImageIndex(images);
+         return index;
+      }
    }
 
    /**
@@ -0,0 +1,417 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.ssh.internal;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.io.Closeable;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.jclouds.compute.domain.ExecChannel;
+import org.jclouds.compute.domain.ExecResponse;
+import org.jclouds.domain.LoginCredentials;
+import org.jclouds.io.Payload;
+import org.jclouds.io.Payloads;
+import org.jclouds.ssh.ConnectionAwareSshClient;
+import org.jclouds.ssh.SshClient;
+import org.jclouds.ssh.SshException;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Objects;
+import com.google.common.base.Throwables;
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.net.HostAndPort;
+
+/**
+ * An {@link SshClient.Factory} that keeps authenticated connections per host, port and login open between clients,
+ * so that running many commands on a node does not pay for a handshake and authentication each time.
+ * <p/>
+ * {@link SshClient#connect()} on a pooled client takes an idle connection, or opens one, for the exclusive use of
+ * that client, and {@link SshClient#disconnect()} returns it to the pool. As a connection is never shared by clients
+ * at the same time, drivers which reconnect their session after an error only affect the client which saw it; a
+ * connection on which an operation failed is closed instead of being returned. At most a configured number of
+ * connections per host are open at the same time, further clients waiting up to the lease timeout for one to be
+ * returned. Idle connections are closed once they have been idle for longer than the idle timeout, which is checked
+ * whenever a client is created or a connection returned, and idle connections of a
+ * {@link ConnectionAwareSshClient} which the server closed are discarded instead of being handed out.
+ */
+public class PooledSshClientFactory implements SshClient.Factory, Closeable {
+
+   private final SshClient.Factory delegate;
+   private final int maxConnectionsPerHost;
+   private final long idleTimeoutNanos;
+   private final long leaseTimeoutMillis;
+   private final Ticker ticker;
+   private final ConcurrentMap<PoolKey, HostPool> pools = Maps.newConcurrentMap();
+
+   /**
+    * @param leaseTimeoutMillis
+    *           how long a client waits for a connection when all connections to its host are leased, usually the
+    *           ssh connect timeout
+    */
+   public PooledSshClientFactory(SshClient.Factory delegate, int maxConnectionsPerHost, long idleTimeoutMillis,
+         long leaseTimeoutMillis) {
+      this(delegate, maxConnectionsPerHost, idleTimeoutMillis, leaseTimeoutMillis, Ticker.systemTicker());
+   }
+
+   @VisibleForTesting
+   PooledSshClientFactory(SshClient.Factory delegate, int maxConnectionsPerHost, long idleTimeoutMillis,
+         long leaseTimeoutMillis, Ticker ticker) {
+      this.delegate = checkNotNull(delegate, "delegate");
+      checkArgument(maxConnectionsPerHost > 0, "maxConnectionsPerHost must be positive");
+      checkArgument(leaseTimeoutMillis >= 0, "leaseTimeoutMillis must not be negative");
+      this.maxConnectionsPerHost = maxConnectionsPerHost;
+      this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+      this.leaseTimeoutMillis = leaseTimeoutMillis;
+      this.ticker = checkNotNull(ticker, "ticker");
+   }
+
+   @Override
+   public SshClient create(HostAndPort socket, LoginCredentials credentials) {
+      evictIdleConnections();
+      return new PooledSshClient(new PoolKey(checkNotNull(socket, "socket"), checkNotNull(credentials,
+            "credentials")));
+   }
+
+   @Override
+   public boolean isAgentAvailable() {
+      return delegate.isAgentAvailable();
+   }
+
+   /**
+    * Closes connections that have been idle for longer than the idle timeout.
+    */
+   public void evictIdleConnections() {
+      long threshold = ticker.read() - idleTimeoutNanos;
+      for (HostPool pool : pools.values())
+         pool.evictIdleSince(threshold);
+   }
+
+   /**
+    * @return the connections open, whether leased or idle
+    */
+   @VisibleForTesting
+   int connectionCount() {
+      int count = 0;
+      for (HostPool pool : pools.values())
+         count += pool.openCount();
+      return count;
+   }
+
+   /**
+    * Closes all pooled connections, regardless of leases.
+    */
+   @Override
+   public void close() {
+      for (HostPool pool : pools.values())
+         pool.close();
+   }
+
+   private HostPool pool(PoolKey key) {
+      HostPool pool = pools.get(key);
+      if (pool == null) {
+         HostPool created = new HostPool(key);
+         pool = pools.putIfAbsent(key, created);
+         if (pool == null)
+            pool = created;
+      }
+      return pool;
+   }
+
+   private static final class PoolKey {
+      private final HostAndPort socket;
+      private final LoginCredentials credentials;
+
+      private PoolKey(HostAndPort socket, LoginCredentials credentials) {
+         this.socket = socket;
+         this.credentials = credentials;
+      }
+
+      @Override
+      public boolean equals(Object obj) {
+         if (this == obj)
+            return true;
+         if (!(obj instanceof PoolKey))
+            return false;
+         PoolKey that = PoolKey.class.cast(obj);
+         return socket.equals(that.socket) && credentials.equals(that.credentials);
+      }
+
+      @Override
+      public int hashCode() {
+         return Objects.hashCode(socket, credentials);
+      }
+
+      @Override
+      public String toString() {
+         // credentials intentionally omitted
+         return credentials.getUser() + "@" + socket;
+      }
+   }
+
+   private static final class IdleConnection {
+      private final SshClient client;
+      private final long idleSince;
+
+      private IdleConnection(SshClient client, long idleSince) {
+         this.client = client;
+         this.idleSince = idleSince;
+      }
+   }
+
+   /**
+    * The connections to one host, port and login. Idle connections are reused most recently returned first, so the
+    * ones left at the end of the queue are the ones to evict.
+    */
+   private final class HostPool {
+      private final PoolKey key;
+      private final Semaphore leases = new Semaphore(maxConnectionsPerHost, true);
+      private final Deque<IdleConnection> idle = Lists.newLinkedList();
+      private final Set<SshClient> open = Sets.newHashSet();
+      private boolean closed;
+
+      private HostPool(PoolKey key) {
+         this.key = key;
+      }
+
+      private SshClient lease() {
+         try {
+            if (!leases.tryAcquire(leaseTimeoutMillis, TimeUnit.MILLISECONDS))
+               throw new SshException(String.format("timed out after %dms waiting for an ssh connection to %s",
+                     leaseTimeoutMillis, key));
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw Throwables.propagate(e);
+         }
+         try {
+            SshClient reused = pollLiveIdleConnection();
+            if (reused != null)
+               return reused;
+            SshClient client = delegate.create(key.socket, key.credentials);
+            client.connect();
+            synchronized (this) {
+               if (!closed) {
+                  open.add(client);
+                  return client;
+               }
+            }
+            client.disconnect();
+            throw new IllegalStateException("ssh connection pool for " + key + " is closed");
+         } catch (RuntimeException e) {
+            leases.release();
+            throw e;
+         }
+      }
+
+      /**
+       * @return the most recently returned idle connection which is still connected, after closing the ones which
+       *         are not, or null if there is none
+       */
+      private SshClient pollLiveIdleConnection() {
+         while (true) {
+            IdleConnection connection;
+            synchronized (this) {
+               checkState(!closed, "ssh connection pool for %s is closed", key);
+               connection = idle.pollFirst();
+               if (connection == null)
+                  return null;
+               if (isConnected(connection.client))
+                  return connection.client;
+               open.remove(connection.client);
+            }
+            disconnectQuietly(connection.client);
+         }
+      }
+
+      /**
+       * @param reusable
+       *           false if an operation failed on the connection, which is then closed
+       */
+      private void release(SshClient client, boolean reusable) {
+         boolean disconnect;
+         synchronized (this) {
+            if (closed || !reusable || !isConnected(client)) {
+               disconnect = open.remove(client);
+            } else {
+               disconnect = false;
+               idle.addFirst(new IdleConnection(client, ticker.read()));
+            }
+         }
+         leases.release();
+         if (disconnect)
+            disconnectQuietly(client);
+         evictIdleConnections();
+      }
+
+      private void evictIdleSince(long threshold) {
+         List<SshClient> evicted = Lists.newArrayList();
+         synchronized (this) {
+            for (Iterator<IdleConnection> it = idle.descendingIterator(); it.hasNext();) {
+               IdleConnection connection = it.next();
+               if (connection.idleSince - threshold > 0)
+                  break;
+               it.remove();
+               open.remove(connection.client);
+               evicted.add(connection.client);
+            }
+         }
+         for (SshClient client : evicted)
+            client.disconnect();
+      }
+
+      private synchronized int openCount() {
+         return open.size();
+      }
+
+      private void close() {
+         List<SshClient> clients;
+         synchronized (this) {
+            closed = true;
+            clients = ImmutableList.copyOf(open);
+            open.clear();
+            idle.clear();
+         }
+         for (SshClient client : clients)
+            client.disconnect();
+      }
+   }
+
+   private static boolean isConnected(SshClient client) {
+      return !(client instanceof ConnectionAwareSshClient) || ((ConnectionAwareSshClient) client).isConnected();
+   }
+
+   private static void disconnectQuietly(SshClient client) {
+      try {
+         client.disconnect();
+      } catch (RuntimeException e) {
+         // the connection is being discarded anyway
+      }
+   }
+
+   private final class PooledSshClient implements SshClient {
+      private final PoolKey key;
+      private HostPool pool;
+      private SshClient connection;
+      private boolean reusable;
+
+      private PooledSshClient(PoolKey key) {
+         this.key = key;
+      }
+
+      private synchronized SshClient connection() {
+         if (connection == null) {
+            pool = pool(key);
+            connection = pool.lease();
+            reusable = true;
+         }
+         return connection;
+      }
+
+      private synchronized void failed() {
+         reusable = false;
+      }
+
+      @Override
+      public void connect() {
+         connection();
+      }
+
+      @Override
+      public synchronized void disconnect() {
+         if (connection != null) {
+            pool.release(connection, reusable);
+            connection = null;
+         }
+      }
+
+      @Override
+      public ExecResponse exec(String command) {
+         SshClient connection = connection();
+         try {
+            return connection.exec(command);
+         } catch (RuntimeException e) {
+            failed();
+            throw e;
+         }
+      }
+
+      @Override
+      public ExecChannel execChannel(String command) {
+         SshClient connection = connection();
+         try {
+            return connection.execChannel(command);
+         } catch (RuntimeException e) {
+            failed();
+            throw e;
+         }
+      }
+
+      @Override
+      public void put(String path, Payload contents) {
+         SshClient connection = connection();
+         try {
+            connection.put(path, contents);
+         } catch (RuntimeException e) {
+            failed();
+            throw e;
+         }
+      }
+
+      @Override
+      public void put(String path, String contents) {
+         put(path, Payloads.newStringPayload(checkNotNull(contents, "contents")));
+      }
+
+      @Override
+      public Payload get(String path) {
+         SshClient connection = connection();
+         try {
+            return connection.get(path);
+         } catch (RuntimeException e) {
+            failed();
+            throw e;
+         }
+      }
+
+      @Override
+      public String getUsername() {
+         return key.credentials.getUser();
+      }
+
+      @Override
+      public String getHostAddress() {
+         return key.socket.getHostText();
+      }
+
+      @Override
+      public String toString() {
+         return "pooled(" + key + ")";
+      }
+   }
+}
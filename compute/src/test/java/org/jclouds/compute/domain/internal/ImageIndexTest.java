@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.compute.domain.internal;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+import java.util.List;
+
+import org.jclouds.compute.domain.Image;
+import org.jclouds.compute.domain.ImageBuilder;
+import org.jclouds.compute.domain.OperatingSystem;
+import org.jclouds.compute.domain.OsFamily;
+import org.jclouds.domain.Location;
+import org.jclouds.domain.LocationBuilder;
+import org.jclouds.domain.LocationScope;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+
+@Test(groups = "unit", testName = "ImageIndexTest")
+public class ImageIndexTest {
+
+   private final Location provider = new LocationBuilder().scope(LocationScope.PROVIDER).id("aws-ec2")
+         .description("aws-ec2").build();
+   private final Location east = new LocationBuilder().scope(LocationScope.REGION).id("us-east-1")
+         .description("us-east-1").parent(provider).build();
+   private final Location eastZone = new LocationBuilder().scope(LocationScope.ZONE).id("us-east-1a")
+         .description("us-east-1a").parent(east).build();
+   private final Location west = new LocationBuilder().scope(LocationScope.REGION).id("us-west-1")
+         .description("us-west-1").parent(provider).build();
+
+   private Image image(String id, Location location, OsFamily family, String version, boolean is64Bit) {
+      return new ImageBuilder().ids(id).name(id).location(location).status(Image.Status.AVAILABLE)
+            .operatingSystem(OperatingSystem.builder().family(family).version(version).description(id)
+                  .is64Bit(is64Bit).build()).build();
+   }
+
+   private static List<String> ids(List<Image> images) {
+      return Lists.transform(images, new Function<Image, String>() {
+         @Override
+         public String apply(Image input) {
+            return input.getId();
+         }
+      });
+   }
+
+   private final Image ubuntu1204East = image("d-ubuntu-12.04", east, OsFamily.UBUNTU, "12.04", true);
+   private final Image ubuntu1004East = image("b-ubuntu-10.04", east, OsFamily.UBUNTU, "10.04", true);
+   private final Image ubuntu1204West = image("c-ubuntu-12.04", west, OsFamily.UBUNTU, "12.04", false);
+   private final Image centosGlobal = image("a-centos-6.4", null, OsFamily.CENTOS, "6.4", true);
+   private final Image windowsEast = image("e-windows", east, OsFamily.WINDOWS, null, true);
+
+   private final ImageIndex index = new ImageIndex(ImmutableSet.of(ubuntu1204East, ubuntu1004East, ubuntu1204West,
+         centosGlobal, windowsEast));
+
+   public void testCandidatesWithoutCriteriaAreAllImagesInDefaultOrder() {
+      assertEquals(ids(index.candidates(null, null, null, null)),
+            ImmutableList.of("a-centos-6.4", "b-ubuntu-10.04", "c-ubuntu-12.04", "d-ubuntu-12.04", "e-windows"));
+   }
+
+   public void testCandidatesByFamily() {
+      assertEquals(ids(index.candidates(null, OsFamily.UBUNTU, null, null)),
+            ImmutableList.of("b-ubuntu-10.04", "c-ubuntu-12.04", "d-ubuntu-12.04"));
+      assertEquals(index.candidates(null, OsFamily.RHEL, null, null), ImmutableList.of());
+   }
+
+   public void testCandidatesByLocationIncludeParentsAndImagesWithoutLocation() {
+      assertEquals(ids(index.candidates(eastZone, null, null, null)),
+            ImmutableList.of("a-centos-6.4", "b-ubuntu-10.04", "d-ubuntu-12.04", "e-windows"));
+   }
+
+   public void testCandidatesByOsVersionMatchDistinctVersions() {
+      assertEquals(ids(index.candidates(null, null, null, "12.04")), ImmutableList.of("c-ubuntu-12.04",
+            "d-ubuntu-12.04"));
+      assertEquals(ids(index.candidates(null, null, null, "1[02]\\..*")), ImmutableList.of("b-ubuntu-10.04",
+            "c-ubuntu-12.04", "d-ubuntu-12.04"));
+   }
+
+   public void testCandidatesUseSmallestBucket() {
+      assertEquals(ids(index.candidates(null, OsFamily.UBUNTU, false, null)), ImmutableList.of("c-ubuntu-12.04"));
+   }
+
+   public void testGetById() {
+      assertEquals(index.getById("b-ubuntu-10.04"), ubuntu1004East);
+      assertNull(index.getById("missing"));
+   }
+}
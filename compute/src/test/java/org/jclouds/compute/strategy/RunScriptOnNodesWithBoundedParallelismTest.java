@@ -0,0 +1,194 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.compute.strategy;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jclouds.compute.ScriptResultHandler;
+import org.jclouds.compute.callables.RunScriptOnNode;
+import org.jclouds.compute.domain.ExecResponse;
+import org.jclouds.compute.domain.NodeMetadata;
+import org.jclouds.compute.domain.NodeMetadata.Status;
+import org.jclouds.compute.domain.NodeMetadataBuilder;
+import org.jclouds.compute.options.RunScriptOptions;
+import org.jclouds.logging.Logger;
+import org.jclouds.scriptbuilder.domain.Statement;
+import org.jclouds.scriptbuilder.domain.Statements;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+
+@Test(groups = "unit", testName = "RunScriptOnNodesWithBoundedParallelismTest")
+public class RunScriptOnNodesWithBoundedParallelismTest {
+
+   private final ListeningExecutorService userExecutor = MoreExecutors.listeningDecorator(Executors
+         .newCachedThreadPool());
+
+   @AfterClass(alwaysRun = true)
+   public void tearDown() {
+      userExecutor.shutdownNow();
+   }
+
+   /**
+    * runs scripts that sleep briefly, failing on the ids given, and tracks how many run at once
+    */
+   private static class FakeRunScriptOnNodeFactory implements RunScriptOnNode.Factory {
+      private final Set<String> failingIds;
+      private final AtomicInteger running = new AtomicInteger();
+      private final AtomicInteger maxRunning = new AtomicInteger();
+
+      private FakeRunScriptOnNodeFactory(Set<String> failingIds) {
+         this.failingIds = failingIds;
+      }
+
+      @Override
+      public RunScriptOnNode create(final NodeMetadata node, final Statement script, RunScriptOptions options) {
+         return new RunScriptOnNode() {
+
+            @Override
+            public RunScriptOnNode init() {
+               int now = running.incrementAndGet();
+               while (true) {
+                  int max = maxRunning.get();
+                  if (now <= max || maxRunning.compareAndSet(max, now))
+                     break;
+               }
+               return this;
+            }
+
+            @Override
+            public ExecResponse call() {
+               try {
+                  Thread.sleep(20);
+                  if (failingIds.contains(node.getId()))
+                     throw new IllegalStateException("failed on " + node.getId());
+                  return new ExecResponse("ran on " + node.getId(), "", 0);
+               } catch (InterruptedException e) {
+                  throw new IllegalStateException(e);
+               } finally {
+                  running.decrementAndGet();
+               }
+            }
+
+            @Override
+            public Statement getStatement() {
+               return script;
+            }
+
+            @Override
+            public NodeMetadata getNode() {
+               return node;
+            }
+         };
+      }
+
+      @Override
+      public ListenableFuture<ExecResponse> submit(NodeMetadata node, Statement script, RunScriptOptions options) {
+         throw new UnsupportedOperationException();
+      }
+   }
+
+   private static class RecordingHandler implements ScriptResultHandler {
+      private final Map<String, ExecResponse> successes = Maps.newConcurrentMap();
+      private final Map<String, Throwable> failures = Maps.newConcurrentMap();
+
+      @Override
+      public void onSuccess(NodeMetadata node, ExecResponse response, long elapsedMillis) {
+         assertTrue(elapsedMillis >= 0, "elapsedMillis: " + elapsedMillis);
+         successes.put(node.getId(), response);
+      }
+
+      @Override
+      public void onFailure(NodeMetadata node, Throwable failure, long elapsedMillis) {
+         assertTrue(elapsedMillis >= 0, "elapsedMillis: " + elapsedMillis);
+         failures.put(node.getId(), failure);
+      }
+   }
+
+   private static List<NodeMetadata> nodes(int count) {
+      List<NodeMetadata> nodes = Lists.newArrayList();
+      for (int i = 0; i < count; i++)
+         nodes.add(new NodeMetadataBuilder().ids(i + "").status(Status.RUNNING).build());
+      return nodes;
+   }
+
+   public void testRunsOnAllNodesWithinParallelism() {
+      FakeRunScriptOnNodeFactory factory = new FakeRunScriptOnNodeFactory(ImmutableSet.of("3"));
+      RecordingHandler handler = new RecordingHandler();
+
+      Set<NodeMetadata> skipped = new RunScriptOnNodesWithBoundedParallelism(factory, userExecutor, Logger.NULL)
+            .execute(nodes(20), Statements.exec("uptime"), RunScriptOptions.NONE, 4, 0, handler);
+
+      assertEquals(skipped, ImmutableSet.of());
+      assertEquals(handler.successes.size(), 19);
+      assertEquals(handler.successes.get("0").getOutput(), "ran on 0");
+      assertEquals(handler.failures.keySet(), ImmutableSet.of("3"));
+      assertTrue(factory.maxRunning.get() <= 4, "maxRunning: " + factory.maxRunning.get());
+   }
+
+   public void testSkipsRemainingNodesAfterMaxFailures() {
+      FakeRunScriptOnNodeFactory factory = new FakeRunScriptOnNodeFactory(ImmutableSet.of("0", "1"));
+      RecordingHandler handler = new RecordingHandler();
+      List<NodeMetadata> nodes = nodes(5);
+
+      Set<NodeMetadata> skipped = new RunScriptOnNodesWithBoundedParallelism(factory, userExecutor, Logger.NULL)
+            .execute(nodes, Statements.exec("uptime"), RunScriptOptions.NONE, 1, 2, handler);
+
+      assertEquals(ImmutableList.copyOf(skipped), nodes.subList(2, 5));
+      assertEquals(handler.failures.keySet(), ImmutableSet.of("0", "1"));
+      assertEquals(handler.successes.size(), 0);
+   }
+
+   public void testHandlerErrorsDoNotCountAsFailures() {
+      FakeRunScriptOnNodeFactory factory = new FakeRunScriptOnNodeFactory(ImmutableSet.<String> of());
+      final AtomicInteger calls = new AtomicInteger();
+      ScriptResultHandler handler = new RecordingHandler() {
+         @Override
+         public void onSuccess(NodeMetadata node, ExecResponse response, long elapsedMillis) {
+            calls.incrementAndGet();
+            throw new RuntimeException("handler bug");
+         }
+      };
+
+      Set<NodeMetadata> skipped = new RunScriptOnNodesWithBoundedParallelism(factory, userExecutor, Logger.NULL)
+            .execute(nodes(3), Statements.exec("uptime"), RunScriptOptions.NONE, 1, 1, handler);
+
+      assertEquals(skipped, ImmutableSet.of());
+      assertEquals(calls.get(), 3);
+   }
+
+   @Test(expectedExceptions = IllegalArgumentException.class)
+   public void testMaxParallelismMustBePositive() {
+      new RunScriptOnNodesWithBoundedParallelism(new FakeRunScriptOnNodeFactory(ImmutableSet.<String> of()),
+            userExecutor, Logger.NULL).execute(nodes(1), Statements.exec("uptime"), RunScriptOptions.NONE, 0, 0,
+            new RecordingHandler());
+   }
+}
@@ -0,0 +1,183 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.compute.strategy.impl;
+
+import static com.google.common.util.concurrent.MoreExecutors.sameThreadExecutor;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.testng.Assert.assertEquals;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.jclouds.compute.config.CustomizationResponse;
+import org.jclouds.compute.domain.ComputeMetadata;
+import org.jclouds.compute.domain.NodeMetadata;
+import org.jclouds.compute.domain.NodeMetadataBuilder;
+import org.jclouds.compute.domain.Template;
+import org.jclouds.compute.functions.GroupNamingConvention;
+import org.jclouds.compute.options.TemplateOptions;
+import org.jclouds.compute.strategy.CustomizeNodeAndAddToGoodMapOrPutExceptionIntoBadMap;
+import org.jclouds.compute.strategy.ListNodesStrategy;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Function;
+import com.google.common.base.Predicate;
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.TypeLiteral;
+
+@Test(groups = "unit", testName = "CreateNodesWithGroupEncodedIntoNameThenAddToSetTest")
+public class CreateNodesWithGroupEncodedIntoNameThenAddToSetTest {
+
+   private static GroupNamingConvention.Factory namingConventionWithSuffixes(String... suffixes) {
+      final Iterator<String> iterator = ImmutableList.copyOf(suffixes).iterator();
+      return Guice.createInjector(new AbstractModule() {
+         @Override
+         protected void configure() {
+            bind(new TypeLiteral<Supplier<String>>() {
+            }).toInstance(new Supplier<String>() {
+               @Override
+               public String get() {
+                  return iterator.next();
+               }
+            });
+         }
+      }).getInstance(GroupNamingConvention.Factory.class);
+   }
+
+   private static class CountingListNodes implements ListNodesStrategy {
+      private final Set<NodeMetadata> nodes;
+      private int listings;
+
+      private CountingListNodes(NodeMetadata... nodes) {
+         this.nodes = ImmutableSet.copyOf(nodes);
+      }
+
+      @Override
+      public Iterable<? extends ComputeMetadata> listNodes() {
+         listings++;
+         return nodes;
+      }
+
+      @Override
+      public Iterable<? extends NodeMetadata> listDetailsOnNodesMatching(Predicate<ComputeMetadata> filter) {
+         throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public Iterable<? extends NodeMetadata> listNodesByIds(Iterable<String> ids) {
+         throw new UnsupportedOperationException();
+      }
+   }
+
+   private static NodeMetadata node(String id, String name) {
+      return new NodeMetadataBuilder().id(id).name(name).status(NodeMetadata.Status.RUNNING).build();
+   }
+
+   private static Template template() {
+      Template template = createMock(Template.class);
+      expect(template.getOptions()).andReturn(TemplateOptions.NONE).anyTimes();
+      replay(template);
+      return template;
+   }
+
+   public void testNamesSkipExistingAndPreviouslyAllocatedNodesWithOneListing() {
+      CountingListNodes listNodes = new CountingListNodes(node("1", "web-1"), node("2", "dbs-2"), node("3", "web-3"));
+
+      CreateNodesWithGroupEncodedIntoNameThenAddToSet strategy = new CreateNodesWithGroupEncodedIntoNameThenAddToSet(
+            null, listNodes, namingConventionWithSuffixes("1", "2", "3", "4", "4", "5"), null, null);
+
+      assertEquals(strategy.getNextNames("web", template(), 2), ImmutableSet.of("web-2", "web-4"));
+      // web-4 was allocated by the previous call
+      assertEquals(strategy.getNextNames("web", template(), 1), ImmutableSet.of("web-5"));
+      assertEquals(listNodes.listings, 1);
+   }
+
+   public void testGroupsAreIndexedSeparately() {
+      CountingListNodes listNodes = new CountingListNodes(node("1", "web-1"), node("2", "dbs-1"));
+
+      CreateNodesWithGroupEncodedIntoNameThenAddToSet strategy = new CreateNodesWithGroupEncodedIntoNameThenAddToSet(
+            null, listNodes, namingConventionWithSuffixes("1", "2", "1", "2"), null, null);
+
+      Set<String> web = strategy.getNextNames("web", template(), 1);
+      Set<String> db = strategy.getNextNames("dbs", template(), 1);
+      assertEquals(web, ImmutableSet.of("web-2"));
+      assertEquals(db, ImmutableSet.of("dbs-2"));
+      assertEquals(listNodes.listings, 2);
+   }
+
+   public void testNameOfNodeNotCreatedIsReleased() {
+      CountingListNodes listNodes = new CountingListNodes(node("1", "web-1"));
+
+      CreateNodesWithGroupEncodedIntoNameThenAddToSet strategy = new CreateNodesWithGroupEncodedIntoNameThenAddToSet(
+            null, listNodes, namingConventionWithSuffixes("2", "3", "3", "2", "4"), sameThreadExecutor(),
+            customizeNothing()) {
+         @Override
+         protected ListenableFuture<AtomicReference<NodeMetadata>> createNodeInGroupWithNameAndTemplate(
+               String group, String name, Template template) {
+            if (name.equals("web-2"))
+               return Futures.immediateFailedFuture(new IllegalStateException("quota exceeded"));
+            return Futures.immediateFuture(new AtomicReference<NodeMetadata>(node(name, name)));
+         }
+      };
+
+      strategy.execute("web", 2, template(), Sets.<NodeMetadata> newHashSet(),
+            Maps.<NodeMetadata, Exception> newHashMap(),
+            LinkedHashMultimap.<NodeMetadata, CustomizationResponse> create());
+
+      // web-2 was released when its node could not be created, web-3 stays allocated
+      assertEquals(strategy.getNextNames("web", template(), 2), ImmutableSet.of("web-2", "web-4"));
+      assertEquals(listNodes.listings, 1);
+   }
+
+   private static CustomizeNodeAndAddToGoodMapOrPutExceptionIntoBadMap.Factory customizeNothing() {
+      return new CustomizeNodeAndAddToGoodMapOrPutExceptionIntoBadMap.Factory() {
+         @Override
+         public Callable<Void> create(TemplateOptions options, AtomicReference<NodeMetadata> node,
+               Set<NodeMetadata> goodNodes, Map<NodeMetadata, Exception> badNodes,
+               Multimap<NodeMetadata, CustomizationResponse> customizationResponses) {
+            throw new UnsupportedOperationException();
+         }
+
+         @Override
+         public Function<AtomicReference<NodeMetadata>, Void> create(TemplateOptions options,
+               Set<NodeMetadata> goodNodes, Map<NodeMetadata, Exception> badNodes,
+               Multimap<NodeMetadata, CustomizationResponse> customizationResponses) {
+            return new Function<AtomicReference<NodeMetadata>, Void>() {
+               @Override
+               public Void apply(AtomicReference<NodeMetadata> node) {
+                  return null;
+               }
+            };
+         }
+      };
+   }
+}
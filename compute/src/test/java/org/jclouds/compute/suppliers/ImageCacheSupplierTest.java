@@ -17,12 +17,16 @@
 package org.jclouds.compute.suppliers;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
 
 import java.util.Set;
 
 import org.jclouds.compute.domain.Image;
 import org.jclouds.compute.domain.ImageBuilder;
 import org.jclouds.compute.domain.OperatingSystem;
+import org.jclouds.compute.domain.internal.ImageIndex;
 import org.jclouds.domain.Location;
 import org.jclouds.domain.LocationBuilder;
 import org.jclouds.domain.LocationScope;
@@ -74,4 +78,21 @@ public class ImageCacheSupplierTest {
 
       assertEquals(imageCache.get().size(), 2);
    }
+
+   @Test
+   public void testIndexIsReusedUntilImagesChange() {
+      ImageCacheSupplier imageCache = new ImageCacheSupplier(Suppliers.<Set<? extends Image>> ofInstance(images), 60);
+      Set<? extends Image> current = imageCache.get();
+      ImageIndex index = imageCache.indexOf(current);
+      assertSame(imageCache.indexOf(imageCache.get()), index);
+      assertSame(index.getById("imageId"), image);
+
+      imageCache.registerImage(ImageBuilder.fromImage(image).id("newimage").build());
+
+      Set<? extends Image> refreshed = imageCache.get();
+      assertNull(imageCache.indexOf(current));
+      ImageIndex updated = imageCache.indexOf(refreshed);
+      assertNotSame(updated, index);
+      assertEquals(updated.getById("newimage").getId(), "newimage");
+   }
 }
@@ -0,0 +1,379 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.ssh.internal;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.jclouds.compute.domain.ExecResponse;
+import org.jclouds.domain.LoginCredentials;
+import org.jclouds.ssh.ConnectionAwareSshClient;
+import org.jclouds.ssh.SshClient;
+import org.jclouds.ssh.SshException;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Ticker;
+import com.google.common.net.HostAndPort;
+
+@Test(groups = "unit", testName = "PooledSshClientFactoryTest")
+public class PooledSshClientFactoryTest {
+
+   private static final HostAndPort SOCKET = HostAndPort.fromParts("1.1.1.1", 22);
+   private static final LoginCredentials ROOT = LoginCredentials.builder().user("root").password("secret").build();
+
+   private static class FakeTicker extends Ticker {
+      long nanos;
+
+      @Override
+      public long read() {
+         return nanos;
+      }
+   }
+
+   public void testSequentialClientsReuseOneConnection() {
+      SshClient.Factory delegate = createMock(SshClient.Factory.class);
+      SshClient connection = createMock(SshClient.class);
+
+      expect(delegate.create(SOCKET, ROOT)).andReturn(connection);
+      connection.connect();
+      expect(connection.exec("uptime")).andReturn(new ExecResponse("up", "", 0)).times(2);
+
+      replay(delegate, connection);
+
+      PooledSshClientFactory factory = new PooledSshClientFactory(delegate, 10, 60000, 60000, new FakeTicker());
+
+      SshClient first = factory.create(SOCKET, ROOT);
+      first.connect();
+      assertEquals(first.exec("uptime").getOutput(), "up");
+      first.disconnect();
+      SshClient second = factory.create(SOCKET, ROOT);
+      second.connect();
+      assertEquals(second.exec("uptime").getOutput(), "up");
+      second.disconnect();
+
+      assertEquals(factory.connectionCount(), 1);
+      assertEquals(second.getUsername(), "root");
+      assertEquals(second.getHostAddress(), "1.1.1.1");
+
+      verify(delegate, connection);
+   }
+
+   public void testConcurrentClientsUseSeparateConnections() {
+      SshClient.Factory delegate = createMock(SshClient.Factory.class);
+      SshClient firstConnection = createMock(SshClient.class);
+      SshClient secondConnection = createMock(SshClient.class);
+
+      expect(delegate.create(SOCKET, ROOT)).andReturn(firstConnection);
+      expect(delegate.create(SOCKET, ROOT)).andReturn(secondConnection);
+      firstConnection.connect();
+      secondConnection.connect();
+      expect(firstConnection.exec("uptime")).andReturn(new ExecResponse("first", "", 0));
+      expect(secondConnection.exec("uptime")).andReturn(new ExecResponse("second", "", 0));
+
+      replay(delegate, firstConnection, secondConnection);
+
+      PooledSshClientFactory factory = new PooledSshClientFactory(delegate, 10, 60000, 60000, new FakeTicker());
+
+      SshClient first = factory.create(SOCKET, ROOT);
+      first.connect();
+      SshClient second = factory.create(SOCKET, ROOT);
+      second.connect();
+      assertEquals(first.exec("uptime").getOutput(), "first");
+      assertEquals(second.exec("uptime").getOutput(), "second");
+      first.disconnect();
+      second.disconnect();
+
+      assertEquals(factory.connectionCount(), 2);
+
+      verify(delegate, firstConnection, secondConnection);
+   }
+
+   public void testConnectionIsClosedAfterAFailure() {
+      SshClient.Factory delegate = createMock(SshClient.Factory.class);
+      SshClient broken = createMock(SshClient.class);
+      SshClient replacement = createMock(SshClient.class);
+
+      expect(delegate.create(SOCKET, ROOT)).andReturn(broken);
+      broken.connect();
+      expect(broken.exec("uptime")).andThrow(new IllegalStateException("channel closed"));
+      broken.disconnect();
+      expect(delegate.create(SOCKET, ROOT)).andReturn(replacement);
+      replacement.connect();
+
+      replay(delegate, broken, replacement);
+
+      PooledSshClientFactory factory = new PooledSshClientFactory(delegate, 10, 60000, 60000, new FakeTicker());
+      SshClient client = factory.create(SOCKET, ROOT);
+      client.connect();
+      try {
+         client.exec("uptime");
+         throw new AssertionError("expected IllegalStateException");
+      } catch (IllegalStateException expected) {
+      }
+      client.disconnect();
+      assertEquals(factory.connectionCount(), 0);
+
+      factory.create(SOCKET, ROOT).connect();
+
+      verify(delegate, broken, replacement);
+   }
+
+   public void testDifferentLoginsUseDifferentConnections() {
+      LoginCredentials other = LoginCredentials.builder().user("ubuntu").password("secret").build();
+      SshClient.Factory delegate = createMock(SshClient.Factory.class);
+      SshClient rootConnection = createMock(SshClient.class);
+      SshClient otherConnection = createMock(SshClient.class);
+
+      expect(delegate.create(SOCKET, ROOT)).andReturn(rootConnection);
+      expect(delegate.create(SOCKET, other)).andReturn(otherConnection);
+      rootConnection.connect();
+      otherConnection.connect();
+
+      replay(delegate, rootConnection, otherConnection);
+
+      PooledSshClientFactory factory = new PooledSshClientFactory(delegate, 10, 60000, 60000, new FakeTicker());
+      factory.create(SOCKET, ROOT).connect();
+      factory.create(SOCKET, other).connect();
+
+      assertEquals(factory.connectionCount(), 2);
+
+      verify(delegate, rootConnection, otherConnection);
+   }
+
+   public void testIdleConnectionsAreEvictedAndReopened() {
+      FakeTicker ticker = new FakeTicker();
+      SshClient.Factory delegate = createMock(SshClient.Factory.class);
+      SshClient connection = createMock(SshClient.class);
+      SshClient reconnection = createMock(SshClient.class);
+
+      expect(delegate.create(SOCKET, ROOT)).andReturn(connection);
+      connection.connect();
+      connection.disconnect();
+      expect(delegate.create(SOCKET, ROOT)).andReturn(reconnection);
+      reconnection.connect();
+
+      replay(delegate, connection, reconnection);
+
+      PooledSshClientFactory factory = new PooledSshClientFactory(delegate, 10, 1000, 60000, ticker);
+      SshClient client = factory.create(SOCKET, ROOT);
+      client.connect();
+      client.disconnect();
+
+      ticker.nanos += TimeUnit.MILLISECONDS.toNanos(500);
+      factory.evictIdleConnections();
+      assertEquals(factory.connectionCount(), 1);
+
+      ticker.nanos += TimeUnit.MILLISECONDS.toNanos(1000);
+      client = factory.create(SOCKET, ROOT);
+      assertEquals(factory.connectionCount(), 0);
+      client.connect();
+
+      verify(delegate, connection, reconnection);
+   }
+
+   public void testLeasedConnectionsAreNotEvicted() {
+      FakeTicker ticker = new FakeTicker();
+      SshClient.Factory delegate = createMock(SshClient.Factory.class);
+      SshClient connection = createMock(SshClient.class);
+
+      expect(delegate.create(SOCKET, ROOT)).andReturn(connection);
+      connection.connect();
+
+      replay(delegate, connection);
+
+      PooledSshClientFactory factory = new PooledSshClientFactory(delegate, 10, 1000, 60000, ticker);
+      factory.create(SOCKET, ROOT).connect();
+
+      ticker.nanos += TimeUnit.MILLISECONDS.toNanos(5000);
+      factory.evictIdleConnections();
+      assertEquals(factory.connectionCount(), 1);
+
+      verify(delegate, connection);
+   }
+
+   public void testConnectionsPerHostAreCapped() throws Exception {
+      SshClient.Factory delegate = createMock(SshClient.Factory.class);
+      SshClient connection = createMock(SshClient.class);
+
+      expect(delegate.create(SOCKET, ROOT)).andReturn(connection);
+      connection.connect();
+      expect(connection.exec("uptime")).andReturn(new ExecResponse("up", "", 0));
+
+      replay(delegate, connection);
+
+      PooledSshClientFactory factory = new PooledSshClientFactory(delegate, 1, 60000, 60000, new FakeTicker());
+      SshClient first = factory.create(SOCKET, ROOT);
+      first.connect();
+      final SshClient second = factory.create(SOCKET, ROOT);
+
+      ExecutorService executor = Executors.newSingleThreadExecutor();
+      try {
+         Future<ExecResponse> exec = executor.submit(new Callable<ExecResponse>() {
+            @Override
+            public ExecResponse call() {
+               return second.exec("uptime");
+            }
+         });
+         try {
+            exec.get(200, TimeUnit.MILLISECONDS);
+            throw new AssertionError("exec should wait for the leased connection");
+         } catch (TimeoutException expected) {
+            assertFalse(exec.isDone());
+         }
+         first.disconnect();
+         assertEquals(exec.get(5, TimeUnit.SECONDS).getOutput(), "up");
+      } finally {
+         executor.shutdownNow();
+      }
+
+      verify(delegate, connection);
+   }
+
+   public void testWaitForConnectionIsBoundedByLeaseTimeout() {
+      SshClient.Factory delegate = createMock(SshClient.Factory.class);
+      SshClient connection = createMock(SshClient.class);
+
+      expect(delegate.create(SOCKET, ROOT)).andReturn(connection);
+      connection.connect();
+
+      replay(delegate, connection);
+
+      PooledSshClientFactory factory = new PooledSshClientFactory(delegate, 1, 60000, 100, new FakeTicker());
+      factory.create(SOCKET, ROOT).connect();
+      try {
+         factory.create(SOCKET, ROOT).connect();
+         fail("expected the wait for a connection to time out");
+      } catch (SshException expected) {
+      }
+
+      verify(delegate, connection);
+   }
+
+   public void testInterruptedWaitForConnectionIsPropagated() {
+      SshClient.Factory delegate = createMock(SshClient.Factory.class);
+      SshClient connection = createMock(SshClient.class);
+
+      expect(delegate.create(SOCKET, ROOT)).andReturn(connection);
+      connection.connect();
+
+      replay(delegate, connection);
+
+      PooledSshClientFactory factory = new PooledSshClientFactory(delegate, 1, 60000, 60000, new FakeTicker());
+      factory.create(SOCKET, ROOT).connect();
+      Thread.currentThread().interrupt();
+      try {
+         factory.create(SOCKET, ROOT).connect();
+         fail("expected the wait for a connection to be interrupted");
+      } catch (RuntimeException expected) {
+         assertTrue(expected.getCause() instanceof InterruptedException, expected.toString());
+      } finally {
+         assertTrue(Thread.interrupted());
+      }
+
+      verify(delegate, connection);
+   }
+
+   public void testIdleConnectionClosedByServerIsDiscarded() {
+      SshClient.Factory delegate = createMock(SshClient.Factory.class);
+      ConnectionAwareSshClient dropped = createMock(ConnectionAwareSshClient.class);
+      ConnectionAwareSshClient replacement = createMock(ConnectionAwareSshClient.class);
+
+      expect(delegate.create(SOCKET, ROOT)).andReturn(dropped);
+      dropped.connect();
+      // connected when returned, closed by the server by the time it is leased again
+      expect(dropped.isConnected()).andReturn(true);
+      expect(dropped.isConnected()).andReturn(false);
+      dropped.disconnect();
+      expect(delegate.create(SOCKET, ROOT)).andReturn(replacement);
+      replacement.connect();
+      expect(replacement.exec("uptime")).andReturn(new ExecResponse("up", "", 0));
+
+      replay(delegate, dropped, replacement);
+
+      PooledSshClientFactory factory = new PooledSshClientFactory(delegate, 10, 60000, 60000, new FakeTicker());
+      SshClient client = factory.create(SOCKET, ROOT);
+      client.connect();
+      client.disconnect();
+
+      client = factory.create(SOCKET, ROOT);
+      assertEquals(client.exec("uptime").getOutput(), "up");
+      assertEquals(factory.connectionCount(), 1);
+
+      verify(delegate, dropped, replacement);
+   }
+
+   public void testIdleConnectionsAreEvictedWhenAConnectionIsReturned() {
+      LoginCredentials other = LoginCredentials.builder().user("ubuntu").password("secret").build();
+      FakeTicker ticker = new FakeTicker();
+      SshClient.Factory delegate = createMock(SshClient.Factory.class);
+      SshClient rootConnection = createMock(SshClient.class);
+      SshClient otherConnection = createMock(SshClient.class);
+
+      expect(delegate.create(SOCKET, ROOT)).andReturn(rootConnection);
+      rootConnection.connect();
+      rootConnection.disconnect();
+      expect(delegate.create(SOCKET, other)).andReturn(otherConnection);
+      otherConnection.connect();
+
+      replay(delegate, rootConnection, otherConnection);
+
+      PooledSshClientFactory factory = new PooledSshClientFactory(delegate, 10, 1000, 60000, ticker);
+      SshClient root = factory.create(SOCKET, ROOT);
+      SshClient ubuntu = factory.create(SOCKET, other);
+      root.connect();
+      root.disconnect();
+
+      ticker.nanos += TimeUnit.MILLISECONDS.toNanos(2000);
+      ubuntu.connect();
+      ubuntu.disconnect();
+      assertEquals(factory.connectionCount(), 1);
+
+      verify(delegate, rootConnection, otherConnection);
+   }
+
+   public void testCloseDisconnectsAllConnections() {
+      SshClient.Factory delegate = createMock(SshClient.Factory.class);
+      SshClient connection = createMock(SshClient.class);
+
+      expect(delegate.create(SOCKET, ROOT)).andReturn(connection);
+      connection.connect();
+      connection.disconnect();
+
+      replay(delegate, connection);
+
+      PooledSshClientFactory factory = new PooledSshClientFactory(delegate, 10, 60000, 60000, new FakeTicker());
+      factory.create(SOCKET, ROOT).connect();
+      factory.close();
+
+      assertEquals(factory.connectionCount(), 0);
+
+      verify(delegate, connection);
+   }
+}
@@ -305,6 +305,41 @@ public final class Constants {
     */
    public static final String PROPERTY_MAX_PARALLEL_DELETES = "jclouds.max-parallel-deletes";
 
+   /**
+    * Maximum number of user threads running tasks for one partition, such as an endpoint host, at a time. Defaults to
+    * 0, which means partitions are not limited.
+    * 
+    * @see org.jclouds.concurrent.ExecutorStrategy
+    */
+   public static final String PROPERTY_MAX_THREADS_PER_PARTITION = "jclouds.max-threads-per-partition";
+
+   /**
+    * Maximum number of tasks waiting for a thread of one partition; further tasks are rejected. Only used when
+    * {@link #PROPERTY_MAX_THREADS_PER_PARTITION} is set. Defaults to 1000.
+    */
+   public static final String PROPERTY_MAX_QUEUED_TASKS_PER_PARTITION = "jclouds.max-queued-tasks-per-partition";
+
+   /**
+    * When true, singletons are created on first use instead of while the context is built. This shortens context
+    * startup, for example in command line tools, at the cost of reporting configuration errors later. Defaults to
+    * false.
+    */
+   public static final String PROPERTY_LAZY_SINGLETONS = "jclouds.lazy-singletons";
+
+   /**
+    * When true, the rate of requests to each endpoint is lowered when the service throttles them, and raised again
+    * gradually while it does not. Defaults to false.
+    * 
+    * @see org.jclouds.http.ThrottleClassifier
+    */
+   public static final String PROPERTY_ADAPTIVE_RATE_LIMIT = "jclouds.adaptive-rate-limit";
+
+   /**
+    * Percentage of calls to {@link org.jclouds.rest.annotations.Hedged hedged} methods that may send a second
+    * request. Defaults to 0, which disables hedging.
+    */
+   public static final String PROPERTY_HEDGING_BUDGET = "jclouds.hedging-budget";
+
    private Constants() {
       throw new AssertionError("intentionally unimplemented");
    }
@@ -39,6 +39,7 @@ import static org.jclouds.Constants.PROPERTY_CREDENTIAL;
 import static org.jclouds.Constants.PROPERTY_ENDPOINT;
 import static org.jclouds.Constants.PROPERTY_IDENTITY;
 import static org.jclouds.Constants.PROPERTY_ISO3166_CODES;
+import static org.jclouds.Constants.PROPERTY_LAZY_SINGLETONS;
 import static org.jclouds.Constants.PROPERTY_PROVIDER;
 import static org.jclouds.reflect.Reflection2.typeToken;
 import static org.jclouds.rest.config.BinderUtils.bindHttpApi;
@@ -148,8 +149,6 @@ import com.google.inject.TypeLiteral;
  */
 public class ContextBuilder {
 
-   private static final Stage GUICE_STAGE = Stage.PRODUCTION;
-
    /**
     * looks up a provider or api with the given id
     * 
@@ -234,6 +233,24 @@ public class ContextBuilder {
       this(null, apiMetadata);
    }
 
+   /**
+    * @return a builder with the same provider, endpoint, versions, overrides and modules as this one, but without
+    *         its name or credentials
+    */
+   ContextBuilder copyWithoutCredentials() {
+      ContextBuilder copy = new ContextBuilder(providerMetadata.orNull(), apiMetadata);
+      copy.endpoint = endpoint;
+      copy.apiVersion = apiVersion;
+      copy.buildVersion = buildVersion;
+      if (overrides.isPresent()) {
+         Properties props = new Properties();
+         props.putAll(overrides.get());
+         copy.overrides = Optional.of(props);
+      }
+      copy.modules.addAll(modules);
+      return copy;
+   }
+
    public ContextBuilder name(String name) {
      this.name = Optional.of(checkNotNull(name, "name"));
      return this;
@@ -379,7 +396,7 @@ public class ContextBuilder {
 
 
    private Properties expandProperties(final Properties resolved) {
-      return Guice.createInjector(GUICE_STAGE, new BindPropertiesToExpandedValues(resolved)).getInstance(Properties.class);
+      return BindPropertiesToExpandedValues.expand(resolved);
    }
 
    public static Injector buildInjector(String name, ProviderMetadata providerMetadata, Supplier<Credentials> creds, List<Module> inputModules) {
@@ -399,11 +416,20 @@ public class ContextBuilder {
       modules.add(new LifeCycleModule());
       modules.add(new BindProviderMetadataContextAndCredentials(providerMetadata, creds));
       modules.add(new BindNameToContext(name));
-      Injector returnVal = Guice.createInjector(GUICE_STAGE, modules);
+      Injector returnVal = Guice.createInjector(stage(providerMetadata), modules);
       returnVal.getInstance(ExecutionList.class).execute();
       return returnVal;
    }
 
+   /**
+    * Singletons are created eagerly, so that configuration errors surface while building the context, unless
+    * {@link org.jclouds.Constants#PROPERTY_LAZY_SINGLETONS} is set.
+    */
+   private static Stage stage(ProviderMetadata providerMetadata) {
+      return Boolean.parseBoolean(providerMetadata.getDefaultProperties().getProperty(PROPERTY_LAZY_SINGLETONS))
+            ? Stage.DEVELOPMENT : Stage.PRODUCTION;
+   }
+
    static Properties resolveProperties(Properties mutable, String providerId, Set<String> keys, Set<String> optionalKeys) throws NoSuchElementException {
       for (String key : keys) {
          String scopedProperty = Iterables.get(Splitter.on('.').split(key), 1);
@@ -0,0 +1,304 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.base.Throwables.propagate;
+import static com.google.common.collect.Iterables.any;
+import static org.jclouds.Constants.PROPERTY_LAZY_SINGLETONS;
+import static org.jclouds.Constants.PROPERTY_USER_THREADS;
+
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.jclouds.concurrent.DynamicExecutors;
+import org.jclouds.concurrent.config.ConfiguresExecutorService;
+import org.jclouds.concurrent.config.ExecutorServiceModule;
+import org.jclouds.domain.Credentials;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Predicate;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ForwardingListeningExecutorService;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.google.inject.Module;
+
+/**
+ * Hands out views of one provider for many sets of credentials, for example one per customer account.
+ * <p/>
+ * Views are built from a prototype {@link ContextBuilder}, which is copied without its credentials, and cached per
+ * {@link Credentials} until they have been idle for the idle timeout or the pool is full. Views share one user thread
+ * pool, owned by this pool, instead of starting their own; closing a view does not shut it down. Views are built with
+ * {@link Constants#PROPERTY_LAZY_SINGLETONS lazy singletons}, unless the prototype overrides that, so that a tenant
+ * only pays for the parts of the api it uses.
+ * <p/>
+ * This pool does not make a view lightweight: each view is a full context, with its own injector and HTTP stack, and
+ * the pool only saves building it again. A view cannot instead be a child of one injector shared by all tenants, as
+ * the api modules bind credential-bound suppliers, such as auth token and signer caches, as singletons next to the
+ * HTTP and parsing bindings they depend on, and a child injector cannot rebind what its parent binds. Sharing more than
+ * the user threads would need the api modules to split their credential-bound bindings out first.
+ * <p/>
+ * Views are handed out in {@link Lease leases}, which callers close when they are done with the view rather than
+ * closing the view itself. A view evicted from the cache is closed once its last lease is closed, and all views are
+ * closed when the pool is closed, after which no more leases are handed out.
+ */
+@Beta
+public class ContextPool<V extends View> implements Closeable {
+
+   private final ContextBuilder prototype;
+   private final Class<V> viewType;
+   private final ListeningExecutorService userExecutor;
+   private final LoadingCache<Credentials, PooledView<V>> views;
+   private final AtomicBoolean closed = new AtomicBoolean();
+
+   /**
+    * @param prototype
+    *           configuration shared by all views; its credentials, if any, are ignored
+    * @param maxViews
+    *           maximum number of views kept open
+    * @param idleTimeoutMillis
+    *           views not requested for this long are closed
+    */
+   public ContextPool(ContextBuilder prototype, Class<V> viewType, int maxViews, long idleTimeoutMillis) {
+      this(prototype, viewType, maxViews, idleTimeoutMillis, newUserExecutor(prototype));
+   }
+
+   @VisibleForTesting
+   ContextPool(ContextBuilder prototype, Class<V> viewType, int maxViews, long idleTimeoutMillis,
+         ListeningExecutorService userExecutor) {
+      this.prototype = checkNotNull(prototype, "prototype").copyWithoutCredentials();
+      this.viewType = checkNotNull(viewType, "viewType");
+      checkArgument(maxViews > 0, "maxViews must be positive");
+      checkArgument(idleTimeoutMillis > 0, "idleTimeoutMillis must be positive");
+      this.userExecutor = checkNotNull(userExecutor, "userExecutor");
+      this.views = CacheBuilder.newBuilder().maximumSize(maxViews)
+            .expireAfterAccess(idleTimeoutMillis, TimeUnit.MILLISECONDS)
+            .removalListener(new RemovalListener<Credentials, PooledView<V>>() {
+               @Override
+               public void onRemoval(RemovalNotification<Credentials, PooledView<V>> notification) {
+                  if (notification.getValue() != null)
+                     notification.getValue().evict();
+               }
+            }).build(new CacheLoader<Credentials, PooledView<V>>() {
+               @Override
+               public PooledView<V> load(Credentials credentials) {
+                  checkState(!closed.get(), "pool is closed");
+                  return new PooledView<V>(buildView(credentials));
+               }
+            });
+   }
+
+   /**
+    * @return a lease of the view for these credentials, building the view if it is not open; the view stays open at
+    *         least until the lease is closed
+    * @throws IllegalStateException
+    *            if the pool is closed
+    */
+   public Lease<V> lease(String identity, String credential) {
+      Credentials credentials = new Credentials(checkNotNull(identity, "identity"), credential);
+      while (true) {
+         checkState(!closed.get(), "pool is closed");
+         PooledView<V> view;
+         try {
+            view = views.get(credentials);
+         } catch (ExecutionException e) {
+            throw propagate(e.getCause());
+         } catch (UncheckedExecutionException e) {
+            throw propagate(e.getCause());
+         }
+         // the view may have been evicted since it was looked up
+         if (view.retain()) {
+            // or built while the pool was closing, after it closed the views it knew of
+            if (closed.get()) {
+               view.closeNow();
+               throw new IllegalStateException("pool is closed");
+            }
+            return new Lease<V>(view);
+         }
+      }
+   }
+
+   /**
+    * Closes the view for these credentials, for example after they were revoked, once its leases are closed.
+    */
+   public void invalidate(String identity, String credential) {
+      views.invalidate(new Credentials(checkNotNull(identity, "identity"), credential));
+   }
+
+   @VisibleForTesting
+   long size() {
+      views.cleanUp();
+      return views.size();
+   }
+
+   /**
+    * Closes all views, including leased ones, and stops the shared user threads.
+    */
+   @Override
+   public void close() {
+      if (!closed.compareAndSet(false, true))
+         return;
+      for (PooledView<V> view : views.asMap().values())
+         view.closeNow();
+      views.invalidateAll();
+      views.cleanUp();
+      userExecutor.shutdownNow();
+   }
+
+   private V buildView(Credentials credentials) {
+      ContextBuilder builder = prototype.copyWithoutCredentials().credentials(credentials.identity,
+            credentials.credential);
+      Properties overrides = builder.overrides.or(new Properties());
+      if (!overrides.containsKey(PROPERTY_LAZY_SINGLETONS))
+         overrides.setProperty(PROPERTY_LAZY_SINGLETONS, "true");
+      builder.overrides(overrides);
+      if (!configuresExecutorService(builder.modules))
+         builder.modules(ImmutableSet.of(new ExecutorServiceModule(new SharedExecutor(userExecutor))));
+      return builder.buildView(viewType);
+   }
+
+   private static boolean configuresExecutorService(List<Module> modules) {
+      return any(modules, new Predicate<Module>() {
+         @Override
+         public boolean apply(Module input) {
+            return input.getClass().isAnnotationPresent(ConfiguresExecutorService.class);
+         }
+      });
+   }
+
+   private static ListeningExecutorService newUserExecutor(ContextBuilder prototype) {
+      Properties defaults = new Properties();
+      defaults.putAll(prototype.apiMetadata.getDefaultProperties());
+      if (prototype.providerMetadata.isPresent())
+         defaults.putAll(prototype.providerMetadata.get().getDefaultProperties());
+      if (prototype.overrides.isPresent())
+         defaults.putAll(prototype.overrides.get());
+      int threads = Integer.parseInt(defaults.getProperty(PROPERTY_USER_THREADS, "0"));
+      return MoreExecutors.listeningDecorator(DynamicExecutors.newScalingThreadPool(1,
+            threads == 0 ? Integer.MAX_VALUE : threads, 60L * 1000, new ThreadFactoryBuilder()
+                  .setNameFormat("pooled user thread %d").setThreadFactory(Executors.defaultThreadFactory()).build()));
+   }
+
+   /**
+    * A view handed out by {@link ContextPool#lease}. Closing the lease, rather than the view, returns it to the pool.
+    */
+   public static final class Lease<V extends View> implements Closeable {
+      private final PooledView<V> view;
+      private final AtomicBoolean closed = new AtomicBoolean();
+
+      private Lease(PooledView<V> view) {
+         this.view = view;
+      }
+
+      /**
+       * @return the leased view, which must not be used after the lease is closed
+       */
+      public V get() {
+         checkState(!closed.get(), "lease is closed");
+         return view.view;
+      }
+
+      @Override
+      public void close() {
+         if (closed.compareAndSet(false, true))
+            view.release();
+      }
+   }
+
+   /**
+    * Counts the leases of a view, so that a view evicted while leased is only closed once the last lease is.
+    */
+   private static final class PooledView<V extends View> {
+      private final V view;
+      private int leases;
+      private boolean evicted;
+      private boolean closed;
+
+      private PooledView(V view) {
+         this.view = view;
+      }
+
+      synchronized boolean retain() {
+         if (evicted)
+            return false;
+         leases++;
+         return true;
+      }
+
+      synchronized void release() {
+         leases--;
+         if (evicted && leases == 0)
+            closeNow();
+      }
+
+      synchronized void evict() {
+         evicted = true;
+         if (leases == 0)
+            closeNow();
+      }
+
+      synchronized void closeNow() {
+         evicted = true;
+         if (!closed) {
+            closed = true;
+            view.unwrap().close();
+         }
+      }
+   }
+
+   /**
+    * Ignores shutdown requests from the contexts using it; the pool shuts down the delegate.
+    */
+   private static final class SharedExecutor extends ForwardingListeningExecutorService {
+      private final ListeningExecutorService delegate;
+
+      private SharedExecutor(ListeningExecutorService delegate) {
+         this.delegate = delegate;
+      }
+
+      @Override
+      protected ListeningExecutorService delegate() {
+         return delegate;
+      }
+
+      @Override
+      public void shutdown() {
+      }
+
+      @Override
+      public List<Runnable> shutdownNow() {
+         return Collections.emptyList();
+      }
+   }
+}
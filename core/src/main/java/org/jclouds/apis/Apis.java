@@ -17,6 +17,7 @@
 package org.jclouds.apis;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.Iterables.concat;
 import static com.google.common.collect.Iterables.filter;
 import static com.google.common.collect.Iterables.find;
 import static org.jclouds.reflect.Reflection2.typeToken;
@@ -84,7 +85,8 @@ public class Apis {
     *            whenever there are no apis with the provided id
     */
    public static ApiMetadata withId(String id) throws NoSuchElementException {
-      return find(all(), ApiPredicates.id(id));
+      // the service loader instantiates lazily, so stop at the first match rather than loading every api
+      return find(concat(fromServiceLoader(), ApiRegistry.fromRegistry()), ApiPredicates.id(id));
    }
    
    /**
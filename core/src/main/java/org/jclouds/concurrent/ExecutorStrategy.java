@@ -0,0 +1,39 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.concurrent;
+
+import org.jclouds.concurrent.internal.BulkheadExecutorStrategy;
+
+import com.google.common.annotations.Beta;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.inject.ImplementedBy;
+
+/**
+ * Chooses the executor for work against a partition of the backend, such as an endpoint host or a region, so that
+ * a slow partition cannot take every user thread.
+ */
+@Beta
+@ImplementedBy(BulkheadExecutorStrategy.class)
+public interface ExecutorStrategy {
+
+   /**
+    * @param partition
+    *           usually the host of the endpoint the submitted tasks will call
+    * @return an executor which must not be shut down by the caller
+    */
+   ListeningExecutorService executorFor(String partition);
+}
@@ -0,0 +1,245 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.concurrent.internal;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Resource;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.jclouds.Constants;
+import org.jclouds.concurrent.ExecutorStrategy;
+import org.jclouds.logging.Logger;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.AbstractListeningExecutorService;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.inject.Inject;
+
+/**
+ * Runs the tasks of each partition on the shared user executor, with at most
+ * {@link Constants#PROPERTY_MAX_THREADS_PER_PARTITION} of them running at a time. Further tasks wait in a queue of at
+ * most {@link Constants#PROPERTY_MAX_QUEUED_TASKS_PER_PARTITION} and are rejected once it is full, so that tasks for a
+ * degraded endpoint fail fast instead of occupying threads needed by the others.
+ * <p/>
+ * Without a per partition limit, which is the default, every partition uses the user executor directly.
+ */
+@Singleton
+public class BulkheadExecutorStrategy implements ExecutorStrategy {
+
+   @Resource
+   protected Logger logger = Logger.NULL;
+
+   private final ListeningExecutorService userExecutor;
+   private final ConcurrentMap<String, Bulkhead> bulkheads = Maps.newConcurrentMap();
+   private int maxThreads;
+   private int maxQueued = 1000;
+
+   @Inject
+   BulkheadExecutorStrategy(@Named(Constants.PROPERTY_USER_THREADS) ListeningExecutorService userExecutor) {
+      this.userExecutor = checkNotNull(userExecutor, "userExecutor");
+   }
+
+   @VisibleForTesting
+   BulkheadExecutorStrategy(ListeningExecutorService userExecutor, int maxThreads, int maxQueued) {
+      this(userExecutor);
+      setMaxThreads(maxThreads);
+      setMaxQueued(maxQueued);
+   }
+
+   @Inject(optional = true)
+   void setMaxThreads(@Named(Constants.PROPERTY_MAX_THREADS_PER_PARTITION) int maxThreads) {
+      checkArgument(maxThreads >= 0, "maxThreads must not be negative");
+      this.maxThreads = maxThreads;
+   }
+
+   @Inject(optional = true)
+   void setMaxQueued(@Named(Constants.PROPERTY_MAX_QUEUED_TASKS_PER_PARTITION) int maxQueued) {
+      checkArgument(maxQueued >= 0, "maxQueued must not be negative");
+      this.maxQueued = maxQueued;
+   }
+
+   @Override
+   public ListeningExecutorService executorFor(String partition) {
+      checkNotNull(partition, "partition");
+      if (maxThreads == 0)
+         return userExecutor;
+      Bulkhead bulkhead = bulkheads.get(partition);
+      if (bulkhead == null) {
+         Bulkhead created = new Bulkhead(partition);
+         bulkhead = bulkheads.putIfAbsent(partition, created);
+         if (bulkhead == null)
+            bulkhead = created;
+      }
+      return bulkhead;
+   }
+
+   /**
+    * @return the number of tasks rejected so far, by partition
+    */
+   public Map<String, Long> rejections() {
+      ImmutableMap.Builder<String, Long> builder = ImmutableMap.builder();
+      for (Bulkhead bulkhead : bulkheads.values()) {
+         synchronized (bulkhead) {
+            builder.put(bulkhead.partition, bulkhead.rejected);
+         }
+      }
+      return builder.build();
+   }
+
+   private final class Bulkhead extends AbstractListeningExecutorService {
+      private final String partition;
+      private final Queue<Runnable> queued = new ArrayDeque<Runnable>();
+      private int running;
+      private long rejected;
+      private boolean shutdown;
+
+      private Bulkhead(String partition) {
+         this.partition = partition;
+      }
+
+      @Override
+      public void execute(Runnable task) {
+         checkNotNull(task, "task");
+         synchronized (this) {
+            if (shutdown)
+               throw new RejectedExecutionException(String.format("executor for %s is shut down", partition));
+            if (running >= maxThreads) {
+               if (queued.size() >= maxQueued) {
+                  rejected++;
+                  logger.warn("rejecting task for %s: %d running and %d queued", partition, running, queued.size());
+                  throw new RejectedExecutionException(String.format("too many tasks for %s: %d running and %d "
+                        + "queued", partition, running, queued.size()));
+               }
+               queued.add(task);
+               return;
+            }
+            running++;
+         }
+         start(task);
+      }
+
+      private void start(final Runnable task) {
+         try {
+            userExecutor.execute(new Runnable() {
+               @Override
+               public void run() {
+                  try {
+                     task.run();
+                  } finally {
+                     startNext();
+                  }
+               }
+
+               @Override
+               public String toString() {
+                  return task.toString();
+               }
+            });
+         } catch (RuntimeException e) {
+            synchronized (this) {
+               running--;
+               notifyAll();
+            }
+            throw e;
+         }
+      }
+
+      private void startNext() {
+         Runnable next;
+         synchronized (this) {
+            next = queued.poll();
+            if (next == null) {
+               running--;
+               notifyAll();
+               return;
+            }
+         }
+         try {
+            start(next);
+         } catch (RejectedExecutionException e) {
+            // the user executor was shut down; fail the queued tasks rather than leave their futures pending
+            List<Runnable> abandoned;
+            synchronized (this) {
+               abandoned = ImmutableList.<Runnable> builder().add(next).addAll(queued).build();
+               queued.clear();
+               notifyAll();
+            }
+            logger.warn("abandoning %d queued tasks for %s: %s", abandoned.size(), partition, e.getMessage());
+            for (Runnable task : abandoned) {
+               if (task instanceof Future)
+                  Future.class.cast(task).cancel(false);
+            }
+         }
+      }
+
+      @Override
+      public synchronized void shutdown() {
+         shutdown = true;
+      }
+
+      @Override
+      public synchronized List<Runnable> shutdownNow() {
+         shutdown = true;
+         List<Runnable> notStarted = ImmutableList.copyOf(queued);
+         queued.clear();
+         return notStarted;
+      }
+
+      @Override
+      public synchronized boolean isShutdown() {
+         return shutdown;
+      }
+
+      @Override
+      public synchronized boolean isTerminated() {
+         return shutdown && running == 0 && queued.isEmpty();
+      }
+
+      @Override
+      public synchronized boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+         long remaining = unit.toNanos(timeout);
+         long deadline = System.nanoTime() + remaining;
+         while (!isTerminated()) {
+            if (remaining <= 0)
+               return false;
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            remaining = deadline - System.nanoTime();
+         }
+         return true;
+      }
+
+      @Override
+      public String toString() {
+         return "bulkhead(" + partition + ")";
+      }
+   }
+}
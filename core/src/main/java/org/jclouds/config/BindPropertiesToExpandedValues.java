@@ -25,6 +25,7 @@ import javax.inject.Singleton;
 import org.jclouds.internal.FilterStringsBoundToInjectorByName;
 import org.nnsoft.guice.rocoto.Rocoto;
 import org.nnsoft.guice.rocoto.configuration.ConfigurationModule;
+import org.nnsoft.guice.rocoto.variables.VariablesMap;
 
 import com.google.common.base.Predicates;
 import com.google.inject.AbstractModule;
@@ -59,4 +60,15 @@ public class BindPropertiesToExpandedValues extends AbstractModule {
       }));
    }
 
+   /**
+    * Expands variables the same way as this module, without creating an injector.
+    */
+   public static Properties expand(Properties resolved) {
+      VariablesMap variables = new VariablesMap();
+      for (String key : checkNotNull(resolved, "resolved").stringPropertyNames())
+         variables.put(key, resolved.getProperty(key));
+      Properties expanded = new Properties();
+      expanded.putAll(variables);
+      return expanded;
+   }
 }
@@ -17,7 +17,11 @@
 package org.jclouds.http;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static org.jclouds.util.Closeables2.closeQuietly;
 
+import java.io.Closeable;
+
+import org.jclouds.javax.annotation.Nullable;
 import org.jclouds.rest.internal.GeneratedHttpRequest;
 
 import com.google.common.base.Objects;
@@ -32,6 +36,8 @@ public class HttpCommand {
    private volatile int failureCount;
    private volatile int redirectCount;
    private volatile Exception exception;
+   private volatile boolean aborted;
+   private Closeable abortHandle;
 
    public HttpCommand(HttpRequest request) {
       this.request = checkNotNull(request, "request");
@@ -71,6 +77,37 @@ public class HttpCommand {
       return exception;
    }
 
+   /**
+    * Set by the executor while a request of this command is in flight, to close its connection if the command is
+    * {@link #abort() aborted}.
+    */
+   public synchronized void setAbortHandle(@Nullable Closeable abortHandle) {
+      this.abortHandle = abortHandle;
+      if (aborted && abortHandle != null)
+         closeQuietly(abortHandle);
+   }
+
+   /**
+    * Closes the connection of the request in flight, if any, and prevents the command from being retried. Used to
+    * give up on a request whose answer is no longer needed, as interrupting a thread does not stop blocking I/O.
+    */
+   public void abort() {
+      Closeable handle;
+      synchronized (this) {
+         aborted = true;
+         handle = abortHandle;
+      }
+      if (handle != null)
+         closeQuietly(handle);
+   }
+
+   /**
+    * @see #abort
+    */
+   public boolean isAborted() {
+      return aborted;
+   }
+
    /**
     * increments the current number of redirect attempts for this command.
     * 
@@ -0,0 +1,36 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.http;
+
+import org.jclouds.http.handlers.ThrottledStatusCodes;
+
+import com.google.inject.ImplementedBy;
+
+/**
+ * Decides whether a response means the service is throttling the client, so that the send rate to its endpoint
+ * should be lowered. APIs whose services signal throttling differently bind their own implementation.
+ *
+ * @see org.jclouds.Constants#PROPERTY_ADAPTIVE_RATE_LIMIT
+ */
+@ImplementedBy(ThrottledStatusCodes.class)
+public interface ThrottleClassifier {
+
+   /**
+    * Must not consume the response payload, as the retry and error handlers read it afterwards.
+    */
+   boolean isThrottled(HttpCommand command, HttpResponse response);
+}
@@ -18,12 +18,27 @@ package org.jclouds.http;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.util.List;
 import java.util.Map;
 
-import com.google.common.collect.Lists;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
 
 public class UriTemplates {
 
+   /**
+    * Templates usually come from annotations, so there are few of them, and each is expanded many times.
+    */
+   private static final LoadingCache<String, Template> TEMPLATES = CacheBuilder.newBuilder().maximumSize(1000)
+         .build(new CacheLoader<String, Template>() {
+            @Override
+            public Template load(String template) {
+               return compile(template);
+            }
+         });
+
    /**
     * 
     * @param template
@@ -37,32 +52,75 @@ public class UriTemplates {
       if (checkNotNull(template, "template").length() < 3)
          return template.toString(); // skip expansion if there's no valid variables set. ex. {a} is the first valid
       checkNotNull(variables, "variables for %s", template);
+      if (template.indexOf('{') == -1 && template.indexOf('}') == -1)
+         return template;
+      return TEMPLATES.getUnchecked(template).expand(variables);
+   }
 
-      boolean inVar = false;
+   /**
+    * Parses the template into literal text and variable names. As in earlier versions, a closing brace ends a
+    * variable even if none was opened, and text after an unclosed brace is dropped.
+    */
+   static Template compile(String template) {
+      ImmutableList.Builder<String> literals = ImmutableList.builder();
+      ImmutableList.Builder<String> variables = ImmutableList.builder();
+      StringBuilder literal = new StringBuilder();
       StringBuilder var = new StringBuilder();
-      StringBuilder builder = new StringBuilder();
-      for (char c : Lists.charactersOf(template)) {
+      boolean inVar = false;
+      for (int i = 0; i < template.length(); i++) {
+         char c = template.charAt(i);
          switch (c) {
          case '{':
             inVar = true;
             break;
          case '}':
             inVar = false;
-            String key = var.toString();
-            Object value = variables.get(var.toString());
-            if (value != null)
-               builder.append(value);
-            else
-               builder.append('{').append(key).append('}');
+            literals.add(literal.toString());
+            variables.add(var.toString());
+            literal.setLength(0);
             var.setLength(0);
             break;
          default:
             if (inVar)
                var.append(c);
             else
-               builder.append(c);
+               literal.append(c);
+         }
+      }
+      literals.add(literal.toString());
+      return new Template(literals.build(), variables.build());
+   }
+
+   /**
+    * A parsed template: {@code literals.get(i)} precedes {@code variables.get(i)}, and the last literal follows the
+    * last variable.
+    */
+   static final class Template {
+      private final List<String> literals;
+      private final List<String> variables;
+      private final int literalLength;
+
+      private Template(List<String> literals, List<String> variables) {
+         this.literals = literals;
+         this.variables = variables;
+         int length = 0;
+         for (String literal : literals)
+            length += literal.length();
+         this.literalLength = length;
+      }
+
+      String expand(Map<String, ?> values) {
+         StringBuilder builder = new StringBuilder(literalLength + 16 * variables.size());
+         for (int i = 0; i < variables.size(); i++) {
+            builder.append(literals.get(i));
+            String key = variables.get(i);
+            Object value = values.get(key);
+            if (value != null)
+               builder.append(value);
+            else
+               builder.append('{').append(key).append('}');
          }
+         return builder.append(literals.get(variables.size())).toString();
       }
-      return builder.toString();
    }
 }
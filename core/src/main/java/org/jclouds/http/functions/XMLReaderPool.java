@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.http.functions;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
+
+/**
+ * Keeps idle {@link XMLReader}s for reuse, as creating one allocates symbol tables and buffers which can cost more
+ * than parsing a small response.
+ * <p/>
+ * Readers are created from a factory which is configured once, so pooled readers share its features. A reader is
+ * used by one thread at a time: it is borrowed for a single parse, then released. At most {@code maxIdle} readers are
+ * kept; readers released beyond that, or after a failed parse, are discarded.
+ */
+public class XMLReaderPool {
+
+   private static final DefaultHandler NO_OP = new DefaultHandler();
+
+   private final SAXParserFactory factory;
+   private final int maxIdle;
+   private final Queue<XMLReader> idle = new ConcurrentLinkedQueue<XMLReader>();
+   private final AtomicInteger idleCount = new AtomicInteger();
+
+   public XMLReaderPool(SAXParserFactory factory, int maxIdle) {
+      this.factory = checkNotNull(factory, "factory");
+      checkArgument(maxIdle >= 0, "maxIdle must not be negative");
+      this.maxIdle = maxIdle;
+   }
+
+   /**
+    * @return an idle reader, or a new one if none are idle
+    */
+   public XMLReader borrow() {
+      XMLReader reader = idle.poll();
+      if (reader != null) {
+         idleCount.decrementAndGet();
+         return reader;
+      }
+      try {
+         return factory.newSAXParser().getXMLReader();
+      } catch (ParserConfigurationException e) {
+         throw Throwables.propagate(e);
+      } catch (SAXException e) {
+         throw Throwables.propagate(e);
+      }
+   }
+
+   /**
+    * Returns a reader borrowed from this pool.
+    * 
+    * @param reusable
+    *           false if the parse failed, in which case the reader's state is unknown and it is discarded
+    */
+   public void release(XMLReader reader, boolean reusable) {
+      if (!reusable)
+         return;
+      // don't keep the last handler, and whatever it parsed, reachable from the pool
+      reader.setContentHandler(NO_OP);
+      if (idleCount.incrementAndGet() <= maxIdle) {
+         idle.offer(reader);
+      } else {
+         idleCount.decrementAndGet();
+      }
+   }
+
+   @VisibleForTesting
+   int idleCount() {
+      return idleCount.get();
+   }
+}
@@ -18,14 +18,14 @@ package org.jclouds.http.functions.config;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
-import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParserFactory;
 
 import org.jclouds.http.functions.ParseSax;
 import org.jclouds.http.functions.ParseSax.HandlerWithResult;
-import org.xml.sax.XMLReader;
+import org.jclouds.http.functions.XMLReaderPool;
+import org.xml.sax.SAXException;
 
-import com.google.common.base.Throwables;
 import com.google.inject.AbstractModule;
 import com.google.inject.Injector;
 import com.google.inject.Provides;
@@ -41,38 +41,50 @@ public class SaxParserModule extends AbstractModule {
    }
 
    static class Factory implements ParseSax.Factory {
-      private final SAXParserFactory factory;
+      private final XMLReaderPool readers;
       private final Injector i;
 
       @Inject
-      Factory(SAXParserFactory factory, Injector i) {
-         this.factory = factory;
+      Factory(XMLReaderPool readers, Injector i) {
+         this.readers = readers;
          this.i = i;
       }
 
       public <T> ParseSax<T> create(HandlerWithResult<T> handler) {
-         SAXParser saxParser;
-         try {
-            saxParser = factory.newSAXParser();
-            XMLReader parser = saxParser.getXMLReader();
-            // TODO: switch to @AssistedInject
-            ParseSax<T> returnVal = new ParseSax<T>(parser, handler);
-            i.injectMembers(returnVal);
-            return returnVal;
-         } catch (Exception e) {
-            throw Throwables.propagate(e);
-         }
-
+         // TODO: switch to @AssistedInject
+         ParseSax<T> returnVal = new ParseSax<T>(readers, handler);
+         i.injectMembers(returnVal);
+         return returnVal;
       }
    }
 
+   @Provides
+   @Singleton
+   XMLReaderPool provideXMLReaderPool(SAXParserFactory factory) {
+      return new XMLReaderPool(factory, Math.max(4, 2 * Runtime.getRuntime().availableProcessors()));
+   }
+
    @Provides
    @Singleton
    SAXParserFactory provideSAXParserFactory() {
       SAXParserFactory factory = SAXParserFactory.newInstance();
       factory.setNamespaceAware(false);
       factory.setValidating(false);
+      // responses never need external entities or dtds; set once here so every pooled reader has them off
+      trySetFeature(factory, "http://xml.org/sax/features/external-general-entities", false);
+      trySetFeature(factory, "http://xml.org/sax/features/external-parameter-entities", false);
+      trySetFeature(factory, "http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
       return factory;
    }
 
+   private static void trySetFeature(SAXParserFactory factory, String feature, boolean value) {
+      try {
+         factory.setFeature(feature, value);
+      } catch (ParserConfigurationException e) {
+         // not supported by this parser
+      } catch (SAXException e) {
+         // not supported by this parser
+      }
+   }
+
 }
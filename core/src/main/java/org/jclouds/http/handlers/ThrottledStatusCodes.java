@@ -0,0 +1,47 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.http.handlers;
+
+import static com.google.common.net.HttpHeaders.RETRY_AFTER;
+
+import javax.inject.Singleton;
+
+import org.jclouds.http.HttpCommand;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.http.ThrottleClassifier;
+
+/**
+ * Treats 429 (Too Many Requests), 503 (Service Unavailable) and 413 (Request Entity Too Large) with a Retry-After
+ * header as throttling. This covers EC2 {@code RequestLimitExceeded} and S3 {@code SlowDown}, which are sent as 503,
+ * OpenStack rate limits, sent as 413 or 429 with Retry-After, and CloudStack API limits, sent as 429.
+ */
+@Singleton
+public class ThrottledStatusCodes implements ThrottleClassifier {
+
+   @Override
+   public boolean isThrottled(HttpCommand command, HttpResponse response) {
+      switch (response.getStatusCode()) {
+      case 429:
+      case 503:
+         return true;
+      case 413:
+         return response.getFirstHeaderOrNull(RETRY_AFTER) != null;
+      default:
+         return false;
+      }
+   }
+}
@@ -0,0 +1,281 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.http.internal;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.net.URI;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.annotation.Resource;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.jclouds.Constants;
+import org.jclouds.http.HttpCommand;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.http.ThrottleClassifier;
+import org.jclouds.logging.Logger;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
+import com.google.common.base.Ticker;
+import com.google.common.collect.Maps;
+import com.google.inject.Inject;
+
+/**
+ * Limits the rate at which requests are sent to each endpoint, adapting it to throttling responses.
+ * <p/>
+ * Endpoints start unlimited. When a {@link ThrottleClassifier throttling response} arrives, the rate of the endpoint
+ * is set to half of the rate requests were being sent at, and halved again on further throttling, at most once a
+ * second. While responses are not throttled, the rate grows by a twentieth of the rate before the last decrease per
+ * second, and the endpoint becomes unlimited again once the rate doubles it. Requests over the rate wait for a token
+ * instead of being sent and retried, so a burst that was throttled does not turn into a burst of retries. A request
+ * which would wait longer than {@link Constants#PROPERTY_REQUEST_TIMEOUT the request timeout}, or a minute if none is
+ * set, fails at once instead.
+ * 
+ * @see Constants#PROPERTY_ADAPTIVE_RATE_LIMIT
+ */
+@Singleton
+public class AdaptiveRateLimiter {
+
+   private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+   private static final double MIN_RATE = 1;
+
+   @Resource
+   protected Logger logger = Logger.NULL;
+
+   private final ThrottleClassifier classifier;
+   private final Ticker ticker;
+   private final ConcurrentMap<String, Endpoint> endpoints = Maps.newConcurrentMap();
+   private boolean enabled;
+   private long maxWaitNanos = TimeUnit.MINUTES.toNanos(1);
+
+   @Inject
+   AdaptiveRateLimiter(ThrottleClassifier classifier) {
+      this(classifier, Ticker.systemTicker());
+   }
+
+   @VisibleForTesting
+   AdaptiveRateLimiter(ThrottleClassifier classifier, Ticker ticker) {
+      this.classifier = checkNotNull(classifier, "classifier");
+      this.ticker = checkNotNull(ticker, "ticker");
+   }
+
+   @Inject(optional = true)
+   void setEnabled(@Named(Constants.PROPERTY_ADAPTIVE_RATE_LIMIT) boolean enabled) {
+      this.enabled = enabled;
+   }
+
+   @Inject(optional = true)
+   void setMaxWait(@Named(Constants.PROPERTY_REQUEST_TIMEOUT) long maxWaitMillis) {
+      this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+   }
+
+   public boolean isEnabled() {
+      return enabled;
+   }
+
+   /**
+    * Blocks until a request may be sent to the endpoint.
+    * 
+    * @throws RuntimeException
+    *            caused by a {@link TimeoutException} if the request would wait longer than the request timeout, or by
+    *            an {@link InterruptedException} if the thread was interrupted while waiting
+    */
+   public void acquire(URI endpoint) {
+      long waitNanos = reserve(endpoint);
+      if (waitNanos > maxWaitNanos)
+         throw Throwables.propagate(new TimeoutException(String.format(
+               "rate of requests to %s is limited to %.1f per second; next request would wait %d ms",
+               key(endpoint), rate(endpoint), TimeUnit.NANOSECONDS.toMillis(waitNanos))));
+      if (waitNanos <= 0)
+         return;
+      try {
+         TimeUnit.NANOSECONDS.sleep(waitNanos);
+      } catch (InterruptedException e) {
+         endpoint(endpoint).release();
+         Thread.currentThread().interrupt();
+         throw Throwables.propagate(e);
+      }
+   }
+
+   /**
+    * Takes a token for a request to the endpoint, unless it would have to wait longer than the request timeout.
+    * 
+    * @return nanoseconds to wait before sending the request; if more than the request timeout, no token was taken
+    */
+   @VisibleForTesting
+   long reserve(URI endpoint) {
+      if (!enabled)
+         return 0;
+      return endpoint(endpoint).reserve(ticker.read(), maxWaitNanos);
+   }
+
+   /**
+    * Adapts the rate of the endpoint to a response received from it.
+    */
+   public void onResponse(URI endpoint, HttpCommand command, HttpResponse response) {
+      if (!enabled)
+         return;
+      Endpoint state = endpoint(endpoint);
+      if (classifier.isThrottled(command, response)) {
+         double rate = state.decrease(ticker.read());
+         if (rate > 0)
+            logger.debug("throttled by %s; limiting to %.1f requests per second", state.key, rate);
+      } else if (state.increase(ticker.read())) {
+         logger.debug("no longer limiting requests to %s", state.key);
+      }
+   }
+
+   /**
+    * @return the current rate for the endpoint in requests per second, or {@link Double#POSITIVE_INFINITY} if it is
+    *         not limited
+    */
+   public double rate(URI endpoint) {
+      Endpoint state = endpoints.get(key(endpoint));
+      return state == null ? Double.POSITIVE_INFINITY : state.rate();
+   }
+
+   private Endpoint endpoint(URI endpoint) {
+      String key = key(endpoint);
+      Endpoint state = endpoints.get(key);
+      if (state == null) {
+         Endpoint created = new Endpoint(key, ticker.read());
+         state = endpoints.putIfAbsent(key, created);
+         if (state == null)
+            state = created;
+      }
+      return state;
+   }
+
+   private static String key(URI endpoint) {
+      return endpoint.getHost() + ":" + endpoint.getPort();
+   }
+
+   private static final class Endpoint {
+      private final String key;
+      private boolean limited;
+      private double rate;
+      private double rateBeforeDecrease;
+      private double tokens;
+      private long lastRefill;
+      private long lastDecrease;
+      private long windowStart;
+      private int windowCount;
+      private int previousWindowCount;
+
+      private Endpoint(String key, long now) {
+         this.key = key;
+         this.windowStart = now;
+      }
+
+      private synchronized double rate() {
+         return limited ? rate : Double.POSITIVE_INFINITY;
+      }
+
+      private synchronized long reserve(long now, long maxWaitNanos) {
+         if (limited)
+            refill(now);
+         if (!limited) {
+            countSend(now);
+            return 0;
+         }
+         double left = tokens - 1;
+         if (left >= 0) {
+            countSend(now);
+            tokens = left;
+            return 0;
+         }
+         // the token is borrowed from the future; later requests queue behind it
+         long waitNanos = (long) (-left / rate * SECOND);
+         if (waitNanos > maxWaitNanos)
+            return waitNanos;
+         countSend(now);
+         tokens = left;
+         return waitNanos;
+      }
+
+      /**
+       * Gives back a token taken by a request which was not sent.
+       */
+      private synchronized void release() {
+         if (limited)
+            tokens += 1;
+      }
+
+      /**
+       * @return the new rate, or 0 if the rate was decreased less than a second ago
+       */
+      private synchronized double decrease(long now) {
+         if (limited && now - lastDecrease < SECOND)
+            return 0;
+         rollWindow(now);
+         double sendRate = Math.max(previousWindowCount, windowCount);
+         double current = limited ? Math.min(rate, sendRate) : sendRate;
+         refill(now);
+         rateBeforeDecrease = Math.max(MIN_RATE, current);
+         rate = Math.max(MIN_RATE, current / 2);
+         limited = true;
+         lastDecrease = now;
+         lastRefill = now;
+         tokens = Math.min(tokens, 0);
+         return rate;
+      }
+
+      /**
+       * @return true if the endpoint is no longer limited
+       */
+      private synchronized boolean increase(long now) {
+         if (!limited)
+            return false;
+         refill(now);
+         return !limited;
+      }
+
+      private void refill(long now) {
+         double elapsedSeconds = (double) (now - lastRefill) / SECOND;
+         if (elapsedSeconds <= 0)
+            return;
+         lastRefill = now;
+         rate += rateBeforeDecrease / 20 * elapsedSeconds;
+         if (rate >= 2 * rateBeforeDecrease) {
+            limited = false;
+            tokens = 0;
+            return;
+         }
+         // allow at most a second worth of burst
+         tokens = Math.min(Math.max(rate, 1), tokens + rate * elapsedSeconds);
+      }
+
+      private void countSend(long now) {
+         rollWindow(now);
+         windowCount++;
+      }
+
+      private void rollWindow(long now) {
+         long elapsed = now - windowStart;
+         if (elapsed >= SECOND) {
+            previousWindowCount = elapsed < 2 * SECOND ? windowCount : 0;
+            windowCount = 0;
+            windowStart = now;
+         }
+      }
+   }
+}
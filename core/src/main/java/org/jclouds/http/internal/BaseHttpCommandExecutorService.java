@@ -23,6 +23,7 @@ import static org.jclouds.http.HttpUtils.releasePayload;
 import static org.jclouds.http.HttpUtils.wirePayloadIfEnabled;
 import static org.jclouds.util.Throwables2.getFirstThrowableOfType;
 
+import java.io.Closeable;
 import java.io.IOException;
 
 import javax.annotation.Resource;
@@ -41,6 +42,7 @@ import org.jclouds.http.IOExceptionRetryHandler;
 import org.jclouds.http.handlers.DelegatingErrorHandler;
 import org.jclouds.http.handlers.DelegatingRetryHandler;
 import org.jclouds.io.ContentMetadataCodec;
+import org.jclouds.javax.annotation.Nullable;
 import org.jclouds.logging.Logger;
 
 import com.google.common.annotations.VisibleForTesting;
@@ -61,6 +63,8 @@ public abstract class BaseHttpCommandExecutorService<Q> implements HttpCommandEx
 
    protected final HttpWire wire;
 
+   protected AdaptiveRateLimiter rateLimiter;
+
    @Inject
    protected BaseHttpCommandExecutorService(HttpUtils utils, ContentMetadataCodec contentMetadataCodec,
          DelegatingRetryHandler retryHandler, IOExceptionRetryHandler ioRetryHandler,
@@ -73,12 +77,21 @@ public abstract class BaseHttpCommandExecutorService<Q> implements HttpCommandEx
       this.wire = checkNotNull(wire, "wire");
    }
 
+   @Inject
+   void setRateLimiter(AdaptiveRateLimiter rateLimiter) {
+      this.rateLimiter = rateLimiter;
+   }
+
    @Override
    public HttpResponse invoke(HttpCommand command) {
       HttpResponse response = null;
       for (;;) {
          HttpRequest request = command.getCurrentRequest();
          Q nativeRequest = null;
+         if (command.isAborted()) {
+            command.setException(new HttpResponseException("aborted " + request.getRequestLine(), command, null));
+            break;
+         }
          try {
             for (HttpRequestFilter filter : request.getFilters()) {
                request = filter.filter(request);
@@ -88,11 +101,16 @@ public abstract class BaseHttpCommandExecutorService<Q> implements HttpCommandEx
             logger.debug("Sending request %s: %s", request.hashCode(), request.getRequestLine());
             wirePayloadIfEnabled(wire, request);
             utils.logRequest(headerLog, request, ">>");
+            if (rateLimiter != null)
+               rateLimiter.acquire(request.getEndpoint());
             nativeRequest = convert(request);
+            command.setAbortHandle(abortHandle(nativeRequest));
             response = invoke(nativeRequest);
 
             logger.debug("Receiving response %s: %s", request.hashCode(), response.getStatusLine());
             utils.logResponse(headerLog, response, "<<");
+            if (rateLimiter != null)
+               rateLimiter.onResponse(request.getEndpoint(), command, response);
             if (response.getPayload() != null && wire.enabled())
                wire.input(response);
             nativeRequest = null; // response took ownership of streams
@@ -107,7 +125,7 @@ public abstract class BaseHttpCommandExecutorService<Q> implements HttpCommandEx
             }
          } catch (Exception e) {
             IOException ioe = getFirstThrowableOfType(e, IOException.class);
-            if (ioe != null && ioRetryHandler.shouldRetryRequest(command, ioe)) {
+            if (ioe != null && !command.isAborted() && ioRetryHandler.shouldRetryRequest(command, ioe)) {
                continue;
             }
             command.setException(new HttpResponseException(e.getMessage() + " connecting to "
@@ -115,6 +133,7 @@ public abstract class BaseHttpCommandExecutorService<Q> implements HttpCommandEx
             break;
 
          } finally {
+            command.setAbortHandle(null);
             cleanup(nativeRequest);
          }
       }
@@ -143,4 +162,13 @@ public abstract class BaseHttpCommandExecutorService<Q> implements HttpCommandEx
 
    protected abstract void cleanup(Q nativeRequest);
 
+   /**
+    * Closes the connection of a request in flight when its command is {@link HttpCommand#abort() aborted}, making the
+    * thread blocked on it fail. Returns null by default, in which case an aborted request runs to completion.
+    */
+   @Nullable
+   protected Closeable abortHandle(Q nativeRequest) {
+      return null;
+   }
+
 }
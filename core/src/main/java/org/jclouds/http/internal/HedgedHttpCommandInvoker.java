@@ -0,0 +1,289 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.http.internal;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Throwables.propagate;
+import static org.jclouds.http.HttpUtils.releasePayload;
+
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Resource;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.jclouds.Constants;
+import org.jclouds.http.HttpCommand;
+import org.jclouds.http.HttpCommandExecutorService;
+import org.jclouds.http.HttpRequest;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.lifecycle.Closer;
+import org.jclouds.logging.Logger;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+
+/**
+ * Invokes {@link org.jclouds.rest.annotations.Hedged hedged} commands: when the response headers of a GET or HEAD
+ * request have not arrived after a percentile of the recent latencies of the command, an identical request is sent,
+ * the first response is returned and the connection of the other request is {@link HttpCommand#abort() aborted}.
+ * <p/>
+ * The request is sent on the calling thread, and only hedges run on threads of their own, so callers which run on
+ * the user executor never wait for a task queued on it. Hedges are paid from a budget that grows by
+ * {@link Constants#PROPERTY_HEDGING_BUDGET} percent of a request on each call, so a slow endpoint sees at most that
+ * much extra load. Until a command has {@value #MIN_SAMPLES} latencies recorded, it is invoked without hedging.
+ */
+@Singleton
+public class HedgedHttpCommandInvoker {
+
+   @VisibleForTesting
+   static final int MIN_SAMPLES = 20;
+   private static final int MAX_SAMPLES = 256;
+   private static final double MAX_CREDIT = 10;
+
+   @Resource
+   protected Logger logger = Logger.NULL;
+
+   private final HttpCommandExecutorService http;
+   private final ScheduledExecutorService scheduler;
+   private final ExecutorService hedgeExecutor;
+   private final Ticker ticker;
+   private final ConcurrentMap<String, Latencies> latencies = Maps.newConcurrentMap();
+   private double budgetPercent;
+   private double credit;
+
+   @Inject
+   HedgedHttpCommandInvoker(HttpCommandExecutorService http, Closer closer) {
+      this(http, Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+            .setNameFormat("hedging timer %d").setDaemon(true).build()), Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder().setNameFormat("hedged request %d").setDaemon(true).build()),
+            Ticker.systemTicker());
+      closer.addToClose(new Closeable() {
+         @Override
+         public void close() {
+            scheduler.shutdownNow();
+            hedgeExecutor.shutdownNow();
+         }
+      });
+   }
+
+   /**
+    * @param scheduler
+    *           runs the timers which send hedges, which must not block
+    * @param hedgeExecutor
+    *           sends the hedges; the budget bounds how many are in flight
+    */
+   @VisibleForTesting
+   HedgedHttpCommandInvoker(HttpCommandExecutorService http, ScheduledExecutorService scheduler,
+         ExecutorService hedgeExecutor, Ticker ticker) {
+      this.http = checkNotNull(http, "http");
+      this.scheduler = checkNotNull(scheduler, "scheduler");
+      this.hedgeExecutor = checkNotNull(hedgeExecutor, "hedgeExecutor");
+      this.ticker = checkNotNull(ticker, "ticker");
+   }
+
+   @Inject(optional = true)
+   void setBudgetPercent(@Named(Constants.PROPERTY_HEDGING_BUDGET) double budgetPercent) {
+      this.budgetPercent = budgetPercent;
+   }
+
+   /**
+    * Invokes the command, hedging it if it is a GET or HEAD without payload and hedging is enabled.
+    * 
+    * @param commandName
+    *           name under which latencies are tracked
+    * @param percentile
+    *           percentile of recent latencies after which a hedge request is sent
+    */
+   public HttpResponse invoke(String commandName, HttpCommand command, double percentile) {
+      HttpRequest request = command.getCurrentRequest();
+      if (budgetPercent <= 0 || !isIdempotentRead(request))
+         return http.invoke(command);
+      Latencies commandLatencies = latencies(commandName + " " + request.getMethod());
+      deposit();
+      long delayNanos = commandLatencies.percentile(percentile);
+      if (delayNanos < 0)
+         return timed(command, commandLatencies);
+
+      Race race = new Race(command, new HttpCommand(request), commandLatencies);
+      ScheduledFuture<?> timer = scheduler.schedule(race.hedgeAfter(commandName, delayNanos), delayNanos,
+            TimeUnit.NANOSECONDS);
+      try {
+         race.succeeded(timed(command, commandLatencies), command);
+      } catch (RuntimeException e) {
+         race.failed(e);
+      } finally {
+         timer.cancel(false);
+         race.primaryDone();
+      }
+      try {
+         // done unless the request failed while a hedge is in flight
+         return race.first.get();
+      } catch (InterruptedException e) {
+         race.hedge.abort();
+         Thread.currentThread().interrupt();
+         throw propagate(e);
+      } catch (ExecutionException e) {
+         throw propagate(e.getCause());
+      }
+   }
+
+   private static boolean isIdempotentRead(HttpRequest request) {
+      return ("GET".equals(request.getMethod()) || "HEAD".equals(request.getMethod())) && request.getPayload() == null;
+   }
+
+   private HttpResponse timed(HttpCommand command, Latencies commandLatencies) {
+      long start = ticker.read();
+      HttpResponse response = http.invoke(command);
+      commandLatencies.add(ticker.read() - start);
+      return response;
+   }
+
+   /**
+    * A request and its hedge, if one is sent. Completes with the first response, aborting the other request, or with
+    * the last failure if all requests sent fail. Late responses are released.
+    */
+   private final class Race {
+      private final SettableFuture<HttpResponse> first = SettableFuture.create();
+      private final HttpCommand primary;
+      private final HttpCommand hedge;
+      private final Latencies commandLatencies;
+      private int running = 1;
+      private boolean primaryDone;
+
+      private Race(HttpCommand primary, HttpCommand hedge, Latencies commandLatencies) {
+         this.primary = primary;
+         this.hedge = hedge;
+         this.commandLatencies = commandLatencies;
+      }
+
+      private Runnable hedgeAfter(final String commandName, final long delayNanos) {
+         return new Runnable() {
+            @Override
+            public void run() {
+               if (!startHedge())
+                  return;
+               logger.debug(">> hedging %s after %sms", commandName, TimeUnit.NANOSECONDS.toMillis(delayNanos));
+               try {
+                  hedgeExecutor.execute(new Runnable() {
+                     @Override
+                     public void run() {
+                        try {
+                           succeeded(timed(hedge, commandLatencies), hedge);
+                        } catch (RuntimeException e) {
+                           failed(e);
+                        }
+                     }
+                  });
+               } catch (RejectedExecutionException e) {
+                  failed(e);
+               }
+            }
+         };
+      }
+
+      private synchronized boolean startHedge() {
+         if (primaryDone || first.isDone() || !withdraw())
+            return false;
+         running++;
+         return true;
+      }
+
+      private synchronized void primaryDone() {
+         primaryDone = true;
+      }
+
+      private void succeeded(HttpResponse response, HttpCommand winner) {
+         if (first.set(response)) {
+            (winner == primary ? hedge : primary).abort();
+         } else {
+            releasePayload(response);
+         }
+      }
+
+      private synchronized void failed(Exception e) {
+         if (--running == 0)
+            first.setException(e);
+      }
+   }
+
+   private synchronized void deposit() {
+      credit = Math.min(MAX_CREDIT, credit + budgetPercent / 100);
+   }
+
+   private synchronized boolean withdraw() {
+      if (credit < 1)
+         return false;
+      credit -= 1;
+      return true;
+   }
+
+   private Latencies latencies(String key) {
+      Latencies result = latencies.get(key);
+      if (result == null) {
+         Latencies created = new Latencies();
+         result = latencies.putIfAbsent(key, created);
+         if (result == null)
+            result = created;
+      }
+      return result;
+   }
+
+   /**
+    * The most recent {@value HedgedHttpCommandInvoker#MAX_SAMPLES} latencies of a command.
+    */
+   private static final class Latencies {
+      private final long[] samples = new long[MAX_SAMPLES];
+      private int count;
+      private int next;
+
+      private synchronized void add(long nanos) {
+         samples[next] = nanos;
+         next = (next + 1) % MAX_SAMPLES;
+         if (count < MAX_SAMPLES)
+            count++;
+      }
+
+      /**
+       * @return the latency at the percentile in nanoseconds, or -1 if too few latencies were recorded
+       */
+      private long percentile(double percentile) {
+         long[] sorted;
+         synchronized (this) {
+            if (count < MIN_SAMPLES)
+               return -1;
+            sorted = Arrays.copyOf(samples, count);
+         }
+         Arrays.sort(sorted);
+         int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+         return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+      }
+   }
+}
@@ -25,6 +25,7 @@ import static org.jclouds.http.HttpUtils.filterOutContentHeaders;
 import static org.jclouds.io.Payloads.newInputStreamPayload;
 import static org.jclouds.util.Closeables2.closeQuietly;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Field;
@@ -303,6 +304,17 @@ public class JavaUrlHttpCommandExecutorService extends BaseHttpCommandExecutorSe
       }
    }
 
+   @Override
+   protected Closeable abortHandle(final HttpURLConnection connection) {
+      return new Closeable() {
+         @Override
+         public void close() {
+            // closes the socket, failing reads blocked on it
+            connection.disconnect();
+         }
+      };
+   }
+
    @Override
    protected void cleanup(HttpURLConnection connection) {
       if (connection != null)
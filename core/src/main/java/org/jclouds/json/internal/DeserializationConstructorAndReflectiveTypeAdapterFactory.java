@@ -32,6 +32,8 @@ import com.google.common.base.Objects;
 import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableMap.Builder;
+import com.google.common.collect.Lists;
+import com.google.common.primitives.Ints;
 import com.google.common.reflect.Invokable;
 import com.google.common.reflect.Parameter;
 import com.google.gson.FieldNamingStrategy;
@@ -144,12 +146,30 @@ public final class DeserializationConstructorAndReflectiveTypeAdapterFactory imp
       private final TypeAdapter<T> serializer;
       private final Invokable<T, T> parameterizedCtor;
       private final Map<String, ParameterReader<?>> parameterReaders;
+      // computed once, as resolving the parameters of the constructor is more expensive than reading most objects
+      private final Object[] defaultValues;
+      private final int[] optionalPositions;
 
       private DeserializeIntoParameterizedConstructor(TypeAdapter<T> serializer, Invokable<T, T> deserializationCtor,
             Map<String, ParameterReader<?>> parameterReaders) {
          this.serializer = serializer;
          this.parameterizedCtor = deserializationCtor;
          this.parameterReaders = parameterReaders;
+         List<Parameter> params = deserializationCtor.getParameters();
+         this.defaultValues = new Object[params.size()];
+         List<Integer> optionals = Lists.newArrayList();
+         for (Parameter param : params) {
+            Class<?> rawType = param.getType().getRawType();
+            // primitive constructor params default to false or 0
+            if (rawType == boolean.class) {
+               defaultValues[param.hashCode()] = Boolean.FALSE;
+            } else if (rawType.isPrimitive()) {
+               defaultValues[param.hashCode()] = 0;
+            } else if (rawType == Optional.class) {
+               optionals.add(param.hashCode());
+            }
+         }
+         this.optionalPositions = Ints.toArray(optionals);
       }
 
       @Override
@@ -159,19 +179,9 @@ public final class DeserializationConstructorAndReflectiveTypeAdapterFactory imp
             return null;
          }
 
-         List<Parameter> params = parameterizedCtor.getParameters();
-         Object[] values = new Object[params.size()];
+         Object[] values = defaultValues.clone();
          boolean empty = true;
 
-         // Set all primitive constructor params to defaults
-         for (Parameter param : params) {
-            if (param.getType().getRawType() == boolean.class) {
-               values[param.hashCode()] = Boolean.FALSE;
-            } else if (param.getType().getRawType().isPrimitive()) {
-               values[param.hashCode()] = 0;
-            }
-         }
-
          try {
             in.beginObject();
             while (in.hasNext()) {
@@ -190,13 +200,9 @@ public final class DeserializationConstructorAndReflectiveTypeAdapterFactory imp
             throw new JsonSyntaxException(e);
          }
 
-         for (Parameter param : params) {
-            if (param.getType().getRawType().isPrimitive()) {
-               checkArgument(values[param.hashCode()] != null,
-                  "Primitive param[%s] in constructor %s cannot be absent!", param.hashCode(), parameterizedCtor);
-            } else if (param.getType().getRawType() == Optional.class && values[param.hashCode()] == null) {
-               values[param.hashCode()] = Optional.absent();
-            }
+         for (int position : optionalPositions) {
+            if (values[position] == null)
+               values[position] = Optional.absent();
          }
          in.endObject();
 
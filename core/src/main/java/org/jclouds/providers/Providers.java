@@ -15,6 +15,7 @@
  * limitations under the License.
  */
 package org.jclouds.providers;
+import static com.google.common.collect.Iterables.concat;
 import static com.google.common.collect.Iterables.filter;
 import static com.google.common.collect.Iterables.find;
 import static org.jclouds.reflect.Reflection2.typeToken;
@@ -96,7 +97,8 @@ public class Providers {
     *            whenever there are no providers with the provided id
     */
    public static ProviderMetadata withId(String id) throws NoSuchElementException {
-      return find(all(), ProviderPredicates.id(id));
+      // the service loader instantiates lazily, so stop at the first match rather than loading every provider
+      return find(concat(fromServiceLoader(), ProviderRegistry.fromRegistry()), ProviderPredicates.id(id));
    }
 
    /**
@@ -0,0 +1,41 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.rest.annotations;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a GET or HEAD method whose tail latency matters more than the load of an occasional duplicate request. When
+ * the response headers have not arrived after the given percentile of its recent latencies, a second identical request
+ * is sent and the first response is used.
+ * <p/>
+ * Hedging is off unless {@link org.jclouds.Constants#PROPERTY_HEDGING_BUDGET} is set.
+ * 
+ * @see org.jclouds.http.internal.HedgedHttpCommandInvoker
+ */
+@Target(METHOD)
+@Retention(RUNTIME)
+public @interface Hedged {
+   /**
+    * Percentile of recent response header latencies of the method after which a hedge request is sent.
+    */
+   double percentile() default 95;
+}
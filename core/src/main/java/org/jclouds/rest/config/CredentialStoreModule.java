@@ -20,6 +20,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.annotation.Resource;
 import javax.inject.Inject;
@@ -34,6 +35,7 @@ import org.jclouds.rest.ConfiguresCredentialStore;
 import com.google.common.annotations.Beta;
 import com.google.common.base.Charsets;
 import com.google.common.base.Function;
+import com.google.common.collect.Maps;
 import com.google.common.io.ByteSource;
 import com.google.inject.AbstractModule;
 import com.google.inject.Provides;
@@ -102,12 +104,69 @@ public class CredentialStoreModule extends AbstractModule {
       }
    }
 
+   /**
+    * Keeps the credentials last decoded for each key, along with the bytes they were decoded from, so that repeated
+    * reads, such as adding credentials to each node of a listing, do not parse json. Writes go straight to the backing
+    * map. As the backing map may be shared with other stores, a cached value is only used while the backing map still
+    * holds the same bytes.
+    */
+   public static class CachingCredentialStore extends TransformingMap<String, ByteSource, Credentials> {
+      private final Map<String, ByteSource> backing;
+      private final Function<ByteSource, Credentials> credentialsDeserializer;
+      private final ConcurrentMap<String, Decoded> decoded = Maps.newConcurrentMap();
+
+      public CachingCredentialStore(Map<String, ByteSource> backing,
+            Function<ByteSource, Credentials> credentialsDeserializer,
+            Function<Credentials, ByteSource> credentialsSerializer) {
+         super(backing, credentialsDeserializer, credentialsSerializer);
+         this.backing = backing;
+         this.credentialsDeserializer = credentialsDeserializer;
+      }
+
+      @Override
+      public Credentials get(Object key) {
+         ByteSource bytes = backing.get(key);
+         if (bytes == null) {
+            decoded.remove(key);
+            return super.get(key);
+         }
+         Decoded cached = decoded.get(key);
+         if (cached != null && cached.bytes == bytes)
+            return cached.credentials;
+         Credentials credentials = credentialsDeserializer.apply(bytes);
+         if (credentials != null)
+            decoded.put(String.class.cast(key), new Decoded(bytes, credentials));
+         return credentials;
+      }
+
+      @Override
+      public Credentials remove(Object key) {
+         decoded.remove(key);
+         return super.remove(key);
+      }
+
+      @Override
+      public void clear() {
+         decoded.clear();
+         super.clear();
+      }
+
+      private static final class Decoded {
+         private final ByteSource bytes;
+         private final Credentials credentials;
+
+         private Decoded(ByteSource bytes, Credentials credentials) {
+            this.bytes = bytes;
+            this.credentials = credentials;
+         }
+      }
+   }
+
    @Provides
    @Singleton
    protected Map<String, Credentials> provideCredentialStore(Map<String, ByteSource> backing,
          Function<Credentials, ByteSource> credentialsSerializer,
          Function<ByteSource, Credentials> credentialsDeserializer) {
-      return new TransformingMap<String, ByteSource, Credentials>(backing, credentialsDeserializer,
-            credentialsSerializer);
+      return new CachingCredentialStore(backing, credentialsDeserializer, credentialsSerializer);
    }
 }
@@ -30,9 +30,11 @@ import org.jclouds.http.HttpCommand;
 import org.jclouds.http.HttpCommandExecutorService;
 import org.jclouds.http.HttpRequest;
 import org.jclouds.http.HttpResponse;
+import org.jclouds.http.internal.HedgedHttpCommandInvoker;
 import org.jclouds.logging.Logger;
 import org.jclouds.reflect.Invocation;
 import org.jclouds.rest.InvocationContext;
+import org.jclouds.rest.annotations.Hedged;
 import org.jclouds.rest.config.InvocationConfig;
 
 import com.google.common.annotations.VisibleForTesting;
@@ -51,6 +53,7 @@ public class InvokeHttpMethod implements Function<Invocation, Object> {
    private final TimeLimiter timeLimiter;
    private final Function<HttpRequest, Function<HttpResponse, ?>> transformerForRequest;
    private final InvocationConfig config;
+   private HedgedHttpCommandInvoker hedging;
 
    @Inject
    @VisibleForTesting
@@ -64,6 +67,11 @@ public class InvokeHttpMethod implements Function<Invocation, Object> {
       this.config = config;
    }
 
+   @Inject
+   void setHedging(HedgedHttpCommandInvoker hedging) {
+      this.hedging = hedging;
+   }
+
    @Override
    public Object apply(Invocation in) {
       Optional<Long> timeoutNanos = config.getTimeoutNanos(in);
@@ -87,7 +95,7 @@ public class InvokeHttpMethod implements Function<Invocation, Object> {
 
       logger.debug(">> invoking %s", commandName);
       try {
-         return transformer.apply(http.invoke(command));
+         return transformer.apply(invokeHttp(commandName, invocation, command));
       } catch (Throwable t) {
          try {
             return fallback.createOrPropagate(t);
@@ -123,8 +131,8 @@ public class InvokeHttpMethod implements Function<Invocation, Object> {
 
       logger.debug(">> blocking on %s for %s", invocation, limitNanos);
       try {
-         return timeLimiter
-               .callWithTimeout(new InvokeAndTransform(commandName, command), limitNanos, NANOSECONDS, true);
+         return timeLimiter.callWithTimeout(new InvokeAndTransform(commandName, command, hedged(invocation)),
+               limitNanos, NANOSECONDS, true);
       } catch (Throwable t) {
          try {
             return fallback.createOrPropagate(t);
@@ -143,21 +151,41 @@ public class InvokeHttpMethod implements Function<Invocation, Object> {
       return fallback;
    }
 
+   private HttpResponse invokeHttp(String commandName, Invocation invocation, HttpCommand command) {
+      return invokeHttp(commandName, hedged(invocation), command);
+   }
+
+   private HttpResponse invokeHttp(String commandName, Hedged hedged, HttpCommand command) {
+      if (hedged != null && hedging != null)
+         return hedging.invoke(commandName, command, hedged.percentile());
+      return http.invoke(command);
+   }
+
+   private static Hedged hedged(Invocation invocation) {
+      return invocation.getInvokable().getAnnotation(Hedged.class);
+   }
+
    @VisibleForTesting
    final class InvokeAndTransform implements Callable<Object> {
       private final String commandName;
       private final HttpCommand command;
+      private final Hedged hedged;
       private final Function<HttpResponse, ?> transformer;
 
       InvokeAndTransform(String commandName, HttpCommand command) {
+         this(commandName, command, null);
+      }
+
+      InvokeAndTransform(String commandName, HttpCommand command, Hedged hedged) {
          this.commandName = commandName;
          this.command = command;
+         this.hedged = hedged;
          this.transformer = getTransformer(commandName, command);
       }
 
       @Override
       public Object call() throws Exception {
-         return transformer.apply(http.invoke(command));
+         return transformer.apply(invokeHttp(commandName, hedged, command));
       }
 
       @Override
@@ -21,9 +21,11 @@ import static com.google.common.base.Throwables.propagate;
 import static org.jclouds.util.Throwables2.getFirstThrowableOfType;
 
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
+import org.jclouds.javax.annotation.Nullable;
 import org.jclouds.rest.AuthorizationException;
 
 import com.google.common.base.Objects;
@@ -99,13 +101,35 @@ public class MemoizedRetryOnTimeOutButNotOnAuthorizationExceptionSupplier<T> ext
             unit);
    }
 
+   /**
+    * Like {@link #create}, except that once the value is older than the duration, the next call reloads it on the
+    * executor and returns the previous value, rather than blocking until the reload completes. If a reload fails, the
+    * previous value continues to be returned, and the next call after that tries again.
+    */
+   public static <T> MemoizedRetryOnTimeOutButNotOnAuthorizationExceptionSupplier<T> createRefreshingInBackground(
+         AtomicReference<AuthorizationException> authException, Supplier<T> delegate, long duration, TimeUnit unit,
+         Executor executor) {
+      return new MemoizedRetryOnTimeOutButNotOnAuthorizationExceptionSupplier<T>(authException, delegate, duration,
+            unit, checkNotNull(executor, "executor"));
+   }
+
    MemoizedRetryOnTimeOutButNotOnAuthorizationExceptionSupplier(AtomicReference<AuthorizationException> authException,
          Supplier<T> delegate, long duration, TimeUnit unit) {
+      this(authException, delegate, duration, unit, null);
+   }
+
+   MemoizedRetryOnTimeOutButNotOnAuthorizationExceptionSupplier(AtomicReference<AuthorizationException> authException,
+         Supplier<T> delegate, long duration, TimeUnit unit, @Nullable Executor refreshExecutor) {
       this.delegate = delegate;
       this.duration = duration;
       this.unit = unit;
-      this.cache = CacheBuilder.newBuilder().expireAfterWrite(duration, unit)
-            .build(new SetAndThrowAuthorizationExceptionSupplierBackedLoader<T>(delegate, authException));
+      CacheLoader<String, Optional<T>> loader = new SetAndThrowAuthorizationExceptionSupplierBackedLoader<T>(delegate,
+            authException);
+      if (refreshExecutor == null)
+         this.cache = CacheBuilder.newBuilder().expireAfterWrite(duration, unit).build(loader);
+      else
+         this.cache = CacheBuilder.newBuilder().refreshAfterWrite(duration, unit)
+               .build(CacheLoader.asyncReloading(loader, refreshExecutor));
    }
 
    @Override
@@ -17,8 +17,8 @@
 package org.jclouds.util;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.Iterables.getFirst;
 import static org.jclouds.util.Closeables2.closeQuietly;
-import static org.jclouds.util.Patterns.TOKEN_TO_PATTERN;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
@@ -28,13 +28,13 @@ import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
 import java.net.URLEncoder;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.concurrent.ExecutionException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.jclouds.javax.annotation.Nullable;
 
+import com.google.common.base.CharMatcher;
 import com.google.common.base.Charsets;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
@@ -55,6 +55,8 @@ public class Strings2 {
    public static String urlEncode(String in, Iterable<Character> skipEncode) {
       if (isUrlEncoded(in))
          return in;
+      if (CharMatcher.ASCII.matchesAllOf(in))
+         return urlEncodeAscii(in, skipEncode);
       try {
          String returnVal = URLEncoder.encode(in, "UTF-8");
          returnVal = returnVal.replace("+", "%20");
@@ -70,6 +72,34 @@ public class Strings2 {
       }
    }
    
+   private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+   /**
+    * Encodes in one pass, producing the same output as {@link URLEncoder} followed by the replacements in
+    * {@link #urlEncode(String, Iterable)}. Space and {@code *} stay encoded even when skipped, as they did there.
+    */
+   private static String urlEncodeAscii(String in, Iterable<Character> skipEncode) {
+      boolean[] skip = new boolean[128];
+      for (char c : skipEncode) {
+         if (c < 128 && c != ' ' && c != '*')
+            skip[c] = true;
+      }
+      StringBuilder builder = null;
+      for (int i = 0; i < in.length(); i++) {
+         char c = in.charAt(i);
+         if (skip[c] || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '.'
+               || c == '-' || c == '_') {
+            if (builder != null)
+               builder.append(c);
+            continue;
+         }
+         if (builder == null)
+            builder = new StringBuilder(in.length() + 16).append(in, 0, i);
+         builder.append('%').append(HEX_DIGITS[c >> 4]).append(HEX_DIGITS[c & 0xF]);
+      }
+      return builder == null ? in : builder.toString();
+   }
+
    private static final LoadingCache<Character, String> CHAR_TO_ENCODED = CacheBuilder.newBuilder()
          .<Character, String> build(new CacheLoader<Character, String>() {
             @Override
@@ -94,7 +124,7 @@ public class Strings2 {
    private static final Pattern URL_ENCODED_PATTERN = Pattern.compile(".*%[a-fA-F0-9][a-fA-F0-9].*");
 
    public static boolean isUrlEncoded(String in) {
-      return URL_ENCODED_PATTERN.matcher(in).matches();
+      return in.indexOf('%') != -1 && URL_ENCODED_PATTERN.matcher(in).matches();
    }
 
    /**
@@ -166,11 +196,34 @@ public class Strings2 {
    
    private static final Pattern TOKEN_PATTERN = Pattern.compile("\\{(.+?)\\}");
 
+   /**
+    * Replaces each {@code {token}} whose name is a key of {@code tokenValues} with its first value, in one pass.
+    * Replacements are not themselves searched for tokens.
+    */
    public static String replaceTokens(String input, Multimap<String, ?> tokenValues) {
-      for (Entry<String, ?> tokenValue : tokenValues.entries()) {
-         Pattern pattern = TOKEN_TO_PATTERN.getUnchecked(tokenValue.getKey());
-         input = pattern.matcher(input).replaceAll(tokenValue.getValue().toString());
+      if (tokenValues.isEmpty())
+         return input;
+      StringBuilder builder = null;
+      int copied = 0;
+      int open = input.indexOf('{');
+      while (open != -1) {
+         int close = input.indexOf('}', open + 1);
+         if (close == -1)
+            break;
+         Object replacement = getFirst(tokenValues.get(input.substring(open + 1, close)), null);
+         if (replacement == null) {
+            // the token may start at a later brace, as in {"name":"{name}"}
+            open = input.indexOf('{', open + 1);
+            continue;
+         }
+         if (builder == null)
+            builder = new StringBuilder(input.length() + 16);
+         builder.append(input, copied, open).append(replacement);
+         copied = close + 1;
+         open = input.indexOf('{', copied);
       }
-      return input;
+      if (builder == null)
+         return input;
+      return builder.append(input, copied, input.length()).toString();
    }
 }
@@ -19,12 +19,16 @@ package org.jclouds;
 import static com.google.common.base.Suppliers.ofInstance;
 import static org.jclouds.providers.AnonymousProviderMetadata.forApiOnEndpoint;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
 
 import java.net.URI;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.inject.Singleton;
 
 import org.jclouds.concurrent.config.ExecutorServiceModule;
 import org.jclouds.domain.Credentials;
@@ -45,6 +49,7 @@ import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.inject.AbstractModule;
+import com.google.inject.Injector;
 import com.google.inject.Key;
 import com.google.inject.Module;
 import com.google.inject.TypeLiteral;
@@ -130,6 +135,43 @@ public class ContextBuilderTest {
       assertEquals(version, "1.1");
    }
    
+   @Singleton
+   static class CountsInstances {
+      static final AtomicInteger created = new AtomicInteger();
+
+      CountsInstances() {
+         created.incrementAndGet();
+      }
+   }
+
+   private static Module bindCountsInstances() {
+      return new AbstractModule() {
+         @Override
+         protected void configure() {
+            bind(CountsInstances.class);
+         }
+      };
+   }
+
+   @Test
+   public void testSingletonsAreCreatedEagerlyByDefault() {
+      CountsInstances.created.set(0);
+      testContextBuilder().credentials("foo", "bar").modules(ImmutableSet.of(bindCountsInstances())).buildInjector();
+      assertEquals(CountsInstances.created.get(), 1);
+   }
+
+   @Test
+   public void testLazySingletonsAreCreatedOnFirstUse() {
+      CountsInstances.created.set(0);
+      Properties overrides = new Properties();
+      overrides.setProperty(Constants.PROPERTY_LAZY_SINGLETONS, "true");
+      Injector injector = testContextBuilder().credentials("foo", "bar").overrides(overrides)
+            .modules(ImmutableSet.of(bindCountsInstances())).buildInjector();
+      assertEquals(CountsInstances.created.get(), 0);
+      assertSame(injector.getInstance(CountsInstances.class), injector.getInstance(CountsInstances.class));
+      assertEquals(CountsInstances.created.get(), 1);
+   }
+
    @Test
    public void testAddHttpModuleIfNotPresent() {
       List<Module> modules = Lists.newArrayList();
@@ -18,6 +18,8 @@ package org.jclouds;
 
 import static java.util.concurrent.Executors.defaultThreadFactory;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletionService;
@@ -111,6 +113,40 @@ public abstract class PerformanceTest {
       }
    }
 
+   /**
+    * Runs a task {@code loopCount} times to warm up, then {@code loopCount} times more, and outputs the bytes the
+    * current thread allocated per run of the task. Nothing is output on JVMs which do not track allocation per thread.
+    * 
+    * @param performanceTestName
+    * @param loopCount
+    * @param task
+    */
+   protected void executeAllocationTest(String performanceTestName, int loopCount, Runnable task) {
+      for (int i = 0; i < loopCount; i++)
+         task.run();
+      long before = allocatedBytes();
+      for (int i = 0; i < loopCount; i++)
+         task.run();
+      long allocated = allocatedBytes() - before;
+      if (before >= 0) {
+         System.out.printf("ALLOCATION: %s allocated %.1fKB per run\n", performanceTestName,
+                  (double) allocated / 1024 / loopCount);
+      }
+   }
+
+   /**
+    * @return bytes allocated by the current thread so far, or -1 if the JVM does not track them
+    */
+   private static long allocatedBytes() {
+      ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+      if (!(threads instanceof com.sun.management.ThreadMXBean))
+         return -1;
+      com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+      if (!allocations.isThreadAllocatedMemorySupported() || !allocations.isThreadAllocatedMemoryEnabled())
+         return -1;
+      return allocations.getThreadAllocatedBytes(Thread.currentThread().getId());
+   }
+
    protected void executeMultiThreadedCorrectnessTest(List<Runnable> tasks)
             throws InterruptedException, ExecutionException, Throwable {
       executeMultiThreadedPerformanceTest(null, tasks);
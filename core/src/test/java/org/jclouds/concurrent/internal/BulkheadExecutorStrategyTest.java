@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.concurrent.internal;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+
+@Test(groups = "unit", singleThreaded = true, testName = "BulkheadExecutorStrategyTest")
+public class BulkheadExecutorStrategyTest {
+
+   private ListeningExecutorService userExecutor;
+
+   @BeforeMethod
+   public void createUserExecutor() {
+      userExecutor = MoreExecutors.listeningDecorator(Executors.newCachedThreadPool());
+   }
+
+   @AfterMethod(alwaysRun = true)
+   public void shutdownUserExecutor() {
+      userExecutor.shutdownNow();
+   }
+
+   public void testUnlimitedPartitionsUseUserExecutor() {
+      BulkheadExecutorStrategy strategy = new BulkheadExecutorStrategy(userExecutor, 0, 10);
+      assertSame(strategy.executorFor("s3.amazonaws.com"), userExecutor);
+   }
+
+   public void testSlowPartitionDoesNotBlockOthers() throws Exception {
+      BulkheadExecutorStrategy strategy = new BulkheadExecutorStrategy(userExecutor, 1, 1);
+      CountDownLatch release = new CountDownLatch(1);
+      ListeningExecutorService slow = strategy.executorFor("slow");
+
+      ListenableFuture<String> running = slow.submit(await(release, "running"));
+      ListenableFuture<String> queued = slow.submit(await(release, "queued"));
+      try {
+         slow.submit(await(release, "rejected"));
+         fail("expected the full queue to reject the task");
+      } catch (RejectedExecutionException expected) {
+      }
+      assertEquals(strategy.rejections(), ImmutableMap.of("slow", 1L));
+
+      assertEquals(strategy.executorFor("fast").submit(await(new CountDownLatch(0), "fast")).get(5, TimeUnit.SECONDS),
+            "fast");
+      assertFalse(queued.isDone());
+
+      release.countDown();
+      assertEquals(running.get(5, TimeUnit.SECONDS), "running");
+      assertEquals(queued.get(5, TimeUnit.SECONDS), "queued");
+   }
+
+   public void testShutdownOnlyAffectsPartition() throws Exception {
+      BulkheadExecutorStrategy strategy = new BulkheadExecutorStrategy(userExecutor, 2, 10);
+      ListeningExecutorService partition = strategy.executorFor("partition");
+      partition.shutdown();
+      assertTrue(partition.awaitTermination(1, TimeUnit.SECONDS));
+      assertFalse(userExecutor.isShutdown());
+   }
+
+   public void testQueuedTasksFailWhenUserExecutorIsShutDown() throws Exception {
+      BulkheadExecutorStrategy strategy = new BulkheadExecutorStrategy(userExecutor, 1, 10);
+      CountDownLatch release = new CountDownLatch(1);
+      ListeningExecutorService partition = strategy.executorFor("partition");
+
+      ListenableFuture<String> running = partition.submit(await(release, "running"));
+      ListenableFuture<String> first = partition.submit(await(release, "first"));
+      ListenableFuture<String> second = partition.submit(await(release, "second"));
+      userExecutor.shutdown();
+      release.countDown();
+
+      assertEquals(running.get(5, TimeUnit.SECONDS), "running");
+      for (ListenableFuture<String> queued : ImmutableList.of(first, second)) {
+         try {
+            queued.get(5, TimeUnit.SECONDS);
+            fail("expected the queued task to fail");
+         } catch (CancellationException expected) {
+         }
+      }
+      partition.shutdown();
+      assertTrue(partition.awaitTermination(5, TimeUnit.SECONDS));
+   }
+
+   private static Callable<String> await(final CountDownLatch latch, final String result) {
+      return new Callable<String>() {
+         @Override
+         public String call() throws InterruptedException {
+            latch.await();
+            return result;
+         }
+      };
+   }
+}
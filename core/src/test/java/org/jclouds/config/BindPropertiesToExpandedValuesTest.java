@@ -42,4 +42,16 @@ public class BindPropertiesToExpandedValuesTest {
       expected.setProperty("path", "path:1234");
       assertEquals(output, expected);
    }
+
+   @Test
+   public void testExpandWithoutInjectorMatchesModule() {
+      Properties input = new Properties();
+      input.setProperty("id", "1234");
+      input.setProperty("path", "path:${id}");
+      input.setProperty("url", "http://${path}/${missing}");
+
+      assertEquals(BindPropertiesToExpandedValues.expand(input),
+            Guice.createInjector(new BindPropertiesToExpandedValues(input)).getInstance(Properties.class));
+      assertEquals(BindPropertiesToExpandedValues.expand(input).getProperty("url"), "http://path:1234/${missing}");
+   }
 }
@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.http;
+
+import static org.jclouds.util.Strings2.urlEncode;
+
+import java.net.URLEncoder;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.regex.Pattern;
+
+import org.jclouds.util.Strings2;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Multimap;
+
+/**
+ * Compares expanding typical S3 and Nova request templates with the compiled templates and one pass encoder against
+ * the previous character-by-character expansion, {@link URLEncoder} based encoding and per-token regex replacement.
+ */
+@Test(groups = "performance", singleThreaded = true, timeOut = 2 * 60 * 1000, testName = "UriTemplatesPerformanceTest")
+public class UriTemplatesPerformanceTest {
+   private static final int LOOP_COUNT = 200000;
+   private static final String S3_PATH = "/{bucket}/{key}";
+   private static final Map<String, String> S3_VARIABLES = ImmutableMap.of("bucket", "my-bucket", "key",
+         "photos/2014/holiday at the beach.jpg");
+   private static final String NOVA_PATH = "/v2/{tenant_id}/servers/{server_id}/metadata/{key}";
+   private static final Map<String, String> NOVA_VARIABLES = ImmutableMap.of("tenant_id", "3456", "server_id",
+         "71f1d7c8-5d83-4c5a-a1ab-21d8c1d31e55", "key", "Server Label");
+   private static final String HEADER = "bytes={start}-{end}";
+   private static final Multimap<String, Object> TOKENS = ImmutableMultimap.<String, Object> of("bucket",
+         "my-bucket", "key", "photos/2014/holiday.jpg", "start", 0, "end", 1023);
+
+   public void testPreviousExpansion() throws Exception {
+      previousExpansion();
+      long start = System.nanoTime();
+      int length = previousExpansion();
+      report("previous", System.nanoTime() - start, length);
+   }
+
+   public void testCompiledExpansion() {
+      compiledExpansion();
+      long start = System.nanoTime();
+      int length = compiledExpansion();
+      report("compiled", System.nanoTime() - start, length);
+   }
+
+   private static int previousExpansion() throws Exception {
+      int length = 0;
+      for (int i = 0; i < LOOP_COUNT; i++) {
+         length += previousUrlEncode(previousExpand(S3_PATH, S3_VARIABLES)).length();
+         length += previousUrlEncode(previousExpand(NOVA_PATH, NOVA_VARIABLES)).length();
+         length += previousReplaceTokens(HEADER, TOKENS).length();
+      }
+      return length;
+   }
+
+   private static int compiledExpansion() {
+      int length = 0;
+      for (int i = 0; i < LOOP_COUNT; i++) {
+         length += urlEncode(UriTemplates.expand(S3_PATH, S3_VARIABLES), '/', ':', ';', '=').length();
+         length += urlEncode(UriTemplates.expand(NOVA_PATH, NOVA_VARIABLES), '/', ':', ';', '=').length();
+         length += Strings2.replaceTokens(HEADER, TOKENS).length();
+      }
+      return length;
+   }
+
+   private static void report(String strategy, long nanos, int length) {
+      System.out.printf("TIMING: %s expansion took %dns per request (%d chars)%n", strategy, nanos / LOOP_COUNT,
+            length);
+   }
+
+   private static String previousExpand(String template, Map<String, ?> variables) {
+      boolean inVar = false;
+      StringBuilder var = new StringBuilder();
+      StringBuilder builder = new StringBuilder();
+      for (char c : Lists.charactersOf(template)) {
+         switch (c) {
+         case '{':
+            inVar = true;
+            break;
+         case '}':
+            inVar = false;
+            Object value = variables.get(var.toString());
+            builder.append(value != null ? value : "{" + var + "}");
+            var.setLength(0);
+            break;
+         default:
+            (inVar ? var : builder).append(c);
+         }
+      }
+      return builder.toString();
+   }
+
+   private static String previousUrlEncode(String in) throws Exception {
+      if (Strings2.isUrlEncoded(in))
+         return in;
+      String returnVal = URLEncoder.encode(in, "UTF-8").replace("+", "%20").replace("*", "%2A");
+      for (char c : new char[] { '/', ':', ';', '=' })
+         returnVal = returnVal.replace(URLEncoder.encode(c + "", "UTF-8"), c + "");
+      return returnVal;
+   }
+
+   private static String previousReplaceTokens(String input, Multimap<String, ?> tokenValues) {
+      for (Entry<String, ?> tokenValue : tokenValues.entries())
+         input = Pattern.compile("\\{" + tokenValue.getKey() + "\\}").matcher(input)
+               .replaceAll(tokenValue.getValue().toString());
+      return input;
+   }
+}
@@ -51,4 +51,16 @@ public class UriTemplatesTest {
    public void testMissingParamProceeds() {
       assertEquals(expand("/{user-dir}", ImmutableMap.of("user_dir", "foo")), "/{user-dir}");
    }
+
+   public void testBracesOutsideVariables() {
+      assertEquals(expand("/a}b/{c}", ImmutableMap.of("c", "d")), "/a{}b/d");
+      assertEquals(expand("/a/{b", ImmutableMap.of("b", "c")), "/a/");
+      assertEquals(expand("/a/{b{c}", ImmutableMap.of("bc", "d")), "/a/d");
+   }
+
+   public void testExpandIsRepeatable() {
+      String template = "/v2/{tenant}/servers/{id}/action";
+      assertEquals(expand(template, ImmutableMap.of("tenant", "1", "id", "2")), "/v2/1/servers/2/action");
+      assertEquals(expand(template, ImmutableMap.of("tenant", "3")), "/v2/3/servers/{id}/action");
+   }
 }
@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.http.functions;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import javax.xml.parsers.SAXParserFactory;
+
+import org.jclouds.http.functions.XMLReaderPoolTest.CountElements;
+import org.testng.annotations.Test;
+
+/**
+ * Compares the cpu time of parsing a small response with a new {@link org.xml.sax.XMLReader} per response, as
+ * {@code SaxParserModule} used to, and with readers from an {@link XMLReaderPool}.
+ */
+@Test(groups = "performance", singleThreaded = true, timeOut = 2 * 60 * 1000, testName = "XMLReaderPoolPerformanceTest")
+public class XMLReaderPoolPerformanceTest {
+   private static final int LOOP_COUNT = 20000;
+   private static final String RESPONSE = "<DescribeRegionsResponse xmlns=\"http://ec2.amazonaws.com/doc/2014-05-01/\">"
+         + "<requestId>59dbff89-35bd-4eac-99ed-be587EXAMPLE</requestId><regionInfo><item>"
+         + "<regionName>us-east-1</regionName><regionEndpoint>ec2.us-east-1.amazonaws.com</regionEndpoint></item>"
+         + "</regionInfo></DescribeRegionsResponse>";
+
+   private final SAXParserFactory factory = SAXParserFactory.newInstance();
+
+   public void testNewReaderPerResponse() throws Exception {
+      for (int i = 0; i < LOOP_COUNT; i++)
+         parseWithNewReader();
+      long start = cpuTime();
+      for (int i = 0; i < LOOP_COUNT; i++)
+         parseWithNewReader();
+      report("new reader per response", cpuTime() - start);
+   }
+
+   public void testPooledReaders() {
+      XMLReaderPool pool = new XMLReaderPool(factory, 1);
+      for (int i = 0; i < LOOP_COUNT; i++)
+         new ParseSax<Integer>(pool, new CountElements()).parse(RESPONSE);
+      long start = cpuTime();
+      for (int i = 0; i < LOOP_COUNT; i++)
+         new ParseSax<Integer>(pool, new CountElements()).parse(RESPONSE);
+      report("pooled readers", cpuTime() - start);
+   }
+
+   private void parseWithNewReader() throws Exception {
+      new ParseSax<Integer>(factory.newSAXParser().getXMLReader(), new CountElements()).parse(RESPONSE);
+   }
+
+   private static long cpuTime() {
+      ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+      return threads.isCurrentThreadCpuTimeSupported() ? threads.getCurrentThreadCpuTime() : System.nanoTime();
+   }
+
+   private static void report(String strategy, long nanos) {
+      System.out.printf("TIMING: %s took %.1fus cpu per response%n", strategy, nanos / 1000.0 / LOOP_COUNT);
+   }
+}
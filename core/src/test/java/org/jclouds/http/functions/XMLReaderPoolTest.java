@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.http.functions;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.fail;
+
+import javax.xml.parsers.SAXParserFactory;
+
+import org.jclouds.http.functions.config.SaxParserModule;
+import org.testng.annotations.Test;
+import org.xml.sax.Attributes;
+import org.xml.sax.XMLReader;
+
+import com.google.inject.Guice;
+
+@Test(groups = "unit", testName = "XMLReaderPoolTest")
+public class XMLReaderPoolTest {
+
+   static class CountElements extends ParseSax.HandlerWithResult<Integer> {
+      private int count;
+
+      @Override
+      public void startElement(String uri, String localName, String qName, Attributes attributes) {
+         count++;
+      }
+
+      @Override
+      public Integer getResult() {
+         return count;
+      }
+   }
+
+   public void testReleasedReaderIsReused() {
+      XMLReaderPool pool = new XMLReaderPool(SAXParserFactory.newInstance(), 2);
+      XMLReader reader = pool.borrow();
+      pool.release(reader, true);
+      assertEquals(pool.idleCount(), 1);
+      assertSame(pool.borrow(), reader);
+      assertEquals(pool.idleCount(), 0);
+   }
+
+   public void testReaderIsDiscardedAfterFailedParse() {
+      XMLReaderPool pool = new XMLReaderPool(SAXParserFactory.newInstance(), 2);
+      XMLReader reader = pool.borrow();
+      pool.release(reader, false);
+      assertEquals(pool.idleCount(), 0);
+      assertNotSame(pool.borrow(), reader);
+   }
+
+   public void testIdleReadersAreBounded() {
+      XMLReaderPool pool = new XMLReaderPool(SAXParserFactory.newInstance(), 1);
+      XMLReader first = pool.borrow();
+      XMLReader second = pool.borrow();
+      pool.release(first, true);
+      pool.release(second, true);
+      assertEquals(pool.idleCount(), 1);
+   }
+
+   public void testParsesWithPooledReadersAfterFailure() {
+      ParseSax.Factory factory = Guice.createInjector(new SaxParserModule()).getInstance(ParseSax.Factory.class);
+
+      assertEquals(factory.create(new CountElements()).parse("<a><b/><b/></a>"), Integer.valueOf(3));
+      try {
+         factory.create(new CountElements()).parse("<a><b></a>");
+         fail("expected malformed xml to fail");
+      } catch (RuntimeException expected) {
+      }
+      assertEquals(factory.create(new CountElements()).parse("<a><b/></a>"), Integer.valueOf(2));
+   }
+
+   public void testExternalEntitiesAreNotResolved() {
+      ParseSax.Factory factory = Guice.createInjector(new SaxParserModule()).getInstance(ParseSax.Factory.class);
+      String xml = "<?xml version=\"1.0\"?><!DOCTYPE a [<!ENTITY e SYSTEM \"file:///does/not/exist\">]><a>&e;</a>";
+
+      assertEquals(factory.create(new CountElements()).parse(xml), Integer.valueOf(1));
+   }
+}
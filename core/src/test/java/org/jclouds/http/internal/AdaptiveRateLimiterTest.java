@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.http.internal;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.jclouds.http.HttpResponse;
+import org.jclouds.http.handlers.ThrottledStatusCodes;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Throwables;
+import com.google.common.base.Ticker;
+
+@Test(groups = "unit", testName = "AdaptiveRateLimiterTest", singleThreaded = true)
+public class AdaptiveRateLimiterTest {
+
+   private static final URI ENDPOINT = URI.create("https://ec2.us-east-1.amazonaws.com/");
+   private static final URI OTHER = URI.create("https://ec2.eu-west-1.amazonaws.com/");
+   private static final HttpResponse OK = HttpResponse.builder().statusCode(200).build();
+   private static final HttpResponse SLOW_DOWN = HttpResponse.builder().statusCode(503).build();
+
+   private static class FakeTicker extends Ticker {
+      long nanos;
+
+      @Override
+      public long read() {
+         return nanos;
+      }
+
+      void advanceMillis(long millis) {
+         nanos += TimeUnit.MILLISECONDS.toNanos(millis);
+      }
+   }
+
+   private FakeTicker ticker;
+   private AdaptiveRateLimiter limiter;
+
+   @BeforeMethod
+   void setUp() {
+      ticker = new FakeTicker();
+      limiter = new AdaptiveRateLimiter(new ThrottledStatusCodes(), ticker);
+      limiter.setEnabled(true);
+   }
+
+   public void testUnlimitedUntilThrottled() {
+      for (int i = 0; i < 1000; i++)
+         assertEquals(limiter.reserve(ENDPOINT), 0);
+      limiter.onResponse(ENDPOINT, null, OK);
+      assertEquals(limiter.rate(ENDPOINT), Double.POSITIVE_INFINITY);
+   }
+
+   public void testDisabledDoesNotLimit() {
+      limiter.setEnabled(false);
+      send(ENDPOINT, 100);
+      limiter.onResponse(ENDPOINT, null, SLOW_DOWN);
+      assertEquals(limiter.reserve(ENDPOINT), 0);
+      assertEquals(limiter.rate(ENDPOINT), Double.POSITIVE_INFINITY);
+   }
+
+   public void testThrottleHalvesObservedSendRate() {
+      send(ENDPOINT, 100);
+      limiter.onResponse(ENDPOINT, null, SLOW_DOWN);
+      assertEquals(limiter.rate(ENDPOINT), 50.0);
+
+      // the burst is cut off: each further request waits for its own token
+      assertEquals(limiter.reserve(ENDPOINT), TimeUnit.MILLISECONDS.toNanos(20));
+      assertEquals(limiter.reserve(ENDPOINT), TimeUnit.MILLISECONDS.toNanos(40));
+   }
+
+   public void testThrottleOnlyAffectsItsEndpoint() {
+      send(ENDPOINT, 100);
+      send(OTHER, 100);
+      limiter.onResponse(ENDPOINT, null, SLOW_DOWN);
+      assertEquals(limiter.rate(OTHER), Double.POSITIVE_INFINITY);
+      assertEquals(limiter.reserve(OTHER), 0);
+   }
+
+   public void testDecreasesAtMostOncePerSecond() {
+      send(ENDPOINT, 100);
+      limiter.onResponse(ENDPOINT, null, SLOW_DOWN);
+      limiter.onResponse(ENDPOINT, null, SLOW_DOWN);
+      limiter.onResponse(ENDPOINT, null, SLOW_DOWN);
+      assertEquals(limiter.rate(ENDPOINT), 50.0);
+
+      ticker.advanceMillis(1000);
+      limiter.onResponse(ENDPOINT, null, SLOW_DOWN);
+      assertTrue(limiter.rate(ENDPOINT) < 50.0, "rate " + limiter.rate(ENDPOINT));
+   }
+
+   public void testRecoversAdditivelyThenUnlimits() {
+      send(ENDPOINT, 100);
+      limiter.onResponse(ENDPOINT, null, SLOW_DOWN);
+
+      ticker.advanceMillis(1000);
+      limiter.onResponse(ENDPOINT, null, OK);
+      assertEquals(limiter.rate(ENDPOINT), 55.0);
+
+      ticker.advanceMillis(9000);
+      limiter.onResponse(ENDPOINT, null, OK);
+      assertEquals(limiter.rate(ENDPOINT), 100.0);
+
+      // unlimited once twice the rate that was throttled
+      ticker.advanceMillis(20000);
+      limiter.onResponse(ENDPOINT, null, OK);
+      assertEquals(limiter.rate(ENDPOINT), Double.POSITIVE_INFINITY);
+      assertEquals(limiter.reserve(ENDPOINT), 0);
+   }
+
+   public void testWaitLongerThanRequestTimeoutFailsWithoutTakingToken() {
+      limiter.setMaxWait(30);
+      send(ENDPOINT, 100);
+      limiter.onResponse(ENDPOINT, null, SLOW_DOWN);
+      assertEquals(limiter.reserve(ENDPOINT), TimeUnit.MILLISECONDS.toNanos(20));
+      assertEquals(limiter.reserve(ENDPOINT), TimeUnit.MILLISECONDS.toNanos(40));
+      assertEquals(limiter.reserve(ENDPOINT), TimeUnit.MILLISECONDS.toNanos(40));
+      try {
+         limiter.acquire(ENDPOINT);
+         fail("expected a timeout");
+      } catch (RuntimeException e) {
+         assertTrue(Throwables.getRootCause(e) instanceof TimeoutException, e.toString());
+      }
+
+      // only the request which was let through is queued
+      ticker.advanceMillis(20);
+      long waitNanos = limiter.reserve(ENDPOINT);
+      assertTrue(waitNanos > 0 && waitNanos <= TimeUnit.MILLISECONDS.toNanos(20), "wait " + waitNanos);
+   }
+
+   public void testInterruptedWaitGivesBackToken() {
+      send(ENDPOINT, 100);
+      limiter.onResponse(ENDPOINT, null, SLOW_DOWN);
+      Thread.currentThread().interrupt();
+      try {
+         limiter.acquire(ENDPOINT);
+         fail("expected an interruption");
+      } catch (RuntimeException e) {
+         assertTrue(Throwables.getRootCause(e) instanceof InterruptedException, e.toString());
+         assertTrue(Thread.interrupted(), "interrupt status restored");
+      }
+      assertEquals(limiter.reserve(ENDPOINT), TimeUnit.MILLISECONDS.toNanos(20));
+   }
+
+   public void testRateNeverDropsBelowOnePerSecond() {
+      limiter.reserve(ENDPOINT);
+      for (int i = 0; i < 5; i++) {
+         limiter.onResponse(ENDPOINT, null, SLOW_DOWN);
+         ticker.advanceMillis(1000);
+      }
+      assertTrue(limiter.rate(ENDPOINT) >= 1.0, "rate " + limiter.rate(ENDPOINT));
+   }
+
+   public void testRequestEntityTooLargeIsOnlyThrottlingWithRetryAfter() {
+      ThrottledStatusCodes classifier = new ThrottledStatusCodes();
+      assertTrue(classifier.isThrottled(null, HttpResponse.builder().statusCode(429).build()));
+      assertTrue(classifier.isThrottled(null,
+            HttpResponse.builder().statusCode(413).addHeader("Retry-After", "2").build()));
+      assertEquals(classifier.isThrottled(null, HttpResponse.builder().statusCode(413).build()), false);
+      assertEquals(classifier.isThrottled(null, HttpResponse.builder().statusCode(500).build()), false);
+   }
+
+   private void send(URI endpoint, int requests) {
+      for (int i = 0; i < requests; i++)
+         assertEquals(limiter.reserve(endpoint), 0);
+   }
+}
@@ -38,6 +38,7 @@ import org.easymock.IAnswer;
 import org.jclouds.http.HttpCommand;
 import org.jclouds.http.HttpRequest;
 import org.jclouds.http.HttpResponse;
+import org.jclouds.http.HttpResponseException;
 import org.jclouds.http.HttpUtils;
 import org.jclouds.http.IOExceptionRetryHandler;
 import org.jclouds.http.handlers.DelegatingErrorHandler;
@@ -196,6 +197,17 @@ public class BaseHttpCommandExecutorServiceTest {
       assertEquals(response.getPayload().openStream().read(), -1);
    }
 
+   @Test(expectedExceptions = HttpResponseException.class, expectedExceptionsMessageRegExp = "aborted .*")
+   public void testAbortedCommandIsNotSent() {
+      DelegatingRetryHandler retryHandler = EasyMock.createMock(DelegatingRetryHandler.class);
+      DelegatingErrorHandler errorHandler = EasyMock.createMock(DelegatingErrorHandler.class);
+      replay(retryHandler, errorHandler);
+      HttpCommand command = mockHttpCommand();
+      command.abort();
+
+      mockHttpCommandExecutorService(retryHandler, errorHandler).invoke(command);
+   }
+
    private HttpCommand mockHttpCommand() {
       return new HttpCommand(HttpRequest.builder().endpoint("http://localhost").method("mock").build());
    }
@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.http.internal;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jclouds.http.HttpCommand;
+import org.jclouds.http.HttpCommandExecutorService;
+import org.jclouds.http.HttpRequest;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.http.HttpResponseException;
+import org.jclouds.io.Payload;
+import org.jclouds.io.Payloads;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Ticker;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+@Test(groups = "unit", testName = "HedgedHttpCommandInvokerTest", singleThreaded = true)
+public class HedgedHttpCommandInvokerTest {
+
+   private static final HttpRequest GET = HttpRequest.builder().method("GET").endpoint("http://bucket.s3/key").build();
+
+   /**
+    * Answers at once, except for the call numbered {@code straggler}, which waits until released.
+    */
+   private static class StragglingHttp implements HttpCommandExecutorService {
+      private final AtomicInteger calls = new AtomicInteger();
+      private final CountDownLatch release = new CountDownLatch(1);
+      private final AtomicBoolean stragglerAborted = new AtomicBoolean();
+      private final AtomicBoolean stragglerReleased = new AtomicBoolean();
+      private final int straggler;
+      private final boolean abortable;
+      private volatile Thread lastCaller;
+
+      private StragglingHttp(int straggler, boolean abortable) {
+         this.straggler = straggler;
+         this.abortable = abortable;
+      }
+
+      @Override
+      public HttpResponse invoke(HttpCommand command) {
+         lastCaller = Thread.currentThread();
+         int call = calls.incrementAndGet();
+         if (call != straggler)
+            return HttpResponse.builder().statusCode(200).message("call " + call).build();
+         if (abortable) {
+            command.setAbortHandle(new Closeable() {
+               @Override
+               public void close() {
+                  stragglerAborted.set(true);
+                  release.countDown();
+               }
+            });
+         }
+         Uninterruptibles.awaitUninterruptibly(release);
+         if (stragglerAborted.get())
+            throw new HttpResponseException("connection closed", command, null);
+         Payload payload = Payloads.newInputStreamPayload(new ByteArrayInputStream(new byte[1]) {
+            @Override
+            public void close() throws IOException {
+               stragglerReleased.set(true);
+            }
+         });
+         return HttpResponse.builder().statusCode(200).message("call " + call).payload(payload).build();
+      }
+   }
+
+   private ScheduledExecutorService scheduler;
+   private ExecutorService hedgeExecutor;
+
+   @BeforeMethod
+   void createExecutors() {
+      scheduler = Executors.newSingleThreadScheduledExecutor();
+      hedgeExecutor = Executors.newCachedThreadPool();
+   }
+
+   @AfterMethod
+   void shutdownExecutors() {
+      scheduler.shutdownNow();
+      hedgeExecutor.shutdownNow();
+   }
+
+   private HedgedHttpCommandInvoker newInvoker(HttpCommandExecutorService http) {
+      return new HedgedHttpCommandInvoker(http, scheduler, hedgeExecutor, Ticker.systemTicker());
+   }
+
+   public void testNotHedgedWithoutBudget() {
+      StragglingHttp http = new StragglingHttp(0, true);
+      HedgedHttpCommandInvoker invoker = newInvoker(http);
+      for (int i = 0; i < 50; i++)
+         invoker.invoke("GetObject", new HttpCommand(GET), 95);
+      assertEquals(http.calls.get(), 50);
+   }
+
+   public void testWritesAreNotHedged() {
+      StragglingHttp http = new StragglingHttp(0, true);
+      HedgedHttpCommandInvoker invoker = newInvoker(http);
+      invoker.setBudgetPercent(100);
+      HttpRequest put = GET.toBuilder().method("PUT").payload("foo").build();
+      for (int i = 0; i < 50; i++)
+         invoker.invoke("PutObject", new HttpCommand(put), 0);
+      assertEquals(http.calls.get(), 50);
+   }
+
+   public void testRequestIsSentOnTheCallingThread() {
+      StragglingHttp http = new StragglingHttp(0, true);
+      HedgedHttpCommandInvoker invoker = newInvoker(http);
+      invoker.setBudgetPercent(100);
+      for (int i = 0; i < HedgedHttpCommandInvoker.MIN_SAMPLES + 5; i++) {
+         invoker.invoke("GetObject", new HttpCommand(GET), 95);
+         assertSame(http.lastCaller, Thread.currentThread());
+      }
+   }
+
+   public void testStragglerIsHedgedAndAborted() {
+      StragglingHttp http = new StragglingHttp(HedgedHttpCommandInvoker.MIN_SAMPLES + 1, true);
+      HedgedHttpCommandInvoker invoker = newInvoker(http);
+      invoker.setBudgetPercent(100);
+      for (int i = 0; i < HedgedHttpCommandInvoker.MIN_SAMPLES; i++)
+         invoker.invoke("GetObject", new HttpCommand(GET), 95);
+
+      HttpResponse response = invoker.invoke("GetObject", new HttpCommand(GET), 95);
+
+      assertEquals(response.getMessage(), "call " + (HedgedHttpCommandInvoker.MIN_SAMPLES + 2));
+      assertTrue(http.stragglerAborted.get(), "the straggler was not aborted");
+   }
+
+   public void testLateResponseOfStragglerIsReleased() {
+      final StragglingHttp http = new StragglingHttp(HedgedHttpCommandInvoker.MIN_SAMPLES + 1, false);
+      HedgedHttpCommandInvoker invoker = newInvoker(http);
+      invoker.setBudgetPercent(100);
+      for (int i = 0; i < HedgedHttpCommandInvoker.MIN_SAMPLES; i++)
+         invoker.invoke("GetObject", new HttpCommand(GET), 95);
+
+      hedgeExecutor.execute(new Runnable() {
+         @Override
+         public void run() {
+            Uninterruptibles.sleepUninterruptibly(500, TimeUnit.MILLISECONDS);
+            http.release.countDown();
+         }
+      });
+      HttpResponse response = invoker.invoke("GetObject", new HttpCommand(GET), 95);
+      assertEquals(response.getMessage(), "call " + (HedgedHttpCommandInvoker.MIN_SAMPLES + 2));
+
+      for (int i = 0; i < 50 && !http.stragglerReleased.get(); i++)
+         Uninterruptibles.sleepUninterruptibly(100, TimeUnit.MILLISECONDS);
+      assertTrue(http.stragglerReleased.get(), "late response of the straggler was not released");
+   }
+
+   public void testBudgetLimitsHedges() {
+      final StragglingHttp http = new StragglingHttp(HedgedHttpCommandInvoker.MIN_SAMPLES + 1, true);
+      HedgedHttpCommandInvoker invoker = newInvoker(http);
+      invoker.setBudgetPercent(1);
+      for (int i = 0; i < HedgedHttpCommandInvoker.MIN_SAMPLES; i++)
+         invoker.invoke("GetObject", new HttpCommand(GET), 95);
+
+      hedgeExecutor.execute(new Runnable() {
+         @Override
+         public void run() {
+            Uninterruptibles.sleepUninterruptibly(200, TimeUnit.MILLISECONDS);
+            http.release.countDown();
+         }
+      });
+      HttpResponse response = invoker.invoke("GetObject", new HttpCommand(GET), 95);
+      assertEquals(response.getMessage(), "call " + (HedgedHttpCommandInvoker.MIN_SAMPLES + 1));
+      assertEquals(http.calls.get(), HedgedHttpCommandInvoker.MIN_SAMPLES + 1);
+   }
+}
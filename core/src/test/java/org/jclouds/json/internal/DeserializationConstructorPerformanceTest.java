@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.json.internal;
+
+import static org.testng.Assert.assertEquals;
+
+import java.beans.ConstructorProperties;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Map;
+
+import org.jclouds.json.Json;
+import org.jclouds.json.config.GsonModule;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Optional;
+import com.google.inject.Guice;
+import com.google.inject.TypeLiteral;
+
+/**
+ * Measures the cpu time of deserializing a 2000 element list of server-like objects through their annotated
+ * constructors, as when listing servers of a large OpenStack Nova tenant.
+ */
+@Test(groups = "performance", singleThreaded = true, timeOut = 2 * 60 * 1000, testName = "DeserializationConstructorPerformanceTest")
+public class DeserializationConstructorPerformanceTest {
+   private static final int SERVERS = 2000;
+   private static final int LOOP_COUNT = 20;
+   private static final Type SERVER_LIST = new TypeLiteral<List<Server>>() {
+   }.getType();
+
+   static class Server {
+      final String id;
+      final String name;
+      final String tenantId;
+      final String userId;
+      final String status;
+      final String hostId;
+      final int progress;
+      final boolean locked;
+      final long created;
+      final Optional<String> keyName;
+      final Map<String, String> metadata;
+      final Image image;
+
+      @ConstructorProperties({ "id", "name", "tenant_id", "user_id", "status", "hostId", "progress", "locked",
+            "created", "key_name", "metadata", "image" })
+      Server(String id, String name, String tenantId, String userId, String status, String hostId, int progress,
+            boolean locked, long created, Optional<String> keyName, Map<String, String> metadata, Image image) {
+         this.id = id;
+         this.name = name;
+         this.tenantId = tenantId;
+         this.userId = userId;
+         this.status = status;
+         this.hostId = hostId;
+         this.progress = progress;
+         this.locked = locked;
+         this.created = created;
+         this.keyName = keyName;
+         this.metadata = metadata;
+         this.image = image;
+      }
+   }
+
+   static class Image {
+      final String id;
+      final String name;
+
+      @ConstructorProperties({ "id", "name" })
+      Image(String id, String name) {
+         this.id = id;
+         this.name = name;
+      }
+   }
+
+   public void testParseServerList() {
+      Json json = Guice.createInjector(new GsonModule()).getInstance(Json.class);
+      String servers = serverList();
+      for (int i = 0; i < LOOP_COUNT; i++)
+         assertEquals(json.<List<Server>> fromJson(servers, SERVER_LIST).size(), SERVERS);
+      long start = cpuTime();
+      for (int i = 0; i < LOOP_COUNT; i++)
+         json.fromJson(servers, SERVER_LIST);
+      System.out.printf("TIMING: parsing %d servers took %.2fms cpu%n", SERVERS, (cpuTime() - start) / 1e6
+            / LOOP_COUNT);
+   }
+
+   private static String serverList() {
+      StringBuilder builder = new StringBuilder("[");
+      for (int i = 0; i < SERVERS; i++) {
+         if (i > 0)
+            builder.append(',');
+         builder.append("{\"id\":\"").append(i).append("\",\"name\":\"server-").append(i)
+               .append("\",\"tenant_id\":\"37936628937291\",\"user_id\":\"54297837463082\",\"status\":\"ACTIVE\"")
+               .append(",\"hostId\":\"e4d909c290d0fb1ca068ffaddf22cbd0\",\"progress\":100,\"created\":1354187420")
+               .append(",\"metadata\":{\"Server Label\":\"Web Head 1\"}")
+               .append(",\"image\":{\"id\":\"52415800-8b69-11e0-9b19-734f6f006e54\",\"name\":\"CentOS 5.2\"}}");
+      }
+      return builder.append(']').toString();
+   }
+
+   private static long cpuTime() {
+      ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+      return threads.isCurrentThreadCpuTimeSupported() ? threads.getCurrentThreadCpuTime() : System.nanoTime();
+   }
+}
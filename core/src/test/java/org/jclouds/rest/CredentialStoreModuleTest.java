@@ -18,11 +18,13 @@ package org.jclouds.rest;
 
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 
 import java.io.IOException;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.jclouds.crypto.PemsTest;
 import org.jclouds.domain.Credentials;
@@ -30,6 +32,7 @@ import org.jclouds.domain.LoginCredentials;
 import org.jclouds.json.Json;
 import org.jclouds.json.config.GsonModule;
 import org.jclouds.rest.config.CredentialStoreModule;
+import org.jclouds.rest.config.CredentialStoreModule.CachingCredentialStore;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
@@ -144,6 +147,34 @@ public class CredentialStoreModuleTest {
       assertEquals(deserializedCreds.shouldAuthenticateSudo(), creds.shouldAuthenticateSudo());
    }
    
+   public void testRepeatedReadsDecodeOnceUntilBytesChange() {
+      final AtomicInteger decodes = new AtomicInteger();
+      final Function<ByteSource, Credentials> fromBytes = getByteStoreToCredentialsFunction(createInjector());
+      Function<ByteSource, Credentials> countingFromBytes = new Function<ByteSource, Credentials>() {
+         @Override
+         public Credentials apply(ByteSource input) {
+            decodes.incrementAndGet();
+            return fromBytes.apply(input);
+         }
+      };
+      Function<Credentials, ByteSource> toBytes = getCredentialsToByteStoreFunction(createInjector());
+      Map<String, ByteSource> map = new ConcurrentHashMap<String, ByteSource>();
+      Map<String, Credentials> store = new CachingCredentialStore(map, countingFromBytes, toBytes);
+
+      store.put("node#1", new Credentials("user", "pass"));
+      for (int i = 0; i < 10; i++)
+         assertEquals(store.get("node#1"), new Credentials("user", "pass"));
+      assertEquals(decodes.get(), 1);
+
+      // written through another store sharing the backing map
+      map.put("node#1", toBytes.apply(new Credentials("user", "newpass")));
+      assertEquals(store.get("node#1"), new Credentials("user", "newpass"));
+      assertEquals(decodes.get(), 2);
+
+      map.remove("node#1");
+      assertNull(store.get("node#1"));
+   }
+
    protected Map<String, Credentials> getStore(Injector injector) {
       return injector.getInstance(Key.get(new TypeLiteral<Map<String, Credentials>>() {
       }));
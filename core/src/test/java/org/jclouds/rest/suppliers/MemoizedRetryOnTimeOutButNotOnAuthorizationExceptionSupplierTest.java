@@ -20,7 +20,11 @@ import static com.google.common.base.Suppliers.ofInstance;
 import static com.google.common.util.concurrent.Atomics.newReference;
 import static org.testng.Assert.assertEquals;
 
+import java.util.List;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.jclouds.rest.AuthorizationException;
@@ -28,6 +32,7 @@ import org.jclouds.rest.suppliers.MemoizedRetryOnTimeOutButNotOnAuthorizationExc
 import org.testng.annotations.Test;
 
 import com.google.common.base.Supplier;
+import com.google.common.collect.Lists;
 import com.google.common.util.concurrent.UncheckedExecutionException;
 
 @Test(groups = "unit", testName = "MemoizedRetryOnTimeOutButNotOnAuthorizationExceptionSupplierTest")
@@ -95,4 +100,31 @@ public class MemoizedRetryOnTimeOutButNotOnAuthorizationExceptionSupplierTest {
          assertEquals(authException.get().getClass(), RuntimeException.class);
       }
    }
+
+   @Test
+   public void testRefreshingInBackgroundReturnsPreviousValueUntilReloaded() throws InterruptedException {
+      AtomicReference<AuthorizationException> authException = newReference();
+      final AtomicInteger loads = new AtomicInteger();
+      final List<Runnable> refreshes = Lists.newArrayList();
+      Supplier<Integer> memoized = MemoizedRetryOnTimeOutButNotOnAuthorizationExceptionSupplier
+            .createRefreshingInBackground(authException, new Supplier<Integer>() {
+               public Integer get() {
+                  return loads.incrementAndGet();
+               }
+            }, 10, TimeUnit.MILLISECONDS, new Executor() {
+               public void execute(Runnable command) {
+                  refreshes.add(command);
+               }
+            });
+
+      assertEquals(memoized.get(), Integer.valueOf(1));
+      Thread.sleep(50);
+      // stale, so a refresh is scheduled, but the previous value is still served
+      assertEquals(memoized.get(), Integer.valueOf(1));
+      assertEquals(refreshes.size(), 1);
+      assertEquals(loads.get(), 1);
+
+      refreshes.get(0).run();
+      assertEquals(memoized.get(), Integer.valueOf(2));
+   }
 }
@@ -20,9 +20,13 @@ import static org.jclouds.util.Strings2.urlDecode;
 import static org.jclouds.util.Strings2.urlEncode;
 import static org.testng.Assert.assertEquals;
 
+import java.net.URLEncoder;
+
 import org.testng.annotations.Test;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.Multimap;
 
 @Test(groups = "unit")
 public class Strings2Test {
@@ -47,6 +51,26 @@ public class Strings2Test {
       assertEquals(Strings2.replaceTokens("hello {where}", ImmutableMap.of("where", "world")), "hello world");
    }
 
+   public void testReplaceTokensFromMultimap() {
+      Multimap<String, Object> tokens = LinkedHashMultimap.create();
+      tokens.put("name", "a$1{id}");
+      tokens.put("name", "ignored");
+      tokens.put("id", 7);
+      assertEquals(Strings2.replaceTokens("{\"server\":{\"name\":\"{name}\",\"id\":{id}}}", tokens),
+            "{\"server\":{\"name\":\"a$1{id}\",\"id\":7}}");
+      assertEquals(Strings2.replaceTokens("{{id}} {missing} {id", tokens), "{7} {missing} {id");
+   }
+
+   public void testUrlEncodeMatchesURLEncoder() throws Exception {
+      StringBuilder ascii = new StringBuilder();
+      for (char c = 0; c < 128; c++)
+         ascii.append(c);
+      String expected = URLEncoder.encode(ascii.toString(), "UTF-8").replace("+", "%20").replace("*", "%2A");
+      assertEquals(urlEncode(ascii.toString()), expected);
+      assertEquals(urlEncode(ascii.toString(), '/', ':', ' ', '*'), expected.replace("%2F", "/").replace("%3A", ":"));
+      assertEquals(urlEncode("/unic\u20aade/key", '/'), "/unic%E2%82%AAde/key");
+   }
+
    public void testUrlEncodeDecodeShouldGiveTheSameString() {
       String actual = "ssh-rsa AAAAB3NzaC1yc2EAAAADAQABAAABAQCc903twxU2zcQnIJdXv61RwZNZW94uId9qz08fgsBJsCOnHNIC4+L9k" +
          "DOA2IHV9cUfEDBm1Be5TbpadWwSbS/05E+FARH2/MCO932UgcKUq5PGymS0249fLCBPci5zoLiG5vIym+1ij1hL/nHvkK99NIwe7io+Lmp" +
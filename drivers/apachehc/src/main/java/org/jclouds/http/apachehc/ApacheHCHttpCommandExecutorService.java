@@ -20,6 +20,7 @@ import static com.google.common.hash.Hashing.md5;
 import static com.google.common.io.BaseEncoding.base64;
 import static org.jclouds.http.HttpUtils.filterOutContentHeaders;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.net.URI;
 
@@ -110,6 +111,16 @@ public class ApacheHCHttpCommandExecutorService extends BaseHttpCommandExecutorS
       return nativeResponse;
    }
 
+   @Override
+   protected Closeable abortHandle(final HttpUriRequest nativeRequest) {
+      return new Closeable() {
+         @Override
+         public void close() {
+            nativeRequest.abort();
+         }
+      };
+   }
+
    @Override
    protected void cleanup(HttpUriRequest nativeResponse) {
       // No cleanup necessary
@@ -50,7 +50,7 @@ import org.jclouds.io.Payloads;
 import org.jclouds.logging.Logger;
 import org.jclouds.proxy.ProxyConfig;
 import org.jclouds.rest.AuthorizationException;
-import org.jclouds.ssh.SshClient;
+import org.jclouds.ssh.ConnectionAwareSshClient;
 import org.jclouds.ssh.SshException;
 import org.jclouds.util.Closeables2;
 import org.jclouds.util.Strings2;
@@ -72,7 +72,7 @@ import com.jcraft.jsch.agentproxy.Connector;
 /**
  * This class needs refactoring. It is not thread safe.
  */
-public class JschSshClient implements SshClient {
+public class JschSshClient implements ConnectionAwareSshClient {
 
    private static final class CloseFtpChannelOnCloseInputStream extends FilterInputStream {
 
@@ -153,8 +153,13 @@ public class JschSshClient implements SshClient {
       put(path, Payloads.newStringPayload(checkNotNull(contents, "contents")));
    }
 
+   @Override
+   public boolean isConnected() {
+      return sessionConnection.getSession() != null && sessionConnection.getSession().isConnected();
+   }
+
    private void checkConnected() {
-      checkState(sessionConnection.getSession() != null && sessionConnection.getSession().isConnected(), String.format(
+      checkState(isConnected(), String.format(
                "(%s) Session not connected!", toString()));
    }
 
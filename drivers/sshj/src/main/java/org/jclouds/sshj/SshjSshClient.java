@@ -62,7 +62,7 @@ import org.jclouds.io.Payload;
 import org.jclouds.io.Payloads;
 import org.jclouds.logging.Logger;
 import org.jclouds.rest.AuthorizationException;
-import org.jclouds.ssh.SshClient;
+import org.jclouds.ssh.ConnectionAwareSshClient;
 import org.jclouds.ssh.SshException;
 import org.jclouds.util.Closeables2;
 import org.jclouds.util.Throwables2;
@@ -83,7 +83,7 @@ import com.jcraft.jsch.agentproxy.Connector;
  * This class needs refactoring. It is not thread safe.
  */
 @SuppressWarnings("unchecked")
-public class SshjSshClient implements SshClient {
+public class SshjSshClient implements ConnectionAwareSshClient {
 
    private static final class CloseFtpChannelOnCloseInputStream extends FilterInputStream {
 
@@ -170,8 +170,13 @@ public class SshjSshClient implements SshClient {
       put(path, Payloads.newStringPayload(checkNotNull(contents, "contents")));
    }
 
+   @Override
+   public boolean isConnected() {
+      return sshClientConnection.ssh != null && sshClientConnection.ssh.isConnected();
+   }
+
    private void checkConnected() {
-      checkState(sshClientConnection.ssh != null && sshClientConnection.ssh.isConnected(), String
+      checkState(isConnected(), String
                .format("(%s) ssh not connected!", toString()));
    }
 